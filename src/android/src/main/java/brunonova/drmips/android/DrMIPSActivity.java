@@ -22,6 +22,7 @@ import android.app.Activity;
 import android.content.SharedPreferences;
 import android.graphics.Typeface;
 import android.os.Bundle;
+import android.os.Handler;
 import android.text.Editable;
 import android.text.TextUtils.TruncateAt;
 import android.text.TextWatcher;
@@ -49,7 +50,10 @@ import android.widget.Toast;
 import brunonova.drmips.android.dialogs.*;
 import brunonova.drmips.simulator.AssembledInstruction;
 import brunonova.drmips.simulator.CPU;
+import brunonova.drmips.simulator.CPUFileCache;
 import brunonova.drmips.simulator.Data;
+import brunonova.drmips.simulator.RunOptions;
+import brunonova.drmips.simulator.RunResult;
 import brunonova.drmips.simulator.exceptions.*;
 import org.json.JSONException;
 
@@ -65,6 +69,12 @@ import java.io.OutputStreamWriter;
 import java.util.Arrays;
 
 public class DrMIPSActivity extends Activity {
+	/** The maximum time (in milliseconds) the "run" action blocks the UI thread at a time. */
+	private static final long RUN_SLICE_TIME = 50;
+	/** Handler that posts the slices of the "run" action to the UI thread. */
+	private final Handler runHandler = new Handler();
+	/** The "run" action in progress (<tt>null</tt> if none). */
+	private RunTask runTask = null;
 	/** The file currently open (if <tt>null</tt> no file is open). */
 	private File openFile = null;
 	/** The filter to select only .cpu files. */
@@ -75,6 +85,8 @@ public class DrMIPSActivity extends Activity {
 	private RegistersRowOnLongClickListener registersRowOnLongClickListener = new RegistersRowOnLongClickListener();
 	/** On long click listener handler for the data memory table rows. */
 	private DataMemoryRowOnLongClickListener dataMemoryRowOnLongClickListener = new DataMemoryRowOnLongClickListener();
+	/** The indexes of the memory positions in each row of the data memory table (only the touched pages of a paged memory). */
+	private int[] dataMemoryIndexes = new int[0];
 	/** Listener that handles changes on the spinners. */
 	private SpinnersListener spinnersListener = new SpinnersListener();
 	/** The datapath being shown. */
@@ -162,6 +174,12 @@ public class DrMIPSActivity extends Activity {
 		super.onSaveInstanceState(outState);
 	}
 	
+	@Override
+	protected void onPause() {
+		stopRun();
+		super.onPause();
+	}
+	
 	@Override
 	public void onBackPressed() {
 		DlgConfirmExit.newInstance().show(getFragmentManager(), "confirm-exit-dialog");
@@ -562,8 +580,9 @@ public class DrMIPSActivity extends Activity {
 	 * @param file File to load the CPU from.
 	 */
 	public void loadCPU(File file) throws ArrayIndexOutOfBoundsException, NumberFormatException, IOException, JSONException, InvalidCPUException, InvalidInstructionSetException {
+		stopRun();
 		setSimulationControlsEnabled(false);
-		CPU cpu = CPU.createFromJSONFile(file.getAbsolutePath()); // load CPU from file
+		CPU cpu = CPU.createFromJSONFile(file.getAbsolutePath(), new CPUFileCache(getCacheDir())); // load CPU from file (or from the cache)
 		cpu.setPerformanceInstructionDependent(cmbDatapathPerformance.getSelectedItemPosition() == Util.INSTRUCTION_PERFORMANCE_TYPE_INDEX);
 		DrMIPS.getApplication().setCPU(cpu);
 		
@@ -651,6 +670,7 @@ public class DrMIPSActivity extends Activity {
 	 * Assembles and loads the code from the Code tab.
 	 */
 	private void assemble() {
+		stopRun();
 		getCPU().resetData();
 		try {
 			getCPU().assembleCode(txtCode.getText().toString());
@@ -751,16 +771,27 @@ public class DrMIPSActivity extends Activity {
 	}
 	
 	/**
-	 * Executes all the instructions at once.
+	 * Executes all the instructions.
+	 * <p>The program is executed in short slices posted to the UI thread, so
+	 * that it doesn't stop responding. The simulation controls are hidden
+	 * until it finishes.</p>
 	 */
 	private void run() {
-		try {
-			getCPU().executeAll();
-		}
-		catch(InfiniteLoopException e) {
-			Toast.makeText(this, getString(R.string.possible_infinite_loop).replace("#1", "" + CPU.EXECUTE_ALL_LIMIT_CYCLES), Toast.LENGTH_SHORT).show();
+		if(runTask != null) return; // already running
+		setSimulationControlsEnabled(false);
+		runTask = new RunTask();
+		runHandler.post(runTask);
+	}
+	
+	/**
+	 * Stops the "run" action in progress, if any, and displays the results.
+	 */
+	private void stopRun() {
+		if(runTask != null) {
+			runHandler.removeCallbacks(runTask);
+			runTask = null;
+			refreshValues();
 		}
-		refreshValues();
 	}
 	
 	/**
@@ -932,10 +963,12 @@ public class DrMIPSActivity extends Activity {
 			tblDataMemory.removeViewAt(1);
 		
 		CPU cpu = getCPU();
+		dataMemoryIndexes = new int[0];
 		if(cpu.hasDataMemory()) {
 			TableRow row;
 			TextView address, value;
-			for(int i = 0; i < cpu.getDataMemory().getMemorySize(); i++) {
+			dataMemoryIndexes = cpu.getDataMemory().getIndexesInUse();
+			for(int i = 0; i < dataMemoryIndexes.length; i++) {
 				row = new TableRow(this);
 				row.setOnLongClickListener(dataMemoryRowOnLongClickListener);
 				address = new TextView(this);
@@ -962,26 +995,30 @@ public class DrMIPSActivity extends Activity {
 		if(cpu.hasDataMemory()) {
 			TextView address, value;
 			TableRow row;
+			if(dataMemoryIndexes.length != cpu.getDataMemory().getNumberOfIndexesInUse()) { // pages touched or freed
+				refreshDataMemoryTable();
+				return;
+			}
 
-			for(int i = 0; i < cpu.getDataMemory().getMemorySize(); i++) {
+			for(int i = 0; i < dataMemoryIndexes.length; i++) {
 				row = (TableRow)tblDataMemory.getChildAt(i + 1);
 				address = (TextView)row.getChildAt(0);
 				value = (TextView)row.getChildAt(1);
-				address.setText(Util.formatDataAccordingToFormat(new Data(Data.DATA_SIZE, i * (Data.DATA_SIZE / 8)), cmbDataMemoryFormat.getSelectedItemPosition()) + " ");
-				value.setText(Util.formatDataAccordingToFormat(new Data(Data.DATA_SIZE, cpu.getDataMemory().getDataInIndex(i)), cmbDataMemoryFormat.getSelectedItemPosition()));
+				address.setText(Util.formatDataAccordingToFormat(new Data(Data.DATA_SIZE, dataMemoryIndexes[i] * (Data.DATA_SIZE / 8)), cmbDataMemoryFormat.getSelectedItemPosition()) + " ");
+				value.setText(Util.formatDataAccordingToFormat(new Data(Data.DATA_SIZE, cpu.getDataMemory().getDataInIndex(dataMemoryIndexes[i])), cmbDataMemoryFormat.getSelectedItemPosition()));
 				
 				// Highlight memory positions being accessed
-				int index = cpu.getDataMemory().getAddress().getValue() / (Data.DATA_SIZE / 8);
+				int index = cpu.getDataMemory().getIndexOfAddress(cpu.getDataMemory().getAddress().getValue());
 				boolean read = cpu.getDataMemory().getMemRead().getValue() == 1;
 				boolean write = cpu.getDataMemory().getMemWrite().getValue() == 1;
 
-				if(write && i == index) {
+				if(write && dataMemoryIndexes[i] == index) {
 					if(read)
 						row.setBackgroundColor(Util.getThemeColor(this, R.attr.rwColor));
 					else
 						row.setBackgroundColor(Util.getThemeColor(this, R.attr.writeColor));
 				}
-				else if(read && i == index)
+				else if(read && dataMemoryIndexes[i] == index)
 					row.setBackgroundColor(Util.getThemeColor(this, R.attr.readColor));
 				else
 					row.setBackgroundResource(0); // remove background color
@@ -1040,6 +1077,7 @@ public class DrMIPSActivity extends Activity {
 			else if(row >= 0 && row < cpu.getRegBank().getNumberOfRegisters()) // register
 				cpu.getRegBank().setRegister(row, value);
 			
+			cpu.discardNewerCycles(); // the saved newer cycles are outdated
 			if(datapath != null) datapath.refresh(); // update datapath
 			refreshExecTableValues();
 		}
@@ -1141,6 +1179,29 @@ public class DrMIPSActivity extends Activity {
 		return (i != null) ? i.getCodeLine() : "";
 	}
 	
+	/**
+	 * Executes a slice of the "run" action and posts the next one if needed.
+	 */
+	private class RunTask implements Runnable {
+		/** The number of cycles executed so far. */
+		private long cycles = 0;
+		
+		@Override
+		public void run() {
+			RunResult result = getCPU().executeAll(new RunOptions(RunOptions.DEFAULT_MAX_CYCLES - cycles, RUN_SLICE_TIME));
+			cycles += result.getCycles();
+			if(result.getReason() == RunResult.Reason.BUDGET && cycles < RunOptions.DEFAULT_MAX_CYCLES) {
+				runHandler.post(this); // continue after the pending input events
+				return;
+			}
+			
+			runTask = null;
+			if(result.getReason() == RunResult.Reason.BUDGET)
+				Toast.makeText(DrMIPSActivity.this, getString(R.string.possible_infinite_loop).replace("#1", "" + cycles), Toast.LENGTH_SHORT).show();
+			refreshValues();
+		}
+	}
+	
 	private class CPUFileFilter implements FilenameFilter {
 		@Override
 		public boolean accept(File dir, String filename) {
@@ -1187,8 +1248,9 @@ public class DrMIPSActivity extends Activity {
 	private class DataMemoryRowOnLongClickListener implements OnLongClickListener {
 		@Override
 		public boolean onLongClick(View v) {
-			int index = tblDataMemory.indexOfChild(v) - 1;
-			if(index >= 0 && index < getCPU().getDataMemory().getMemorySize()) {
+			int row = tblDataMemory.indexOfChild(v) - 1;
+			if(row >= 0 && row < dataMemoryIndexes.length) {
+				int index = dataMemoryIndexes[row];
 				int value = getCPU().getDataMemory().getDataInIndex(index);
 				DlgEditDataMemory.newInstance(index, value).show(getFragmentManager(), "edit-data-memory-dialog");
 			}
@@ -97,7 +97,7 @@ public class DlgChangeLatency extends DialogFragment implements DialogInterface.
 					int lat = Integer.parseInt(txtLatency.getText().toString());
 					if(lat >= 0 && component != null) {
 						component.setLatency(lat);
-						activity.getCPU().calculatePerformance();
+						activity.getCPU().calculatePerformance(component);
 						activity.getDatapath().refresh();
 						activity.getDatapath().invalidate();
 					} else {
@@ -100,6 +100,7 @@ public class DlgEditDataMemory extends DialogFragment implements DialogInterface
 						if(index >= 0 && index < activity.getCPU().getDataMemory().getMemorySize()) {
 							val = Integer.parseInt(value);
 							activity.getCPU().getDataMemory().setDataInIndex(index, val);
+							activity.getCPU().discardNewerCycles(); // the saved newer cycles are outdated
 							activity.refreshDataMemoryTableValues();
 							if(activity.getDatapath() != null) activity.getDatapath().refresh();
 						}
@@ -0,0 +1,291 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.cli;
+
+import brunonova.drmips.simulator.CPU;
+import brunonova.drmips.simulator.Data;
+import brunonova.drmips.simulator.RunOptions;
+import brunonova.drmips.simulator.RunResult;
+import brunonova.drmips.simulator.components.DataMemory;
+import brunonova.drmips.simulator.components.ExtendedALU;
+import brunonova.drmips.simulator.components.RegBank;
+import brunonova.drmips.simulator.exceptions.InvalidCPUException;
+import brunonova.drmips.simulator.exceptions.InvalidInstructionSetException;
+import brunonova.drmips.simulator.exceptions.SyntaxErrorException;
+import brunonova.drmips.simulator.util.PagedMemory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONException;
+
+/**
+ * Simulates programs, one after the other, in the same CPU.
+ *
+ * <p>The CPU is loaded only once, and is reset before each program is
+ * assembled, so the overhead of each program is small.</p>
+ *
+ * @author Bruno Nova
+ */
+public class BatchRunner {
+	/** The default maximum number of cycles executed for each program. */
+	public static final long DEFAULT_MAX_CYCLES = RunOptions.DEFAULT_MAX_CYCLES;
+
+	/** The CPU where the programs are simulated. */
+	private final CPU cpu;
+	/** The options of the run of each program (budget). */
+	private final RunOptions options = new RunOptions(DEFAULT_MAX_CYCLES, 0);
+	/** Whether the contents of the data memory are included in the results. */
+	private boolean memoryIncluded = true;
+	/** The memory images loaded before each program is simulated. */
+	private final List<File> imageFiles = new ArrayList<>();
+	/** The addresses where the memory images are loaded. */
+	private final List<Integer> imageAddresses = new ArrayList<>();
+	/** The directory where the data memory is saved after each program (<tt>null</tt> if not saved). */
+	private File imageDirectory = null;
+
+	/**
+	 * Creates the runner, loading the CPU from the given file.
+	 * @param cpuPath Path to the CPU file.
+	 * @throws IOException If the file doesn't exist or an I/O error occurs.
+	 * @throws JSONException If the JSON file is malformed.
+	 * @throws InvalidCPUException If the CPU is invalid or incomplete
+	 * @throws InvalidInstructionSetException If the instruction set is invalid.
+	 */
+	public BatchRunner(String cpuPath) throws IOException, JSONException, InvalidCPUException, InvalidInstructionSetException {
+		cpu = CPU.createFromJSONFile(cpuPath);
+		cpu.setCycleHistoryEnabled(false); // "back steps" aren't needed
+	}
+
+	/**
+	 * Returns the CPU where the programs are simulated.
+	 * @return The CPU.
+	 */
+	public CPU getCPU() {
+		return cpu;
+	}
+
+	/**
+	 * Returns the options of the run of each program.
+	 * <p>The options can be changed to set the maximum number of cycles and
+	 * time of each program.</p>
+	 * @return The options.
+	 */
+	public RunOptions getRunOptions() {
+		return options;
+	}
+
+	/**
+	 * Returns whether the contents of the data memory are included in the results.
+	 * @return <tt>True</tt> if the data memory is included.
+	 */
+	public boolean isMemoryIncluded() {
+		return memoryIncluded;
+	}
+
+	/**
+	 * Sets whether the contents of the data memory are included in the results.
+	 * @param memoryIncluded Whether to include the data memory.
+	 */
+	public void setMemoryIncluded(boolean memoryIncluded) {
+		this.memoryIncluded = memoryIncluded;
+	}
+
+	/**
+	 * Adds a memory image to be loaded into the data memory of each program,
+	 * after its data segment is assembled.
+	 * @param file The image file (raw little-endian 32 bits words).
+	 * @param address The address where the image is loaded (multiple of 4).
+	 * @see DataMemory#loadImage(File, int)
+	 */
+	public void addMemoryImage(File file, int address) {
+		imageFiles.add(file);
+		imageAddresses.add(address);
+	}
+
+	/**
+	 * Adds a memory image given as in the <tt>--load-memory</tt> option.
+	 * @param image The image file, optionally followed by <tt>@</tt> and the
+	 * address where it is loaded (decimal or hexadecimal with <tt>0x</tt>).
+	 * @throws IllegalArgumentException If the address is invalid or the file doesn't exist.
+	 * @see #addMemoryImage(File, int)
+	 */
+	public void addMemoryImage(String image) throws IllegalArgumentException {
+		String file = image;
+		int address = 0;
+		int at = image.lastIndexOf('@');
+		if(at >= 0) {
+			try {
+				long value = Long.decode(image.substring(at + 1).trim());
+				if(value < Integer.MIN_VALUE || value > 0xffffffffL || value % 4 != 0)
+					throw new IllegalArgumentException("Invalid address in memory image " + image + "!");
+				address = (int)value;
+				file = image.substring(0, at);
+			} catch(NumberFormatException ex) {
+				// not an address, the "@" is part of the file name
+			}
+		}
+		if(!new File(file).isFile())
+			throw new IllegalArgumentException("The memory image " + file + " doesn't exist!");
+		addMemoryImage(new File(file), address);
+	}
+
+	/**
+	 * Returns the number of data memory positions in each result, for
+	 * formats with a fixed number of columns.
+	 * @return The size of the data memory, or 0 if it isn't included or is
+	 * paged (the positions of a paged memory vary between programs).
+	 */
+	public int getNumberOfMemoryColumns() {
+		if(memoryIncluded && cpu.hasDataMemory() && !cpu.getDataMemory().isPaged())
+			return cpu.getDataMemory().getMemorySize();
+		else
+			return 0;
+	}
+
+	/**
+	 * Returns the directory where the data memory is saved after each program.
+	 * @return The directory, or <tt>null</tt> if the memory isn't saved.
+	 */
+	public File getMemoryImageDirectory() {
+		return imageDirectory;
+	}
+
+	/**
+	 * Sets the directory where the data memory is saved after each program.
+	 * <p>The image of a program is saved to <tt>&lt;program&gt;.mem</tt> if
+	 * it starts at address 0, or to <tt>&lt;program&gt;@&lt;address&gt;.mem</tt>
+	 * otherwise (paged memories are saved from the first touched page).</p>
+	 * @param directory The directory, or <tt>null</tt> to not save the memory.
+	 * @see DataMemory#saveImage(File)
+	 */
+	public void setMemoryImageDirectory(File directory) {
+		this.imageDirectory = directory;
+	}
+
+	/**
+	 * Reads, assembles and simulates the program in the given file.
+	 * @param file Path to the code file.
+	 * @return The result of the simulation.
+	 */
+	public ProgramResult run(String file) {
+		String code;
+		try {
+			code = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+		}
+		catch(IOException | RuntimeException ex) {
+			return new ProgramResult(file, ProgramResult.Status.IO_ERROR, ex.toString());
+		}
+		return run(file, code);
+	}
+
+	/**
+	 * Assembles and simulates the given program.
+	 * @param name The name of the program (the file name).
+	 * @param code The code of the program.
+	 * @return The result of the simulation.
+	 */
+	public ProgramResult run(String name, String code) {
+		cpu.resetData();
+		try {
+			cpu.assembleCode(code);
+		}
+		catch(SyntaxErrorException ex) {
+			return new ProgramResult(name, ProgramResult.Status.SYNTAX_ERROR, ex.getMessage());
+		}
+		try {
+			for(int i = 0; i < imageFiles.size(); i++)
+				cpu.getDataMemory().loadImage(imageFiles.get(i), imageAddresses.get(i));
+		}
+		catch(IOException | RuntimeException ex) {
+			return new ProgramResult(name, ProgramResult.Status.IO_ERROR, ex.toString());
+		}
+
+		RunResult run = cpu.executeAll(options);
+		ProgramResult result = new ProgramResult(name, run.isFinished() ? ProgramResult.Status.FINISHED : ProgramResult.Status.BUDGET);
+		fillResult(result);
+		if(imageDirectory != null && cpu.hasDataMemory()) {
+			try {
+				saveMemoryImage(name);
+			}
+			catch(IOException | RuntimeException ex) {
+				return new ProgramResult(name, ProgramResult.Status.IO_ERROR, ex.toString());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Saves the data memory to an image file in the image directory.
+	 * @param name The name of the program.
+	 * @throws IOException If the file can't be written.
+	 */
+	private void saveMemoryImage(String name) throws IOException {
+		DataMemory dataMemory = cpu.getDataMemory();
+		int[] pages = dataMemory.getTouchedPages(); // a paged memory is saved from the first touched page
+		int address = pages.length > 0 ? pages[0] * PagedMemory.PAGE_SIZE * (Data.DATA_SIZE / 8) : 0;
+		String file = new File(name).getName() + (address != 0 ? "@0x" + Integer.toHexString(address) : "") + ".mem";
+		dataMemory.saveImage(new File(imageDirectory, file));
+	}
+
+	/**
+	 * Fills the result with the current state and statistics of the CPU.
+	 * @param result The result to fill.
+	 */
+	private void fillResult(ProgramResult result) {
+		result.setStatistics(cpu.getNumberOfExecutedCycles(), cpu.getNumberOfExecutedInstructions(),
+			cpu.getCPI(), cpu.getNumberOfStalls(), cpu.getNumberOfForwards());
+
+		RegBank regbank = cpu.getRegBank();
+		int[] registers = new int[regbank.getNumberOfRegisters()];
+		for(int i = 0; i < registers.length; i++)
+			registers[i] = regbank.getRegister(i).getValue();
+		result.setRegisters(registers);
+
+		if(cpu.hasALU() && cpu.getALU() instanceof ExtendedALU) {
+			ExtendedALU alu = (ExtendedALU)cpu.getALU();
+			result.setHiLo(alu.getHI().getValue(), alu.getLO().getValue());
+		}
+
+		if(memoryIncluded && cpu.hasDataMemory()) {
+			DataMemory dataMemory = cpu.getDataMemory();
+			if(dataMemory.isPaged()) { // only the non-zero positions of the touched pages
+				List<Integer> indexes = new ArrayList<>();
+				for(int i: dataMemory.getIndexesInUse())
+					if(dataMemory.getDataInIndex(i) != 0) indexes.add(i);
+				int[] memory = new int[indexes.size()];
+				int[] addresses = new int[indexes.size()];
+				for(int i = 0; i < memory.length; i++) {
+					memory[i] = dataMemory.getDataInIndex(indexes.get(i));
+					addresses[i] = indexes.get(i) * (Data.DATA_SIZE / 8);
+				}
+				result.setMemory(memory, addresses);
+			}
+			else {
+				int[] memory = new int[dataMemory.getMemorySize()];
+				for(int i = 0; i < memory.length; i++)
+					memory[i] = dataMemory.getDataInIndex(i);
+				result.setMemory(memory);
+			}
+		}
+	}
+}
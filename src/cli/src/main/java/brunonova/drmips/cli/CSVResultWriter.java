@@ -0,0 +1,106 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.cli;
+
+import brunonova.drmips.simulator.CPU;
+import brunonova.drmips.simulator.components.ExtendedALU;
+import java.io.PrintStream;
+
+/**
+ * Writes the results of the simulations as comma-separated values.
+ *
+ * <p>The first line is a header with the names of the columns, and each
+ * following line is the result of a program.</p>
+ *
+ * @author Bruno Nova
+ */
+public class CSVResultWriter extends ResultWriter {
+	/** Whether the CPU has the HI and LO registers. */
+	private boolean hasHiLo = false;
+	/** The number of data memory columns. */
+	private int memorySize = 0;
+
+	/**
+	 * Creates the writer.
+	 * @param out The stream where the results are written.
+	 * @param cpu The CPU where the programs are simulated.
+	 */
+	public CSVResultWriter(PrintStream out, CPU cpu) {
+		super(out, cpu);
+	}
+
+	@Override
+	public void writeHeader(int memorySize) {
+		this.memorySize = memorySize;
+		hasHiLo = cpu.hasALU() && cpu.getALU() instanceof ExtendedALU;
+
+		StringBuilder sb = new StringBuilder("file,status,error,cycles,instructions,cpi,stalls,forwards");
+		for(int i = 0; i < cpu.getRegBank().getNumberOfRegisters(); i++)
+			sb.append(',').append(getRegisterName(i));
+		if(hasHiLo)
+			sb.append(",hi,lo");
+		for(int i = 0; i < memorySize; i++)
+			sb.append(",mem").append(i * 4);
+		out.println(sb);
+	}
+
+	@Override
+	public void write(ProgramResult result) {
+		StringBuilder sb = new StringBuilder(256);
+		sb.append(quote(result.getFile()));
+		sb.append(',').append(result.getStatus().name().toLowerCase());
+		sb.append(',').append(result.getError() != null ? quote(result.getError()) : "");
+
+		if(result.isSuccessful()) {
+			sb.append(',').append(result.getCycles());
+			sb.append(',').append(result.getInstructions());
+			sb.append(',').append(formatCPI(result.getCPI()));
+			sb.append(',').append(result.getStalls());
+			sb.append(',').append(result.getForwards());
+			for(int r: result.getRegisters())
+				sb.append(',').append(r);
+			if(hasHiLo) {
+				int[] hiLo = result.getHiLo();
+				sb.append(',').append(hiLo[0]).append(',').append(hiLo[1]);
+			}
+			int[] memory = result.getMemory();
+			for(int i = 0; i < memorySize; i++)
+				sb.append(',').append(memory != null && i < memory.length ? Integer.toString(memory[i]) : "");
+		}
+		else { // empty columns
+			int columns = 5 + cpu.getRegBank().getNumberOfRegisters() + (hasHiLo ? 2 : 0) + memorySize;
+			for(int i = 0; i < columns; i++)
+				sb.append(',');
+		}
+
+		out.println(sb);
+	}
+
+	/**
+	 * Quotes the given value, if needed.
+	 * @param value The value.
+	 * @return The quoted value.
+	 */
+	private static String quote(String value) {
+		if(value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0)
+			return "\"" + value.replace("\"", "\"\"") + "\"";
+		else
+			return value;
+	}
+}
@@ -0,0 +1,238 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.cli;
+
+import brunonova.drmips.simulator.AppInfo;
+import brunonova.drmips.simulator.RunOptions;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+
+/**
+ * Entry point of the command-line (headless) version of the simulator.
+ *
+ * <p>It loads a CPU, then assembles and simulates each of the given code
+ * files, one after the other, and writes the final registers, data memory and
+ * statistics of each program to the standard output.</p>
+ *
+ * @author Bruno Nova
+ */
+public class DrMIPSCLI {
+	/** The CPU file loaded by default. */
+	public static final String DEFAULT_CPU = "cpu" + File.separator + "unicycle.cpu";
+	/** Exit status when all programs were simulated successfully. */
+	public static final int EXIT_SUCCESS = 0;
+	/** Exit status when the arguments or the CPU are invalid. */
+	public static final int EXIT_ERROR = 1;
+	/** Exit status when at least one program couldn't be simulated. */
+	public static final int EXIT_PROGRAM_ERROR = 2;
+	/** Class logger. */
+	private static final Logger LOG = Logger.getLogger(DrMIPSCLI.class.getName());
+
+	private static void displayHelpAndExit(OptionParser parser) {
+		// See brunonova.drmips.pc.DrMIPS for the "program.name" property
+		String prog_name = System.getProperty("program.name", "java -jar " + AppInfo.NAME + "-cli.jar");
+
+		System.out.println(AppInfo.NAME + " - " + AppInfo.DESCRIPTION + " (command-line version)");
+		System.out.println("Usage: " + prog_name + " [options] file...\n");
+		try {
+			parser.printHelpOn(System.out);
+		} catch (Exception ex) {
+			LOG.log(Level.SEVERE, "failed to print help", ex);
+		}
+		System.exit(EXIT_SUCCESS);
+	}
+
+	private static void displayVersionAndExit() {
+		System.out.println(AppInfo.NAME + " " + AppInfo.VERSION + "\n"
+			+ AppInfo.COPYRIGHT + "\n"
+			+ "License: " + AppInfo.LICENSE_SHORT);
+		System.exit(EXIT_SUCCESS);
+	}
+
+	private static void errorAndExit(String message) {
+		System.err.println(message);
+		System.exit(EXIT_ERROR);
+	}
+
+	/**
+	 * Returns the path to the default CPU file.
+	 * <p>The file is searched in the current directory and then in the
+	 * directory of the program's jar.</p>
+	 * @return Path to the default CPU file.
+	 */
+	private static String findDefaultCPU() {
+		if(new File(DEFAULT_CPU).isFile())
+			return DEFAULT_CPU;
+
+		try {
+			URI uri = DrMIPSCLI.class.getProtectionDomain().getCodeSource().getLocation().toURI(); // get the path to the jar (if running from a jar)
+			String p = uri.toString();
+			p = p.startsWith("file://") ? p.substring(5) : uri.getPath(); // uri to String (careful with Windows network (UNC) paths)
+			if(p.toLowerCase().endsWith(".jar")) { // if running from a jar, get the path of the parent dir
+				File f = (new File(p)).getParentFile();
+				if(f != null) return f.getCanonicalPath() + File.separator + DEFAULT_CPU;
+			}
+		} catch (Exception ex) {
+			LOG.log(Level.WARNING, "error finding the path of the program", ex);
+		}
+		return DEFAULT_CPU;
+	}
+
+	@SuppressWarnings("UseSpecificCatch")
+	public static void main(String[] args) {
+		String cpuFile = null;
+		ResultWriter.Format format = ResultWriter.Format.JSON;
+		long maxCycles = BatchRunner.DEFAULT_MAX_CYCLES;
+		long maxTime = 0;
+		RunOptions.Engine engine = RunOptions.Engine.DATAPATH;
+		boolean memory = true;
+		boolean loadTimes = false;
+		List<String> images = null;
+		String imageDirectory = null;
+		List<String> files = null;
+
+		// Parse command-line arguments
+		try {
+			OptionParser parser = new OptionParser();
+			OptionSpec<String> fileArg = parser.nonOptions("code files to simulate")
+											   .ofType(String.class).describedAs("file");
+			OptionSpec<String> cpuOpt = parser.acceptsAll(Arrays.asList("c", "cpu"), "CPU file to load (default: " + DEFAULT_CPU + ")")
+											  .withRequiredArg().describedAs("file");
+			OptionSpec<String> formatOpt = parser.acceptsAll(Arrays.asList("f", "format"), "output format: json or csv (default: json)")
+												 .withRequiredArg().describedAs("format");
+			OptionSpec<Long> maxCyclesOpt = parser.acceptsAll(Arrays.asList("m", "max-cycles"), "maximum number of cycles executed per program (default: " + BatchRunner.DEFAULT_MAX_CYCLES + ")")
+												  .withRequiredArg().ofType(Long.class).describedAs("cycles");
+			OptionSpec<Long> maxTimeOpt = parser.acceptsAll(Arrays.asList("t", "max-time"), "maximum time per program, in milliseconds (default: no limit)")
+												.withRequiredArg().ofType(Long.class).describedAs("ms");
+			OptionSpec<String> engineOpt = parser.acceptsAll(Arrays.asList("e", "engine"), "simulation engine: datapath or functional (default: datapath)")
+												 .withRequiredArg().describedAs("engine");
+			OptionSpec<String> loadMemoryOpt = parser.accepts("load-memory", "load a memory image (raw little-endian words) to the data memory before each program, at the given address (default: 0)")
+													.withRequiredArg().describedAs("file[@address]");
+			OptionSpec<String> saveMemoryOpt = parser.accepts("save-memory", "save the data memory of each program to an image in the given directory")
+													.withRequiredArg().describedAs("dir");
+			parser.accepts("no-memory", "don't output the contents of the data memory");
+			parser.accepts("load-times", "display the time spent in each phase of the loading of the CPU");
+			parser.acceptsAll(Arrays.asList("h", "help"), "display this help and exit").forHelp();
+			parser.accepts("version", "display version information and exit");
+
+			OptionSet options = parser.parse(args);
+			if(options.has("help"))
+				displayHelpAndExit(parser);
+			else if(options.has("version"))
+				displayVersionAndExit();
+
+			files = options.valuesOf(fileArg);
+			if(files.isEmpty())
+				errorAndExit("At least one code file should be supplied!");
+			cpuFile = options.has(cpuOpt) ? options.valueOf(cpuOpt) : findDefaultCPU();
+			if(options.has(formatOpt)) {
+				try {
+					format = ResultWriter.Format.valueOf(options.valueOf(formatOpt).trim().toUpperCase());
+				} catch(IllegalArgumentException ex) {
+					errorAndExit("Unknown output format " + options.valueOf(formatOpt) + "!");
+				}
+			}
+			if(options.has(maxCyclesOpt)) {
+				maxCycles = options.valueOf(maxCyclesOpt);
+				if(maxCycles <= 0)
+					errorAndExit("The maximum number of cycles must be positive!");
+			}
+			if(options.has(maxTimeOpt)) {
+				maxTime = options.valueOf(maxTimeOpt);
+				if(maxTime < 0)
+					errorAndExit("The maximum time can't be negative!");
+			}
+			if(options.has(engineOpt)) {
+				try {
+					engine = RunOptions.Engine.valueOf(options.valueOf(engineOpt).trim().toUpperCase());
+				} catch(IllegalArgumentException ex) {
+					errorAndExit("Unknown simulation engine " + options.valueOf(engineOpt) + "!");
+				}
+			}
+			memory = !options.has("no-memory");
+			loadTimes = options.has("load-times");
+			images = options.valuesOf(loadMemoryOpt);
+			if(options.has(saveMemoryOpt)) {
+				imageDirectory = options.valueOf(saveMemoryOpt);
+				if(!new File(imageDirectory).isDirectory())
+					errorAndExit("The directory " + imageDirectory + " doesn't exist!");
+			}
+		} catch(Exception ex) {
+			errorAndExit("Error parsing arguments: " + ex.getMessage());
+		}
+
+		// Load the CPU
+		BatchRunner runner = null;
+		try {
+			runner = new BatchRunner(cpuFile);
+			runner.getRunOptions().setMaxCycles(maxCycles);
+			runner.getRunOptions().setMaxTime(maxTime);
+			runner.getRunOptions().setEngine(engine);
+			if(engine == RunOptions.Engine.FUNCTIONAL && !runner.getCPU().supportsFunctionalEngine())
+				LOG.log(Level.WARNING, "the functional engine doesn't support this CPU, simulating the datapath instead");
+			runner.setMemoryIncluded(memory);
+			if((!images.isEmpty() || imageDirectory != null) && !runner.getCPU().hasDataMemory())
+				errorAndExit("The CPU doesn't have a data memory to load or save images!");
+			for(String image: images) {
+				try {
+					runner.addMemoryImage(image);
+				} catch(IllegalArgumentException ex) {
+					errorAndExit(ex.getMessage());
+				}
+			}
+			if(imageDirectory != null)
+				runner.setMemoryImageDirectory(new File(imageDirectory));
+			if(loadTimes)
+				System.err.println(runner.getCPU().getLoadTimings());
+		} catch(Exception ex) {
+			errorAndExit("Error opening CPU file " + cpuFile + ": " + ex.getMessage());
+			return;
+		}
+
+		// Simulate the programs
+		int status = EXIT_SUCCESS;
+		PrintStream out;
+		try {
+			out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false, "UTF-8");
+		} catch(Exception ex) {
+			out = System.out;
+		}
+		ResultWriter writer = ResultWriter.create(format, out, runner.getCPU());
+		writer.writeHeader(runner.getNumberOfMemoryColumns());
+		for(String file: files) {
+			ProgramResult result = runner.run(file);
+			writer.write(result);
+			if(!result.isSuccessful())
+				status = EXIT_PROGRAM_ERROR;
+		}
+		out.flush();
+		System.exit(status);
+	}
+}
@@ -0,0 +1,98 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.cli;
+
+import brunonova.drmips.simulator.CPU;
+import java.io.PrintStream;
+import org.json.JSONObject;
+
+/**
+ * Writes the results of the simulations as JSON, one object per line.
+ *
+ * <p>The fields are written in a fixed order, so that the output can be
+ * compared between different runs.</p>
+ *
+ * @author Bruno Nova
+ */
+public class JSONResultWriter extends ResultWriter {
+	/**
+	 * Creates the writer.
+	 * @param out The stream where the results are written.
+	 * @param cpu The CPU where the programs are simulated.
+	 */
+	public JSONResultWriter(PrintStream out, CPU cpu) {
+		super(out, cpu);
+	}
+
+	@Override
+	public void writeHeader(int memorySize) {
+		// nothing to write
+	}
+
+	@Override
+	public void write(ProgramResult result) {
+		StringBuilder sb = new StringBuilder(256);
+		sb.append("{\"file\":").append(JSONObject.quote(result.getFile()));
+		sb.append(",\"status\":\"").append(result.getStatus().name().toLowerCase()).append('"');
+		if(result.getError() != null)
+			sb.append(",\"error\":").append(JSONObject.quote(result.getError()));
+
+		if(result.isSuccessful()) {
+			sb.append(",\"cycles\":").append(result.getCycles());
+			sb.append(",\"instructions\":").append(result.getInstructions());
+			sb.append(",\"cpi\":").append(formatCPI(result.getCPI()));
+			sb.append(",\"stalls\":").append(result.getStalls());
+			sb.append(",\"forwards\":").append(result.getForwards());
+
+			int[] regs = result.getRegisters();
+			sb.append(",\"registers\":{");
+			for(int i = 0; i < regs.length; i++) {
+				if(i > 0) sb.append(',');
+				sb.append('"').append(getRegisterName(i)).append("\":").append(regs[i]);
+			}
+			sb.append('}');
+
+			int[] hiLo = result.getHiLo();
+			if(hiLo != null)
+				sb.append(",\"hi\":").append(hiLo[0]).append(",\"lo\":").append(hiLo[1]);
+
+			int[] memory = result.getMemory();
+			int[] addresses = result.getMemoryAddresses();
+			if(memory != null && addresses != null) { // sparse memory: {"address": value}
+				sb.append(",\"memory\":{");
+				for(int i = 0; i < memory.length; i++) {
+					if(i > 0) sb.append(',');
+					sb.append('"').append(addresses[i] & 0xffffffffL).append("\":").append(memory[i]);
+				}
+				sb.append('}');
+			}
+			else if(memory != null) {
+				sb.append(",\"memory\":[");
+				for(int i = 0; i < memory.length; i++) {
+					if(i > 0) sb.append(',');
+					sb.append(memory[i]);
+				}
+				sb.append(']');
+			}
+		}
+
+		sb.append('}');
+		out.println(sb);
+	}
+}
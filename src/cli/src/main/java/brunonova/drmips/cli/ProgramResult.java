@@ -0,0 +1,239 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.cli;
+
+/**
+ * The result of the simulation of a program.
+ *
+ * @author Bruno Nova
+ */
+public class ProgramResult {
+	/** The possible outcomes of the simulation. */
+	public enum Status {
+		/** The program was executed until the end. */
+		FINISHED,
+		/** The maximum number of cycles or time was reached before the program finished. */
+		BUDGET,
+		/** The program has syntax errors. */
+		SYNTAX_ERROR,
+		/** The program or a memory image couldn't be read, or the memory image couldn't be saved. */
+		IO_ERROR
+	}
+
+	/** The file of the program. */
+	private final String file;
+	/** The outcome of the simulation. */
+	private Status status;
+	/** The error message, if any. */
+	private String error = null;
+	/** The number of executed clock cycles. */
+	private int cycles = 0;
+	/** The number of executed instructions. */
+	private int instructions = 0;
+	/** The average number of clock cycles per instruction. */
+	private double cpi = 0.0;
+	/** The number of stalls. */
+	private int stalls = 0;
+	/** The number of forwards. */
+	private int forwards = 0;
+	/** The final values of the registers (<tt>null</tt> on errors). */
+	private int[] registers = null;
+	/** The final values of the HI and LO registers (<tt>null</tt> if the CPU doesn't have them). */
+	private int[] hiLo = null;
+	/** The final values of the data memory (<tt>null</tt> if not wanted or on errors). */
+	private int[] memory = null;
+	/** The addresses of the values of the data memory (<tt>null</tt> if they are consecutive, from address 0). */
+	private int[] memoryAddresses = null;
+
+	/**
+	 * Creates the result for the given program.
+	 * @param file The file of the program.
+	 * @param status The outcome of the simulation.
+	 */
+	public ProgramResult(String file, Status status) {
+		this.file = file;
+		this.status = status;
+	}
+
+	/**
+	 * Creates the result of a program that couldn't be simulated.
+	 * @param file The file of the program.
+	 * @param status The type of error.
+	 * @param error The error message.
+	 */
+	public ProgramResult(String file, Status status, String error) {
+		this(file, status);
+		this.error = error;
+	}
+
+	/**
+	 * Returns the file of the program.
+	 * @return The file of the program.
+	 */
+	public String getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the outcome of the simulation.
+	 * @return The outcome of the simulation.
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Returns whether the program was simulated without errors.
+	 * @return <tt>True</tt> if there was no error.
+	 */
+	public boolean isSuccessful() {
+		return status == Status.FINISHED || status == Status.BUDGET;
+	}
+
+	/**
+	 * Returns the error message.
+	 * @return The error message, or <tt>null</tt> if there was no error.
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * Updates the statistics of the simulation.
+	 * @param cycles The number of executed clock cycles.
+	 * @param instructions The number of executed instructions.
+	 * @param cpi The average number of clock cycles per instruction.
+	 * @param stalls The number of stalls.
+	 * @param forwards The number of forwards.
+	 */
+	public void setStatistics(int cycles, int instructions, double cpi, int stalls, int forwards) {
+		this.cycles = cycles;
+		this.instructions = instructions;
+		this.cpi = cpi;
+		this.stalls = stalls;
+		this.forwards = forwards;
+	}
+
+	/**
+	 * Returns the number of executed clock cycles.
+	 * @return The number of executed clock cycles.
+	 */
+	public int getCycles() {
+		return cycles;
+	}
+
+	/**
+	 * Returns the number of executed instructions.
+	 * @return The number of executed instructions.
+	 */
+	public int getInstructions() {
+		return instructions;
+	}
+
+	/**
+	 * Returns the average number of clock cycles per instruction.
+	 * @return The CPI.
+	 */
+	public double getCPI() {
+		return cpi;
+	}
+
+	/**
+	 * Returns the number of stalls.
+	 * @return The number of stalls.
+	 */
+	public int getStalls() {
+		return stalls;
+	}
+
+	/**
+	 * Returns the number of forwards.
+	 * @return The number of forwards.
+	 */
+	public int getForwards() {
+		return forwards;
+	}
+
+	/**
+	 * Returns the final values of the registers.
+	 * @return The values of the registers, or <tt>null</tt> on errors.
+	 */
+	public int[] getRegisters() {
+		return registers;
+	}
+
+	/**
+	 * Updates the final values of the registers.
+	 * @param registers The values of the registers.
+	 */
+	public void setRegisters(int[] registers) {
+		this.registers = registers;
+	}
+
+	/**
+	 * Returns the final values of the HI and LO registers.
+	 * @return The values of HI and LO (in that order), or <tt>null</tt> if the CPU doesn't have them.
+	 */
+	public int[] getHiLo() {
+		return hiLo;
+	}
+
+	/**
+	 * Updates the final values of the HI and LO registers.
+	 * @param hi The value of HI.
+	 * @param lo The value of LO.
+	 */
+	public void setHiLo(int hi, int lo) {
+		hiLo = new int[] {hi, lo};
+	}
+
+	/**
+	 * Returns the final values of the data memory.
+	 * @return The values of the data memory, or <tt>null</tt> if not available.
+	 */
+	public int[] getMemory() {
+		return memory;
+	}
+
+	/**
+	 * Updates the final values of the data memory.
+	 * @param memory The values of the data memory.
+	 */
+	public void setMemory(int[] memory) {
+		setMemory(memory, null);
+	}
+
+	/**
+	 * Returns the addresses of the values of the data memory.
+	 * @return The addresses, or <tt>null</tt> if the values are from consecutive addresses, starting at 0.
+	 */
+	public int[] getMemoryAddresses() {
+		return memoryAddresses;
+	}
+
+	/**
+	 * Updates the final values of the data memory, for a sparse memory.
+	 * @param memory The values of the data memory.
+	 * @param addresses The address of each value (<tt>null</tt> if they are consecutive, starting at 0).
+	 */
+	public void setMemory(int[] memory, int[] addresses) {
+		this.memory = memory;
+		this.memoryAddresses = addresses;
+	}
+}
@@ -0,0 +1,97 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.cli;
+
+import brunonova.drmips.simulator.CPU;
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Abstract base class of the writers of the results of the simulations.
+ *
+ * @author Bruno Nova
+ */
+public abstract class ResultWriter {
+	/** The supported output formats. */
+	public enum Format {
+		/** One JSON object per line. */
+		JSON,
+		/** Comma-separated values, with a header line. */
+		CSV
+	}
+
+	/** The stream where the results are written. */
+	protected final PrintStream out;
+	/** The CPU where the programs are simulated (used for the names of the registers). */
+	protected final CPU cpu;
+
+	/**
+	 * Constructor that must be called by subclasses.
+	 * @param out The stream where the results are written.
+	 * @param cpu The CPU where the programs are simulated.
+	 */
+	protected ResultWriter(PrintStream out, CPU cpu) {
+		this.out = out;
+		this.cpu = cpu;
+	}
+
+	/**
+	 * Creates a writer for the given format.
+	 * @param format The output format.
+	 * @param out The stream where the results are written.
+	 * @param cpu The CPU where the programs are simulated.
+	 * @return The writer.
+	 */
+	public static ResultWriter create(Format format, PrintStream out, CPU cpu) {
+		switch(format) {
+			case CSV: return new CSVResultWriter(out, cpu);
+			default:  return new JSONResultWriter(out, cpu);
+		}
+	}
+
+	/**
+	 * Writes anything needed before the first result (like a header).
+	 * @param memorySize The number of data memory positions in each result (0 if none).
+	 */
+	public abstract void writeHeader(int memorySize);
+
+	/**
+	 * Writes the result of a simulation.
+	 * @param result The result to write.
+	 */
+	public abstract void write(ProgramResult result);
+
+	/**
+	 * Returns the name of the given register, without the prefix.
+	 * @param index The index of the register.
+	 * @return The name of the register.
+	 */
+	protected final String getRegisterName(int index) {
+		return cpu.getRegisterName(index).substring(1);
+	}
+
+	/**
+	 * Formats a CPI value, independently of the locale.
+	 * @param cpi The CPI.
+	 * @return The formatted value.
+	 */
+	protected static String formatCPI(double cpi) {
+		return String.format(Locale.ROOT, "%.4f", cpi);
+	}
+}
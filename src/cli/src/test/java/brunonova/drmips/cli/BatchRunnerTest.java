@@ -0,0 +1,157 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.cli;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class BatchRunnerTest {
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testRun() throws Exception {
+		BatchRunner runner = new BatchRunner("cpu/unicycle.cpu");
+		ProgramResult result = runner.run("prog.s", TestUtils.CODE);
+		assertEquals(ProgramResult.Status.FINISHED, result.getStatus());
+		assertTrue(result.isSuccessful());
+		assertNull(result.getError());
+		assertEquals(4, result.getCycles());
+		assertEquals(4, result.getInstructions());
+		assertEquals(7, result.getRegisters()[runner.getCPU().getRegisterIndex("$t2")]);
+		assertNull(result.getHiLo());
+		assertEquals(100, result.getMemory().length);
+		assertNull(result.getMemoryAddresses());
+		assertEquals(7, result.getMemory()[2]);
+
+		// the CPU is reset before each program
+		result = runner.run("empty.s", "");
+		assertEquals(ProgramResult.Status.FINISHED, result.getStatus());
+		assertEquals(0, result.getRegisters()[runner.getCPU().getRegisterIndex("$t2")]);
+		assertEquals(0, result.getMemory()[2]);
+
+		runner.setMemoryIncluded(false);
+		assertNull(runner.run("prog.s", TestUtils.CODE).getMemory());
+	}
+
+	@Test
+	public void testStatus() throws Exception {
+		BatchRunner runner = new BatchRunner("cpu/unicycle.cpu");
+		runner.getRunOptions().setMaxCycles(100);
+		ProgramResult result = runner.run("loop.s", TestUtils.INFINITE_LOOP);
+		assertEquals(ProgramResult.Status.BUDGET, result.getStatus());
+		assertTrue(result.isSuccessful());
+		assertEquals(100, result.getCycles());
+
+		result = runner.run("error.s", "add $t0, $t1\n");
+		assertEquals(ProgramResult.Status.SYNTAX_ERROR, result.getStatus());
+		assertFalse(result.isSuccessful());
+		assertNotNull(result.getError());
+
+		result = runner.run(new File(tmp.getRoot(), "missing.s").getPath());
+		assertEquals(ProgramResult.Status.IO_ERROR, result.getStatus());
+		assertFalse(result.isSuccessful());
+		assertNotNull(result.getError());
+
+		File file = tmp.newFile("prog.s");
+		Files.write(file.toPath(), TestUtils.CODE.getBytes("UTF-8"));
+		assertEquals(ProgramResult.Status.FINISHED, runner.run(file.getPath()).getStatus());
+	}
+
+	@Test
+	public void testLoadMemory() throws Exception {
+		File image = writeImage("image.mem", 10, 20);
+		File atImage = writeImage("at@image.mem", 30);
+		BatchRunner runner = new BatchRunner("cpu/unicycle.cpu");
+		runner.addMemoryImage(image.getPath() + "@0x10");
+		runner.addMemoryImage(image.getPath() + "@24");
+		runner.addMemoryImage(atImage.getPath()); // the "@" is part of the name
+		ProgramResult result = runner.run("prog.s", TestUtils.CODE);
+		assertEquals(ProgramResult.Status.FINISHED, result.getStatus());
+		int[] memory = result.getMemory();
+		assertEquals(30, memory[0]); // loaded after the data segment
+		assertEquals(30 + 4, memory[2]); // and before the program runs
+		assertEquals(10, memory[4]);
+		assertEquals(20, memory[5]);
+		assertEquals(10, memory[6]);
+		assertEquals(20, memory[7]);
+
+		for(String invalid: new String[] {image.getPath() + "@6", image.getPath() + "@0x100000000", image.getPath() + "x@0"}) {
+			try {
+				runner.addMemoryImage(invalid);
+				fail(invalid);
+			} catch(IllegalArgumentException ex) {
+				// expected
+			}
+		}
+
+		runner.addMemoryImage(image, 400); // out of the memory
+		assertEquals(ProgramResult.Status.IO_ERROR, runner.run("prog.s", TestUtils.CODE).getStatus());
+	}
+
+	@Test
+	public void testSaveMemory() throws Exception {
+		File dir = tmp.newFolder("images");
+		BatchRunner runner = new BatchRunner("cpu/unicycle.cpu");
+		runner.setMemoryImageDirectory(dir);
+		assertEquals(ProgramResult.Status.FINISHED, runner.run("programs/prog.s", TestUtils.CODE).getStatus());
+		File image = new File(dir, "prog.s.mem");
+		assertTrue(image.isFile());
+		assertEquals(100 * 4, image.length());
+		assertEquals(7, readImage(image).getInt(8));
+
+		// a paged memory is saved from the first touched page
+		runner = new BatchRunner(TestUtils.createPagedCPUFile(tmp).getPath());
+		runner.setMemoryImageDirectory(dir);
+		runner.addMemoryImage(writeImage("high.mem", 5), 0x10000000);
+		assertEquals(ProgramResult.Status.FINISHED, runner.run("high.s", "add $t0, $0, $0\n").getStatus());
+		image = new File(dir, "high.s@0x10000000.mem");
+		assertTrue(image.isFile());
+		assertEquals(5, readImage(image).getInt(0));
+	}
+
+	@Test
+	public void testNumberOfMemoryColumns() throws Exception {
+		BatchRunner runner = new BatchRunner("cpu/unicycle.cpu");
+		assertEquals(100, runner.getNumberOfMemoryColumns());
+		runner.setMemoryIncluded(false);
+		assertEquals(0, runner.getNumberOfMemoryColumns());
+		runner = new BatchRunner(TestUtils.createPagedCPUFile(tmp).getPath());
+		assertEquals(0, runner.getNumberOfMemoryColumns());
+	}
+
+	private File writeImage(String name, int... words) throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(words.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+		for(int word: words)
+			buffer.putInt(word);
+		File file = tmp.newFile(name);
+		Files.write(file.toPath(), buffer.array());
+		return file;
+	}
+
+	private static ByteBuffer readImage(File file) throws Exception {
+		return ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+	}
+}
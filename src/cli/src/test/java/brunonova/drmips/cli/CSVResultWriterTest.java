@@ -0,0 +1,140 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class CSVResultWriterTest {
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testResults() throws Exception {
+		BatchRunner runner = new BatchRunner("cpu/unicycle.cpu");
+		runner.getRunOptions().setMaxCycles(100);
+		String[] lines = write(runner, runner.run("prog.s", TestUtils.CODE),
+			runner.run("loop.s", TestUtils.INFINITE_LOOP), runner.run("error.s", "add $t0, $t1\n"));
+		assertEquals(4, lines.length);
+
+		List<String> header = split(lines[0]);
+		assertEquals(8 + 32 + 100, header.size());
+		assertTrue(lines[0].startsWith("file,status,error,cycles,instructions,cpi,stalls,forwards,zero,at,v0,"));
+		assertEquals("mem0", header.get(40));
+		assertEquals("mem396", header.get(header.size() - 1));
+		assertFalse(header.contains("hi"));
+
+		List<String> row = split(lines[1]);
+		assertEquals(header.size(), row.size());
+		assertTrue(lines[1].startsWith("prog.s,finished,,4,4,1.0000,0,0,"));
+		assertEquals("7", row.get(header.indexOf("t2")));
+		assertEquals("7", row.get(header.indexOf("mem8")));
+
+		row = split(lines[2]);
+		assertEquals(header.size(), row.size());
+		assertEquals("budget", row.get(1));
+		assertEquals("100", row.get(3));
+
+		row = split(lines[3]); // empty columns for the failed program
+		assertEquals(header.size(), row.size());
+		assertEquals("syntax_error", row.get(1));
+		assertFalse(row.get(2).isEmpty());
+		for(int i = 3; i < row.size(); i++)
+			assertEquals("", row.get(i));
+	}
+
+	@Test
+	public void testQuoting() throws Exception {
+		BatchRunner runner = new BatchRunner("cpu/unicycle.cpu");
+		ProgramResult result = new ProgramResult("a,\"b\".s", ProgramResult.Status.IO_ERROR, "line 1\nline 2");
+		String[] lines = write(runner, result);
+		assertEquals("\"a,\"\"b\"\".s\",io_error,\"line 1", lines[1]);
+		List<String> row = split(lines[1] + "\n" + lines[2]);
+		assertEquals(split(lines[0]).size(), row.size());
+		assertEquals("a,\"b\".s", row.get(0));
+		assertEquals("line 1\nline 2", row.get(2));
+	}
+
+	@Test
+	public void testHiLoAndPagedMemory() throws Exception {
+		BatchRunner runner = new BatchRunner("cpu/unicycle-extended.cpu");
+		String[] lines = write(runner, runner.run("prog.s", TestUtils.CODE));
+		List<String> header = split(lines[0]);
+		assertEquals(8 + 32 + 2 + 100, header.size());
+		assertEquals("hi", header.get(40));
+		assertEquals("lo", header.get(41));
+		assertEquals(header.size(), split(lines[1]).size());
+
+		// the positions of a paged memory aren't written
+		runner = new BatchRunner(TestUtils.createPagedCPUFile(tmp).getPath());
+		lines = write(runner, runner.run("prog.s", TestUtils.CODE), runner.run("error.s", "add $t0, $t1\n"));
+		header = split(lines[0]);
+		assertEquals(8 + 32, header.size());
+		assertEquals(header.size(), split(lines[1]).size());
+		assertEquals(header.size(), split(lines[2]).size());
+	}
+
+	private static String[] write(BatchRunner runner, ProgramResult... results) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes, true, "UTF-8");
+		ResultWriter writer = ResultWriter.create(ResultWriter.Format.CSV, out, runner.getCPU());
+		writer.writeHeader(runner.getNumberOfMemoryColumns());
+		for(ProgramResult result: results)
+			writer.write(result);
+		return bytes.toString("UTF-8").split("\r?\n");
+	}
+
+	/**
+	 * Splits a CSV line (or a record that spans several lines) in its columns.
+	 */
+	private static List<String> split(String line) {
+		List<String> columns = new ArrayList<>();
+		StringBuilder column = new StringBuilder();
+		boolean quoted = false;
+		for(int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if(quoted) {
+				if(c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					column.append('"');
+					i++;
+				}
+				else if(c == '"')
+					quoted = false;
+				else
+					column.append(c);
+			}
+			else if(c == '"')
+				quoted = true;
+			else if(c == ',') {
+				columns.add(column.toString());
+				column.setLength(0);
+			}
+			else
+				column.append(c);
+		}
+		columns.add(column.toString());
+		return columns;
+	}
+}
@@ -0,0 +1,96 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class JSONResultWriterTest {
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testResults() throws Exception {
+		BatchRunner runner = new BatchRunner("cpu/unicycle.cpu");
+		String[] lines = write(runner, runner.run("prog.s", TestUtils.CODE), runner.run("error.s", "add $t0, $t1\n"));
+		assertEquals(2, lines.length); // no header
+
+		assertTrue(lines[0].startsWith("{\"file\":\"prog.s\",\"status\":\"finished\",\"cycles\":4,\"instructions\":4,\"cpi\":1.0000,\"stalls\":0,\"forwards\":0,\"registers\":{\"zero\":0,"));
+		JSONObject json = new JSONObject(lines[0]);
+		assertFalse(json.has("error"));
+		assertFalse(json.has("hi"));
+		assertEquals(32, json.getJSONObject("registers").length());
+		assertEquals(7, json.getJSONObject("registers").getInt("t2"));
+		assertEquals(100, json.getJSONArray("memory").length());
+		assertEquals(7, json.getJSONArray("memory").getInt(2));
+
+		json = new JSONObject(lines[1]);
+		assertEquals("error.s", json.getString("file"));
+		assertEquals("syntax_error", json.getString("status"));
+		assertFalse(json.getString("error").isEmpty());
+		assertFalse(json.has("cycles"));
+		assertFalse(json.has("registers"));
+
+		runner.setMemoryIncluded(false);
+		assertFalse(new JSONObject(write(runner, runner.run("prog.s", TestUtils.CODE))[0]).has("memory"));
+	}
+
+	@Test
+	public void testQuoting() throws Exception {
+		BatchRunner runner = new BatchRunner("cpu/unicycle.cpu");
+		String[] lines = write(runner, new ProgramResult("a\"b\\c.s", ProgramResult.Status.IO_ERROR, "line 1\nline 2"));
+		assertEquals(1, lines.length); // one object per line
+		JSONObject json = new JSONObject(lines[0]);
+		assertEquals("a\"b\\c.s", json.getString("file"));
+		assertEquals("io_error", json.getString("status"));
+		assertEquals("line 1\nline 2", json.getString("error"));
+	}
+
+	@Test
+	public void testHiLoAndPagedMemory() throws Exception {
+		BatchRunner runner = new BatchRunner("cpu/unicycle-extended.cpu");
+		JSONObject json = new JSONObject(write(runner, runner.run("prog.s", TestUtils.CODE))[0]);
+		assertEquals(0, json.getInt("hi"));
+		assertEquals(0, json.getInt("lo"));
+
+		// only the non-zero positions of a paged memory, by address
+		runner = new BatchRunner(TestUtils.createPagedCPUFile(tmp).getPath());
+		json = new JSONObject(write(runner, runner.run("prog.s", TestUtils.CODE))[0]);
+		JSONObject memory = json.getJSONObject("memory");
+		assertEquals(3, memory.length());
+		assertEquals(3, memory.getInt("0"));
+		assertEquals(4, memory.getInt("4"));
+		assertEquals(7, memory.getInt("8"));
+	}
+
+	private static String[] write(BatchRunner runner, ProgramResult... results) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes, true, "UTF-8");
+		ResultWriter writer = ResultWriter.create(ResultWriter.Format.JSON, out, runner.getCPU());
+		writer.writeHeader(runner.getNumberOfMemoryColumns());
+		for(ProgramResult result: results)
+			writer.write(result);
+		return bytes.toString("UTF-8").split("\r?\n");
+	}
+}
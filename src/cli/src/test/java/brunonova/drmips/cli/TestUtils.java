@@ -0,0 +1,58 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.cli;
+
+import java.io.File;
+import java.nio.file.Files;
+import org.json.JSONObject;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Helper methods shared by the tests of the command-line simulator.
+ */
+final class TestUtils {
+	/** A program that adds two words of the data memory. */
+	static final String CODE = ".data\n"
+		+ "v: .word 3, 4\n"
+		+ ".text\n"
+		+ "lw $t0, 0($0)\n"
+		+ "lw $t1, 4($0)\n"
+		+ "add $t2, $t0, $t1\n"
+		+ "sw $t2, 8($0)\n";
+	/** A program that never finishes. */
+	static final String INFINITE_LOOP = "loop: addi $t0, $t0, 1\n"
+		+ "j loop\n";
+
+	/**
+	 * Creates a copy of the unicycle CPU with a paged data memory.
+	 * @param tmp The temporary folder of the test.
+	 * @return The CPU file.
+	 */
+	static File createPagedCPUFile(TemporaryFolder tmp) throws Exception {
+		File dir = tmp.newFolder();
+		Files.copy(new File("cpu/default.set").toPath(), new File(dir, "default.set").toPath());
+		JSONObject json = new JSONObject(new String(Files.readAllBytes(new File("cpu/unicycle.cpu").toPath()), "UTF-8"));
+		JSONObject mem = json.getJSONObject("components").getJSONObject("DataMem");
+		mem.remove("size");
+		mem.put("paged", true);
+		File cpuFile = new File(dir, "paged.cpu");
+		Files.write(cpuFile.toPath(), json.toString().getBytes("UTF-8"));
+		return cpuFile;
+	}
+}
@@ -51,8 +51,8 @@ public class DataMemoryTable extends JTable implements MouseListener {
 	private CPU cpu = null;
 	/** The datapath panel. */
 	private DatapathPanel datapath = null;
-	/** The number of memory positions. */
-	private int memorySize = 0;
+	/** The indexes of the memory positions in each row (only the touched pages of a paged memory). */
+	private int[] indexes = new int[0];
 	/** The format of the data (<tt>Util.BINARYL_FORMAT_INDEX/Util.DECIMAL_FORMAT_INDEX/Util.HEXADECIMAL_FORMAT_INDEX</tt>). */
 	private int dataFormat = DrMIPS.DEFAULT_DATA_MEMORY_FORMAT;
 
@@ -85,18 +85,22 @@ public class DataMemoryTable extends JTable implements MouseListener {
 		
 		// Initialize registers table
 		model.setRowCount(0);
+		indexes = new int[0];
 		if(cpu.hasDataMemory()) {
-			memorySize = cpu.getDataMemory().getMemorySize();
-			for(int i = 0; i < memorySize; i++) {
-				Object[] data = new Object[2];
-				data[0] = Util.formatDataAccordingToFormat(new Data(Data.DATA_SIZE, i * (Data.DATA_SIZE / 8)), format);
-				data[1] = "";
-				model.addRow(data);
-			}
-
+			createRows();
 			refreshValues(format);
 		}
 	}
+
+	/**
+	 * Creates a row for each memory position in use.
+	 */
+	private void createRows() {
+		indexes = cpu.getDataMemory().getIndexesInUse();
+		model.setRowCount(0);
+		for(int i = 0; i < indexes.length; i++)
+			model.addRow(new Object[] {"", ""});
+	}
 	
 	/**
 	 * Refreshes the values in the table.
@@ -106,10 +110,11 @@ public class DataMemoryTable extends JTable implements MouseListener {
 		if(model == null || cpu == null || !cpu.hasDataMemory()) return;
 		this.dataFormat = format;
 		
-		String data;
-		for(int i = 0; i < memorySize; i++) {
-			model.setValueAt(Util.formatDataAccordingToFormat(new Data(Data.DATA_SIZE, i * (Data.DATA_SIZE / 8)), format), i, ADDRESS_COLUMN_INDEX);
-			model.setValueAt(Util.formatDataAccordingToFormat(new Data(Data.DATA_SIZE, cpu.getDataMemory().getDataInIndex(i)), format), i, VALUE_COLUMN_INDEX);
+		if(indexes.length != cpu.getDataMemory().getNumberOfIndexesInUse()) // pages touched or freed
+			createRows();
+		for(int i = 0; i < indexes.length; i++) {
+			model.setValueAt(Util.formatDataAccordingToFormat(new Data(Data.DATA_SIZE, indexes[i] * (Data.DATA_SIZE / 8)), format), i, ADDRESS_COLUMN_INDEX);
+			model.setValueAt(Util.formatDataAccordingToFormat(new Data(Data.DATA_SIZE, cpu.getDataMemory().getDataInIndex(indexes[i])), format), i, VALUE_COLUMN_INDEX);
 		}
 		repaint();
 	}
@@ -135,10 +140,13 @@ public class DataMemoryTable extends JTable implements MouseListener {
 	public void mousePressed(MouseEvent e) {
 		if(e.getClickCount() == 2) {
 			int row = rowAtPoint(e.getPoint());
-			String res = (String)JOptionPane.showInputDialog(this.getParent(), Lang.t("edit_value", row * (Data.DATA_SIZE / 8)) + ":", AppInfo.NAME, JOptionPane.QUESTION_MESSAGE, null, null, cpu.getDataMemory().getDataInIndex(row));
+			if(row < 0 || row >= indexes.length) return;
+			int index = indexes[row];
+			String res = (String)JOptionPane.showInputDialog(this.getParent(), Lang.t("edit_value", index * (Data.DATA_SIZE / 8)) + ":", AppInfo.NAME, JOptionPane.QUESTION_MESSAGE, null, null, cpu.getDataMemory().getDataInIndex(index));
 			if(res != null) {
 				try {
-					cpu.getDataMemory().setDataInIndex(row, Integer.parseInt(res));
+					cpu.getDataMemory().setDataInIndex(index, Integer.parseInt(res));
+					cpu.discardNewerCycles(); // the saved newer cycles are outdated
 					refreshValues(dataFormat);
 					if(datapath != null)
 						datapath.refresh(); // update datapath
@@ -170,11 +178,12 @@ public class DataMemoryTable extends JTable implements MouseListener {
 			setHorizontalAlignment(column == 1 ? SwingConstants.RIGHT : SwingConstants.LEFT); // align 2nd column to the right
 			
 			if(cpu.hasDataMemory()) { // Highlight memory positions being accessed
-				int index = cpu.getDataMemory().getAddress().getValue() / (Data.DATA_SIZE / 8);
+				int index = cpu.getDataMemory().getIndexOfAddress(cpu.getDataMemory().getAddress().getValue());
 				boolean read = cpu.getDataMemory().getMemRead().getValue() == 1;
 				boolean write = cpu.getDataMemory().getMemWrite().getValue() == 1;
+				boolean accessed = row < indexes.length && indexes[row] == index;
 
-				if(write && row == index) {
+				if(write && accessed) {
 					if(read) {
 						setBackground(Util.rwColor);
 						setToolTipText(Lang.t("reading_and_writing_to_mem"));
@@ -184,7 +193,7 @@ public class DataMemoryTable extends JTable implements MouseListener {
 						setToolTipText(Lang.t("writing_to_mem"));
 					}
 				}
-				else if(read && row == index) {
+				else if(read && accessed) {
 					setBackground(Util.readColor);
 					setToolTipText(Lang.t("reading_from_mem"));
 				}
@@ -225,7 +225,7 @@ public final class DatapathComponent extends JLabel implements MouseListener {
 					int lat = Integer.parseInt(res);
 					if(lat >= 0) {
 						component.setLatency(lat);
-						datapath.getCPU().calculatePerformance();
+						datapath.getCPU().calculatePerformance(component);
 						datapath.refresh();
 						datapath.repaint();
 					}
@@ -0,0 +1,158 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.pc;
+
+import brunonova.drmips.simulator.AppInfo;
+import brunonova.drmips.simulator.CPU;
+import brunonova.drmips.simulator.CancellationToken;
+import brunonova.drmips.simulator.RunOptions;
+import brunonova.drmips.simulator.RunResult;
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.Frame;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.Timer;
+import javax.swing.WindowConstants;
+
+/**
+ * Modal dialog that executes the program in slices, showing the progress
+ * and allowing the user to cancel the execution.
+ *
+ * @author Bruno Nova
+ */
+public class DlgRunning extends JDialog {
+	/** The maximum duration of each slice of the run, in milliseconds. */
+	private static final long SLICE_TIME = 50;
+
+	/** The CPU being simulated. */
+	private final CPU cpu;
+	/** The maximum number of cycles to execute. */
+	private final long maxCycles;
+	/** The token used to cancel the run. */
+	private final CancellationToken token = new CancellationToken();
+	/** The number of cycles executed before this run (only for display). */
+	private final long previousCycles;
+	/** The label with the number of executed cycles. */
+	private final JLabel lblRunning;
+	/** The number of cycles executed so far in this run. */
+	private long cycles = 0;
+	/** The duration of the slices executed so far, in milliseconds. */
+	private long time = 0;
+	/** Why the last slice stopped. */
+	private RunResult.Reason reason = RunResult.Reason.BUDGET;
+	/** The exception thrown by a slice, if any. */
+	private RuntimeException error = null;
+
+	/**
+	 * Creates the dialog.
+	 * @param parent The parent window.
+	 * @param cpu The CPU being simulated.
+	 * @param maxCycles The maximum number of cycles to execute.
+	 * @param previousCycles The number of cycles already executed (only for display).
+	 */
+	public DlgRunning(Frame parent, CPU cpu, long maxCycles, long previousCycles) {
+		super(parent, AppInfo.NAME, true);
+		this.cpu = cpu;
+		this.previousCycles = previousCycles;
+		this.maxCycles = maxCycles;
+
+		lblRunning = new JLabel(Lang.t("running", previousCycles));
+		lblRunning.setBorder(BorderFactory.createEmptyBorder(15, 15, 5, 15));
+		JButton cmdCancel = new JButton(Lang.t("cancel"));
+		cmdCancel.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				token.cancel();
+			}
+		});
+		JPanel pnlButtons = new JPanel(new FlowLayout(FlowLayout.CENTER));
+		pnlButtons.add(cmdCancel);
+
+		getContentPane().setLayout(new BorderLayout());
+		getContentPane().add(lblRunning, BorderLayout.CENTER);
+		getContentPane().add(pnlButtons, BorderLayout.SOUTH);
+		setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+		addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosing(WindowEvent e) {
+				token.cancel();
+			}
+		});
+		setResizable(false);
+		pack();
+		setLocationRelativeTo(parent);
+	}
+
+	/**
+	 * Executes the program in slices, showing the dialog until it stops.
+	 * <p>Must be called from the event dispatch thread. The simulation runs
+	 * in the event dispatch thread too (in slices of <tt>SLICE_TIME</tt>
+	 * milliseconds, run by a timer while the dialog is shown), so the CPU is
+	 * never accessed by two threads at the same time (the datapath can be
+	 * repainted between slices).</p>
+	 * @return Why the execution stopped.
+	 */
+	public RunResult execute() {
+		Timer timer = new Timer(0, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				runSlice();
+			}
+		});
+		timer.start();
+		setVisible(true); // blocks until the last slice disposes the dialog
+		timer.stop();
+
+		if(error != null) throw error;
+		return new RunResult(reason, cycles, time);
+	}
+
+	/**
+	 * Executes a slice of the run, and disposes the dialog if the run stopped.
+	 */
+	private void runSlice() {
+		if(!isDisplayable()) return; // already stopped
+		RunResult result;
+		try {
+			if(token.isCancelled())
+				result = new RunResult(RunResult.Reason.CANCELLED, 0, 0);
+			else
+				result = cpu.executeAll(new RunOptions(maxCycles - cycles, SLICE_TIME));
+		} catch(RuntimeException ex) {
+			error = ex;
+			dispose();
+			return;
+		}
+
+		cycles += result.getCycles();
+		time += result.getTime();
+		reason = result.getReason();
+		lblRunning.setText(Lang.t("running", previousCycles + cycles));
+		if(reason != RunResult.Reason.BUDGET || cycles >= maxCycles) // stopped
+			dispose();
+	}
+}
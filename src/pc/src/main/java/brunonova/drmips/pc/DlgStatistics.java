@@ -19,6 +19,8 @@
 package brunonova.drmips.pc;
 
 import brunonova.drmips.simulator.CPU;
+import brunonova.drmips.simulator.PipelineBalance;
+import brunonova.drmips.simulator.TimingReport;
 
 /**
  *
@@ -64,6 +66,12 @@ public class DlgStatistics extends javax.swing.JDialog {
         lblForwardsVal = new javax.swing.JLabel();
         lblStalls = new javax.swing.JLabel();
         lblStallsVal = new javax.swing.JLabel();
+        lblStageDelays = new javax.swing.JLabel();
+        lblStageDelaysVal = new javax.swing.JLabel();
+        lblBottleneck = new javax.swing.JLabel();
+        lblBottleneckVal = new javax.swing.JLabel();
+        lblBestMove = new javax.swing.JLabel();
+        lblBestMoveVal = new javax.swing.JLabel();
         jPanel2 = new javax.swing.JPanel();
         cmdClose = new javax.swing.JButton();
 
@@ -115,6 +123,21 @@ public class DlgStatistics extends javax.swing.JDialog {
         lblStallsVal.setHorizontalAlignment(javax.swing.SwingConstants.RIGHT);
         lblStallsVal.setText("0");
 
+        lblStageDelays.setText("stage_delays:");
+
+        lblStageDelaysVal.setHorizontalAlignment(javax.swing.SwingConstants.RIGHT);
+        lblStageDelaysVal.setText("-");
+
+        lblBottleneck.setText("bottleneck_stage:");
+
+        lblBottleneckVal.setHorizontalAlignment(javax.swing.SwingConstants.RIGHT);
+        lblBottleneckVal.setText("-");
+
+        lblBestMove.setText("best_move:");
+
+        lblBestMoveVal.setHorizontalAlignment(javax.swing.SwingConstants.RIGHT);
+        lblBestMoveVal.setText("-");
+
         javax.swing.GroupLayout jPanel1Layout = new javax.swing.GroupLayout(jPanel1);
         jPanel1.setLayout(jPanel1Layout);
         jPanel1Layout.setHorizontalGroup(
@@ -122,6 +145,9 @@ public class DlgStatistics extends javax.swing.JDialog {
             .addGroup(jPanel1Layout.createSequentialGroup()
                 .addContainerGap()
                 .addGroup(jPanel1Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.TRAILING)
+                    .addComponent(lblBestMove, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                    .addComponent(lblBottleneck, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                    .addComponent(lblStageDelays, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                     .addComponent(lblStalls, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                     .addComponent(lblForwards, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                     .addComponent(lblCPI, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
@@ -141,7 +167,10 @@ public class DlgStatistics extends javax.swing.JDialog {
                     .addComponent(lblExecutedInstructionsVal, javax.swing.GroupLayout.Alignment.TRAILING, javax.swing.GroupLayout.DEFAULT_SIZE, 103, Short.MAX_VALUE)
                     .addComponent(lblCPIVal, javax.swing.GroupLayout.Alignment.TRAILING, javax.swing.GroupLayout.DEFAULT_SIZE, 103, Short.MAX_VALUE)
                     .addComponent(lblForwardsVal, javax.swing.GroupLayout.Alignment.TRAILING, javax.swing.GroupLayout.DEFAULT_SIZE, 103, Short.MAX_VALUE)
-                    .addComponent(lblStallsVal, javax.swing.GroupLayout.Alignment.TRAILING, javax.swing.GroupLayout.DEFAULT_SIZE, 103, Short.MAX_VALUE))
+                    .addComponent(lblStallsVal, javax.swing.GroupLayout.Alignment.TRAILING, javax.swing.GroupLayout.DEFAULT_SIZE, 103, Short.MAX_VALUE)
+                    .addComponent(lblStageDelaysVal, javax.swing.GroupLayout.Alignment.TRAILING, javax.swing.GroupLayout.DEFAULT_SIZE, 103, Short.MAX_VALUE)
+                    .addComponent(lblBottleneckVal, javax.swing.GroupLayout.Alignment.TRAILING, javax.swing.GroupLayout.DEFAULT_SIZE, 103, Short.MAX_VALUE)
+                    .addComponent(lblBestMoveVal, javax.swing.GroupLayout.Alignment.TRAILING, javax.swing.GroupLayout.DEFAULT_SIZE, 103, Short.MAX_VALUE))
                 .addContainerGap())
         );
         jPanel1Layout.setVerticalGroup(
@@ -179,6 +208,18 @@ public class DlgStatistics extends javax.swing.JDialog {
                 .addGroup(jPanel1Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(lblStalls)
                     .addComponent(lblStallsVal))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(jPanel1Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(lblStageDelays)
+                    .addComponent(lblStageDelaysVal))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(jPanel1Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(lblBottleneck)
+                    .addComponent(lblBottleneckVal))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(jPanel1Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(lblBestMove)
+                    .addComponent(lblBestMoveVal))
                 .addContainerGap(javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
         );
 
@@ -226,6 +267,9 @@ public class DlgStatistics extends javax.swing.JDialog {
 		lblCPI.setText(Lang.t("cpi") + ":");
 		lblForwards.setText(Lang.t("forwards") + ":");
 		lblStalls.setText(Lang.t("stalls") + ":");
+		lblStageDelays.setText(Lang.t("stage_delays") + ":");
+		lblBottleneck.setText(Lang.t("bottleneck_stage") + ":");
+		lblBestMove.setText(Lang.t("best_move") + ":");
 	}
 	
 	/**
@@ -241,12 +285,48 @@ public class DlgStatistics extends javax.swing.JDialog {
 		lblCPIVal.setText(cpu.getCPIAsString());
 		lblForwardsVal.setText(cpu.getNumberOfForwards() + "");
 		lblStallsVal.setText(cpu.getNumberOfStalls() + "");
+		refreshPipelineBalance(cpu);
+	}
+
+	/**
+	 * Refreshes the balance of the stages of the pipeline (hidden if the CPU isn't pipelined).
+	 * @param cpu CPU from where to get the stages.
+	 */
+	private void refreshPipelineBalance(CPU cpu) {
+		PipelineBalance balance = PipelineBalance.analyze(cpu);
+		boolean visible = balance != null;
+		boolean changed = visible != lblStageDelays.isVisible();
+		lblStageDelays.setVisible(visible);
+		lblStageDelaysVal.setVisible(visible);
+		lblBottleneck.setVisible(visible);
+		lblBottleneckVal.setVisible(visible);
+		lblBestMove.setVisible(visible);
+		lblBestMoveVal.setVisible(visible);
+
+		if(balance != null) {
+			StringBuilder delays = new StringBuilder();
+			for(TimingReport.Stage stage: balance.getStages()) {
+				if(delays.length() > 0) delays.append(", ");
+				delays.append(stage).append(' ').append(balance.getCriticalDelay(stage));
+			}
+			lblStageDelaysVal.setText(delays.append(' ').append(CPU.LATENCY_UNIT).toString());
+			TimingReport.Stage bottleneck = balance.getBottleneck();
+			lblBottleneckVal.setText(bottleneck != null ? bottleneck + " (" + balance.getCriticalDelay(bottleneck) + " " + CPU.LATENCY_UNIT + ")" : "-");
+			PipelineBalance.Move move = balance.findBestMove();
+			lblBestMoveVal.setText(move != null ? move.getComponent().getId() + ": " + move.getFrom() + " \u2192 " + move.getTo() + " (" + move.getClockPeriod() + " " + CPU.LATENCY_UNIT + ")" : "-");
+		}
+		if(changed || getPreferredSize().width > getWidth()) // the values may not fit
+			pack();
 	}
 	
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JButton cmdClose;
     private javax.swing.JPanel jPanel1;
     private javax.swing.JPanel jPanel2;
+    private javax.swing.JLabel lblBestMove;
+    private javax.swing.JLabel lblBestMoveVal;
+    private javax.swing.JLabel lblBottleneck;
+    private javax.swing.JLabel lblBottleneckVal;
     private javax.swing.JLabel lblCPI;
     private javax.swing.JLabel lblCPIVal;
     private javax.swing.JLabel lblClockFrequency;
@@ -261,6 +341,8 @@ public class DlgStatistics extends javax.swing.JDialog {
     private javax.swing.JLabel lblExecutionTimeVal;
     private javax.swing.JLabel lblForwards;
     private javax.swing.JLabel lblForwardsVal;
+    private javax.swing.JLabel lblStageDelays;
+    private javax.swing.JLabel lblStageDelaysVal;
     private javax.swing.JLabel lblStalls;
     private javax.swing.JLabel lblStallsVal;
     // End of variables declaration//GEN-END:variables
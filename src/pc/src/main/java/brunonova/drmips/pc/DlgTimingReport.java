@@ -0,0 +1,232 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.pc;
+
+import brunonova.drmips.simulator.AppInfo;
+import brunonova.drmips.simulator.CPU;
+import brunonova.drmips.simulator.TimingReport;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+/**
+ * Dialog with the timing report of the CPU (the longest paths of the CPU and
+ * of each stage, and the slack of the components).
+ *
+ * @author Bruno Nova
+ */
+public class DlgTimingReport extends javax.swing.JDialog {
+	/** The logger. */
+	private static final Logger LOG = Logger.getLogger(DlgTimingReport.class.getName());
+
+	/** The CPU whose report is displayed. */
+	private CPU cpu = null;
+	/** The displayed report (<tt>null</tt> if not available). */
+	private TimingReport report = null;
+	/** The file chooser used to export the report. */
+	private JFileChooser fileChooser = null;
+	/** The filter for text files. */
+	private FileNameExtensionFilter textFilter = null;
+	/** The filter for JSON files. */
+	private FileNameExtensionFilter jsonFilter = null;
+
+	/**
+	 * Creates new form DlgTimingReport
+	 * @param parent The simulator's main window.
+	 */
+	public DlgTimingReport(FrmSimulator parent) {
+		super(parent, false);
+		initComponents();
+		translate();
+		getRootPane().setDefaultButton(cmdClose);
+		Util.centerWindow(this);
+		Util.enableCloseWindowWithEscape(this);
+	}
+
+	/**
+	 * This method is called from within the constructor to initialize the form.
+	 * WARNING: Do NOT modify this code. The content of this method is always
+	 * regenerated by the Form Editor.
+	 */
+	@SuppressWarnings("unchecked")
+    // <editor-fold defaultstate="collapsed" desc="Generated Code">//GEN-BEGIN:initComponents
+    private void initComponents() {
+
+        pnlPaths = new javax.swing.JPanel();
+        lblPaths = new javax.swing.JLabel();
+        spnPaths = new javax.swing.JSpinner();
+        pnlReport = new javax.swing.JScrollPane();
+        txtReport = new javax.swing.JTextArea();
+        jPanel1 = new javax.swing.JPanel();
+        cmdExport = new javax.swing.JButton();
+        cmdClose = new javax.swing.JButton();
+
+        setDefaultCloseOperation(javax.swing.WindowConstants.DO_NOTHING_ON_CLOSE);
+        setMinimumSize(new java.awt.Dimension(300, 200));
+        setPreferredSize(new java.awt.Dimension(700, 500));
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            public void windowClosing(java.awt.event.WindowEvent evt) {
+                formWindowClosing(evt);
+            }
+        });
+
+        pnlPaths.setLayout(new java.awt.FlowLayout(java.awt.FlowLayout.LEFT));
+
+        lblPaths.setText("paths:");
+        pnlPaths.add(lblPaths);
+
+        spnPaths.setModel(new javax.swing.SpinnerNumberModel(10, 1, 100, 1));
+        spnPaths.addChangeListener(new javax.swing.event.ChangeListener() {
+            public void stateChanged(javax.swing.event.ChangeEvent evt) {
+                spnPathsStateChanged(evt);
+            }
+        });
+        pnlPaths.add(spnPaths);
+
+        getContentPane().add(pnlPaths, java.awt.BorderLayout.NORTH);
+
+        txtReport.setEditable(false);
+        txtReport.setFont(new java.awt.Font("Monospaced", 0, 12)); // NOI18N
+        pnlReport.setViewportView(txtReport);
+
+        getContentPane().add(pnlReport, java.awt.BorderLayout.CENTER);
+
+        cmdExport.setText("export");
+        cmdExport.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                cmdExportActionPerformed(evt);
+            }
+        });
+        jPanel1.add(cmdExport);
+
+        cmdClose.setText("close");
+        cmdClose.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                cmdCloseActionPerformed(evt);
+            }
+        });
+        jPanel1.add(cmdClose);
+
+        getContentPane().add(jPanel1, java.awt.BorderLayout.SOUTH);
+
+        pack();
+    }// </editor-fold>//GEN-END:initComponents
+
+    private void formWindowClosing(java.awt.event.WindowEvent evt) {//GEN-FIRST:event_formWindowClosing
+		close();
+    }//GEN-LAST:event_formWindowClosing
+
+    private void cmdCloseActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_cmdCloseActionPerformed
+		close();
+    }//GEN-LAST:event_cmdCloseActionPerformed
+
+    private void cmdExportActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_cmdExportActionPerformed
+		export();
+    }//GEN-LAST:event_cmdExportActionPerformed
+
+    private void spnPathsStateChanged(javax.swing.event.ChangeEvent evt) {//GEN-FIRST:event_spnPathsStateChanged
+		if(cpu != null) refresh(cpu);
+    }//GEN-LAST:event_spnPathsStateChanged
+
+	/**
+	 * Closes the window.
+	 */
+	private void close() {
+		setVisible(false);
+	}
+
+	/**
+	 * Translates the dialog's strings.
+	 */
+	protected final void translate() {
+		setTitle(Lang.t("timing_report_title"));
+		Lang.tButton(cmdExport, "export");
+		Lang.tButton(cmdClose, "close");
+		lblPaths.setText(Lang.t("paths_to_list") + ":");
+		fileChooser = null; // recreated with the translated filters
+		if(report == null && cpu != null)
+			txtReport.setText(Lang.t("timing_report_not_available"));
+	}
+
+	/**
+	 * Generates the report of the given CPU again.
+	 * <p>The text is only replaced if the report changed (the latencies of
+	 * the CPU changed), so that the scroll position is kept.</p>
+	 * @param cpu The CPU.
+	 */
+	protected void refresh(CPU cpu) {
+		this.cpu = cpu;
+		report = TimingReport.generate(cpu, (Integer)spnPaths.getValue());
+		String text = report != null ? report.toText() : Lang.t("timing_report_not_available");
+		if(!text.equals(txtReport.getText())) {
+			txtReport.setText(text);
+			txtReport.setCaretPosition(0);
+		}
+		cmdExport.setEnabled(report != null);
+	}
+
+	/**
+	 * Asks for a file and exports the report to it, as JSON if the file has
+	 * the <tt>.json</tt> extension or as text otherwise.
+	 */
+	private void export() {
+		if(report == null) return;
+		if(fileChooser == null) {
+			fileChooser = new JFileChooser();
+			textFilter = new FileNameExtensionFilter(Lang.t("text_files"), "txt");
+			jsonFilter = new FileNameExtensionFilter(Lang.t("json_files"), "json");
+			fileChooser.addChoosableFileFilter(textFilter);
+			fileChooser.addChoosableFileFilter(jsonFilter);
+			fileChooser.setFileFilter(textFilter);
+		}
+		fileChooser.setDialogTitle(Lang.t("export_timing_report"));
+		if(fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+			return;
+		File file = fileChooser.getSelectedFile();
+		if(file.getName().lastIndexOf(".") == -1) // append extension if missing
+			file = new File(file.getPath() + (fileChooser.getFileFilter() == jsonFilter ? ".json" : ".txt"));
+		if(file.exists() && JOptionPane.showConfirmDialog(this, Lang.t("confirm_replace", file.getName()), AppInfo.NAME, JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE) != JOptionPane.OK_OPTION)
+			return;
+
+		String contents = file.getName().toLowerCase().endsWith(".json") ? report.toJSON() : report.toText();
+		try {
+			Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+		} catch(IOException ex) {
+			JOptionPane.showMessageDialog(this, Lang.t("error_saving_file", file.getName()) + "\n" + ex.getMessage(), AppInfo.NAME, JOptionPane.ERROR_MESSAGE);
+			LOG.log(Level.WARNING, "error exporting timing report \"" + file.getName() + "\"", ex);
+		}
+	}
+
+    // Variables declaration - do not modify//GEN-BEGIN:variables
+    private javax.swing.JButton cmdClose;
+    private javax.swing.JButton cmdExport;
+    private javax.swing.JPanel jPanel1;
+    private javax.swing.JLabel lblPaths;
+    private javax.swing.JScrollPane pnlReport;
+    private javax.swing.JPanel pnlPaths;
+    private javax.swing.JSpinner spnPaths;
+    private javax.swing.JTextArea txtReport;
+    // End of variables declaration//GEN-END:variables
+}
@@ -20,6 +20,9 @@ package brunonova.drmips.pc;
 
 import brunonova.drmips.simulator.AppInfo;
 import brunonova.drmips.simulator.CPU;
+import brunonova.drmips.simulator.CPUFileCache;
+import brunonova.drmips.simulator.RunOptions;
+import brunonova.drmips.simulator.RunResult;
 import brunonova.drmips.simulator.exceptions.*;
 import java.awt.BorderLayout;
 import java.awt.Desktop;
@@ -67,14 +70,20 @@ import org.json.JSONException;
  * @author Bruno Nova
  */
 public class FrmSimulator extends javax.swing.JFrame {
+	/** The time (in milliseconds) a program runs before the progress dialog is displayed. */
+	private static final long RUN_FOREGROUND_TIME = 300;
 	/** The currently loaded CPU. */
 	public CPU cpu = null;
+	/** The cache of the parsed CPU files. */
+	private final CPUFileCache cpuFileCache = new CPUFileCache(CPUFileCache.getDefaultDirectory());
 	/** The file chooser to choose a CPU file. */
 	private JFileChooser cpuFileChooser = null;
 	/** The file chooser to open/save a code file. */
 	private JFileChooser codeFileChooser = null;
 	/** The file filter of the open/save file chooser. */
 	private FileNameExtensionFilter codeFileFilter = null;
+	/** The file chooser for the data memory images. */
+	private JFileChooser memoryImageFileChooser = null;
 	/** The file currently open (if <tt>null</tt> no file is open). */
 	private File openFile = null;
 	/** The window icon (in different sizes). */
@@ -87,6 +96,8 @@ public class FrmSimulator extends javax.swing.JFrame {
 	private DlgSupportedInstructions dlgSupportedInstructions = null;
 	/** The statistics dialog. */
 	private DlgStatistics dlgStatistics = null; // statistics refreshed in DatapathPanel.refresh()
+	/** The timing report dialog. */
+	private DlgTimingReport dlgTimingReport = null; // refreshed with the statistics, if visible
 	/** The selected tab when it was right-clicked. */
 	private Tab selectedTab = null;
 
@@ -132,6 +143,7 @@ public class FrmSimulator extends javax.swing.JFrame {
 		dlgFindReplace = new DlgFindReplace(this);
 		dlgSupportedInstructions = new DlgSupportedInstructions(this);
 		dlgStatistics = new DlgStatistics(this);
+		dlgTimingReport = new DlgTimingReport(this);
 		refreshTabSides();
 		updateRecentFiles();
 		loadFirstCPU();
@@ -271,6 +283,8 @@ public class FrmSimulator extends javax.swing.JFrame {
         jPanel4 = new javax.swing.JPanel();
         lblDataMemoryFormat = new javax.swing.JLabel();
         cmbDataMemoryFormat = new javax.swing.JComboBox();
+        cmdLoadMemoryImage = new javax.swing.JButton();
+        cmdSaveMemoryImage = new javax.swing.JButton();
         pnlRight = new javax.swing.JTabbedPane();
         pnlRegisters = new javax.swing.JPanel();
         jPanel1 = new javax.swing.JPanel();
@@ -330,6 +344,7 @@ public class FrmSimulator extends javax.swing.JFrame {
         mnuRemoveLatencies = new javax.swing.JMenuItem();
         jSeparator15 = new javax.swing.JPopupMenu.Separator();
         mnuStatistics = new javax.swing.JMenuItem();
+        mnuTimingReport = new javax.swing.JMenuItem();
         mnuExecute = new javax.swing.JMenu();
         mnuAssemble = new javax.swing.JMenuItem();
         jSeparator3 = new javax.swing.JPopupMenu.Separator();
@@ -337,6 +352,7 @@ public class FrmSimulator extends javax.swing.JFrame {
         mnuBackStep = new javax.swing.JMenuItem();
         mnuStep = new javax.swing.JMenuItem();
         mnuRun = new javax.swing.JMenuItem();
+        mnuGoToCycle = new javax.swing.JMenuItem();
         mnuBreak = new javax.swing.JMenuItem();
         jSeparator10 = new javax.swing.JPopupMenu.Separator();
         mnuResetDataBeforeAssembling = new javax.swing.JCheckBoxMenuItem();
@@ -779,6 +795,22 @@ public class FrmSimulator extends javax.swing.JFrame {
         });
         jPanel4.add(cmbDataMemoryFormat);
 
+        cmdLoadMemoryImage.setText("load_memory_image");
+        cmdLoadMemoryImage.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                cmdLoadMemoryImageActionPerformed(evt);
+            }
+        });
+        jPanel4.add(cmdLoadMemoryImage);
+
+        cmdSaveMemoryImage.setText("save_memory_image");
+        cmdSaveMemoryImage.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                cmdSaveMemoryImageActionPerformed(evt);
+            }
+        });
+        jPanel4.add(cmdSaveMemoryImage);
+
         pnlDataMemory.add(jPanel4, java.awt.BorderLayout.SOUTH);
 
         pnlLeft.addTab("data_memory", pnlDataMemory);
@@ -1179,6 +1211,15 @@ public class FrmSimulator extends javax.swing.JFrame {
         });
         mnuDatapath.add(mnuStatistics);
 
+        mnuTimingReport.setAccelerator(javax.swing.KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_F6, java.awt.event.InputEvent.SHIFT_MASK));
+        mnuTimingReport.setText("timing_report");
+        mnuTimingReport.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                mnuTimingReportActionPerformed(evt);
+            }
+        });
+        mnuDatapath.add(mnuTimingReport);
+
         mnuBar.add(mnuDatapath);
 
         mnuExecute.setText("execute");
@@ -1238,6 +1279,16 @@ public class FrmSimulator extends javax.swing.JFrame {
         });
         mnuExecute.add(mnuRun);
 
+        mnuGoToCycle.setAccelerator(javax.swing.KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_G, java.awt.event.InputEvent.CTRL_MASK));
+        mnuGoToCycle.setText("go_to_cycle");
+        mnuGoToCycle.setEnabled(false);
+        mnuGoToCycle.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                mnuGoToCycleActionPerformed(evt);
+            }
+        });
+        mnuExecute.add(mnuGoToCycle);
+
         mnuBreak.setText("add breakpoint");
         mnuBreak.setEnabled(false);
         mnuBreak.addActionListener(new java.awt.event.ActionListener() {
@@ -1412,6 +1463,14 @@ public class FrmSimulator extends javax.swing.JFrame {
 		tblDataMemory.refreshValues(cmbDataMemoryFormat.getSelectedIndex());
     }//GEN-LAST:event_cmbDataMemoryFormatActionPerformed
 
+    private void cmdLoadMemoryImageActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_cmdLoadMemoryImageActionPerformed
+		loadMemoryImage();
+    }//GEN-LAST:event_cmdLoadMemoryImageActionPerformed
+
+    private void cmdSaveMemoryImageActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_cmdSaveMemoryImageActionPerformed
+		saveMemoryImage();
+    }//GEN-LAST:event_cmdSaveMemoryImageActionPerformed
+
     private void mnuEditMousePressed(java.awt.event.MouseEvent evt) {//GEN-FIRST:event_mnuEditMousePressed
 		mnuUndo.setEnabled(txtCode.canUndo());
 		mnuRedo.setEnabled(txtCode.canRedo());
@@ -1571,6 +1630,10 @@ public class FrmSimulator extends javax.swing.JFrame {
 		run();
     }//GEN-LAST:event_mnuRunActionPerformed
 
+    private void mnuGoToCycleActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_mnuGoToCycleActionPerformed
+		goToCycle();
+    }//GEN-LAST:event_mnuGoToCycleActionPerformed
+
     private void mnuBreakActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_mnuBreakActionPerformed
         addBreakpoint();
     }//GEN-LAST:event_mnuBreakActionPerformed
@@ -1600,6 +1663,11 @@ public class FrmSimulator extends javax.swing.JFrame {
 		dlgStatistics.setVisible(true);
     }//GEN-LAST:event_mnuStatisticsActionPerformed
 
+    private void mnuTimingReportActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_mnuTimingReportActionPerformed
+		dlgTimingReport.refresh(cpu);
+		dlgTimingReport.setVisible(true);
+    }//GEN-LAST:event_mnuTimingReportActionPerformed
+
     private void cmdStatisticsActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_cmdStatisticsActionPerformed
 		dlgStatistics.setVisible(true);
     }//GEN-LAST:event_cmdStatisticsActionPerformed
@@ -1957,6 +2025,63 @@ public class FrmSimulator extends javax.swing.JFrame {
 
 	}
 
+	/**
+	 * Asks for a memory image file and the address where it is loaded, and
+	 * loads it into the data memory.
+	 */
+	private void loadMemoryImage() {
+		memoryImageFileChooser.setDialogTitle(Lang.t("load_memory_image"));
+		if(memoryImageFileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION)
+			return;
+		File file = memoryImageFileChooser.getSelectedFile();
+		String res = JOptionPane.showInputDialog(this, Lang.t("memory_image_address") + ":", "0");
+		if(res == null) return;
+		int address;
+		try {
+			long value = Long.decode(res.trim());
+			if(value < Integer.MIN_VALUE || value > 0xffffffffL || value % 4 != 0)
+				throw new NumberFormatException(res);
+			address = (int)value;
+		} catch(NumberFormatException ex) {
+			JOptionPane.showMessageDialog(this, Lang.t("invalid_value"), AppInfo.NAME, JOptionPane.ERROR_MESSAGE);
+			return;
+		}
+
+		try {
+			cpu.getDataMemory().loadImage(file, address);
+			cpu.discardNewerCycles(); // the saved newer cycles are outdated
+			refreshValues();
+		} catch(IOException ex) {
+			JOptionPane.showMessageDialog(this, Lang.t("error_opening_file", file.getName()) + "\n" + ex.getMessage(), AppInfo.NAME, JOptionPane.ERROR_MESSAGE);
+			LOG.log(Level.WARNING, "error loading memory image \"" + file.getName() + "\"", ex);
+		}
+	}
+
+	/**
+	 * Asks for a file and saves the contents of the data memory to it.
+	 * <p>A paged memory is saved from its first touched page, and the
+	 * address of the image is displayed.</p>
+	 */
+	private void saveMemoryImage() {
+		memoryImageFileChooser.setDialogTitle(Lang.t("save_memory_image"));
+		if(memoryImageFileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+			return;
+		File file = memoryImageFileChooser.getSelectedFile();
+		if(file.getName().lastIndexOf(".") == -1)
+			file = new File(file.getPath() + ".mem"); // append extension if missing
+		if(file.exists() && JOptionPane.showConfirmDialog(this, Lang.t("confirm_replace", file.getName()), AppInfo.NAME, JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE) != JOptionPane.OK_OPTION)
+			return;
+
+		try {
+			int address = cpu.getDataMemory().saveImage(file);
+			if(address != 0)
+				JOptionPane.showMessageDialog(this, Lang.t("memory_image_saved_at", "0x" + Integer.toHexString(address)), AppInfo.NAME, JOptionPane.INFORMATION_MESSAGE);
+		} catch(IOException | IllegalArgumentException ex) {
+			JOptionPane.showMessageDialog(this, Lang.t("error_saving_file", file.getName()) + "\n" + ex.getMessage(), AppInfo.NAME, JOptionPane.ERROR_MESSAGE);
+			LOG.log(Level.WARNING, "error saving memory image \"" + file.getName() + "\"", ex);
+		}
+	}
+
 	/**
 	 * Shows the print dialog to send the current file to the printer.
 	 */
@@ -2018,6 +2143,7 @@ public class FrmSimulator extends javax.swing.JFrame {
 		Lang.tButton(mnuBackStep, "back_step");
 		Lang.tButton(mnuStep, "step");
 		Lang.tButton(mnuRun, "run");
+		Lang.tButton(mnuGoToCycle, "go_to_cycle");
 		Lang.tButton(mnuBreak, "add breakpoint");
 		Lang.tButton(mnuZoomIn, "zoom_in");
 		Lang.tButton(mnuZoomOut, "zoom_out");
@@ -2031,6 +2157,7 @@ public class FrmSimulator extends javax.swing.JFrame {
 		Lang.tButton(mnuRestoreLatencies, "restore_latencies");
 		Lang.tButton(mnuRemoveLatencies, "remove_latencies");
 		Lang.tButton(mnuStatistics, "statistics");
+		Lang.tButton(mnuTimingReport, "timing_report");
 		Lang.tButton(mnuLanguage, "language");
 		Lang.tButton(mnuHelp, "help");
 		Lang.tButton(mnuDocs, "documentation");
@@ -2064,9 +2191,12 @@ public class FrmSimulator extends javax.swing.JFrame {
 		cpuFileChooser.setFileFilter(new FileNameExtensionFilter(Lang.t("cpu_files"), CPU.FILENAME_EXTENSION));
 		codeFileChooser = new JFileChooser();
 		codeFileChooser.setFileFilter(codeFileFilter = new FileNameExtensionFilter(Lang.t("assembly_files"), "asm", "s"));
+		memoryImageFileChooser = new JFileChooser();
+		memoryImageFileChooser.setFileFilter(new FileNameExtensionFilter(Lang.t("memory_image_files"), "mem", "bin"));
 		dlgFindReplace.translate();
 		dlgSupportedInstructions.translate();
 		dlgStatistics.translate();
+		dlgTimingReport.translate();
 
 		cmdNew.setToolTipText(Lang.t("new"));
 		cmdOpen.setToolTipText(Lang.t("open"));
@@ -2092,6 +2222,8 @@ public class FrmSimulator extends javax.swing.JFrame {
 		lblDatapathPerformance.setText(Lang.t("performance") + ":");
 		lblAssembledCodeFormat.setText(Lang.t("format") + ":");
 		lblDataMemoryFormat.setText(Lang.t("format") + ":");
+		cmdLoadMemoryImage.setText(Lang.t("load_memory_image"));
+		cmdSaveMemoryImage.setText(Lang.t("save_memory_image"));
 		lblFile.setText(Lang.t("file") + ":");
 
 		initFormatComboBox(cmbRegFormat, DrMIPS.REGISTER_FORMAT_PREF, DrMIPS.DEFAULT_REGISTER_FORMAT);
@@ -2214,6 +2346,7 @@ public class FrmSimulator extends javax.swing.JFrame {
 			mnuRestart.setEnabled(false);
 			mnuStep.setEnabled(false);
 			mnuRun.setEnabled(false);
+			mnuGoToCycle.setEnabled(false);
 			mnuBreak.setEnabled(false);
 			cmdBackStep.setEnabled(false);
 			cmdRestart.setEnabled(false);
@@ -2223,6 +2356,7 @@ public class FrmSimulator extends javax.swing.JFrame {
 		else {
 			updateStepEnabled();
 			updateStepBackEnabled();
+			mnuGoToCycle.setEnabled(true);
 		}
 	}
 
@@ -2240,13 +2374,15 @@ public class FrmSimulator extends javax.swing.JFrame {
 
 	/**
 	 * Sets the "step back" controls enabled or disabled according to <tt>cpu.hasPreviousCycle()</tt>.
+	 * <p>Restarting is also possible after going back to a checkpoint.</p>
 	 */
 	private void updateStepBackEnabled() {
 		boolean enable = cpu.hasPreviousCycle();
+		boolean enableRestart = enable || cpu.getNumberOfExecutedCycles() > 0;
 		mnuBackStep.setEnabled(enable);
-		mnuRestart.setEnabled(enable);
+		mnuRestart.setEnabled(enableRestart);
 		cmdBackStep.setEnabled(enable);
-		cmdRestart.setEnabled(enable);
+		cmdRestart.setEnabled(enableRestart);
 	}
 
 	/**
@@ -2255,13 +2391,15 @@ public class FrmSimulator extends javax.swing.JFrame {
 	 */
 	private void loadCPU(String path) throws IOException, JSONException, InvalidCPUException, ArrayIndexOutOfBoundsException, InvalidInstructionSetException, NumberFormatException {
 		setSimulationControlsEnabled(false);
-		cpu = CPU.createFromJSONFile(path); // load CPU from file
+		cpu = CPU.createFromJSONFile(path, cpuFileCache); // load CPU from file (or from the cache)
 		cpu.setPerformanceInstructionDependent(cmbDatapathPerformance.getSelectedIndex() == Util.INSTRUCTION_PERFORMANCE_TYPE_INDEX);
 		DrMIPS.prefs.put(DrMIPS.LAST_CPU_PREF, path); // save CPU path in preferences
 		tblRegisters.setCPU(cpu, datapath, tblExec, cmbRegFormat.getSelectedIndex()); // display the CPU's register table
 		datapath.setCPU(cpu); // display datapath in the respective tab
 		tblAssembledCode.setCPU(cpu, cmbAssembledCodeFormat.getSelectedIndex()); // display assembled code in the respective tab
 		tblDataMemory.setCPU(cpu, datapath, cmbDataMemoryFormat.getSelectedIndex()); // display data memory in the respective tab
+		cmdLoadMemoryImage.setEnabled(cpu.hasDataMemory());
+		cmdSaveMemoryImage.setEnabled(cpu.hasDataMemory());
 		tblExec.setCPU(cpu, cmbDatapathDataFormat.getSelectedIndex());
 		lblFileName.setText(cpu.getFile().getName());
 		lblFileName.setToolTipText(cpu.getFile().getAbsolutePath());
@@ -2344,15 +2482,38 @@ public class FrmSimulator extends javax.swing.JFrame {
 	}
 
 	/**
-	 * Executes all the instructions at once.
+	 * Asks for a clock cycle and moves the execution to it.
 	 */
-	private void run() {
+	private void goToCycle() {
+		String res = JOptionPane.showInputDialog(this, Lang.t("cycle_to_go_to", cpu.getNumberOfExecutedCycles()) + ":", AppInfo.NAME, JOptionPane.QUESTION_MESSAGE);
+		if(res == null) return; // cancelled
 		try {
-			cpu.executeAll();
+			long cycle = Long.parseLong(res.trim());
+			if(cycle < 0) throw new NumberFormatException();
+			if(cycle > cpu.getNumberOfExecutedCycles() + RunOptions.DEFAULT_MAX_CYCLES)
+				cycle = cpu.getNumberOfExecutedCycles() + RunOptions.DEFAULT_MAX_CYCLES;
+			cpu.seekToCycle(cycle);
+			refreshValues();
 		}
-		catch(InfiniteLoopException e) {
-			JOptionPane.showMessageDialog(this, Lang.t("possible_infinite_loop", CPU.EXECUTE_ALL_LIMIT_CYCLES), AppInfo.NAME, JOptionPane.ERROR_MESSAGE);
+		catch(NumberFormatException ex) {
+			JOptionPane.showMessageDialog(this, Lang.t("invalid_value"), AppInfo.NAME, JOptionPane.ERROR_MESSAGE);
 		}
+	}
+
+	/**
+	 * Executes all the instructions at once.
+	 */
+	private void run() {
+		// Run in this thread for a short while; if the program is still
+		// running, continue in the background, showing the progress
+		RunResult result = cpu.executeAll(new RunOptions(RunOptions.DEFAULT_MAX_CYCLES, RUN_FOREGROUND_TIME));
+		if(result.getReason() == RunResult.Reason.BUDGET && result.getCycles() < RunOptions.DEFAULT_MAX_CYCLES) {
+			DlgRunning dlg = new DlgRunning(this, cpu, RunOptions.DEFAULT_MAX_CYCLES - result.getCycles(), result.getCycles());
+			result = dlg.execute();
+		}
+
+		if(result.getReason() == RunResult.Reason.BUDGET)
+			JOptionPane.showMessageDialog(this, Lang.t("possible_infinite_loop", RunOptions.DEFAULT_MAX_CYCLES), AppInfo.NAME, JOptionPane.ERROR_MESSAGE);
 		refreshValues();
 	}
 
@@ -2570,6 +2731,7 @@ public class FrmSimulator extends javax.swing.JFrame {
 		if(dlgFindReplace != null) SwingUtilities.updateComponentTreeUI(dlgFindReplace);
 		if(dlgSupportedInstructions != null) SwingUtilities.updateComponentTreeUI(dlgSupportedInstructions);
 		if(dlgStatistics != null) SwingUtilities.updateComponentTreeUI(dlgStatistics);
+		if(dlgTimingReport != null) SwingUtilities.updateComponentTreeUI(dlgTimingReport);
 		if(cpuFileChooser != null) cpuFileChooser.updateUI();
 		if(codeFileChooser != null) codeFileChooser.updateUI();
 		datapath.setCPU(cpu);
@@ -2762,10 +2924,11 @@ public class FrmSimulator extends javax.swing.JFrame {
 	}
 
 	/**
-	 * Refreshes the statistics dialog.
+	 * Refreshes the statistics dialog (and the timing report dialog, if visible).
 	 */
 	public void refreshStatistics() {
 		dlgStatistics.refresh(cpu);
+		if(dlgTimingReport.isVisible()) dlgTimingReport.refresh(cpu);
 	}
 
 	/**
@@ -2859,12 +3022,14 @@ public class FrmSimulator extends javax.swing.JFrame {
     private javax.swing.JButton cmdAssemble;
     private javax.swing.JButton cmdBackStep;
     private javax.swing.JButton cmdHelp;
+    private javax.swing.JButton cmdLoadMemoryImage;
     private javax.swing.JButton cmdNew;
     private javax.swing.JButton cmdOpen;
     private javax.swing.JButton cmdRestart;
     private javax.swing.JButton cmdRun;
     private javax.swing.JButton cmdSave;
     private javax.swing.JButton cmdSaveAs;
+    private javax.swing.JButton cmdSaveMemoryImage;
     private javax.swing.JButton cmdStatistics;
     private javax.swing.JButton cmdStep;
     private javax.swing.JButton cmdSupportedInstructions;
@@ -2935,6 +3100,7 @@ public class FrmSimulator extends javax.swing.JFrame {
     private javax.swing.JMenuItem mnuExit;
     private javax.swing.JMenuItem mnuFindReplace;
     private javax.swing.JMenuItem mnuFindReplaceP;
+    private javax.swing.JMenuItem mnuGoToCycle;
     private javax.swing.JMenu mnuHelp;
     private javax.swing.JCheckBoxMenuItem mnuInternalWindows;
     private javax.swing.JMenu mnuLanguage;
@@ -2973,6 +3139,7 @@ public class FrmSimulator extends javax.swing.JFrame {
     private javax.swing.JCheckBoxMenuItem mnuSwitchTheme;
     private javax.swing.JPopupMenu mnuTabSide;
     private javax.swing.JMenuItem mnuTileWindows;
+    private javax.swing.JMenuItem mnuTimingReport;
     private javax.swing.JMenuItem mnuUndo;
     private javax.swing.JMenuItem mnuUndoP;
     private javax.swing.JMenu mnuView;
@@ -171,6 +171,7 @@ public class RegistersTable extends JTable implements MouseListener {
 			else if(row >= 0 && row < cpu.getRegBank().getNumberOfRegisters()) // register
 				cpu.getRegBank().setRegister(row, value);
 
+			cpu.discardNewerCycles(); // the saved newer cycles are outdated
 			if(datapath != null) datapath.refresh(); // update datapath
 			if(tblExec != null) tblExec.refresh(); // update exec table
 		}
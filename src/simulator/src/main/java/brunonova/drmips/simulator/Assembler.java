@@ -29,6 +29,12 @@ import java.util.TreeSet;
 
 /**
  * The class that assembles code into MIPS assembled instructions and loads data values from the <tt>.data</tt> section.
+ *
+ * <p>The code is read in a single pass by a small hand-written lexer, that
+ * finds the lines, comments, labels, mnemonics and arguments without regular
+ * expressions. The numbers are parsed without exceptions, so an argument that
+ * isn't a number is looked up in the labels directly, and the mnemonics and
+ * registers are looked up in hash tables of the instruction set and CPU.</p>
  * 
  * @author Bruno Nova
  */
@@ -39,6 +45,8 @@ public class Assembler {
 	public static final String LABEL_REGEX = "^[a-zA-z][a-zA-Z0-9_]*$";
 	/** The possible segment types. */
 	private enum Segment {TEXT, DATA}
+	/** An empty list of arguments. */
+	private static final String[] NO_ARGS = new String[0];
 	
 	/** The CPU this assembler is assembling to. */
 	private final CPU cpu;
@@ -46,6 +54,8 @@ public class Assembler {
 	private Map<String, Integer> textLabels;
 	/** The data segment labels in the code and their addresses. */
 	private Map<String, Integer> dataLabels;
+	/** The value of the last number parsed by <tt>parseNumber()</tt>. */
+	private long number;
 	
 	/**
 	 * Creates the assembler.
@@ -61,95 +71,88 @@ public class Assembler {
 	 * @throws SyntaxErrorException If the code has a syntax error.
 	 */
 	protected void assembleCode(String code) throws SyntaxErrorException {
-		String[] codeLines = code.split("\n");
 		List<CodeLine> lines = new ArrayList<>();
 		List<AssembledInstruction> instructions = new ArrayList<>();
-		int index, lineNumber, currentDataAddress = 0;
-		String codeLine, label, mnemonic, type;
-		String[] split, args, values;
-		List<String> interpretedLines;
+		int lineNumber = 0, currentDataAddress = 0;
+		String label;
 		textLabels = new TreeMap<>();
 		dataLabels = new TreeMap<>();
 		Segment currentSegment = Segment.TEXT;
 		List<SyntaxErrorException> errors = new LinkedList<>();
+		boolean dataLoaded = false;
+		InstructionSet set = cpu.getInstructionSet();
 		
 		// Parse each line
-		for(int i = 0; i < codeLines.length; i++) {
-			try {
-				index = lines.size();
-				lineNumber = i + 1;
-				codeLine = codeLines[i].split("" + COMMENT_CHAR, 2)[0].trim(); // remove comment, if any
+		for(int pos = 0, length = code.length(); pos <= length; ) {
+			int start = pos, end = code.indexOf('\n', pos);
+			if(end < 0) end = length;
+			pos = end + 1;
+			lineNumber++;
+			int comment = indexOf(code, COMMENT_CHAR, start, end);
+			if(comment >= 0) end = comment; // remove comment, if any
+			start = skipSpaces(code, start, end);
+			end = trimEnd(code, start, end);
 
-				if(codeLine.equals(".text")) // change to text segment
+			try {
+				if(code.startsWith(".text", start) && end - start == 5) // change to text segment
 					currentSegment = Segment.TEXT;
-				else if(codeLine.equals(".data")) { // change to data segment
+				else if(code.startsWith(".data", start) && end - start == 5) { // change to data segment
 					if(!cpu.hasDataMemory())
 						throw new SyntaxErrorException(SyntaxErrorException.Type.DATA_SEGMENT_WITHOUT_DATA_MEMORY, lineNumber);
 					currentSegment = Segment.DATA;
 				}
-				else if(currentSegment == Segment.DATA) { // line in data segment (load data)
-					if(codeLine.contains(":")) { // check if the line has a label
-						split = codeLine.split(":", 2);
-						label = split[0].trim();
-						codeLine = split[1].trim();
-						if(!label.matches(LABEL_REGEX))
+				else {
+					int colon = indexOf(code, ':', start, end);
+					if(colon >= 0) { // check if the line has a label
+						label = code.substring(start, trimEnd(code, start, colon));
+						start = skipSpaces(code, colon + 1, end);
+						if(!isLabel(label))
 							throw new SyntaxErrorException(SyntaxErrorException.Type.INVALID_LABEL, lineNumber, label);
 						if(textLabels.containsKey(label) || dataLabels.containsKey(label))
 							throw new SyntaxErrorException(SyntaxErrorException.Type.DUPLICATED_LABEL, lineNumber, label);
-						dataLabels.put(label, currentDataAddress);
+						if(currentSegment == Segment.DATA)
+							dataLabels.put(label, currentDataAddress);
+						else
+							textLabels.put(label, lines.size());
 					}
 
-					if(!codeLine.isEmpty()) { // load values, if any
-						split = codeLine.split("\\s+", 2); // split data type (directive) and values (\\s+ matches whitespace characters)
-						type = split[0].trim().toLowerCase();
-						values = (split.length == 2) ? split[1].trim().split(",") : new String[0]; // split values, if any
+					if(start < end && currentSegment == Segment.DATA) { // line in data segment (load data)
+						int space = indexOfSpace(code, start, end);
+						String type = code.substring(start, trimEnd(code, start, space)).toLowerCase(); // data type (directive)
+						String[] values = space < end ? splitArguments(code, skipSpaces(code, space, end), end) : NO_ARGS; // values, if any
 						switch (type) {
 							case ".word":
 								for(String value: values) {
 									currentDataAddress = alignAddressToWord(currentDataAddress);
-									cpu.getDataMemory().setData(currentDataAddress, parseIntArg(value.trim(), lineNumber));
+									cpu.getDataMemory().setData(currentDataAddress, parseIntArg(value, lineNumber), false);
+									dataLoaded = true;
 									currentDataAddress += 4;
 								}	break;
 							case ".space":
 								if(values.length != 1)
 									throw new SyntaxErrorException(SyntaxErrorException.Type.WRONG_NUMBER_OF_ARGUMENTS, lineNumber, "" + 1, "" + values.length);
 								else {
-									int arg = parseIntArg(values[0].trim(), lineNumber);
-									if(arg < 0) throw new SyntaxErrorException(SyntaxErrorException.Type.INVALID_POSITIVE_INT_ARG, lineNumber, values[0].trim());
+									int arg = parseIntArg(values[0], lineNumber);
+									if(arg < 0) throw new SyntaxErrorException(SyntaxErrorException.Type.INVALID_POSITIVE_INT_ARG, lineNumber, values[0]);
 									currentDataAddress += arg;
 								}	break;
 							default:
 								throw new SyntaxErrorException(SyntaxErrorException.Type.UNKNOWN_DATA_DIRECTIVE, lineNumber, type);
 						}
 					}
-				}
-				else { // line in text segment (replace pseudo-instructions and find labels' line numbers)
-					if(codeLine.contains(":")) { // check if the line has a label
-						split = codeLine.split(":", 2);
-						label = split[0].trim();
-						codeLine = split[1].trim();
-						if(!label.matches(LABEL_REGEX))
-							throw new SyntaxErrorException(SyntaxErrorException.Type.INVALID_LABEL, lineNumber, label);
-						if(textLabels.containsKey(label) || dataLabels.containsKey(label))
-							throw new SyntaxErrorException(SyntaxErrorException.Type.DUPLICATED_LABEL, lineNumber, label);
-						textLabels.put(label, index);
-					}
-
-					if(!codeLine.isEmpty()) {
-						split = codeLine.split("\\s+", 2); // split mnemonic and args
-						mnemonic = split[0].trim();
-						args = (split.length == 2) ? split[1].trim().split(",") : new String[0]; // split args, if any
-
-						if(cpu.getInstructionSet().hasPseudoInstruction(mnemonic)) { // pseudo-instruction
-							interpretedLines = interpretPseudoInstruction(mnemonic, args, lineNumber);
+					else if(start < end) { // line in text segment (replace pseudo-instructions and find labels' line numbers)
+						String codeLine = code.substring(start, end);
+						CodeLine line = new CodeLine(codeLine, lineNumber);
+						if(set.hasPseudoInstruction(line.mnemonic)) { // pseudo-instruction
+							List<String> interpretedLines = interpretPseudoInstruction(line.mnemonic, line.args, lineNumber);
 							if(!interpretedLines.isEmpty()) {
 								interpretedLines.set(0, interpretedLines.get(0) + "  " + COMMENT_CHAR + " " + codeLine);
-								for(String line: interpretedLines)
-									lines.add(new CodeLine(line, lineNumber));
+								for(String l: interpretedLines)
+									lines.add(new CodeLine(l, lineNumber));
 							}
 						}
 						else
-							lines.add(new CodeLine(codeLine, lineNumber));
+							lines.add(line);
 					}
 				}
 			}
@@ -157,11 +160,13 @@ public class Assembler {
 				errors.add(ex);
 			}
 		}
+		if(dataLoaded) // propagate the values of the data segment only once
+			cpu.getDataMemory().execute();
 		
 		// Assemble the instructions
 		for(int i = 0; i < lines.size(); i++) {
 			try {
-				instructions.add(assembleInstruction(lines.get(i).line, i, lines.get(i).number));
+				instructions.add(assembleInstruction(lines.get(i), i));
 			}
 			catch(SyntaxErrorException ex) {
 				errors.add(ex);
@@ -190,16 +195,17 @@ public class Assembler {
 	 * @return The resulting lines of code, or an empty list if something is wrong.
 	 */
 	public List<String> interpretPseudoInstruction(String line) {
-		String[] split;
-		
-		line = line.split("" + COMMENT_CHAR, 2)[0].trim(); // remove comment, if any
-		if(line.contains(":")) line = line.split(":")[1].trim(); // remove label, if any
-		split = line.split("\\s+", 2); // split mnemonic and args
-		String mnemonic = split[0].trim();
-		String[] args = (split.length == 2) ? split[1].trim().split(",") : new String[0]; // split args, if any
+		int colon = line.indexOf(':');
+		int comment = line.indexOf(COMMENT_CHAR);
+		if(comment >= 0) line = line.substring(0, comment); // remove comment, if any
+		if(colon >= 0 && (comment < 0 || colon < comment)) { // remove label, if any
+			int next = line.indexOf(':', colon + 1);
+			line = line.substring(colon + 1, next >= 0 ? next : line.length());
+		}
+		CodeLine codeLine = new CodeLine(line, 1);
 		
 		try {
-			return interpretPseudoInstruction(mnemonic, args, 1);
+			return interpretPseudoInstruction(codeLine.mnemonic, codeLine.args, 1);
 		}
 		catch(Exception e) {
 			return new LinkedList<>();
@@ -213,15 +219,17 @@ public class Assembler {
 	 */
 	public Set<String> getCodeLabels(String code) {
 		Set<String> labels = new TreeSet<>();
-		String[] lines = code.split("\n");
 		String label;
-		int i;
 		
-		for(String line: lines) {
-			i = line.indexOf(':');
-			if(i != -1 && line.lastIndexOf(COMMENT_CHAR, i - 1) == -1) {
-				label = line.substring(0, i).trim();
-				if(label.matches(LABEL_REGEX) && !cpu.getInstructionSet().hasInstructionOrPseudoInstruction(label))
+		for(int pos = 0, length = code.length(); pos < length; ) {
+			int start = pos, end = code.indexOf('\n', pos);
+			if(end < 0) end = length;
+			pos = end + 1;
+			int i = indexOf(code, ':', start, end);
+			if(i != -1 && indexOf(code, COMMENT_CHAR, start, i) == -1) {
+				start = skipSpaces(code, start, i);
+				label = code.substring(start, trimEnd(code, start, i));
+				if(isLabel(label) && !cpu.getInstructionSet().hasInstructionOrPseudoInstruction(label))
 					labels.add(label);
 			}
 		}
@@ -232,30 +240,25 @@ public class Assembler {
 	/**
 	 * Interprets a pseudo-instruction into instructions.
 	 * @param mnemonic The mnemonic of the pseudo-instruction.
-	 * @param args The arguments of the pseudo-instruction.
+	 * @param args The arguments of the pseudo-instruction (trimmed).
 	 * @param lineNumber The number of the line of code.
 	 * @return The replacing instructions.
 	 */
 	private List<String> interpretPseudoInstruction(String mnemonic, String[] args, int lineNumber) throws SyntaxErrorException {
 		List<String> instructions = new ArrayList<>();
 		PseudoInstruction pseudo = cpu.getInstructionSet().getPseudoInstruction(mnemonic);
-		String[] split;
-		String m;
 		
 		if(pseudo.getNumberOfArguments() != args.length) 
 			throw new SyntaxErrorException(SyntaxErrorException.Type.WRONG_NUMBER_OF_ARGUMENTS, lineNumber, "" + pseudo.getNumberOfArguments(), "" + args.length);
 		
 		for(String instruction: pseudo.getInstructions()) { // assemble pseudo-instruction instructions
 			for(int i = 0; i < args.length; i++)
-				instruction = instruction.replace(InstructionSet.ARGUMENT_CHAR + "" + (i + 1), args[i].trim()).trim();
+				instruction = replace(instruction, InstructionSet.ARGUMENT_CHAR + "" + (i + 1), args[i]).trim();
 			
 			// Check if the interpreted instruction is another pseudo-instruction
-			split = instruction.split("\\s+", 2); // split mnemonic and args
-			m = split[0].trim();
-			if(cpu.getInstructionSet().hasPseudoInstruction(m)) {
-				String pargs[] = (split.length == 2) ? split[1].trim().split(",") : new String[0]; // split args, if any
-				instructions.addAll(interpretPseudoInstruction(m, pargs, lineNumber));
-			}
+			CodeLine line = new CodeLine(instruction, lineNumber);
+			if(cpu.getInstructionSet().hasPseudoInstruction(line.mnemonic))
+				instructions.addAll(interpretPseudoInstruction(line.mnemonic, line.args, lineNumber));
 			else
 				instructions.add(instruction);
 		}
@@ -267,20 +270,16 @@ public class Assembler {
 	 * Assembles an instruction into an assembled instruction.
 	 * @param line The line with the instruction.
 	 * @param index The index of the instruction.
-	 * @param lineNumber The number of the line of code.
 	 * @return The assembled instruction.
 	 * @throws SyntaxErrorException If the code has a syntax error.
 	 */
-	private AssembledInstruction assembleInstruction(String line, int index, int lineNumber) throws SyntaxErrorException {
-		String inst = line.split("" + COMMENT_CHAR, 2)[0].trim(); // remove comment, if any
-		String[] split = inst.split("\\s+", 2); // split mnemonic and args
-		String mnemonic = split[0].trim();
-		String[] args = (split.length == 2) ? split[1].trim().split(",") : new String[0]; // split args, if any
+	private AssembledInstruction assembleInstruction(CodeLine line, int index) throws SyntaxErrorException {
+		int lineNumber = line.number;
+		String[] args = line.args;
+		Instruction instruction = cpu.getInstructionSet().getInstruction(line.mnemonic);
+		if(instruction == null)
+			throw new SyntaxErrorException(SyntaxErrorException.Type.UNKNOWN_INSTRUCTION, lineNumber, line.mnemonic);
 		
-		if(!cpu.getInstructionSet().hasInstruction(mnemonic))
-			throw new SyntaxErrorException(SyntaxErrorException.Type.UNKNOWN_INSTRUCTION, lineNumber, mnemonic);
-		
-		Instruction instruction = cpu.getInstructionSet().getInstruction(mnemonic);
 		Data data = new Data();
 		Instruction.FieldValue f;
 		int value = 0;
@@ -295,23 +294,23 @@ public class Assembler {
 			else if(f instanceof Instruction.FieldFromArgument) {
 				Instruction.FieldFromArgument fa = (Instruction.FieldFromArgument)f;
 				switch(fa.getArgumentType()) {
-					case INT: case LABEL: value = parseIntArg(args[fa.getArgIndex()].trim(), lineNumber); break;
-					case REG: value = parseRegArg(args[fa.getArgIndex()].trim(), lineNumber); break;
-					case TARGET: value = parseTargetArg(args[fa.getArgIndex()].trim(), lineNumber); break;
-					case OFFSET: value = parseOffsetArg(args[fa.getArgIndex()].trim(), lineNumber, index); break;
+					case INT: case LABEL: value = parseIntArg(args[fa.getArgIndex()], lineNumber); break;
+					case REG: value = parseRegArg(args[fa.getArgIndex()], lineNumber); break;
+					case TARGET: value = parseTargetArg(args[fa.getArgIndex()], lineNumber); break;
+					case OFFSET: value = parseOffsetArg(args[fa.getArgIndex()], lineNumber, index); break;
 				}
 			}
 			else if(f instanceof Instruction.FieldDataFromArgument) {
 				Instruction.FieldDataFromArgument fd = (Instruction.FieldDataFromArgument)f;
 				switch(fd.getType()) {
-					case BASE: value = parseBaseDataArg(args[fd.getArgIndex()].trim(), lineNumber); break;
-					case OFFSET: value = parseOffsetDataArg(args[fd.getArgIndex()].trim(), lineNumber); break;
+					case BASE: value = parseBaseDataArg(args[fd.getArgIndex()], lineNumber); break;
+					case OFFSET: value = parseOffsetDataArg(args[fd.getArgIndex()], lineNumber); break;
 				}
 			}
 			data.setValue(data.getValue() | field.getValueInField(value));
 		}
 		
-		return new AssembledInstruction(instruction, data, line, lineNumber);
+		return new AssembledInstruction(instruction, data, line.line, lineNumber);
 	}
 	
 	/**
@@ -331,18 +330,16 @@ public class Assembler {
 	 * @throws SyntaxErrorException If the argument is invalid.
 	 */
 	private int parseIntArg(String arg, int lineNumber) throws SyntaxErrorException {
-		try { // integer?
-			return Long.decode(arg).intValue();
-		}
-		catch(NumberFormatException e) { // a label? (for la)
-			Integer label;
-			if((label = textLabels.get(arg)) != null)
-				return label * (Data.DATA_SIZE / 8);
-			else if((label = dataLabels.get(arg)) != null)
-				return label;
-			else
-				throw new SyntaxErrorException(SyntaxErrorException.Type.INVALID_INT_ARG, lineNumber, arg);
-		}
+		if(parseNumber(arg, 0, arg.length())) // integer?
+			return (int)number;
+
+		Integer label; // a label? (for la)
+		if((label = textLabels.get(arg)) != null)
+			return label * (Data.DATA_SIZE / 8);
+		else if((label = dataLabels.get(arg)) != null)
+			return label;
+		else
+			throw new SyntaxErrorException(SyntaxErrorException.Type.INVALID_INT_ARG, lineNumber, arg);
 	}
 	
 	/**
@@ -368,16 +365,14 @@ public class Assembler {
 	 * @throws SyntaxErrorException If the argument is invalid.
 	 */
 	private int parseTargetArg(String arg, int lineNumber) throws SyntaxErrorException {
-		try { // direct address?
-			return Long.decode(arg).intValue();
-		}
-		catch(NumberFormatException e) { // label
-			Integer target;
-			if((target = textLabels.get(arg)) != null)
-				return target;
-			else
-				throw new SyntaxErrorException(SyntaxErrorException.Type.UNKNOWN_LABEL, lineNumber, arg);
-		}
+		if(parseNumber(arg, 0, arg.length())) // direct address?
+			return (int)number;
+
+		Integer target; // label
+		if((target = textLabels.get(arg)) != null)
+			return target;
+		else
+			throw new SyntaxErrorException(SyntaxErrorException.Type.UNKNOWN_LABEL, lineNumber, arg);
 	}
 	
 	/**
@@ -389,17 +384,14 @@ public class Assembler {
 	 * @throws SyntaxErrorException If the argument is invalid.
 	 */
 	private int parseOffsetArg(String arg, int lineNumber, int index) throws SyntaxErrorException {
-		try { // direct offset?
-			return Long.decode(arg).intValue();
-		}
-		catch(NumberFormatException e) { // label
-			Integer target;
-			if((target = textLabels.get(arg)) != null) {
-				return target - index - 1;
-			}
-			else
-				throw new SyntaxErrorException(SyntaxErrorException.Type.UNKNOWN_LABEL, lineNumber, arg);
-		}
+		if(parseNumber(arg, 0, arg.length())) // direct offset?
+			return (int)number;
+
+		Integer target; // label
+		if((target = textLabels.get(arg)) != null)
+			return target - index - 1;
+		else
+			throw new SyntaxErrorException(SyntaxErrorException.Type.UNKNOWN_LABEL, lineNumber, arg);
 	}
 	
 	/**
@@ -410,19 +402,17 @@ public class Assembler {
 	 * @throws SyntaxErrorException If the argument is invalid.
 	 */
 	private int parseBaseDataArg(String arg, int lineNumber) throws SyntaxErrorException {
-		int i = arg.indexOf("(");
-		if(i >= 0) arg = arg.substring(0, i); // remove "($offset)" part, if it exists
+		int i = arg.indexOf('(');
+		if(i < 0) i = arg.length(); // remove "($offset)" part, if it exists
+		if(parseNumber(arg, 0, i)) // direct address?
+			return (int)number;
 
-		try { // direct address?
-			return Long.decode(arg).intValue();
-		}
-		catch(NumberFormatException e) { // label
-			Integer target;
-			if((target = dataLabels.get(arg)) != null)
-				return target;
-			else
-				throw new SyntaxErrorException(SyntaxErrorException.Type.UNKNOWN_LABEL, lineNumber, arg);
-		}
+		String name = arg.substring(0, i);
+		Integer target; // label
+		if((target = dataLabels.get(name)) != null)
+			return target;
+		else
+			throw new SyntaxErrorException(SyntaxErrorException.Type.UNKNOWN_LABEL, lineNumber, name);
 	}
 	
 	/**
@@ -433,39 +423,221 @@ public class Assembler {
 	 * @throws SyntaxErrorException If the argument is invalid.
 	 */
 	private int parseOffsetDataArg(String arg, int lineNumber) throws SyntaxErrorException {
-		int i = arg.indexOf("(");
+		int i = arg.indexOf('(');
 		if(i < 0) // only "address", so offset is 0 from the register $0
 			return 0;
 		else { // base($offset)
-			int j = arg.indexOf(")", i);
+			int j = arg.indexOf(')', i);
 			if(j < 0 || j != arg.length() - 1) throw new SyntaxErrorException(SyntaxErrorException.Type.INVALID_DATA_ARG, lineNumber, arg);
 
-			String reg = arg.substring(i + 1, j);
-			int index = cpu.getRegisterIndex(reg);
+			int index = cpu.getRegisterIndex(arg.substring(i + 1, j));
 			if(index >= 0)
 				return index;
 			else
 				throw new SyntaxErrorException(SyntaxErrorException.Type.INVALID_DATA_ARG, lineNumber, arg);
 		}
 	}
+
+	/**
+	 * Parses a number in the given part of a string, like <tt>Long.decode()</tt>
+	 * but without throwing exceptions.
+	 * <p>The number can be decimal, hexadecimal (<tt>0x</tt>, <tt>0X</tt> or
+	 * <tt>#</tt> prefix) or octal (<tt>0</tt> prefix), with an optional sign.
+	 * The parsed value is stored in <tt>number</tt>.</p>
+	 * @param str The string.
+	 * @param start The index of the first character.
+	 * @param end The index after the last character.
+	 * @return <tt>True</tt> if the part of the string is a valid number.
+	 */
+	private boolean parseNumber(String str, int start, int end) {
+		if(start >= end) return false;
+		boolean negative = false;
+		char c = str.charAt(start);
+		if(c == '-' || c == '+') {
+			negative = c == '-';
+			start++;
+		}
+		int radix = 10;
+		if(str.startsWith("0x", start) || str.startsWith("0X", start)) {
+			radix = 16;
+			start += 2;
+		}
+		else if(str.startsWith("#", start)) {
+			radix = 16;
+			start++;
+		}
+		else if(str.startsWith("0", start) && end - start > 1) {
+			radix = 8;
+			start++;
+		}
+		if(start >= end) return false;
+
+		// Accumulate negatively, like Long.parseLong(), to accept Long.MIN_VALUE
+		long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		long multmin = limit / radix;
+		long result = 0;
+		for(int i = start; i < end; i++) {
+			int digit = Character.digit(str.charAt(i), radix);
+			if(digit < 0 || result < multmin) return false;
+			result *= radix;
+			if(result < limit + digit) return false;
+			result -= digit;
+		}
+		number = negative ? result : -result;
+		return true;
+	}
+
+	/**
+	 * Returns whether the given string is a valid label (see <tt>LABEL_REGEX</tt>).
+	 * @param label The label.
+	 * @return <tt>True</tt> if the label is valid.
+	 */
+	private static boolean isLabel(String label) {
+		if(label.isEmpty()) return false;
+		char c = label.charAt(0);
+		if(!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'z'))) // the same range as LABEL_REGEX ("A-z")
+			return false;
+		for(int i = 1; i < label.length(); i++) {
+			c = label.charAt(i);
+			if(!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_'))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the index of the first occurrence of a character in the given part of a string.
+	 * @param str The string.
+	 * @param c The character.
+	 * @param start The index of the first character.
+	 * @param end The index after the last character.
+	 * @return The index of the character, or -1 if it isn't found.
+	 */
+	private static int indexOf(String str, char c, int start, int end) {
+		for(int i = start; i < end; i++)
+			if(str.charAt(i) == c) return i;
+		return -1;
+	}
+
+	/**
+	 * Returns the index of the first whitespace character (as in the regular
+	 * expression <tt>\s</tt>) in the given part of a string.
+	 * @param str The string.
+	 * @param start The index of the first character.
+	 * @param end The index after the last character.
+	 * @return The index of the whitespace, or <tt>end</tt> if there is none.
+	 */
+	private static int indexOfSpace(String str, int start, int end) {
+		for(int i = start; i < end; i++) {
+			char c = str.charAt(i);
+			if(c == ' ' || c == '\t' || c == '\n' || c == '\u000b' || c == '\f' || c == '\r')
+				return i;
+		}
+		return end;
+	}
+
+	/**
+	 * Skips the whitespace (as in <tt>String.trim()</tt>) at the start of the given part of a string.
+	 * @param str The string.
+	 * @param start The index of the first character.
+	 * @param end The index after the last character.
+	 * @return The index of the first non-whitespace character, or <tt>end</tt>.
+	 */
+	private static int skipSpaces(String str, int start, int end) {
+		while(start < end && str.charAt(start) <= ' ')
+			start++;
+		return start;
+	}
+
+	/**
+	 * Skips the whitespace (as in <tt>String.trim()</tt>) at the end of the given part of a string.
+	 * @param str The string.
+	 * @param start The index of the first character.
+	 * @param end The index after the last character.
+	 * @return The index after the last non-whitespace character, or <tt>start</tt>.
+	 */
+	private static int trimEnd(String str, int start, int end) {
+		while(end > start && str.charAt(end - 1) <= ' ')
+			end--;
+		return end;
+	}
+
+	/**
+	 * Splits the arguments of an instruction or directive, separated by commas.
+	 * <p>Like <tt>String.split(",")</tt>, trailing empty arguments are
+	 * removed. The arguments are trimmed.</p>
+	 * @param str The string.
+	 * @param start The index of the first character of the arguments.
+	 * @param end The index after the last character of the arguments.
+	 * @return The arguments.
+	 */
+	private static String[] splitArguments(String str, int start, int end) {
+		int count = 1, last = end;
+		for(int i = start; i < end; i++)
+			if(str.charAt(i) == ',') count++;
+		while(count > 0 && (last == start || str.charAt(last - 1) == ',')) { // remove trailing empty arguments
+			if(last > start) last--;
+			count--;
+		}
+		String[] args = new String[count];
+		for(int i = 0, s = start; i < count; i++) {
+			int e = indexOf(str, ',', s, last);
+			if(e < 0) e = last;
+			int b = skipSpaces(str, s, e);
+			args[i] = str.substring(b, trimEnd(str, b, e));
+			s = e + 1;
+		}
+		return args;
+	}
+
+	/**
+	 * Replaces all the occurrences of a string in another, without regular expressions.
+	 * @param str The string.
+	 * @param target The string to replace.
+	 * @param replacement The replacement.
+	 * @return The resulting string.
+	 */
+	private static String replace(String str, String target, String replacement) {
+		int i = str.indexOf(target);
+		if(i < 0) return str;
+		StringBuilder sb = new StringBuilder(str.length() + replacement.length());
+		int last = 0;
+		for(; i >= 0; i = str.indexOf(target, last)) {
+			sb.append(str, last, i).append(replacement);
+			last = i + target.length();
+		}
+		return sb.append(str, last, str.length()).toString();
+	}
 	
 	/**
-	 * Saves a line of code (pseudo-instructions already interpreted) and it's original line number.
+	 * Saves a line of code (pseudo-instructions already interpreted), it's
+	 * original line number, and its mnemonic and arguments.
 	 */
-	private class CodeLine {
+	private static class CodeLine {
 		/** The line of code. */
-		public String line;
+		public final String line;
 		/** The original number of the line. */
-		public int number;
+		public final int number;
+		/** The mnemonic of the instruction. */
+		public final String mnemonic;
+		/** The arguments of the instruction (trimmed). */
+		public final String[] args;
 
 		/**
-		 * Constructor
+		 * Constructor, that splits the mnemonic and arguments of the line.
 		 * @param line The line of code.
 		 * @param lineNumber The original number of the line.
 		 */
 		public CodeLine(String line, int lineNumber) {
 			this.line = line;
 			this.number = lineNumber;
+			int end = line.indexOf(COMMENT_CHAR); // remove comment, if any
+			if(end < 0) end = line.length();
+			int start = skipSpaces(line, 0, end);
+			end = trimEnd(line, start, end);
+			int space = indexOfSpace(line, start, end);
+			mnemonic = line.substring(start, trimEnd(line, start, space));
+			args = space < end ? splitArguments(line, skipSpaces(line, space, end), end) : NO_ARGS;
 		}
 	}
 }
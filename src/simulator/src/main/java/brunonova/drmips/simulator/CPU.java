@@ -22,24 +22,18 @@ import brunonova.drmips.simulator.components.*;
 import brunonova.drmips.simulator.exceptions.*;
 import brunonova.drmips.simulator.util.Dimension;
 import brunonova.drmips.simulator.util.Point;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.lang.reflect.InvocationTargetException;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 /**
  * Class that represents and manipulates a simulated MIPS CPU.
@@ -63,8 +57,6 @@ public class CPU {
 	public static final String LATENCY_UNIT = "ps";
 	/** The exponent (e), that multiplied by 10 and the latency gives the real latency in seconds (ps * 10 ^ e). */
 	public static final int LATENCY_EXPONENT = -12;
-	/** The number of clock cycles executed in <tt>executeAll()</tt> after which it throws an exception. */
-	public static final int EXECUTE_ALL_LIMIT_CYCLES = 1000;
 
 	/** The file of the CPU. */
 	private File file = null;
@@ -72,8 +64,14 @@ public class CPU {
 	private Map<String, Component> components;
 	/** The components that are synchronous (convenience list). */
 	private List<Component> synchronousComponents;
+	/** All the components, in an array (<tt>null</tt> until needed or after a component is added). */
+	private Component[] componentArray = null;
+	/** The synchronous components, in an array (<tt>null</tt> until needed or after a component is added). */
+	private Synchronous[] synchronousArray = null;
 	/** The names of the registers (without the prefix). */
 	private List<String> registerNames = null;
+	/** The indexes of the registers, by name (without prefix). */
+	private Map<String, Integer> registerIndexes = null;
 	/** The loaded instruction set. */
 	private InstructionSet instructionSet = null;
 	/** The assembler for this CPU. */
@@ -119,15 +117,37 @@ public class CPU {
 	private int stalls = 0;
 	/** Whether the latencies and critical path should depend on the current instruction. */
 	private boolean performanceInstructionDependent = false;
+	/** Whether the latencies and critical path of the instruction must be recalculated. */
+	private boolean instructionPerformanceOutdated = false;
+	/** The cache of the instruction dependent latencies, created when first needed. */
+	private InstructionPerformanceCache instructionPerformanceCache = null;
+	/** Whether the cache of the instruction dependent latencies was already created (or found to be unsupported). */
+	private boolean instructionPerformanceCacheCreated = false;
+	/** The time spent in each phase of the loading of the CPU (<tt>null</tt> if not loaded from a file). */
+	private LoadTimings loadTimings = null;
 	/** Breakpoint addr . */
 	private int breakpointAddr = -1;
+	/** The levelized evaluator of the components (<tt>null</tt> if evaluated recursively). */
+	private LevelizedEvaluator evaluator = null;
+	/** The static timing analyzer of the components (<tt>null</tt> if the latencies are propagated recursively). */
+	private StaticTimingAnalyzer timingAnalyzer = null;
+	/** The values of the wires of the CPU. */
+	private final SignalTable signals = new SignalTable();
+	/** Whether the state of each cycle is saved, to allow "back steps". */
+	private boolean cycleHistoryEnabled = true;
+	/** The manager of the history of the executed cycles (created when first needed). */
+	private CycleHistory cycleHistory = null;
+	/** The functional (instruction level) engine, created when first needed. */
+	private FunctionalEngine functionalEngine = null;
+	/** Whether the functional engine was already created (or found to be unsupported). */
+	private boolean functionalEngineCompiled = false;
 
 	/**
 	 * Constructor that should by called by other constructors.
 	 */
 	protected CPU() {
 		components = new TreeMap<>();
-		synchronousComponents = new LinkedList<>();
+		synchronousComponents = new ArrayList<>();
 		assembler = new Assembler(this);
 	}
 
@@ -153,44 +173,69 @@ public class CPU {
 	 * @throws NumberFormatException If an opcode is not a number.
 	 */
 	public static CPU createFromJSONFile(String path) throws IOException, JSONException, InvalidCPUException, ArrayIndexOutOfBoundsException, InvalidInstructionSetException, NumberFormatException {
-		CPU cpu = new CPU(new File(path));
-		BufferedReader reader = null;
-		String file = "", line, parentPath = ".";
-
-		// Read file to String
-		try {
-			File f = new File(path);
-			parentPath = f.getParentFile().getAbsolutePath();
-			reader = new BufferedReader(new InputStreamReader(new FileInputStream(f), "UTF8"));
-			while((line = reader.readLine()) != null)
-				file += line + "\n";
-			reader.close();
-		}
-		catch(IOException e) {
-			throw e;
-		}
-		finally {
-			if(reader != null) reader.close();
-		}
+		return CPUTemplate.createFromJSONFile(path).createCPU();
+	}
 
-		// Parse the JSON file
-		JSONObject json = new JSONObject(file);
-		parseJSONComponents(cpu, json.getJSONObject("components"), parentPath);
+	/**
+	 * Creates a CPU from a JSON file, using the given cache of parsed files.
+	 * <p><b>Don't forget to call <tt>setPerformanceInstructionDependent()</tt> on the CPU!</b></p>.
+	 * @param path Path to the JSON file.
+	 * @param cache The cache of parsed files (<tt>null</tt> to always parse the files).
+	 * @return CPU created from the file.
+	 * @throws IOException If the file doesn't exist or an I/O error occurs.
+	 * @throws JSONException If the JSON file is malformed.
+	 * @throws InvalidCPUException If the CPU is invalid or incomplete
+	 * @throws ArrayIndexOutOfBoundsException If an array index is invalid somewhere (like an invalid register).
+	 * @throws InvalidInstructionSetException If the instruction set is invalid.
+	 * @throws NumberFormatException If an opcode is not a number.
+	 * @see CPUFileCache
+	 */
+	public static CPU createFromJSONFile(String path, CPUFileCache cache) throws IOException, JSONException, InvalidCPUException, ArrayIndexOutOfBoundsException, InvalidInstructionSetException, NumberFormatException {
+		return CPUTemplate.createFromJSONFile(path, cache).createCPU();
+	}
+
+	/**
+	 * Creates a CPU from a parsed CPU file.
+	 * @param template The template of the CPU.
+	 * @return CPU created from the template.
+	 * @throws JSONException If the JSON file is malformed.
+	 * @throws InvalidCPUException If the CPU is invalid or incomplete
+	 * @throws ArrayIndexOutOfBoundsException If an array index is invalid somewhere (like an invalid register).
+	 */
+	static CPU createFromTemplate(CPUTemplate template) throws JSONException, InvalidCPUException, ArrayIndexOutOfBoundsException {
+		CPU cpu = new CPU(template.getFile());
+		LoadTimings timings = new LoadTimings(template.getLoadTimings());
+		long time = System.nanoTime();
+
+		for(CPUTemplate.ComponentDefinition def: template.getComponentDefinitions())
+			cpu.addComponent(def.newInstance());
 		cpu.checkRequiredComponents();
 		if(cpu.hasForwardingUnit()) cpu.forwardingUnit.setRegbank(cpu.getRegBank());
 		if(cpu.hasHazardDetectionUnit()) cpu.hazardDetectionUnit.setRegbank(cpu.getRegBank());
-		if(json.has("reg_names")) parseJSONRegNames(cpu, json.getJSONArray("reg_names"));
-		cpu.instructionSet = new InstructionSet(parentPath + File.separator + json.getString("instructions"));
+		if(template.getRegisterNames() != null) parseJSONRegNames(cpu, template.getRegisterNames());
+		cpu.instructionSet = template.getInstructionSet();
 		cpu.controlUnit.setControl(cpu.getInstructionSet().getControl(), cpu.getInstructionSet().getOpCodeSize());
 		if(cpu.hasALUControl()) cpu.aluControl.setControlALU(cpu.getInstructionSet().getControlALU());
 		if(cpu.hasALU()) cpu.alu.setControlALU(cpu.getInstructionSet().getControlALU());
-		parseJSONWires(cpu, json.getJSONArray("wires"));
+		time = timings.mark(LoadTimings.Phase.COMPONENTS, time);
+		for(CPUTemplate.WireDefinition wire: template.getWires())
+			wire.connect(cpu);
+		time = timings.mark(LoadTimings.Phase.WIRES, time);
 		cpu.determineControlPath();
+		cpu.setLevelizedEvaluation(true);
+		cpu.setStaticTimingAnalysis(true);
 
-		for(Component c: cpu.getComponents()) // "execute" all components (initialize all outputs/inputs)
-			c.execute();
+		if(cpu.evaluator != null) // "execute" all components (initialize all outputs/inputs)
+			cpu.evaluator.evaluate();
+		else {
+			for(Component c: cpu.getComponents())
+				c.execute();
+		}
+		time = timings.mark(LoadTimings.Phase.EVALUATION, time);
 
 		cpu.calculatePerformance();
+		timings.mark(LoadTimings.Phase.PERFORMANCE, time);
+		cpu.loadTimings = timings;
 
 		return cpu;
 	}
@@ -213,6 +258,9 @@ public class CPU {
 	 * Calculates the latency in each component and input and determines the critical path of the CPU and of the instruction (if instruction dependent).
 	 */
 	public final void calculatePerformance() {
+		instructionPerformanceOutdated = false;
+		if(instructionPerformanceCache != null) // the latencies may have changed
+			instructionPerformanceCache.clear();
 		// CPU performance
 		calculateAccumulatedLatencies(false);
 		determineClockPeriodAndFrequency();
@@ -221,44 +269,140 @@ public class CPU {
 		determineCriticalPath();
 	}
 
+	/**
+	 * Recalculates the performance of the CPU after the latency of the given component changed.
+	 * <p>Only the accumulated latencies of the components in the fan-out cone
+	 * of the component are recalculated, if possible (see
+	 * {@link StaticTimingAnalyzer#updateAccumulatedLatencies(Collection, boolean)}).
+	 * The results are the same as those of <tt>calculatePerformance()</tt>.</p>
+	 * @param component The component whose latency changed.
+	 */
+	public final void calculatePerformance(Component component) {
+		calculatePerformance(Collections.singletonList(component));
+	}
+
+	/**
+	 * Recalculates the performance of the CPU after the latencies of the given components changed.
+	 * <p>Only the accumulated latencies of the components in the fan-out cones
+	 * of the components are recalculated, if possible (see
+	 * {@link StaticTimingAnalyzer#updateAccumulatedLatencies(Collection, boolean)}).
+	 * The results are the same as those of <tt>calculatePerformance()</tt>.</p>
+	 * @param changed The components whose latencies changed (the latencies of the others must not have changed since the last calculation).
+	 */
+	public final void calculatePerformance(Collection<Component> changed) {
+		if(timingAnalyzer == null || !timingAnalyzer.hasAccumulatedLatencies()) {
+			calculatePerformance();
+			return;
+		}
+		boolean outdated = instructionPerformanceOutdated;
+		instructionPerformanceOutdated = false;
+		if(instructionPerformanceCache != null) // the latencies changed
+			instructionPerformanceCache.clear();
+		// CPU performance
+		timingAnalyzer.updateAccumulatedLatencies(changed, false);
+		setClockPeriod(timingAnalyzer.getHighestAccumulatedLatency());
+		if(isPerformanceInstructionDependent()) { // instruction performance?
+			if(outdated) // the latencies of the current instruction weren't calculated yet
+				calculateAccumulatedLatencies(true);
+			else
+				timingAnalyzer.updateAccumulatedLatencies(changed, true);
+		}
+		for(Component c: getComponentArray()) // reset the critical path
+			for(Output o: c.getOutputArray())
+				o.setInCriticalPath(false);
+		determineCriticalPath();
+	}
+
 	/**
 	 * Calculates the latency in each component and input and determines the critical path of the instruction.
 	 */
 	protected final void calculateInstructionPerformance() {
+		instructionPerformanceOutdated = false;
 		if(isPerformanceInstructionDependent()) {
-			calculateAccumulatedLatencies(true);
-			determineCriticalPath();
+			InstructionPerformanceCache cache = getInstructionPerformanceCache();
+			if(cache == null || !cache.restore()) {
+				calculateAccumulatedLatencies(true);
+				determineCriticalPath();
+				if(cache != null) cache.store();
+			}
 		}
 	}
 
+	/**
+	 * Returns the cache of the instruction dependent latencies and critical path.
+	 * @return The cache, or <tt>null</tt> if a component doesn't support it.
+	 */
+	public final InstructionPerformanceCache getInstructionPerformanceCache() {
+		if(!instructionPerformanceCacheCreated) {
+			instructionPerformanceCache = InstructionPerformanceCache.create(getComponents());
+			instructionPerformanceCacheCreated = true;
+		}
+		return instructionPerformanceCache;
+	}
+
+	/**
+	 * Marks the latencies and critical path of the instruction as outdated (after a cycle change).
+	 * <p>They are only recalculated when the accumulated latencies or the
+	 * critical path are requested, so that simulating many cycles doesn't
+	 * waste time with them.</p>
+	 */
+	protected final void invalidateInstructionPerformance() {
+		if(isPerformanceInstructionDependent())
+			instructionPerformanceOutdated = true;
+	}
+
+	/**
+	 * Recalculates the latencies and critical path of the instruction if they're outdated.
+	 * <p>Called by the components and their inputs/outputs before returning
+	 * the accumulated latencies or whether they're in the critical path.</p>
+	 */
+	final void updateInstructionPerformance() {
+		if(instructionPerformanceOutdated)
+			calculateInstructionPerformance();
+	}
+
 	/**
 	 * Calculates the accumulated latencies of all components.
 	 * @param instructionDependent If <tt>true</tt>, the latencies will depend on the current instruction.
 	 */
 	protected final void calculateAccumulatedLatencies(boolean instructionDependent) {
-		for(Component c: getComponents()) // reset latencies and critical path
+		for(Component c: getComponentArray()) // reset latencies and critical path
 			c.resetPerformance();
 
-		for(Component c: synchronousComponents) // calculate latencies
-			c.updateAccumulatedLatency(instructionDependent);
+		if(timingAnalyzer != null) // calculate latencies
+			timingAnalyzer.calculateAccumulatedLatencies(instructionDependent);
+		else {
+			for(Component c: synchronousComponents)
+				c.updateAccumulatedLatency(instructionDependent);
+		}
 	}
 
 	/**
 	 * Resets the latencies of all the components to their original latencies.
 	 */
 	public final void resetLatencies() {
-		for(Component c: getComponents())
-			c.resetLatency();
-		calculatePerformance();
+		List<Component> changed = new ArrayList<>();
+		for(Component c: getComponents()) {
+			if(c.getLatency() != c.getOriginalLatency()) {
+				c.resetLatency();
+				changed.add(c);
+			}
+		}
+		calculatePerformance(changed);
 	}
 
 	/**
 	 * Sets the latencies of all components to 0 (zero).
 	 */
 	public final void removeLatencies() {
-		for(Component c: getComponents())
-			c.setLatency(0);
-		calculatePerformance();
+		List<Component> changed = new ArrayList<>();
+		for(Component c: getComponents()) {
+			if(c.getLatency() != 0) {
+				c.setLatency(0);
+				changed.add(c);
+			}
+		}
+		calculatePerformance(changed);
 	}
 
 	/**
@@ -267,10 +411,10 @@ public class CPU {
 	 */
 	private int findHighestAccumulatedLatency() {
 		int maxLatency = 0;
-		for(Component c: getComponents()) {
+		for(Component c: getComponentArray()) {
 			if(c.getAccumulatedLatency() > maxLatency)
 				maxLatency = c.getAccumulatedLatency();
-			for(Input i: c.getInputs()) {
+			for(Input i: c.getInputArray()) {
 				if(i.getAccumulatedLatency() > maxLatency)
 					maxLatency = i.getAccumulatedLatency();
 			}
@@ -289,7 +433,7 @@ public class CPU {
 		Collection<Component> comps = isPerformanceInstructionDependent() ? synchronousComponents : components.values();
 		for(Component c: comps) {
 			if(!isPerformanceInstructionDependent() || ((Synchronous)c).isWritingState()) {
-				for(Input in: c.getInputs()) {
+				for(Input in: c.getInputArray()) {
 					if(in.isConnected()) {
 						if(in.getAccumulatedLatency() > maxLatency) {
 							maxIns.clear();
@@ -312,7 +456,15 @@ public class CPU {
 	 * Determines the clock period and frequency, setting the respective variables.
 	 */
 	private void determineClockPeriodAndFrequency() {
-		clockPeriod = findHighestAccumulatedLatency();
+		setClockPeriod(findHighestAccumulatedLatency());
+	}
+
+	/**
+	 * Sets the clock period and the respective frequency.
+	 * @param period The clock period in the LATENCY_UNIT unit.
+	 */
+	private void setClockPeriod(int period) {
+		clockPeriod = period;
 		if(clockPeriod > 0)
 			clockFrequency = 1.0 / (clockPeriod * Math.pow(10, LATENCY_EXPONENT));
 		else
@@ -448,7 +600,9 @@ public class CPU {
 	private void determineCriticalPath() {
 		List<Input> maxIns = findHighetsAccumulatedLatencyInputs(isPerformanceInstructionDependent());
 
-		if(!maxIns.isEmpty()) {
+		if(!maxIns.isEmpty() && timingAnalyzer != null)
+			timingAnalyzer.markCriticalPath(maxIns);
+		else if(!maxIns.isEmpty()) {
 			for(Input in: maxIns) {
 				in.getConnectedOutput().setInCriticalPath(true);
 				determineCriticalPath(in.getConnectedOutput().getComponent());
@@ -479,6 +633,7 @@ public class CPU {
 	public void setPerformanceInstructionDependent(boolean instructionDependent) {
 		if(performanceInstructionDependent != instructionDependent) {
 			performanceInstructionDependent = instructionDependent;
+			instructionPerformanceOutdated = false;
 			calculateAccumulatedLatencies(performanceInstructionDependent);
 			determineCriticalPath();
 		}
@@ -519,6 +674,14 @@ public class CPU {
 		return file;
 	}
 
+	/**
+	 * Returns the time spent in each phase of the loading of the CPU.
+	 * @return The timings, or <tt>null</tt> if the CPU wasn't loaded from a file.
+	 */
+	public LoadTimings getLoadTimings() {
+		return loadTimings;
+	}
+
 	/**
 	 * Returns the graphical size of the CPU.
 	 * <p>The size is calculated here, so avoid calling this method repeteadly!</p>
@@ -588,7 +751,7 @@ public class CPU {
 		}
 		resetStatistics();
 
-		calculateInstructionPerformance(); // Refresh critical path
+		invalidateInstructionPerformance();
 	}
 
 	/**
@@ -605,23 +768,88 @@ public class CPU {
 	}
 
 	/**
-	 * Executes the currently loaded program until the end.
-	 * Or until we hit the breakpoint
-	 * @throws InfiniteLoopException If the <tt>EXECUTE_ALL_LIMIT_CYCLES</tt> limit has been reached (possible infinite loop).
+	 * Executes the currently loaded program until the end, the breakpoint or
+	 * the default budget (<tt>RunOptions.DEFAULT_MAX_CYCLES</tt>).
+	 * @return Why the execution stopped.
 	 */
-	public void executeAll() throws InfiniteLoopException {
-		int cycles = 0;
+	public RunResult executeAll() {
+		return executeAll(new RunOptions());
+	}
+
+	/**
+	 * Executes the currently loaded program until the end, until we hit the
+	 * breakpoint, until the budget of the given options is exhausted or until
+	 * the run is cancelled.
+	 * @param options The options and limits of the run.
+	 * @return Why the execution stopped.
+	 */
+	public RunResult executeAll(RunOptions options) {
+		if(options.getEngine() == RunOptions.Engine.FUNCTIONAL && supportsFunctionalEngine())
+			return executeAllFunctional(options);
+
+		long start = System.nanoTime();
+		long maxCycles = options.getMaxCycles();
+		long deadline = options.getMaxTime() > 0 ? start + options.getMaxTime() * 1000000L : 0;
+		CancellationToken token = options.getCancellationToken();
+		RunOptions.ProgressListener listener = options.getProgressListener();
+		int interval = options.getProgressInterval();
+		RunResult.Reason reason = RunResult.Reason.FINISHED;
+		long cycles = 0;
+
 		while(!isProgramFinished()) {
-			if(cycles++ > EXECUTE_ALL_LIMIT_CYCLES) // prevent possible infinite cycles
-				throw new InfiniteLoopException();
+			if(token != null && token.isCancelled()) {
+				reason = RunResult.Reason.CANCELLED;
+				break;
+			}
+			if(cycles >= maxCycles || (deadline != 0 && (cycles & 0x3ff) == 0 && System.nanoTime() - deadline > 0)) {
+				reason = RunResult.Reason.BUDGET; // possible infinite loop
+				break;
+			}
+
 			executeCycle();
+			cycles++;
+			if(listener != null && cycles % interval == 0)
+				listener.onProgress(this, cycles);
 
 			// check if we have hit the breakpoint
-			if (getPC().getAddress().getValue() == breakpointAddr)
-			{
+			if(getPC().getAddress().getValue() == breakpointAddr) {
+				reason = isProgramFinished() ? RunResult.Reason.FINISHED : RunResult.Reason.BREAKPOINT;
 				break;
 			}
 		}
+
+		return new RunResult(reason, cycles, (System.nanoTime() - start) / 1000000L);
+	}
+
+	/**
+	 * Executes the currently loaded program with the functional engine.
+	 * <p>The statistics are updated as if the cycles were simulated, but the
+	 * saved states of the previous cycles are cleared.</p>
+	 * @param options The options and limits of the run.
+	 * @return Why the execution stopped.
+	 */
+	private RunResult executeAllFunctional(RunOptions options) {
+		clearPreviousCycles();
+		RunResult result = functionalEngine.run(options, breakpointAddr);
+		executedCycles += result.getCycles();
+		executedInstructions += result.getCycles();
+		executeComponents();
+		invalidateInstructionPerformance();
+		return result;
+	}
+
+	/**
+	 * Returns whether the CPU can execute programs with the functional engine.
+	 * <p>Only the unicycle CPUs with the usual control signals are supported
+	 * (see {@link FunctionalEngine#compile(CPU)}).</p>
+	 * @return <tt>True</tt> if <tt>RunOptions.Engine.FUNCTIONAL</tt> can be used.
+	 */
+	public final boolean supportsFunctionalEngine() {
+		if(!functionalEngineCompiled) {
+			functionalEngine = FunctionalEngine.compile(this);
+			functionalEngineCompiled = true;
+		}
+		return functionalEngine != null;
 	}
 
 	/**
@@ -635,6 +863,7 @@ public class CPU {
 	 * "Executes" a clock cycle (a step).
 	 */
 	public void executeCycle() {
+		if(cycleHistoryEnabled) saveCycleState();
 		executedCycles++;
 		if(!isPipeline() || memWbReg.getCurrentInstructionIndex() >= 0)
 			executedInstructions++;
@@ -645,14 +874,11 @@ public class CPU {
 		if(hasHazardDetectionUnit() && getHazardDetectionUnit().getStall().getValue() != 0)
 			stalls++;
 
-		saveCycleState();
-		for(Component c: synchronousComponents) // execute synchronous actions without propagating output changes
-			((Synchronous)c).executeSynchronous();
+		for(Synchronous c: getSynchronousArray()) // execute synchronous actions without propagating output changes
+			c.executeSynchronous();
 
 		// Store index(es) of the instruction(s) being executed
-		int index = getPC().getAddress().getValue() / (Data.DATA_SIZE / 8);
-		if(index < 0 || index >= getInstructionMemory().getNumberOfInstructions())
-			index = -1;
+		int index = getInstructionMemory().getIndexOfAddress(getPC().getAddress().getValue());
 		if(isPipeline()) { // save other instructions in pipeline
 			updatePipelineRegisterCurrentInstruction(memWbReg, exMemReg.getCurrentInstructionIndex());
 			updatePipelineRegisterCurrentInstruction(exMemReg, idExReg.getCurrentInstructionIndex());
@@ -661,12 +887,106 @@ public class CPU {
 		}
 		getPC().setCurrentInstructionIndex(index);
 
-		for(Component c: synchronousComponents) // execute normal actions, propagating output changes
-			c.execute();
-		for(Component c: getComponents()) // "execute" all components, just to be safe
-			c.execute();
+		propagateStateChanges();
+
+		invalidateInstructionPerformance();
+	}
 
-		calculateInstructionPerformance(); // Refresh critical path
+	/**
+	 * Executes the normal actions of the components, propagating output changes.
+	 * <p>The components are executed in the levelized order, if possible, or
+	 * recursively otherwise (the synchronous components first, and then all
+	 * components, just to be safe).</p>
+	 */
+	private void executeComponents() {
+		if(evaluator != null)
+			evaluator.evaluate();
+		else {
+			for(Component c: synchronousComponents)
+				c.execute();
+			for(Component c: getComponentArray())
+				c.execute();
+		}
+	}
+
+	/**
+	 * Propagates the changes of the states of the synchronous components (after a cycle change).
+	 * <p>With the levelized evaluation, only the components whose inputs
+	 * change are executed.</p>
+	 */
+	private void propagateStateChanges() {
+		if(evaluator != null)
+			evaluator.evaluateChanges();
+		else
+			executeComponents();
+	}
+
+	/**
+	 * Enables or disables the levelized evaluation of the components.
+	 * <p>If enabled, the components are sorted topologically and each cycle
+	 * executes each component once, in that order. This is not possible if a
+	 * (custom) component doesn't support it or if the datapath has a
+	 * combinational loop, in which case the components continue to be
+	 * executed recursively whenever an input changes.</p>
+	 * @param enabled Whether to use the levelized evaluation, if possible.
+	 * @return <tt>True</tt> if the levelized evaluation is now being used.
+	 */
+	public final boolean setLevelizedEvaluation(boolean enabled) {
+		if(evaluator != null) {
+			evaluator.detach();
+			evaluator = null;
+		}
+		if(enabled)
+			evaluator = LevelizedEvaluator.compile(getComponents());
+		return evaluator != null;
+	}
+
+	/**
+	 * Returns whether the components are being executed by a levelized evaluator.
+	 * @return <tt>True</tt> if the levelized evaluation is being used.
+	 */
+	public final boolean isLevelizedEvaluation() {
+		return evaluator != null;
+	}
+
+	/**
+	 * Enables or disables the static timing analysis of the components.
+	 * <p>If enabled, the components are sorted topologically and the
+	 * accumulated latencies and critical path are calculated in a single sweep
+	 * over that order. This is not possible if a (custom) component overrides
+	 * the calculation of its accumulated latency or if the datapath has a
+	 * combinational loop, in which case the latencies continue to be
+	 * propagated recursively. The results are the same.</p>
+	 * @param enabled Whether to use the static timing analysis, if possible.
+	 * @return <tt>True</tt> if the static timing analysis is now being used.
+	 */
+	public final boolean setStaticTimingAnalysis(boolean enabled) {
+		timingAnalyzer = enabled ? StaticTimingAnalyzer.compile(getComponentArray(), synchronousComponents) : null;
+		return timingAnalyzer != null;
+	}
+
+	/**
+	 * Returns the static timing analyzer of the components.
+	 * @return The analyzer, or <tt>null</tt> if the latencies are propagated recursively.
+	 */
+	public final StaticTimingAnalyzer getStaticTimingAnalyzer() {
+		return timingAnalyzer;
+	}
+
+	/**
+	 * Returns the table with the values of all the wires of the CPU.
+	 * @return The table of signals.
+	 */
+	public final SignalTable getSignalTable() {
+		return signals;
+	}
+
+	/**
+	 * Returns the levelized evaluator of the components.
+	 * @return The evaluator, or <tt>null</tt> if the components are executed recursively.
+	 */
+	public final LevelizedEvaluator getLevelizedEvaluator() {
+		return evaluator;
 	}
 
 	/**
@@ -689,19 +1009,70 @@ public class CPU {
 	 */
 	public void setPCAddress(int address) {
 		getPC().setAddress(address); // reset PC
-		int index = address / (Data.DATA_SIZE / 8);
-		if(index >= 0 && index < getInstructionMemory().getNumberOfInstructions())
-			getPC().setCurrentInstructionIndex(index);
-		else
-			getPC().setCurrentInstructionIndex(-1);
+		getPC().setCurrentInstructionIndex(getInstructionMemory().getIndexOfAddress(address));
 	}
 
 	/**
 	 * Saves the state of the current cycle.
 	 */
 	public void saveCycleState() {
-		for(Component c: synchronousComponents)
-			((Synchronous)c).pushState();
+		for(Synchronous c: getSynchronousArray())
+			c.pushState();
+		CycleHistory history = getCycleHistory();
+		history.saveCycle(executedCycles, history.isCheckpointCycle(executedCycles) ? getStatistics() : null);
+	}
+
+	/**
+	 * Returns the manager of the history of the executed cycles.
+	 * <p>It can be used to limit the memory used by the history and to know
+	 * how many cycles can be undone.</p>
+	 * @return The cycle history.
+	 */
+	public final CycleHistory getCycleHistory() {
+		if(cycleHistory == null)
+			cycleHistory = new CycleHistory(synchronousComponents);
+		return cycleHistory;
+	}
+
+	/**
+	 * Returns the current statistics, to be saved in a checkpoint.
+	 * @return The executed cycles and instructions, forwards and stalls.
+	 */
+	private int[] getStatistics() {
+		return new int[] {executedCycles, executedInstructions, forwards, stalls};
+	}
+
+	/**
+	 * Restores the statistics saved in a checkpoint.
+	 * @param statistics The statistics returned by <tt>getStatistics()</tt>.
+	 */
+	private void setStatistics(int[] statistics) {
+		executedCycles = statistics[0];
+		executedInstructions = statistics[1];
+		forwards = statistics[2];
+		stalls = statistics[3];
+	}
+
+	/**
+	 * Enables or disables the saving of the state of each executed cycle.
+	 * <p>Disabling it saves memory and time when "back steps" aren't needed
+	 * (like when running programs in batch), but the saved states are cleared
+	 * and <tt>restorePreviousCycle()</tt> and <tt>resetToFirstCycle()</tt>
+	 * stop working.</p>
+	 * @param enabled Whether to save the state of each cycle.
+	 */
+	public void setCycleHistoryEnabled(boolean enabled) {
+		if(!enabled && cycleHistoryEnabled)
+			clearPreviousCycles();
+		cycleHistoryEnabled = enabled;
+	}
+
+	/**
+	 * Returns whether the state of each executed cycle is saved.
+	 * @return <tt>True</tt> if "back steps" are possible.
+	 */
+	public boolean isCycleHistoryEnabled() {
+		return cycleHistoryEnabled;
 	}
 
 	/**
@@ -709,12 +1080,9 @@ public class CPU {
 	 */
 	public void restorePreviousCycle() {
 		if(hasPreviousCycle()) {
-			for(Component c: synchronousComponents) // restore previous states
-				((Synchronous)c).popState();
-			for(Component c: synchronousComponents) // execute normal actions, propagating output changes
-				c.execute();
-			for(Component c: getComponents()) // "execute" all components
-				c.execute();
+			for(Synchronous c: getSynchronousArray()) // restore previous states
+				c.popState();
+			propagateStateChanges();
 
 			executedCycles--;
 			if(!isPipeline() || memWbReg.getCurrentInstructionIndex() >= 0)
@@ -726,8 +1094,66 @@ public class CPU {
 			if(hasHazardDetectionUnit() && getHazardDetectionUnit().getStall().getValue() != 0)
 				stalls--;
 
-			calculateInstructionPerformance(); // Refresh critical path
+			invalidateInstructionPerformance();
+		}
+	}
+
+	/**
+	 * Moves the execution to the given clock cycle ("time travel").
+	 * <p>Going back undoes the recorded cycles if the target is close, or
+	 * restores the nearest earlier checkpoint of the cycle history and
+	 * simulates the remaining cycles otherwise. Going forward also starts from
+	 * the nearest earlier checkpoint if it's newer than the current cycle
+	 * (the checkpoints are kept after going back).</p>
+	 * <p>The breakpoint is ignored.</p>
+	 * @param cycle The number of executed cycles to go to.
+	 * @return The number of executed cycles reached, which is lower than
+	 * <tt>cycle</tt> if the program finishes first, or higher if the cycle was
+	 * discarded from the history.
+	 */
+	public long seekToCycle(long cycle) {
+		if(cycle < 0) cycle = 0;
+		CycleHistory history = getCycleHistory();
+		CycleHistory.Checkpoint checkpoint = history.getCheckpointBefore((int)Math.min(cycle, Integer.MAX_VALUE));
+		if(cycle < executedCycles) {
+			long steps = executedCycles - cycle;
+			boolean inWindow = !history.isBounded() || steps <= history.getNumberOfRetainedCycles();
+			if(checkpoint != null && (!inWindow || steps > cycle - checkpoint.getCycle()))
+				restoreCheckpoint(checkpoint);
+			else {
+				while(executedCycles > cycle && hasPreviousCycle())
+					restorePreviousCycle();
+			}
 		}
+		else if(checkpoint != null && checkpoint.getCycle() > executedCycles)
+			restoreCheckpoint(checkpoint);
+		while(executedCycles < cycle && !isProgramFinished())
+			executeCycle();
+
+		return executedCycles;
+	}
+
+	/**
+	 * Restores the state of the CPU saved in the given checkpoint.
+	 * <p>The recorded cycles are discarded, so "back steps" are only possible
+	 * after executing more cycles.</p>
+	 * @param checkpoint The checkpoint to restore.
+	 */
+	private void restoreCheckpoint(CycleHistory.Checkpoint checkpoint) {
+		getCycleHistory().restoreCheckpoint(checkpoint);
+		setStatistics(checkpoint.getStatistics());
+		executeComponents();
+	}
+
+	/**
+	 * Discards the history of the cycles after the current one.
+	 * <p>The checkpoints of newer cycles are kept after going back in the
+	 * execution, and are used by <tt>seekToCycle()</tt> to go forward faster.
+	 * This should be called when the state of the CPU is changed between
+	 * cycles (like when a register is edited), as they would be outdated.</p>
+	 */
+	public void discardNewerCycles() {
+		getCycleHistory().discardCheckpointsAfter(executedCycles);
 	}
 
 	/**
@@ -747,22 +1173,25 @@ public class CPU {
 	public void clearPreviousCycles() {
 		for(Component c: synchronousComponents)
 			((Synchronous)c).clearSavedStates();
+		getCycleHistory().clear();
 	}
 
 	/**
 	 * Resets the states of the CPU's components to the first cycle.
 	 */
 	public void resetToFirstCycle() {
-		if(hasPreviousCycle()) {
+		CycleHistory.Checkpoint first = getCycleHistory().getFirstCheckpoint();
+		if(first != null && first.getCycle() < executedCycles) { // restore the first checkpoint (the older cycles may have been discarded)
+			restoreCheckpoint(first);
+			invalidateInstructionPerformance();
+		}
+		else if(hasPreviousCycle()) {
 			for(Component c: synchronousComponents) // restore first state
 				((Synchronous)c).resetFirstState();
-			for(Component c: synchronousComponents) // execute normal actions, propagating output changes
-				c.execute();
-			for(Component c: getComponents()) // "execute" all components
-				c.execute();
 			resetStatistics();
+			executeComponents();
 
-			calculateInstructionPerformance(); // Refresh critical path
+			invalidateInstructionPerformance();
 		}
 	}
 
@@ -784,6 +1213,7 @@ public class CPU {
 	 */
 	protected Output connectComponents(Output output, Input input) throws InvalidCPUException {
 		output.connectTo(input);
+		output.allocateSignalSlot(signals);
 		return output;
 	}
 
@@ -808,6 +1238,7 @@ public class CPU {
 		if(i == null) throw new InvalidCPUException("Unknown ID " + inId + "!");
 
 		o.connectTo(i);
+		o.allocateSignalSlot(signals);
 		return o;
 	}
 
@@ -834,8 +1265,32 @@ public class CPU {
 	 * @return Array with all components.
 	 */
 	public Component[] getComponents() {
-		Component[] c = new Component[components.size()];
-		return components.values().toArray(c);
+		return getComponentArray().clone();
+	}
+
+	/**
+	 * Returns the array with all the components used by the internal loops.
+	 * <p>The array is shared, so it must not be modified.</p>
+	 * @return Array with all components.
+	 */
+	private Component[] getComponentArray() {
+		if(componentArray == null)
+			componentArray = components.values().toArray(new Component[components.size()]);
+		return componentArray;
+	}
+
+	/**
+	 * Returns the array with the synchronous components used by the internal loops.
+	 * <p>The array is shared, so it must not be modified.</p>
+	 * @return Array with the synchronous components.
+	 */
+	private Synchronous[] getSynchronousArray() {
+		if(synchronousArray == null) {
+			synchronousArray = new Synchronous[synchronousComponents.size()];
+			for(int i = 0; i < synchronousArray.length; i++)
+				synchronousArray[i] = (Synchronous)synchronousComponents.get(i);
+		}
+		return synchronousArray;
 	}
 
 	/**
@@ -846,6 +1301,9 @@ public class CPU {
 	protected final void addComponent(Component component) throws InvalidCPUException {
 		if(hasComponent(component.getId())) throw new InvalidCPUException("Duplicated ID " + component.getId() + "!");
 		components.put(component.getId(), component);
+		componentArray = null;
+		synchronousArray = null;
+		component.setCPU(this);
 		if(component instanceof Synchronous)
 			synchronousComponents.add(component);
 		if(component instanceof PC) {
@@ -1067,25 +1525,35 @@ public class CPU {
 	 * @return The index of the register, or -1 if it doesn't exist.
 	 */
 	public int getRegisterIndex(String name) {
-		name = name.trim().toLowerCase();
-		if(name.length() < 2 || name.charAt(0) != REGISTER_PREFIX)
+		int start = 0, end = name.length();
+		while(start < end && name.charAt(start) <= ' ') start++; // trim
+		while(end > start && name.charAt(end - 1) <= ' ') end--;
+		if(end - start < 2 || name.charAt(start) != REGISTER_PREFIX)
 			return -1;
-		name = name.substring(1);
-		try {
-			int index = Integer.parseInt(name);
-			// Numeric name (like $0)
-			if(index >= 0 && index < regbank.getNumberOfRegisters())
-				return index;
-			else
-				return -1;
+
+		// Numeric name (like $0), parsed like Integer.parseInt()
+		int i = start + 1;
+		boolean negative = name.charAt(i) == '-';
+		if(negative || name.charAt(i) == '+') i++;
+		long value = 0;
+		boolean numeric = i < end;
+		for(; numeric && i < end; i++) {
+			int digit = Character.digit(name.charAt(i), 10);
+			if(digit < 0) numeric = false;
+			else if((value = value * 10 + digit) > (long)Integer.MAX_VALUE + 1) numeric = false; // overflow
 		}
-		catch(NumberFormatException e) {
-			// Register name (like $zero)
-			if(registerNames != null)
-				return registerNames.indexOf(name);
-			else
-				return -1;
+		if(numeric && (negative || value <= Integer.MAX_VALUE)) {
+			int index = negative ? (int)-value : (int)value;
+			return (index >= 0 && index < regbank.getNumberOfRegisters()) ? index : -1;
 		}
+
+		// Register name (like $zero)
+		if(registerIndexes == null)
+			return -1;
+		String id = name.substring(start + 1, end);
+		Integer index = registerIndexes.get(id);
+		if(index == null) index = registerIndexes.get(id.toLowerCase());
+		return index != null ? index : -1;
 	}
 
 	/**
@@ -1118,114 +1586,6 @@ public class CPU {
 		return assembler;
 	}
 
-	/**
-	 * Parses and creates the components from the given JSON array.
-	 * @param cpu The CPU to add the components to.
-	 * @param components JSONObject that contains the components array.
-	 * @param parentPath Path to the cpu file's parent directory.
-	 * @throws JSONException If the JSON file is malformed.
-	 * @throws InvalidCPUException If the CPU is invalid or incomplete.
-	 */
-	private static void parseJSONComponents(CPU cpu, JSONObject components, String parentPath) throws JSONException, InvalidCPUException {
-		JSONObject json;
-		String type, id;
-		Class cl;
-		Component comp;
-
-		// ClassLoader to load the built-in components
-		ClassLoader loader = CPU.class.getClassLoader();
-
-		// ClassLoader to load custom components
-		File parentDir = new File(parentPath + File.separator);
-		ClassLoader customLoader;
-		try {
-			URL[] urls = new URL[] {parentDir.toURI().toURL()};
-			customLoader = new URLClassLoader(urls);
-		} catch(Exception ex) {
-			customLoader = null;
-		}
-
-		// Parse the components
-		Iterator<String> i = components.keys();
-		while(i.hasNext()) {
-			id = i.next();
-			json = components.getJSONObject(id);
-			type = json.getString("type");
-
-			// Load the class with the name specified by "type"
-			try {
-				// Search in the built-in classes first
-				cl = loader.loadClass("brunonova.drmips.simulator.components." + type);
-			} catch(ClassNotFoundException ex) {
-				// Search in the custom components second
-				if(customLoader != null) {
-					try {
-						cl = customLoader.loadClass(type);
-					} catch(ClassNotFoundException ex2) {
-						ex2.initCause(ex);
-						throw new InvalidCPUException("Unknown component type " + type + "!", ex2);
-					}
-				} else {
-					throw new InvalidCPUException("Unknown component type " + type + "!", ex);
-				}
-			}
-
-			// Create the component with the (String, JSONObject) contructor
-			// and add it to the CPU
-			try {
-				comp = (Component)cl.asSubclass(Component.class)
-				                    .getConstructor(String.class, JSONObject.class)
-				                    .newInstance(id, json);
-				cpu.addComponent(comp);
-			} catch(ClassCastException ex) {
-				throw new InvalidCPUException("The " + type + " class is not a subclass of Component!", ex);
-			} catch(NoSuchMethodException ex) {
-				throw new InvalidCPUException("The " + type + " class is missing the (String, JSONObject) constructor!", ex);
-			} catch(InvocationTargetException ex) {
-				Throwable target = ex.getCause();
-				if(target instanceof InvalidCPUException) {
-					throw (InvalidCPUException)target;
-				} else if(target instanceof JSONException) {
-					throw (JSONException)target;
-				} else {
-					throw new InvalidCPUException("Failed to create the component " + id + "!", ex);
-				}
-			} catch(InstantiationException | IllegalAccessException | IllegalArgumentException ex) {
-				throw new InvalidCPUException("Failed to create the component " + id + "!", ex);
-			}
-		}
-	}
-
-	/**
-	 * Parses wires from the given JSON array and connects the components.
-	 * @param cpu The CPU to add wires to.
-	 * @param wires JSONArray that contains the wires array.
-	 * @throws JSONException If the JSON file is malformed.
-	 * @throws InvalidCPUException If the output or the input are already connected or have different sizes or doesn't exist.
-	 */
-	private static void parseJSONWires(CPU cpu, JSONArray wires) throws JSONException, InvalidCPUException {
-		JSONObject wire, point, start, end;
-		JSONArray points;
-		Output out;
-
-		for(int i = 0; i < wires.length(); i++) {
-			wire = wires.getJSONObject(i);
-			out = cpu.connectComponents(wire.getString("from"), wire.getString("out"),
-				wire.getString("to"), wire.getString("in"));
-			points = wire.optJSONArray("points");
-			if(points != null) {
-				for(int x = 0; x < points.length(); x++) {
-					point = points.getJSONObject(x);
-					out.addIntermediatePoint(new Point(point.getInt("x"), point.getInt("y")));
-				}
-			}
-			if((start = wire.optJSONObject("start")) != null)
-				out.setPosition(new Point(start.getInt("x"), start.getInt("y")));
-			if((end = wire.optJSONObject("end")) != null)
-				out.getConnectedInput().setPosition(new Point(end.getInt("x"), end.getInt("y")));
-		}
-	}
-
 	/**
 	 * Parses and sets the identifiers of the registers.
 	 * @param cpu The CPU to set the registers informations.
@@ -1237,6 +1597,7 @@ public class CPU {
 		if(regs.length() != cpu.getRegBank().getNumberOfRegisters())
 			throw new InvalidCPUException("Not all registers have been specified in the registers block!");
 		cpu.registerNames = new ArrayList<>(cpu.getRegBank().getNumberOfRegisters());
+		cpu.registerIndexes = new HashMap<>();
 		String id;
 
 		for(int i = 0; i < regs.length(); i++) {
@@ -1249,6 +1610,7 @@ public class CPU {
 			if(cpu.hasRegister(REGISTER_PREFIX + id))
 				throw new InvalidCPUException("Invalid name " + id + "!");
 
+			cpu.registerIndexes.put(id, cpu.registerNames.size());
 			cpu.registerNames.add(id);
 		}
 	}
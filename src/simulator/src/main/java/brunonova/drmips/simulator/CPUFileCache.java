@@ -0,0 +1,398 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Persistent cache of the parsed CPU and instruction set files.
+ *
+ * <p>The parsed contents of a CPU file and of its instruction set are saved
+ * in a compact binary format, in a file named after a hash of the contents
+ * of the CPU file (its CRC-32 and Adler-32 checksums and size). The file also
+ * stores the hash of the instruction set file.<br>
+ * These checksums are used instead of a cryptographic hash because they are
+ * much faster to compute on startup, and they are enough to detect changes
+ * to the files. The next time the same CPU is loaded, the contents are read from
+ * the cache instead of being parsed again, as long as none of the two files
+ * changed.<br>
+ * Any error reading or writing the cache is ignored, and the files are
+ * simply parsed.</p>
+ *
+ * @author Bruno Nova
+ */
+public final class CPUFileCache {
+	/** The identifier at the start of the cache files. */
+	private static final int MAGIC = 0x44524d43; // "DRMC"
+	/** The version of the format of the cache files. */
+	private static final int VERSION = 2;
+	/** The extension of the cache files. */
+	private static final String EXTENSION = ".cache";
+	/** The charset of the files. */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** Types of the values in the cache files. */
+	private static final byte NULL = 0, FALSE = 1, TRUE = 2, INT = 3, LONG = 4, DOUBLE = 5, STRING = 6,
+		OBJECT = 7, ARRAY = 8;
+
+	/** Class logger. */
+	private static final Logger LOG = Logger.getLogger(CPUFileCache.class.getName());
+
+	/** The folder of the cache files. */
+	private final File directory;
+
+	/**
+	 * Creates a cache that saves its files in the given folder.
+	 * <p>The folder is created when needed.</p>
+	 * @param directory The folder of the cache files.
+	 */
+	public CPUFileCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the default folder of the cache files.
+	 * <p>It's the <tt>drmips</tt> folder inside <tt>$XDG_CACHE_HOME</tt>
+	 * or <tt>~/.cache</tt> (or inside <tt>%LOCALAPPDATA%</tt> on Windows).</p>
+	 * @return The default folder.
+	 */
+	public static File getDefaultDirectory() {
+		String base = System.getenv("XDG_CACHE_HOME");
+		if(base == null || base.isEmpty()) {
+			if(System.getProperty("os.name", "").startsWith("Windows") && System.getenv("LOCALAPPDATA") != null)
+				base = System.getenv("LOCALAPPDATA");
+			else
+				base = System.getProperty("user.home") + File.separator + ".cache";
+		}
+		return new File(base, "drmips");
+	}
+
+	/**
+	 * Returns the folder of the cache files.
+	 * @return The folder.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Removes all the cache files.
+	 */
+	public void clear() {
+		File[] files = directory.listFiles();
+		if(files != null) {
+			for(File f: files)
+				if(f.getName().endsWith(EXTENSION) && !f.delete())
+					LOG.log(Level.WARNING, "error deleting the cache file " + f);
+		}
+	}
+
+	/**
+	 * Returns the cached contents of the CPU file with the given contents.
+	 * @param cpuContents The contents of the CPU file.
+	 * @param parentDir The folder of the CPU file (where the instruction set file path is relative to).
+	 * @return The cached contents, or <tt>null</tt> if not cached or if the instruction set file changed.
+	 */
+	CPUTemplate.Contents load(byte[] cpuContents, File parentDir) {
+		File file = getCacheFile(cpuContents);
+		if(!file.isFile()) return null;
+
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if(in.readInt() != MAGIC || in.readInt() != VERSION)
+				return null;
+			String setPath = readString(in);
+			String setHash = readString(in);
+			File setFile = new File(parentDir, setPath);
+			if(!setFile.isFile() || !setHash.equals(hash(Files.readAllBytes(setFile.toPath()))))
+				return null; // the instruction set changed
+
+			Map<String, JSONObject> components = new LinkedHashMap<>();
+			for(int n = in.readInt(); n > 0; n--) {
+				String id = readString(in);
+				components.put(id, (JSONObject)readValue(in));
+			}
+			List<CPUTemplate.WireDefinition> wires = new ArrayList<>();
+			for(int n = in.readInt(); n > 0; n--)
+				wires.add(readWire(in));
+			Object registerNames = readValue(in);
+			JSONObject set = (JSONObject)readValue(in);
+			return new CPUTemplate.Contents(Collections.unmodifiableMap(components), Collections.unmodifiableList(wires),
+				registerNames instanceof JSONArray ? (JSONArray)registerNames : null, setPath, set);
+		}
+		catch(IOException | RuntimeException ex) { // corrupt file (or invalid JSON value)
+			LOG.log(Level.WARNING, "error reading the cache file " + file, ex);
+			return null;
+		}
+	}
+
+	/**
+	 * Saves the parsed contents of a CPU file and of its instruction set.
+	 * @param cpuContents The contents of the CPU file.
+	 * @param parentDir The folder of the CPU file (where the instruction set file path is relative to).
+	 * @param contents The parsed contents of both files.
+	 */
+	void store(byte[] cpuContents, File parentDir, CPUTemplate.Contents contents) {
+		File file = getCacheFile(cpuContents);
+		File tmp = null;
+		try {
+			if(!directory.isDirectory() && !directory.mkdirs())
+				throw new IOException("Failed to create the directory " + directory + "!");
+			tmp = File.createTempFile("cpu", ".tmp", directory);
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				writeString(out, contents.instructionSetPath);
+				writeString(out, hash(Files.readAllBytes(new File(parentDir, contents.instructionSetPath).toPath())));
+				out.writeInt(contents.components.size());
+				for(Map.Entry<String, JSONObject> e: contents.components.entrySet()) {
+					writeString(out, e.getKey());
+					writeValue(out, e.getValue());
+				}
+				out.writeInt(contents.wires.size());
+				for(CPUTemplate.WireDefinition wire: contents.wires)
+					writeWire(out, wire);
+				writeValue(out, contents.registerNames);
+				writeValue(out, contents.instructionSet);
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch(IOException | JSONException ex) {
+			LOG.log(Level.WARNING, "error writing the cache file " + file, ex);
+			if(tmp != null && tmp.exists() && !tmp.delete())
+				LOG.log(Level.WARNING, "error deleting the temporary file " + tmp);
+		}
+	}
+
+	/**
+	 * Returns the cache file of the CPU file with the given contents.
+	 * @param cpuContents The contents of the CPU file.
+	 * @return The cache file (which may not exist).
+	 */
+	private File getCacheFile(byte[] cpuContents) {
+		return new File(directory, hash(cpuContents) + EXTENSION);
+	}
+
+	/**
+	 * Returns the hash of the given contents.
+	 * @param contents The contents.
+	 * @return The hash, in hexadecimal (CRC-32, Adler-32 and size).
+	 */
+	private static String hash(byte[] contents) {
+		CRC32 crc = new CRC32();
+		crc.update(contents, 0, contents.length);
+		Adler32 adler = new Adler32();
+		adler.update(contents, 0, contents.length);
+		return Long.toHexString(crc.getValue()) + "-" + Long.toHexString(adler.getValue())
+			+ "-" + Integer.toHexString(contents.length);
+	}
+
+	/**
+	 * Writes a value of a JSON file.
+	 * @param out The stream to write to.
+	 * @param value The value.
+	 * @throws IOException If an I/O error occurs or the type of the value isn't supported.
+	 * @throws JSONException If the JSON object is malformed.
+	 */
+	private static void writeValue(DataOutputStream out, Object value) throws IOException, JSONException {
+		if(value == null || value == JSONObject.NULL)
+			out.writeByte(NULL);
+		else if(value instanceof Boolean)
+			out.writeByte((Boolean)value ? TRUE : FALSE);
+		else if(value instanceof Integer) {
+			out.writeByte(INT);
+			out.writeInt((Integer)value);
+		}
+		else if(value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long)value);
+		}
+		else if(value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double)value);
+		}
+		else if(value instanceof String) {
+			out.writeByte(STRING);
+			writeString(out, (String)value);
+		}
+		else if(value instanceof JSONObject) {
+			JSONObject obj = (JSONObject)value;
+			out.writeByte(OBJECT);
+			out.writeInt(obj.length());
+			Iterator<String> i = obj.keys();
+			String key;
+			while(i.hasNext()) {
+				key = i.next();
+				writeString(out, key);
+				writeValue(out, obj.get(key));
+			}
+		}
+		else if(value instanceof JSONArray) {
+			JSONArray array = (JSONArray)value;
+			out.writeByte(ARRAY);
+			out.writeInt(array.length());
+			for(int x = 0; x < array.length(); x++)
+				writeValue(out, array.get(x));
+		}
+		else
+			throw new IOException("Unsupported value type " + value.getClass().getName() + "!");
+	}
+
+	/**
+	 * Reads a value of a JSON file.
+	 * @param in The stream to read from.
+	 * @return The value.
+	 * @throws IOException If an I/O error occurs or the file is corrupt.
+	 * @throws JSONException If a value is invalid.
+	 */
+	private static Object readValue(DataInputStream in) throws IOException, JSONException {
+		byte type = in.readByte();
+		switch(type) {
+			case NULL: return JSONObject.NULL;
+			case FALSE: return Boolean.FALSE;
+			case TRUE: return Boolean.TRUE;
+			case INT: return in.readInt();
+			case LONG: return in.readLong();
+			case DOUBLE: return in.readDouble();
+			case STRING: return readString(in);
+			case OBJECT:
+				JSONObject obj = new JSONObject();
+				for(int n = in.readInt(); n > 0; n--) {
+					String key = readString(in);
+					obj.put(key, readValue(in));
+				}
+				return obj;
+			case ARRAY:
+				JSONArray array = new JSONArray();
+				for(int n = in.readInt(); n > 0; n--)
+					array.put(readValue(in));
+				return array;
+			default:
+				throw new IOException("Invalid value type " + type + "!");
+		}
+	}
+
+	/**
+	 * Writes a wire of a CPU file.
+	 * @param out The stream to write to.
+	 * @param wire The wire.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private static void writeWire(DataOutputStream out, CPUTemplate.WireDefinition wire) throws IOException {
+		writeString(out, wire.from);
+		writeString(out, wire.out);
+		writeString(out, wire.to);
+		writeString(out, wire.in);
+		writeInts(out, wire.points);
+		writeInts(out, wire.start);
+		writeInts(out, wire.end);
+	}
+
+	/**
+	 * Reads a wire written by <tt>writeWire()</tt>.
+	 * @param in The stream to read from.
+	 * @return The wire.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private static CPUTemplate.WireDefinition readWire(DataInputStream in) throws IOException {
+		String from = readString(in), out = readString(in), to = readString(in), id = readString(in);
+		int[] points = readInts(in), start = readInts(in), end = readInts(in);
+		if(points == null || (start != null && start.length != 2) || (end != null && end.length != 2))
+			throw new IOException("Invalid wire!");
+		return new CPUTemplate.WireDefinition(from, out, to, id, points, start, end);
+	}
+
+	/**
+	 * Writes an array of integers, which can be <tt>null</tt>.
+	 * @param out The stream to write to.
+	 * @param values The array.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		out.writeInt(values != null ? values.length : -1);
+		if(values != null) {
+			for(int value: values)
+				out.writeInt(value);
+		}
+	}
+
+	/**
+	 * Reads an array of integers written by <tt>writeInts()</tt>.
+	 * @param in The stream to read from.
+	 * @return The array (or <tt>null</tt>).
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private static int[] readInts(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if(length < 0) return null;
+		if(length > in.available() / 4) throw new IOException("Invalid array length " + length + "!");
+		int[] values = new int[length];
+		for(int i = 0; i < length; i++)
+			values[i] = in.readInt();
+		return values;
+	}
+
+	/**
+	 * Writes a string (of any length).
+	 * @param out The stream to write to.
+	 * @param str The string.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private static void writeString(DataOutputStream out, String str) throws IOException {
+		byte[] bytes = str.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a string written by <tt>writeString()</tt>.
+	 * @param in The stream to read from.
+	 * @return The string.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if(length < 0 || length > in.available()) throw new IOException("Invalid string length " + length + "!");
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+}
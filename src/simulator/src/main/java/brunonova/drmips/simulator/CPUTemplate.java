@@ -0,0 +1,575 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import brunonova.drmips.simulator.exceptions.InvalidCPUException;
+import brunonova.drmips.simulator.exceptions.InvalidInstructionSetException;
+import brunonova.drmips.simulator.util.JSONStreamReader;
+import brunonova.drmips.simulator.util.Point;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * A parsed CPU file, from which any number of independent CPUs can be created.
+ *
+ * <p>The file is read and parsed, the classes of the components are loaded
+ * and the instruction set is loaded only once, when the template is created.
+ * The files are read in a single pass, with a <tt>JSONStreamReader</tt>: the
+ * wires are converted as they are read, and only the parameters of each
+ * component are kept as <tt>JSONObject</tt>s, for their constructors.
+ * The time spent in each phase is saved in the template's <tt>LoadTimings</tt>.
+ * Each call to <tt>createCPU()</tt> then only creates the components and
+ * connects them, which is much faster than <tt>CPU.createFromJSONFile()</tt>.
+ * This is useful to simulate many programs on the same CPU.</p>
+ *
+ * <p>The instruction set is shared by all the created CPUs, as it isn't
+ * modified after being loaded. The class loaders of the custom components
+ * are also shared by all the templates of the same folder. A template can be
+ * used by several threads at the same time.</p>
+ *
+ * @author Bruno Nova
+ */
+public final class CPUTemplate {
+	/** The charset of the files. */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	/** The class loaders of the custom components, for each folder. */
+	private static final Map<File, ClassLoader> CUSTOM_LOADERS = new HashMap<>();
+
+	/** The file of the CPU. */
+	private final File file;
+	/** The definitions of the components, in the order of the file. */
+	private final List<ComponentDefinition> components;
+	/** The wires, in the order of the file. */
+	private final List<WireDefinition> wires;
+	/** The names of the registers (<tt>null</tt> if not specified). */
+	private final JSONArray registerNames;
+	/** The shared instruction set. */
+	private final InstructionSet instructionSet;
+	/** The time spent in each phase of the parsing of the files. */
+	private final LoadTimings loadTimings;
+
+	/**
+	 * The contents of a CPU file and of its instruction set, as read from the files.
+	 */
+	static final class Contents {
+		/** The parameters of the components, by identifier, in the order of the file. */
+		final Map<String, JSONObject> components;
+		/** The wires, in the order of the file. */
+		final List<WireDefinition> wires;
+		/** The names of the registers (<tt>null</tt> if not specified). */
+		final JSONArray registerNames;
+		/** The path of the instruction set file, relative to the CPU file. */
+		final String instructionSetPath;
+		/** The contents of the instruction set file. */
+		final JSONObject instructionSet;
+
+		/**
+		 * Creates the contents.
+		 * @param components The parameters of the components, by identifier, in the order of the file.
+		 * @param wires The wires, in the order of the file.
+		 * @param registerNames The names of the registers (<tt>null</tt> if not specified).
+		 * @param instructionSetPath The path of the instruction set file, relative to the CPU file.
+		 * @param instructionSet The contents of the instruction set file.
+		 */
+		Contents(Map<String, JSONObject> components, List<WireDefinition> wires, JSONArray registerNames, String instructionSetPath, JSONObject instructionSet) {
+			this.components = components;
+			this.wires = wires;
+			this.registerNames = registerNames;
+			this.instructionSetPath = instructionSetPath;
+			this.instructionSet = instructionSet;
+		}
+	}
+
+	/**
+	 * A wire between an output and an input, with its graphical points.
+	 */
+	static final class WireDefinition {
+		/** The identifier of the output component. */
+		final String from;
+		/** The identifier of the output. */
+		final String out;
+		/** The identifier of the input component. */
+		final String to;
+		/** The identifier of the input. */
+		final String in;
+		/** The coordinates (x, y, x, y...) of the intermediate points. */
+		final int[] points;
+		/** The coordinates of the start of the wire (<tt>null</tt> if not specified). */
+		final int[] start;
+		/** The coordinates of the end of the wire (<tt>null</tt> if not specified). */
+		final int[] end;
+
+		/**
+		 * Creates the definition of a wire.
+		 * @param from The identifier of the output component.
+		 * @param out The identifier of the output.
+		 * @param to The identifier of the input component.
+		 * @param in The identifier of the input.
+		 * @param points The coordinates (x, y, x, y...) of the intermediate points.
+		 * @param start The coordinates of the start of the wire (<tt>null</tt> if not specified).
+		 * @param end The coordinates of the end of the wire (<tt>null</tt> if not specified).
+		 */
+		WireDefinition(String from, String out, String to, String in, int[] points, int[] start, int[] end) {
+			this.from = from;
+			this.out = out;
+			this.to = to;
+			this.in = in;
+			this.points = points;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * Connects the wire in the given CPU.
+		 * @param cpu The CPU, with the components already added.
+		 * @throws InvalidCPUException If the output or the input are already connected or have different sizes or don't exist.
+		 */
+		void connect(CPU cpu) throws InvalidCPUException {
+			Output o = cpu.connectComponents(from, out, to, in);
+			for(int x = 0; x < points.length; x += 2)
+				o.addIntermediatePoint(new Point(points[x], points[x + 1]));
+			if(start != null)
+				o.setPosition(new Point(start[0], start[1]));
+			if(end != null)
+				o.getConnectedInput().setPosition(new Point(end[0], end[1]));
+		}
+	}
+
+	/**
+	 * The identifier, class constructor and parameters of a component.
+	 */
+	static final class ComponentDefinition {
+		/** The identifier of the component. */
+		private final String id;
+		/** The name of the class of the component. */
+		private final String type;
+		/** The <tt>(String, JSONObject)</tt> constructor of the class. */
+		private final Constructor<? extends Component> constructor;
+		/** The JSON object with the parameters of the component. */
+		private final JSONObject json;
+
+		/**
+		 * Creates the definition of a component.
+		 * @param id The identifier of the component.
+		 * @param type The name of the class of the component.
+		 * @param constructor The <tt>(String, JSONObject)</tt> constructor of the class.
+		 * @param json The JSON object with the parameters of the component.
+		 */
+		private ComponentDefinition(String id, String type, Constructor<? extends Component> constructor, JSONObject json) {
+			this.id = id;
+			this.type = type;
+			this.constructor = constructor;
+			this.json = json;
+		}
+
+		/**
+		 * Creates a new instance of the component.
+		 * @return The new component.
+		 * @throws JSONException If the JSON object is invalid or incomplete.
+		 * @throws InvalidCPUException If the component has invalid parameters.
+		 */
+		Component newInstance() throws JSONException, InvalidCPUException {
+			try {
+				return constructor.newInstance(id, json);
+			} catch(InvocationTargetException ex) {
+				Throwable target = ex.getCause();
+				if(target instanceof InvalidCPUException) {
+					throw (InvalidCPUException)target;
+				} else if(target instanceof JSONException) {
+					throw (JSONException)target;
+				} else {
+					throw new InvalidCPUException("Failed to create the component " + id + "!", ex);
+				}
+			} catch(InstantiationException | IllegalAccessException | IllegalArgumentException ex) {
+				throw new InvalidCPUException("Failed to create the component " + id + "!", ex);
+			}
+		}
+	}
+
+	/**
+	 * Creates the template from the contents of a CPU file.
+	 * @param file The file of the CPU.
+	 * @param contents The contents of the CPU file and of its instruction set.
+	 * @param loadTimings The timings of the reading of the files, to which the other phases are added.
+	 * @throws JSONException If the JSON file is malformed.
+	 * @throws InvalidCPUException If a component type is invalid.
+	 * @throws InvalidInstructionSetException If the instruction set is invalid.
+	 * @throws ArrayIndexOutOfBoundsException If an array index is invalid somewhere in the instruction set.
+	 * @throws NumberFormatException If an opcode is not a number.
+	 */
+	private CPUTemplate(File file, Contents contents, LoadTimings loadTimings) throws JSONException, InvalidCPUException, InvalidInstructionSetException, ArrayIndexOutOfBoundsException, NumberFormatException {
+		this.file = file;
+		this.loadTimings = loadTimings;
+		long time = System.nanoTime();
+		components = Collections.unmodifiableList(parseComponents(contents.components, getParentDir(file)));
+		time = loadTimings.mark(LoadTimings.Phase.COMPONENT_CLASSES, time);
+		instructionSet = new InstructionSet(contents.instructionSet);
+		loadTimings.mark(LoadTimings.Phase.INSTRUCTION_SET, time);
+		registerNames = contents.registerNames;
+		wires = contents.wires;
+	}
+
+	/**
+	 * Creates a template from a CPU file.
+	 * <p>The components are only validated when a CPU is created.</p>
+	 * @param path Path to the JSON file.
+	 * @return The template of the CPU.
+	 * @throws IOException If the file doesn't exist or an I/O error occurs.
+	 * @throws JSONException If the JSON file is malformed.
+	 * @throws InvalidCPUException If a component type is invalid.
+	 * @throws ArrayIndexOutOfBoundsException If an array index is invalid somewhere.
+	 * @throws InvalidInstructionSetException If the instruction set is invalid.
+	 * @throws NumberFormatException If an opcode is not a number.
+	 */
+	public static CPUTemplate createFromJSONFile(String path) throws IOException, JSONException, InvalidCPUException, ArrayIndexOutOfBoundsException, InvalidInstructionSetException, NumberFormatException {
+		return createFromJSONFile(path, null);
+	}
+
+	/**
+	 * Creates a template from a CPU file, using the given cache of parsed files.
+	 * <p>If the CPU file and its instruction set were already parsed and
+	 * haven't changed, their contents are read from the cache. Otherwise, they
+	 * are parsed and saved in the cache.
+	 * The components are only validated when a CPU is created.</p>
+	 * @param path Path to the JSON file.
+	 * @param cache The cache of parsed files (<tt>null</tt> to always parse the files).
+	 * @return The template of the CPU.
+	 * @throws IOException If the file doesn't exist or an I/O error occurs.
+	 * @throws JSONException If the JSON file is malformed.
+	 * @throws InvalidCPUException If a component type is invalid.
+	 * @throws ArrayIndexOutOfBoundsException If an array index is invalid somewhere.
+	 * @throws InvalidInstructionSetException If the instruction set is invalid.
+	 * @throws NumberFormatException If an opcode is not a number.
+	 */
+	public static CPUTemplate createFromJSONFile(String path, CPUFileCache cache) throws IOException, JSONException, InvalidCPUException, ArrayIndexOutOfBoundsException, InvalidInstructionSetException, NumberFormatException {
+		LoadTimings timings = new LoadTimings();
+		long time = System.nanoTime();
+		File f = new File(path);
+		File parentDir = getParentDir(f);
+		Contents contents;
+
+		if(cache != null) {
+			byte[] bytes = Files.readAllBytes(f.toPath());
+			contents = cache.load(bytes, parentDir);
+			if(contents != null)
+				timings.mark(LoadTimings.Phase.READ_CPU, time);
+			else {
+				contents = readContents(new InputStreamReader(new ByteArrayInputStream(bytes), UTF8), parentDir, timings, time);
+				cache.store(bytes, parentDir, contents);
+			}
+		}
+		else {
+			try(Reader reader = new InputStreamReader(new FileInputStream(f), UTF8)) {
+				contents = readContents(reader, parentDir, timings, time);
+			}
+		}
+		return new CPUTemplate(f, contents, timings);
+	}
+
+	/**
+	 * Creates a new CPU from the template.
+	 * <p>The CPU is independent from the other CPUs created from the template,
+	 * except for the instruction set, which is shared.</p>
+	 * <p><b>Don't forget to call <tt>setPerformanceInstructionDependent()</tt> on the CPU!</b></p>
+	 * @return The new CPU.
+	 * @throws JSONException If the JSON file is malformed.
+	 * @throws InvalidCPUException If the CPU is invalid or incomplete.
+	 * @throws ArrayIndexOutOfBoundsException If an array index is invalid somewhere (like an invalid register).
+	 */
+	public CPU createCPU() throws JSONException, InvalidCPUException, ArrayIndexOutOfBoundsException {
+		return CPU.createFromTemplate(this);
+	}
+
+	/**
+	 * Returns the file of the CPU.
+	 * @return The file of the CPU.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the instruction set shared by the created CPUs.
+	 * @return The instruction set.
+	 */
+	public InstructionSet getInstructionSet() {
+		return instructionSet;
+	}
+
+	/**
+	 * Returns the time spent in each phase of the parsing of the files.
+	 * @return The timings (only the phases of the parsing are filled).
+	 */
+	public LoadTimings getLoadTimings() {
+		return loadTimings;
+	}
+
+	/**
+	 * Returns the definitions of the components.
+	 * @return The definitions, in the order of the file.
+	 */
+	List<ComponentDefinition> getComponentDefinitions() {
+		return components;
+	}
+
+	/**
+	 * Returns the wires.
+	 * @return The definitions of the wires, in the order of the file.
+	 */
+	List<WireDefinition> getWires() {
+		return wires;
+	}
+
+	/**
+	 * Returns the names of the registers.
+	 * @return JSONArray that contains the names, or <tt>null</tt> if not specified.
+	 */
+	JSONArray getRegisterNames() {
+		return registerNames;
+	}
+
+	/**
+	 * Returns the folder of the given CPU file.
+	 * @param file The CPU file.
+	 * @return The parent folder of the file.
+	 */
+	private static File getParentDir(File file) {
+		return file.getAbsoluteFile().getParentFile();
+	}
+
+	/**
+	 * Reads the contents of a CPU file and of its instruction set file.
+	 * <p>Both files are read in a single pass. Only the parameters of the
+	 * components and the instruction set are kept as JSON objects.</p>
+	 * @param cpuReader The reader of the CPU file (closed by the caller).
+	 * @param parentDir The cpu file's parent directory.
+	 * @param timings The timings where the time spent reading each file is added.
+	 * @param start The value of <tt>System.nanoTime()</tt> when the reading started.
+	 * @return The contents of the files.
+	 * @throws IOException If a file doesn't exist or an I/O error occurs.
+	 * @throws JSONException If a JSON file is malformed.
+	 */
+	private static Contents readContents(Reader cpuReader, File parentDir, LoadTimings timings, long start) throws IOException, JSONException {
+		Map<String, JSONObject> components = null;
+		List<WireDefinition> wires = null;
+		JSONArray registerNames = null;
+		String setPath = null;
+		Set<String> names = new HashSet<>();
+
+		JSONStreamReader reader = new JSONStreamReader(cpuReader);
+		reader.beginObject();
+		while(reader.hasNext()) {
+			String name = reader.nextName();
+			if(!names.add(name))
+				throw reader.syntaxError("Duplicate key \"" + name + "\"");
+			switch(name) {
+				case "components":
+					components = new LinkedHashMap<>();
+					reader.beginObject();
+					while(reader.hasNext()) {
+						String id = reader.nextName();
+						if(components.containsKey(id))
+							throw reader.syntaxError("Duplicate key \"" + id + "\"");
+						components.put(id, reader.nextObject());
+					}
+					reader.endObject();
+					break;
+				case "wires":
+					wires = new ArrayList<>();
+					reader.beginArray();
+					while(reader.hasNext())
+						wires.add(readWire(reader));
+					reader.endArray();
+					break;
+				case "reg_names":
+					Object value = reader.nextValue();
+					if(!(value instanceof JSONArray))
+						throw new JSONException("JSONObject[\"reg_names\"] is not a JSONArray.");
+					registerNames = (JSONArray)value;
+					break;
+				case "instructions":
+					setPath = reader.nextString();
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+		reader.endDocument();
+		if(components == null) throw new JSONException("JSONObject[\"components\"] not found.");
+		if(wires == null) throw new JSONException("JSONObject[\"wires\"] not found.");
+		if(setPath == null) throw new JSONException("JSONObject[\"instructions\"] not found.");
+		long time = timings.mark(LoadTimings.Phase.READ_CPU, start);
+
+		JSONObject setJson = InstructionSet.readFile(new File(parentDir, setPath));
+		timings.mark(LoadTimings.Phase.READ_INSTRUCTION_SET, time);
+		return new Contents(Collections.unmodifiableMap(components), Collections.unmodifiableList(wires),
+			registerNames, setPath, setJson);
+	}
+
+	/**
+	 * Reads a wire of a CPU file.
+	 * @param reader The reader, positioned at the start of the wire.
+	 * @return The definition of the wire.
+	 * @throws IOException If an I/O error occurs.
+	 * @throws JSONException If the wire is malformed or incomplete.
+	 */
+	private static WireDefinition readWire(JSONStreamReader reader) throws IOException, JSONException {
+		String from = null, out = null, to = null, in = null;
+		int[] points = new int[0], start = null, end = null;
+		Object value;
+
+		reader.beginObject();
+		while(reader.hasNext()) {
+			switch(reader.nextName()) {
+				case "from": from = reader.nextString(); break;
+				case "out": out = reader.nextString(); break;
+				case "to": to = reader.nextString(); break;
+				case "in": in = reader.nextString(); break;
+				case "points":
+					if((value = reader.nextValue()) instanceof JSONArray) {
+						JSONArray array = (JSONArray)value;
+						points = new int[array.length() * 2];
+						for(int x = 0; x < array.length(); x++) {
+							JSONObject point = array.getJSONObject(x);
+							points[2 * x] = point.getInt("x");
+							points[2 * x + 1] = point.getInt("y");
+						}
+					}
+					break;
+				case "start":
+					if((value = reader.nextValue()) instanceof JSONObject)
+						start = new int[] {((JSONObject)value).getInt("x"), ((JSONObject)value).getInt("y")};
+					break;
+				case "end":
+					if((value = reader.nextValue()) instanceof JSONObject)
+						end = new int[] {((JSONObject)value).getInt("x"), ((JSONObject)value).getInt("y")};
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+		if(from == null) throw new JSONException("JSONObject[\"from\"] not found.");
+		if(out == null) throw new JSONException("JSONObject[\"out\"] not found.");
+		if(to == null) throw new JSONException("JSONObject[\"to\"] not found.");
+		if(in == null) throw new JSONException("JSONObject[\"in\"] not found.");
+		return new WireDefinition(from, out, to, in, points, start, end);
+	}
+
+	/**
+	 * Finds the classes of the given components.
+	 * @param components The parameters of the components, by identifier.
+	 * @param parentDir The cpu file's parent directory.
+	 * @return The definitions of the components.
+	 * @throws JSONException If the JSON file is malformed.
+	 * @throws InvalidCPUException If a component type is invalid.
+	 */
+	private static List<ComponentDefinition> parseComponents(Map<String, JSONObject> components, File parentDir) throws JSONException, InvalidCPUException {
+		List<ComponentDefinition> defs = new ArrayList<>(components.size());
+		JSONObject json;
+		String type, id;
+		Class<?> cl;
+
+		// ClassLoader to load the built-in components
+		ClassLoader loader = CPU.class.getClassLoader();
+
+		// ClassLoader to load custom components
+		ClassLoader customLoader = getCustomLoader(parentDir);
+
+		for(Map.Entry<String, JSONObject> e: components.entrySet()) {
+			id = e.getKey();
+			json = e.getValue();
+			type = json.getString("type");
+
+			// Load the class with the name specified by "type"
+			try {
+				// Search in the built-in classes first
+				cl = loader.loadClass("brunonova.drmips.simulator.components." + type);
+			} catch(ClassNotFoundException ex) {
+				// Search in the custom components second
+				if(customLoader != null) {
+					try {
+						cl = customLoader.loadClass(type);
+					} catch(ClassNotFoundException ex2) {
+						ex2.initCause(ex);
+						throw new InvalidCPUException("Unknown component type " + type + "!", ex2);
+					}
+				} else {
+					throw new InvalidCPUException("Unknown component type " + type + "!", ex);
+				}
+			}
+
+			// Find the (String, JSONObject) contructor
+			try {
+				defs.add(new ComponentDefinition(id, type, cl.asSubclass(Component.class)
+					.getConstructor(String.class, JSONObject.class), json));
+			} catch(ClassCastException ex) {
+				throw new InvalidCPUException("The " + type + " class is not a subclass of Component!", ex);
+			} catch(NoSuchMethodException ex) {
+				throw new InvalidCPUException("The " + type + " class is missing the (String, JSONObject) constructor!", ex);
+			}
+		}
+		return defs;
+	}
+
+	/**
+	 * Returns the class loader of the custom components in the given folder.
+	 * <p>The class loader is created only once for each folder, so changes to
+	 * the classes in the folder require restarting the program.</p>
+	 * @param dir The folder.
+	 * @return The class loader, or <tt>null</tt> if it couldn't be created.
+	 */
+	private static ClassLoader getCustomLoader(File dir) {
+		synchronized(CUSTOM_LOADERS) {
+			if(CUSTOM_LOADERS.containsKey(dir))
+				return CUSTOM_LOADERS.get(dir);
+			ClassLoader customLoader;
+			try {
+				URL[] urls = new URL[] {dir.toURI().toURL()};
+				customLoader = new URLClassLoader(urls);
+			} catch(Exception ex) {
+				customLoader = null;
+			}
+			CUSTOM_LOADERS.put(dir, customLoader);
+			return customLoader;
+		}
+	}
+}
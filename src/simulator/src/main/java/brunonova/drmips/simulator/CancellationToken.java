@@ -16,35 +16,33 @@
     along with this program.  If not, see <http://www.gnu.org/licenses/>.
 */
 
-package brunonova.drmips.simulator.exceptions;
+package brunonova.drmips.simulator;
 
 /**
- * Exception to be thrown when possible infinite loop has been detected during program execution.
+ * A token that can be used to cancel a running simulation.
+ *
+ * <p>The cancellation is cooperative: the simulation checks the token between
+ * clock cycles and stops as soon as possible after {@link #cancel()} is called.
+ * The token can be cancelled from any thread.</p>
  *
  * @author Bruno Nova
  */
-public class InfiniteLoopException extends Exception {
-	/**
-	 * Exception constructor.
-	 */
-	public InfiniteLoopException() {
-		super();
-	}
+public final class CancellationToken {
+	/** Whether the token was cancelled. */
+	private volatile boolean cancelled = false;
 
 	/**
-	 * Exception constructor.
-	 * @param msg The error message.
+	 * Requests the cancellation of the simulation.
 	 */
-	public InfiniteLoopException(String msg) {
-		super(msg);
+	public void cancel() {
+		cancelled = true;
 	}
 
 	/**
-	 * Exception constructor.
-	 * @param msg The error message.
-	 * @param cause The throwable that caused this exception.
+	 * Returns whether the cancellation was requested.
+	 * @return <tt>True</tt> if cancelled.
 	 */
-	public InfiniteLoopException(String msg, Throwable cause) {
-		super(msg, cause);
+	public boolean isCancelled() {
+		return cancelled;
 	}
 }
@@ -0,0 +1,51 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+/**
+ * Interface of the synchronous components whose history can be managed by a
+ * {@link CycleHistory}.
+ *
+ * <p>The component must record the changes to its state in a
+ * {@link StateJournal} (marked by <tt>pushState()</tt>) and must be able to
+ * save and restore its whole state in an array (a checkpoint).</p>
+ *
+ * @author Bruno Nova
+ */
+public interface Checkpointable extends Synchronous {
+	/**
+	 * Returns the journal where the changes to the component's state are recorded.
+	 * @return The component's journal.
+	 */
+	public StateJournal getStateJournal();
+
+	/**
+	 * Returns a copy of the whole state of the component.
+	 * @return The state of the component.
+	 */
+	public int[] saveCheckpoint();
+
+	/**
+	 * Restores a state returned by <tt>saveCheckpoint()</tt>.
+	 * <p>The change is not recorded in the journal and the outputs are not
+	 * updated.</p>
+	 * @param state The state to restore.
+	 */
+	public void restoreCheckpoint(int[] state);
+}
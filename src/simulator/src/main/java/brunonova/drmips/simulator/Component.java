@@ -22,6 +22,8 @@ import brunonova.drmips.simulator.exceptions.InvalidCPUException;
 import brunonova.drmips.simulator.util.Dimension;
 import brunonova.drmips.simulator.util.Point;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -48,7 +50,7 @@ import org.json.JSONObject;
  *
  * <p>You may also need to override the {@link getLatencyInputs} method so that
  * the instruction dependent CPU performance calculation and critical path is
- * correct.</p>
+ * correct. In that case, override {@link #getLatencySelectorInputs()} too.</p>
  *
  * <h3>Adding new components</h3>
  * <p>Adding a new component to the simulator should be as simple as adding
@@ -72,6 +74,14 @@ public abstract class Component {
 	protected Map<String, Input> in;
 	/** The outputs of the component. */
 	protected Map<String, Output> out;
+	/** The inputs of the component, in an array (<tt>null</tt> until needed or after an input is added). */
+	private Input[] inputArray = null;
+	/** Read-only list view of <tt>inputArray</tt>. */
+	private List<Input> inputList = null;
+	/** The outputs of the component, in an array (<tt>null</tt> until needed or after an output is added). */
+	private Output[] outputArray = null;
+	/** Read-only list view of <tt>outputArray</tt>. */
+	private List<Output> outputList = null;
 	/** The name displayed on the GUI. */
 	private String displayName;
 	/** The key of the component's description on the language file. */
@@ -96,6 +106,12 @@ public abstract class Component {
 	private Map<String, String> customDescriptions = null;
 	/** Whether this component is in the control path. */
 	private boolean inControlPath = false;
+	/** The levelized evaluator of the CPU, if any. */
+	private LevelizedEvaluator evaluator = null;
+	/** The position of the component in the evaluator's order. */
+	private int evaluationRank = -1;
+	/** The CPU the component belongs to (to update the outdated performance information). */
+	private CPU cpu = null;
 
 	/**
 	 * Component constructor that must be called by subclasses.
@@ -156,6 +172,66 @@ public abstract class Component {
 	 */
 	public abstract void execute();
 
+	/**
+	 * Returns whether the component can be executed by the CPU's levelized evaluator.
+	 * <p>In that case, the component is executed once per cycle, in topological
+	 * order, instead of each time one of its inputs changes. Its outputs must
+	 * depend only on its inputs and internal state. Inputs whose values are only
+	 * used at the end of the clock cycle must be added with
+	 * {@code changesComponentAccumulatedLatency = false}.</p>
+	 * <p>Custom components that don't follow these rules should override this
+	 * method and return <tt>false</tt>, and the whole CPU will then be evaluated
+	 * recursively, like in older versions.</p>
+	 * @return <tt>True</tt> by default.
+	 */
+	public boolean supportsLevelizedEvaluation() {
+		return true;
+	}
+
+	/**
+	 * Returns whether the levelized evaluator must execute the component in
+	 * every evaluation, even if none of its inputs changed.
+	 * <p>That's the case of the synchronous components, whose state changes
+	 * every clock cycle, and of the components that change the relevance of
+	 * the wires of other components (like the multiplexers), so that the
+	 * relevance is set in the same order. Custom components like these should
+	 * override this method and return <tt>true</tt>.</p>
+	 * @return <tt>True</tt> if the component is synchronous.
+	 */
+	public boolean isAlwaysEvaluated() {
+		return this instanceof Synchronous;
+	}
+
+	/**
+	 * Updates the levelized evaluator of the component.
+	 * @param evaluator The evaluator, or <tt>null</tt> to be executed recursively.
+	 * @param rank The position of the component in the evaluator's order.
+	 */
+	final void setEvaluator(LevelizedEvaluator evaluator, int rank) {
+		this.evaluator = evaluator;
+		this.evaluationRank = rank;
+	}
+
+	/**
+	 * Returns the position of the component in the levelized evaluator's order.
+	 * @return The position, or -1 if the component isn't executed by a levelized evaluator.
+	 */
+	final int getEvaluationRank() {
+		return evaluationRank;
+	}
+
+	/**
+	 * Called when the value of one of the inputs changes.
+	 * <p>Executes the component's normal action, or schedules it if the CPU is
+	 * being evaluated by a levelized evaluator.</p>
+	 */
+	final void inputChanged() {
+		if(evaluator != null && evaluator.isEvaluating())
+			evaluator.schedule(evaluationRank);
+		else
+			execute();
+	}
+
 	/**
 	 * Adds a custom description to the component for the specified language.
 	 * <p>The language is the language code (like en, pt, pt_PT) or "default" for
@@ -411,9 +487,34 @@ public abstract class Component {
 	 * @return Component's accumulated latency.
 	 */
 	public final int getAccumulatedLatency() {
+		updatePerformance();
 		return accumulatedLatency;
 	}
 
+	/**
+	 * Sets the accumulated latency of the component, without propagating it (restored from a cache).
+	 * @param latency The accumulated latency.
+	 */
+	final void restoreAccumulatedLatency(int latency) {
+		accumulatedLatency = latency;
+	}
+
+	/**
+	 * Sets the CPU the component belongs to.
+	 * @param cpu The CPU.
+	 */
+	final void setCPU(CPU cpu) {
+		this.cpu = cpu;
+	}
+
+	/**
+	 * Recalculates the performance information of the CPU, if outdated.
+	 * <p>The critical path of the instruction is only calculated when needed.</p>
+	 */
+	final void updatePerformance() {
+		if(cpu != null) cpu.updateInstructionPerformance();
+	}
+
 	/**
 	 * Updates the component's accumulated latency, based on its inputs' accumulated latencies.
 	 * @param instructionDependent Whether the performance should depend on the current instruction or not.
@@ -421,11 +522,14 @@ public abstract class Component {
 	protected void updateAccumulatedLatency(boolean instructionDependent) {
 		accumulatedLatency = 0;
 		List<Input> inputs = instructionDependent ? getLatencyInputs() : getInputs();
-		for(Input i: inputs) // get highest accumulated latency from inputs
+		Input i;
+		for(int x = 0; x < inputs.size(); x++) { // get highest accumulated latency from inputs
+			i = inputs.get(x);
 			if(i.canChangeComponentAccumulatedLatency() && i.getAccumulatedLatency() > accumulatedLatency)
 				accumulatedLatency = i.getAccumulatedLatency();
+		}
 		accumulatedLatency += latency; // add the component's own latency
-		for(Output o: getOutputs()) // propagate accumulated latency
+		for(Output o: getOutputArray()) // propagate accumulated latency
 			if(o.isConnected())
 				o.getConnectedInput().setAccumulatedLatency(accumulatedLatency, instructionDependent);
 	}
@@ -442,9 +546,9 @@ public abstract class Component {
 	 */
 	public void resetPerformance() {
 		accumulatedLatency = 0;
-		for(Input i: getInputs())
+		for(Input i: getInputArray())
 			i.resetAccumulatedLatency();
-		for(Output o: getOutputs())
+		for(Output o: getOutputArray())
 			o.setInCriticalPath(false);
 	}
 
@@ -498,6 +602,8 @@ public abstract class Component {
 		if(hasInput(id)) throw new InvalidCPUException("Duplicated ID " + id + "!");
 		Input input = new Input(this, id, data, direction, changesComponentAccumulatedLatency, showTip);
 		in.put(id, input);
+		inputArray = null;
+		inputList = null;
 		return input;
 	}
 
@@ -521,20 +627,51 @@ public abstract class Component {
 
 	/**
 	 * Returns the list of inputs.
+	 * <p>The list is read-only and is reused between calls.</p>
 	 * @return List of inputs.
 	 */
 	public final List<Input> getInputs() {
-		return new ArrayList<>(in.values());
+		if(inputList == null)
+			inputList = Collections.unmodifiableList(Arrays.asList(getInputArray()));
+		return inputList;
+	}
+
+	/**
+	 * Returns the inputs in an array, for loops executed every cycle.
+	 * <p>The array is shared, so it must not be modified.</p>
+	 * @return Array of inputs.
+	 */
+	final Input[] getInputArray() {
+		if(inputArray == null)
+			inputArray = in.values().toArray(new Input[in.size()]);
+		return inputArray;
 	}
 
 	/**
 	 * Returns the list of inputs for latency calculations. By default, does the
 	 * same as getInputs()
+	 * <p>It's called for every component each time the instruction dependent
+	 * latencies are calculated, so overrides should return lists created
+	 * beforehand instead of allocating new ones.</p>
 	 *
 	 * @return List of inputs.
 	 */
 	protected List<Input> getLatencyInputs() {
-		return new ArrayList<>(in.values());
+		return getInputs();
+	}
+
+	/**
+	 * Returns the inputs whose values determine the result of
+	 * <tt>getLatencyInputs()</tt> and, for synchronous components, of
+	 * <tt>isWritingState()</tt>.
+	 * <p>The instruction dependent latencies are cached for each combination
+	 * of the values of these inputs (see {@link InstructionPerformanceCache}).
+	 * By default, returns an empty list. Custom components that can't tell
+	 * should return <tt>null</tt>, and the cache won't be used.</p>
+	 * @return List of inputs, or <tt>null</tt> if unknown.
+	 */
+	public List<Input> getLatencySelectorInputs() {
+		return new ArrayList<>();
 	}
 	/**
 	 * Adds an output with an initial value.
@@ -572,6 +709,8 @@ public abstract class Component {
 		if(hasOutput(id)) throw new InvalidCPUException("Duplicated ID " + id + "!");
 		Output output = new Output(this, id, data, direction, showTip);
 		out.put(id, output);
+		outputArray = null;
+		outputList = null;
 		return output;
 	}
 
@@ -595,10 +734,24 @@ public abstract class Component {
 
 	/**
 	 * Returns the list of outputs.
+	 * <p>The list is read-only and is reused between calls.</p>
 	 * @return List of outputs.
 	 */
 	public final List<Output> getOutputs() {
-		return new ArrayList<>(out.values());
+		if(outputList == null)
+			outputList = Collections.unmodifiableList(Arrays.asList(getOutputArray()));
+		return outputList;
+	}
+
+	/**
+	 * Returns the outputs in an array, for loops executed every cycle.
+	 * <p>The array is shared, so it must not be modified.</p>
+	 * @return Array of outputs.
+	 */
+	final Output[] getOutputArray() {
+		if(outputArray == null)
+			outputArray = out.values().toArray(new Output[out.size()]);
+		return outputArray;
 	}
 
 	/**
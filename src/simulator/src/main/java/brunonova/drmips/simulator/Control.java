@@ -33,6 +33,10 @@ public class Control {
 	private final Map<Integer, Map<String, Integer>> map;
 	/** The sizes of each output. */
 	private final Map<String, Integer> out;
+	/** The values of the outputs (in the order of <tt>getOutputsIds()</tt>) indexed by opcode (<tt>null</tt> if outdated). */
+	private int[][] table = null;
+	/** The values of the outputs for the opcodes that don't exist (all zeros). */
+	private int[] zeros = null;
 	
 	/**
 	 * Creates a new control object.
@@ -48,6 +52,7 @@ public class Control {
 	 */
 	public void addOpcode(int opcode) {
 		map.put(opcode, new TreeMap<String, Integer>());
+		table = null;
 	}
 	
 	/**
@@ -71,6 +76,7 @@ public class Control {
 		if(!hasOpcode(opcode)) addOpcode(opcode);
 		map.get(opcode).put(id, value);
 		out.put(id, 0);
+		table = null;
 	}
 	
 	/**
@@ -84,6 +90,43 @@ public class Control {
 		return map.get(opcode).get(id);
 	}
 	
+	/**
+	 * Returns the values of all the outputs for the given opcode.
+	 * <p>The values are read from a table indexed by opcode, which is much
+	 * faster than calling <tt>getOutOfOpcode()</tt> for each output. The
+	 * returned array is shared, so it must not be modified.</p>
+	 * @param opcode The opcode.
+	 * @return Values of the outputs, in the order of <tt>getOutputsIds()</tt>.
+	 */
+	public int[] getOutsOfOpcode(int opcode) {
+		if(table == null) compileTable();
+		return (opcode >= 0 && opcode < table.length && table[opcode] != null) ? table[opcode] : zeros;
+	}
+
+	/**
+	 * Creates the table with the values of the outputs for each opcode.
+	 */
+	private void compileTable() {
+		int maxOpcode = -1;
+		for(int opcode: map.keySet())
+			if(opcode > maxOpcode) maxOpcode = opcode;
+
+		int[][] t = new int[maxOpcode + 1][];
+		Integer value;
+		for(Map.Entry<Integer, Map<String, Integer>> e: map.entrySet()) {
+			if(e.getKey() < 0) continue; // not reachable from an input
+			int[] row = new int[out.size()];
+			int x = 0;
+			for(String id: out.keySet()) {
+				value = e.getValue().get(id);
+				row[x++] = (value != null) ? value : 0;
+			}
+			t[e.getKey()] = row;
+		}
+		zeros = new int[out.size()];
+		table = t;
+	}
+
 	/**
 	 * Returns whether the control has the specified output.
 	 * @param id The identifier of the output to check.
@@ -136,5 +179,7 @@ public class Control {
 			
 			out.put(id, size); // update output size
 		}
+
+		compileTable();
 	}
 }
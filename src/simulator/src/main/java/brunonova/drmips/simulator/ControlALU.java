@@ -48,6 +48,12 @@ public class ControlALU {
 	private Map<String, Integer> out;
 	/** Mapping of ALU control input options and their respective operations. */
 	private Map<Integer, Operation> operations;
+	/** The values of the outputs (in the order of <tt>getOutputsIds()</tt>) indexed by <tt>(ALUOp &lt;&lt; funcSize) | func</tt> (<tt>null</tt> if outdated or too big). */
+	private int[][] controlTable = null;
+	/** The operations indexed by ALU control signal (<tt>null</tt> if outdated or too big). */
+	private Operation[] operationTable = null;
+	/** The maximum number of bits of the indexes of the tables. */
+	private static final int MAX_TABLE_BITS = 16;
 	/** Class logger. */
 	private static final Logger LOG = Logger.getLogger(ControlALU.class.getName());
 	
@@ -73,6 +79,7 @@ public class ControlALU {
 	 * @param outValue The corresponding ALU control signal value.
 	 */
 	public void addALUOpControl(int aluOp, String outId, int outValue) {
+		controlTable = null;
 		Inputs i = new Inputs(aluOp);
 		Map<String, Integer> o;
 		if(control.containsKey(i)) {
@@ -95,6 +102,7 @@ public class ControlALU {
 	 * @param outValue The corresponding ALU control signal value.
 	 */
 	public void addFuncControl(int aluOp, int func, String outId, int outValue) {
+		controlTable = null;
 		Inputs i = new Inputs(aluOp, func);
 		Map<String, Integer> o;
 		if(control.containsKey(i)) {
@@ -116,6 +124,7 @@ public class ControlALU {
 	 */
 	public void addOperation(int control, Operation operation) {
 		operations.put(control, operation);
+		operationTable = null;
 	}
 	
 	/**
@@ -148,13 +157,57 @@ public class ControlALU {
 			return 0;
 	}
 	
+	/**
+	 * Returns the values of all the ALU Control output signals for the specified ALUOp and func.
+	 * <p>The values are read from a table created by <tt>finishCreation()</tt>,
+	 * which is much faster than calling <tt>getControlValue()</tt> for each
+	 * output. The returned array is shared, so it must not be modified.</p>
+	 * @param aluOp The value of the ALUOp signal.
+	 * @param func The value of the instruction func field.
+	 * @return Values of the outputs, in the order of <tt>getOutputsIds()</tt>.
+	 */
+	public int[] getControlValues(int aluOp, int func) {
+		if(controlTable != null && aluOp >= 0 && func >= 0 && aluOp < (1 << aluOpSize) && func < (1 << funcSize))
+			return controlTable[(aluOp << funcSize) | func];
+
+		int[] values = new int[out.size()]; // not in the table
+		int x = 0;
+		for(String id: out.keySet())
+			values[x++] = getControlValue(aluOp, func, id);
+		return values;
+	}
+
+	/**
+	 * Finishes the creation of the control.
+	 * <p>Creates the tables with the values of the outputs for each
+	 * combination of ALUOp and func and with the operation for each control
+	 * signal (if they're not too big).</p>
+	 */
+	public void finishCreation() {
+		if(aluOpSize + funcSize <= MAX_TABLE_BITS) {
+			int[][] table = new int[1 << (aluOpSize + funcSize)][];
+			for(int aluOp = 0; aluOp < (1 << aluOpSize); aluOp++)
+				for(int func = 0; func < (1 << funcSize); func++)
+					table[(aluOp << funcSize) | func] = getControlValues(aluOp, func);
+			controlTable = table;
+		}
+		if(controlSize <= MAX_TABLE_BITS) {
+			Operation[] ops = new Operation[1 << controlSize];
+			for(int control = 0; control < ops.length; control++)
+				ops[control] = getOperation(control);
+			operationTable = ops;
+		}
+	}
+
 	/**
 	 * Returns the operation that corresponds to the specifield ALU control signal.
 	 * @param control The control signal.
 	 * @return The corresponding operation.
 	 */
 	public Operation getOperation(int control) {
-		if(operations.containsKey(control))
+		if(operationTable != null && control >= 0 && control < operationTable.length)
+			return operationTable[control];
+		else if(operations.containsKey(control))
 			return operations.get(control);
 		else
 			return Operation.ADD;
@@ -224,17 +277,17 @@ public class ControlALU {
 		switch(operation) {
 			case MULT:
 				long res = (long)val1 * (long)val2;
-				alu.getLO().setValue((int)res);
-				alu.getHI().setValue((int)(res >>> 32));
+				alu.setLO((int)res);
+				alu.setHI((int)(res >>> 32));
 				break;
 			case DIV:
 				if(val2 != 0) {
-					alu.getLO().setValue(val1 / val2);
-					alu.getHI().setValue(val1 % val2);
+					alu.setLO(val1 / val2);
+					alu.setHI(val1 % val2);
 				}
 				else { // should throw an exception
-					alu.getLO().setValue(Integer.MIN_VALUE);
-					alu.getHI().setValue(Integer.MIN_VALUE);
+					alu.setLO(Integer.MIN_VALUE);
+					alu.setHI(Integer.MIN_VALUE);
 				}
 				break;
 		}
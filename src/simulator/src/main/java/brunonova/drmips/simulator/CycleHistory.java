@@ -0,0 +1,332 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manages the history of the executed cycles (used for the "back step" and
+ * "restart" functions).
+ *
+ * <p>The changes made in each of the recent cycles are recorded in the
+ * journals of the synchronous components, and a full copy of the state of
+ * the CPU (a checkpoint) is saved every <tt>getCheckpointInterval()</tt>
+ * cycles. When the memory used by the history exceeds the budget, the oldest
+ * recorded cycles are discarded first, and then every other checkpoint, so
+ * that any cycle can still be reached by restoring a nearby checkpoint and
+ * simulating forward (see <tt>CPU.seekToCycle()</tt>). The first checkpoint
+ * is always kept so that the CPU can be restarted.
+ * The budget is checked at the start of each cycle, so it can be exceeded by
+ * the changes of the current cycle.</p>
+ *
+ * <p>The history can only be limited if all the synchronous components of the
+ * CPU are {@link Checkpointable}. Otherwise, every cycle is kept and no
+ * checkpoints are saved.</p>
+ *
+ * @author Bruno Nova
+ */
+public final class CycleHistory {
+	/** The default memory budget (in bytes). */
+	public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+	/** The default number of cycles between checkpoints. */
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 1000;
+	/** The minimum number of recent cycles that are kept, even if the budget is exceeded. */
+	private static final int MINIMUM_RETAINED_CYCLES = 16;
+	/** Approximate memory used by each array, besides its elements (in bytes). */
+	private static final int ARRAY_OVERHEAD = 16;
+
+	/**
+	 * A full copy of the state of the CPU in a cycle.
+	 */
+	public static final class Checkpoint {
+		/** The cycle of the state. */
+		private final int cycle;
+		/** The state of each component. */
+		private final int[][] states;
+		/** The statistics of the CPU. */
+		private final int[] statistics;
+		/** The approximate memory used by the checkpoint. */
+		private final long memoryUsage;
+
+		/**
+		 * Creates the checkpoint.
+		 * @param cycle The cycle of the state.
+		 * @param states The state of each component.
+		 * @param statistics The statistics of the CPU.
+		 */
+		private Checkpoint(int cycle, int[][] states, int[] statistics) {
+			this.cycle = cycle;
+			this.states = states;
+			this.statistics = statistics;
+			long memory = ARRAY_OVERHEAD * (states.length + 2) + 4L * statistics.length;
+			for(int[] state: states)
+				memory += 4L * state.length;
+			memoryUsage = memory;
+		}
+
+		/**
+		 * Returns the cycle of the saved state.
+		 * @return The number of cycles executed up to the saved state.
+		 */
+		public int getCycle() {
+			return cycle;
+		}
+
+		/**
+		 * Returns the statistics of the CPU at the saved state.
+		 * @return The statistics, in the order given when the checkpoint was saved.
+		 */
+		public int[] getStatistics() {
+			return statistics.clone();
+		}
+	}
+
+	/** The components whose history is managed (<tt>null</tt> if not all are checkpointable). */
+	private final Checkpointable[] components;
+	/** The saved checkpoints, from the oldest to the newest. */
+	private final List<Checkpoint> checkpoints = new ArrayList<>();
+	/** The memory used by the checkpoints. */
+	private long checkpointsMemory = 0;
+	/** The memory budget. */
+	private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+	/** The number of cycles between checkpoints. */
+	private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+	/** Whether older recorded cycles were discarded (the journals don't reach the first checkpoint). */
+	private boolean truncated = false;
+
+	/**
+	 * Creates the history manager of the given synchronous components.
+	 * @param synchronousComponents The synchronous components of the CPU.
+	 */
+	CycleHistory(List<Component> synchronousComponents) {
+		Checkpointable[] comps = new Checkpointable[synchronousComponents.size()];
+		for(int i = 0; i < comps.length; i++) {
+			if(!(synchronousComponents.get(i) instanceof Checkpointable)) {
+				comps = null;
+				break;
+			}
+			comps[i] = (Checkpointable)synchronousComponents.get(i);
+		}
+		components = comps;
+	}
+
+	/**
+	 * Returns whether the history can be limited (all the synchronous components are checkpointable).
+	 * @return <tt>True</tt> if the memory budget and checkpoints are used.
+	 */
+	public boolean isBounded() {
+		return components != null;
+	}
+
+	/**
+	 * Returns the memory budget.
+	 * @return The maximum memory used by the history, in bytes.
+	 */
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * Updates the memory budget.
+	 * <p>The oldest history is discarded immediately if the new budget is exceeded.</p>
+	 * @param memoryBudget The maximum memory used by the history, in bytes.
+	 * @throws IllegalArgumentException If the budget is not positive.
+	 */
+	public void setMemoryBudget(long memoryBudget) throws IllegalArgumentException {
+		if(memoryBudget <= 0) throw new IllegalArgumentException("The memory budget must be positive!");
+		this.memoryBudget = memoryBudget;
+		enforceBudget();
+	}
+
+	/**
+	 * Returns the number of cycles between checkpoints.
+	 * @return The checkpoint interval.
+	 */
+	public int getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	/**
+	 * Updates the number of cycles between checkpoints.
+	 * @param checkpointInterval The checkpoint interval.
+	 * @throws IllegalArgumentException If the interval is not positive.
+	 */
+	public void setCheckpointInterval(int checkpointInterval) throws IllegalArgumentException {
+		if(checkpointInterval <= 0) throw new IllegalArgumentException("The checkpoint interval must be positive!");
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	/**
+	 * Returns the memory currently used by the history.
+	 * @return The approximate memory used by the journals and checkpoints, in bytes.
+	 */
+	public long getMemoryUsage() {
+		if(components == null) return 0;
+		long memory = checkpointsMemory;
+		for(Checkpointable c: components)
+			memory += c.getStateJournal().getMemoryUsage();
+		return memory;
+	}
+
+	/**
+	 * Returns the number of recent cycles that can be undone with "back steps".
+	 * @return The number of recorded cycles.
+	 */
+	public int getNumberOfRetainedCycles() {
+		return (components == null || components.length == 0) ? 0 : components[0].getStateJournal().getNumberOfMarks();
+	}
+
+	/**
+	 * Returns whether older recorded cycles were discarded to respect the budget.
+	 * @return <tt>True</tt> if the recorded cycles don't reach the first checkpoint.
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * Returns the number of saved checkpoints.
+	 * @return The number of checkpoints.
+	 */
+	public int getNumberOfCheckpoints() {
+		return checkpoints.size();
+	}
+
+	/**
+	 * Returns the oldest checkpoint (the first state saved).
+	 * @return The first checkpoint, or <tt>null</tt> if none.
+	 */
+	public Checkpoint getFirstCheckpoint() {
+		return checkpoints.isEmpty() ? null : checkpoints.get(0);
+	}
+
+	/**
+	 * Returns the newest checkpoint at or before the given cycle.
+	 * @param cycle The cycle.
+	 * @return The checkpoint, or <tt>null</tt> if none.
+	 */
+	public Checkpoint getCheckpointBefore(int cycle) {
+		for(int i = checkpoints.size() - 1; i >= 0; i--) {
+			if(checkpoints.get(i).getCycle() <= cycle)
+				return checkpoints.get(i);
+		}
+		return null;
+	}
+
+	/**
+	 * Saves the state at the start of a cycle.
+	 * <p>The journals of the components must have been marked already. A
+	 * checkpoint is saved if it's the first state saved or if the cycle is a
+	 * multiple of the checkpoint interval. An existing checkpoint of that cycle
+	 * (kept after going back) is replaced, as the state may have been edited
+	 * since it was saved.</p>
+	 * @param cycle The number of cycles executed up to the current state.
+	 * @param statistics The statistics of the CPU at the current state
+	 * (only used if a checkpoint is saved).
+	 */
+	void saveCycle(int cycle, int[] statistics) {
+		if(components == null) return;
+		if(isCheckpointCycle(cycle)) {
+			int index = checkpoints.size();
+			while(index > 0 && checkpoints.get(index - 1).getCycle() > cycle)
+				index--;
+			if(index > 0 && checkpoints.get(index - 1).getCycle() == cycle)
+				checkpointsMemory -= checkpoints.remove(--index).memoryUsage;
+			int[][] states = new int[components.length][];
+			for(int i = 0; i < components.length; i++)
+				states[i] = components[i].saveCheckpoint();
+			Checkpoint checkpoint = new Checkpoint(cycle, states, statistics);
+			checkpoints.add(index, checkpoint);
+			checkpointsMemory += checkpoint.memoryUsage;
+		}
+		enforceBudget();
+	}
+
+	/**
+	 * Returns whether a checkpoint would be saved at the start of the given cycle.
+	 * @param cycle The number of cycles executed up to the current state.
+	 * @return <tt>True</tt> if <tt>saveCycle()</tt> will save a checkpoint.
+	 */
+	boolean isCheckpointCycle(int cycle) {
+		return components != null && (checkpoints.isEmpty() || cycle % checkpointInterval == 0);
+	}
+
+	/**
+	 * Restores the state of the components saved in the given checkpoint and
+	 * removes all the recorded cycles.
+	 * <p>The newer checkpoints are kept, as the same states are reached by
+	 * simulating forward. The outputs of the components are not updated.</p>
+	 * @param checkpoint The checkpoint to restore.
+	 */
+	void restoreCheckpoint(Checkpoint checkpoint) {
+		for(int i = 0; i < components.length; i++) {
+			components[i].getStateJournal().clear();
+			components[i].restoreCheckpoint(checkpoint.states[i]);
+		}
+		truncated = false;
+	}
+
+	/**
+	 * Discards the checkpoints saved after the given cycle (when the state is
+	 * modified and they become invalid).
+	 * @param cycle The current cycle.
+	 */
+	void discardCheckpointsAfter(int cycle) {
+		while(!checkpoints.isEmpty() && checkpoints.get(checkpoints.size() - 1).getCycle() > cycle)
+			checkpointsMemory -= checkpoints.remove(checkpoints.size() - 1).memoryUsage;
+	}
+
+	/**
+	 * Removes all the checkpoints (the journals are cleared by the components).
+	 */
+	void clear() {
+		checkpoints.clear();
+		checkpointsMemory = 0;
+		truncated = false;
+	}
+
+	/**
+	 * Discards the oldest history until the memory used is within the budget.
+	 * <p>The oldest recorded cycles are discarded first. If that's not enough,
+	 * every other checkpoint is discarded, doubling the distance between them.
+	 * The first and newest checkpoints and a few recent cycles are always
+	 * kept.</p>
+	 */
+	private void enforceBudget() {
+		if(components == null || components.length == 0) return;
+		long memory = getMemoryUsage();
+		while(memory > memoryBudget) {
+			int retained = getNumberOfRetainedCycles();
+			if(retained > MINIMUM_RETAINED_CYCLES) { // drop a batch of the oldest cycles
+				int count = Math.min(Math.max(retained / 8, 1), retained - MINIMUM_RETAINED_CYCLES);
+				for(Checkpointable c: components)
+					c.getStateJournal().dropOldest(count);
+				truncated = true;
+			}
+			else if(checkpoints.size() > 2) { // thin out the checkpoints
+				for(int i = checkpoints.size() - 2; i >= 1; i -= 2)
+					checkpointsMemory -= checkpoints.remove(i).memoryUsage;
+			}
+			else
+				break;
+			memory = getMemoryUsage();
+		}
+	}
+}
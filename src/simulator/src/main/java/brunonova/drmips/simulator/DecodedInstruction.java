@@ -0,0 +1,147 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+/**
+ * An assembled instruction decoded in the standard MIPS fields.
+ *
+ * <p>The instruction memory decodes each instruction once, when the program
+ * is loaded, so the fields don't have to be extracted from the machine code
+ * in every cycle. The fields are always extracted from the usual positions
+ * (<tt>op</tt> in bits 31-26, <tt>rs</tt> in 25-21, <tt>rt</tt> in 20-16,
+ * <tt>rd</tt> in 15-11, <tt>shamt</tt> in 10-6, <tt>funct</tt> in 5-0, the
+ * immediate in 15-0 and the jump target in 25-0), whatever the type of the
+ * instruction is, like the distributors of the included CPUs do.</p>
+ *
+ * @author Bruno Nova
+ */
+public final class DecodedInstruction {
+	/** The instruction in machine code. */
+	private final int word;
+	/** The respective instruction of the instruction set. */
+	private final Instruction instruction;
+	/** The fields of the instruction. */
+	private final int opcode, rs, rt, rd, shamt, funct, immediate, target;
+
+	/**
+	 * Decodes the given instruction.
+	 * @param word The instruction in machine code.
+	 * @param instruction The respective instruction of the instruction set.
+	 */
+	public DecodedInstruction(int word, Instruction instruction) {
+		this.word = word;
+		this.instruction = instruction;
+		opcode = word >>> 26;
+		rs = (word >>> 21) & 0x1f;
+		rt = (word >>> 16) & 0x1f;
+		rd = (word >>> 11) & 0x1f;
+		shamt = (word >>> 6) & 0x1f;
+		funct = word & 0x3f;
+		immediate = (short)word;
+		target = word & 0x3ffffff;
+	}
+
+	/**
+	 * Decodes the given assembled instruction.
+	 * @param instruction The assembled instruction.
+	 */
+	public DecodedInstruction(AssembledInstruction instruction) {
+		this(instruction.getData().getValue(), instruction.getInstruction());
+	}
+
+	/**
+	 * Returns the instruction in machine code.
+	 * @return The instruction in machine code.
+	 */
+	public int getWord() {
+		return word;
+	}
+
+	/**
+	 * Returns the respective instruction of the instruction set.
+	 * @return The respective instruction.
+	 */
+	public Instruction getInstruction() {
+		return instruction;
+	}
+
+	/**
+	 * Returns the opcode.
+	 * @return The value of bits 31-26.
+	 */
+	public int getOpcode() {
+		return opcode;
+	}
+
+	/**
+	 * Returns the first source register.
+	 * @return The value of bits 25-21.
+	 */
+	public int getRs() {
+		return rs;
+	}
+
+	/**
+	 * Returns the second source register (or the destination of I type instructions).
+	 * @return The value of bits 20-16.
+	 */
+	public int getRt() {
+		return rt;
+	}
+
+	/**
+	 * Returns the destination register.
+	 * @return The value of bits 15-11.
+	 */
+	public int getRd() {
+		return rd;
+	}
+
+	/**
+	 * Returns the shift amount.
+	 * @return The value of bits 10-6.
+	 */
+	public int getShamt() {
+		return shamt;
+	}
+
+	/**
+	 * Returns the function.
+	 * @return The value of bits 5-0.
+	 */
+	public int getFunct() {
+		return funct;
+	}
+
+	/**
+	 * Returns the immediate value, sign extended.
+	 * @return The value of bits 15-0, sign extended to 32 bits.
+	 */
+	public int getImmediate() {
+		return immediate;
+	}
+
+	/**
+	 * Returns the target of a jump.
+	 * @return The value of bits 25-0.
+	 */
+	public int getTarget() {
+		return target;
+	}
+}
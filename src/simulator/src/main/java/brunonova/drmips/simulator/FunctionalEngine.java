@@ -0,0 +1,527 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import brunonova.drmips.simulator.components.ALU;
+import brunonova.drmips.simulator.components.ALUControl;
+import brunonova.drmips.simulator.components.Add;
+import brunonova.drmips.simulator.components.And;
+import brunonova.drmips.simulator.components.Concatenator;
+import brunonova.drmips.simulator.components.Constant;
+import brunonova.drmips.simulator.components.ControlUnit;
+import brunonova.drmips.simulator.components.DataMemory;
+import brunonova.drmips.simulator.components.Distributor;
+import brunonova.drmips.simulator.components.ExtendedALU;
+import brunonova.drmips.simulator.components.Fork;
+import brunonova.drmips.simulator.components.InstructionMemory;
+import brunonova.drmips.simulator.components.Multiplexer;
+import brunonova.drmips.simulator.components.RegBank;
+import brunonova.drmips.simulator.components.ShiftLeft;
+import brunonova.drmips.simulator.components.SignExtend;
+import brunonova.drmips.simulator.util.PagedMemory;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Executes the program at the instruction level, without simulating the datapath.
+ *
+ * <p>The instructions in the instruction memory are decoded with the tables of
+ * the control unit and ALU control of the CPU's instruction set, and the
+ * architectural state (PC, register bank, data memory and the HI/LO registers
+ * of the extended ALU) is updated directly, without changing the values of the
+ * inputs and outputs of the components. The datapath is only updated at the
+ * end of the run.</p>
+ *
+ * <p>The engine assumes the classic unicycle datapath, where each control
+ * signal has its usual meaning. As such, it can't be created for pipelined
+ * CPUs, if the control unit has a signal it doesn't know or if the components
+ * aren't wired like in that datapath (see {@link #compile(CPU)}). Each
+ * executed instruction counts as a clock cycle.</p>
+ *
+ * @author Bruno Nova
+ */
+public final class FunctionalEngine {
+	/** The control signals understood by the engine. */
+	private static final Set<String> SIGNALS = new HashSet<>(Arrays.asList(
+		"RegDst", "RegWrite", "ALUOp", "ALUSrc", "MemToReg", "MemRead", "MemWrite", "Branch", "Jump"));
+	/** The control signals that the control unit must have (<tt>Branch</tt> and <tt>Jump</tt> are optional). */
+	private static final Set<String> REQUIRED_SIGNALS = new HashSet<>(Arrays.asList(
+		"RegDst", "RegWrite", "ALUOp", "ALUSrc", "MemToReg", "MemRead", "MemWrite"));
+	/** Flag of the <tt>RegDst</tt> signal (write to <tt>rd</tt> instead of <tt>rt</tt>). */
+	private static final int REG_DST = 1;
+	/** Flag of the <tt>RegWrite</tt> signal. */
+	private static final int REG_WRITE = 1 << 1;
+	/** Flag of the <tt>ALUSrc</tt> signal (second operand is the immediate value). */
+	private static final int ALU_SRC = 1 << 2;
+	/** Flag of the <tt>MemToReg</tt> signal. */
+	private static final int MEM_TO_REG = 1 << 3;
+	/** Flag of the <tt>MemRead</tt> signal. */
+	private static final int MEM_READ = 1 << 4;
+	/** Flag of the <tt>MemWrite</tt> signal. */
+	private static final int MEM_WRITE = 1 << 5;
+	/** Flag of the <tt>Branch</tt> signal. */
+	private static final int BRANCH = 1 << 6;
+	/** Flag of the <tt>Jump</tt> signal. */
+	private static final int JUMP = 1 << 7;
+	/** Size of an instruction/memory position, in bytes. */
+	private static final int WORD_SIZE = Data.DATA_SIZE / 8;
+
+	/** The CPU. */
+	private final CPU cpu;
+	/** The control unit's table. */
+	private final Control control;
+	/** The ALU control's table. */
+	private final ControlALU controlALU;
+	/** The identifier of the ALU control's output connected to the ALU. */
+	private final String operationId;
+
+	/**
+	 * Creates the engine for the given CPU.
+	 * @param cpu The CPU.
+	 * @param operationId The identifier of the ALU control's output connected to the ALU.
+	 */
+	private FunctionalEngine(CPU cpu, String operationId) {
+		this.cpu = cpu;
+		this.operationId = operationId;
+		control = cpu.getInstructionSet().getControl();
+		controlALU = cpu.getInstructionSet().getControlALU();
+	}
+
+	/**
+	 * Creates the functional engine for the given CPU, if possible.
+	 * @param cpu The CPU (already loaded).
+	 * @return The engine, or <tt>null</tt> if the CPU isn't supported (it is
+	 * pipelined, its control unit has unknown signals or its datapath isn't
+	 * wired like the unicycle datapath).
+	 */
+	public static FunctionalEngine compile(CPU cpu) {
+		if(cpu.isPipeline() || !cpu.hasALU() || !cpu.hasALUControl() || !cpu.hasDataMemory())
+			return null;
+		Set<String> signals = cpu.getInstructionSet().getControl().getOutputsIds();
+		if(!SIGNALS.containsAll(signals) || !signals.containsAll(REQUIRED_SIGNALS))
+			return null;
+		Input aluControl = cpu.getALU().getControl();
+		if(!aluControl.isConnected() || !(aluControl.getConnectedOutput().getComponent() instanceof ALUControl))
+			return null;
+		if(!isUnicycleDatapath(cpu, signals))
+			return null;
+		return new FunctionalEngine(cpu, aluControl.getConnectedOutput().getId());
+	}
+
+	/**
+	 * Returns whether the components of the CPU are wired like in the unicycle
+	 * datapath assumed by {@link #run(RunOptions, int)}.
+	 * <p>Forks and distributors that pass the whole value are ignored.</p>
+	 * @param cpu The CPU.
+	 * @param signals The identifiers of the control unit's signals.
+	 * @return <tt>true</tt> if the datapath is supported.
+	 */
+	private static boolean isUnicycleDatapath(CPU cpu, Set<String> signals) {
+		ControlUnit control = cpu.getControlUnit();
+		ALUControl aluControl = (ALUControl)cpu.getALU().getControl().getConnectedOutput().getComponent();
+		ALU alu = cpu.getALU();
+		RegBank regbank = cpu.getRegBank();
+		DataMemory dataMem = cpu.getDataMemory();
+		if(control == null || regbank == null || cpu.getInstructionMemory() == null || cpu.getPC() == null)
+			return false;
+
+		// Decoding
+		if(!isField(cpu, control.getInput(), 31, 26)
+			|| !isSignal(aluControl.getALUOp(), "ALUOp") || !isField(cpu, aluControl.getFunc(), 5, 0))
+			return false;
+
+		// Register bank
+		Output[] writeReg = selected(regbank.getWriteReg(), "RegDst");
+		Output[] writeData = selected(regbank.getWriteData(), "MemToReg");
+		if(!isField(cpu, regbank.getReadReg1(), 25, 21) || !isField(cpu, regbank.getReadReg2(), 20, 16)
+			|| writeReg == null || !isField(cpu, writeReg[0], 20, 16) || !isField(cpu, writeReg[1], 15, 11)
+			|| writeData == null || writeData[0] != alu.getOutput() || writeData[1] != dataMem.getOutput()
+			|| !isSignal(regbank.getRegWrite(), "RegWrite"))
+			return false;
+
+		// ALU and data memory
+		Output[] operand = selected(alu.getInput2(), "ALUSrc");
+		if(source(alu.getInput1()) != regbank.getReadData1()
+			|| operand == null || operand[0] != regbank.getReadData2() || !isImmediate(cpu, operand[1])
+			|| source(dataMem.getAddress()) != alu.getOutput()
+			|| source(dataMem.getWriteData()) != regbank.getReadData2()
+			|| !isSignal(dataMem.getMemRead(), "MemRead") || !isSignal(dataMem.getMemWrite(), "MemWrite"))
+			return false;
+
+		// Next PC
+		Output next = source(cpu.getPC().getInput());
+		Concatenator jump = null;
+		if(signals.contains("Jump")) {
+			Output[] targets = selected(cpu.getPC().getInput(), "Jump");
+			if(targets == null || targets[1] == null || !(targets[1].getComponent() instanceof Concatenator))
+				return false;
+			next = targets[0];
+			jump = (Concatenator)targets[1].getComponent();
+		}
+		if(signals.contains("Branch"))
+			next = branchNotTaken(cpu, next);
+		return isPCPlus4(cpu, next) && (jump == null || isJumpTarget(cpu, jump, next));
+	}
+
+	/**
+	 * Returns the output whose value reaches the given input, skipping forks and
+	 * distributors that pass the whole value.
+	 * @param in The input.
+	 * @return The output, or <tt>null</tt> if the input isn't connected.
+	 */
+	private static Output source(Input in) {
+		Output out = in.isConnected() ? in.getConnectedOutput() : null;
+		while(out != null) {
+			Component component = out.getComponent();
+			Input previous;
+			if(component instanceof Fork)
+				previous = ((Fork)component).getInput();
+			else if(component instanceof Distributor && ((Distributor)component).getOutputLSB(out) == 0
+				&& ((Distributor)component).getOutputMSB(out) == ((Distributor)component).getInput().getSize() - 1)
+				previous = ((Distributor)component).getInput();
+			else
+				break;
+			out = previous.isConnected() ? previous.getConnectedOutput() : null;
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the bits of the instruction that are in the given output.
+	 * @param cpu The CPU.
+	 * @param out The output (can be <tt>null</tt>).
+	 * @return The most and less significant bits, or <tt>null</tt> if the
+	 * output doesn't come from the instruction.
+	 */
+	private static int[] instructionBits(CPU cpu, Output out) {
+		if(out == null)
+			return null;
+		if(out == cpu.getInstructionMemory().getOutput())
+			return new int[] {out.getSize() - 1, 0};
+		if(out.getComponent() instanceof Distributor) {
+			Distributor distributor = (Distributor)out.getComponent();
+			int[] bits = instructionBits(cpu, source(distributor.getInput()));
+			if(bits != null)
+				return new int[] {bits[1] + distributor.getOutputMSB(out), bits[1] + distributor.getOutputLSB(out)};
+		}
+		return null;
+	}
+
+	/**
+	 * Returns whether the given output has the specified field of the instruction.
+	 * @param cpu The CPU.
+	 * @param out The output (can be <tt>null</tt>).
+	 * @param msb The most significant bit of the field.
+	 * @param lsb The less significant bit of the field.
+	 * @return <tt>true</tt> if it has the field.
+	 */
+	private static boolean isField(CPU cpu, Output out, int msb, int lsb) {
+		int[] bits = instructionBits(cpu, out);
+		return bits != null && bits[0] == msb && bits[1] == lsb;
+	}
+
+	/**
+	 * Returns whether the given input receives the specified field of the instruction.
+	 * @param cpu The CPU.
+	 * @param in The input.
+	 * @param msb The most significant bit of the field.
+	 * @param lsb The less significant bit of the field.
+	 * @return <tt>true</tt> if it receives the field.
+	 */
+	private static boolean isField(CPU cpu, Input in, int msb, int lsb) {
+		return isField(cpu, source(in), msb, lsb);
+	}
+
+	/**
+	 * Returns whether the given input receives the specified control signal.
+	 * @param in The input.
+	 * @param signal The identifier of the control unit's output.
+	 * @return <tt>true</tt> if it receives the signal.
+	 */
+	private static boolean isSignal(Input in, String signal) {
+		Output out = source(in);
+		return out != null && out.getComponent() instanceof ControlUnit && out.getId().equals(signal);
+	}
+
+	/**
+	 * Returns the outputs that reach the given input through a 2-input
+	 * multiplexer selected by the specified control signal.
+	 * @param in The input.
+	 * @param signal The identifier of the control unit's output.
+	 * @return The outputs selected by 0 and 1, or <tt>null</tt> if there
+	 * isn't such a multiplexer.
+	 */
+	private static Output[] selected(Input in, String signal) {
+		Output out = source(in);
+		if(out == null || !(out.getComponent() instanceof Multiplexer))
+			return null;
+		Multiplexer mux = (Multiplexer)out.getComponent();
+		if(mux.getNumberOfInputs() != 2 || !isSignal(mux.getSelector(), signal))
+			return null;
+		return new Output[] {source(mux.getInput(0)), source(mux.getInput(1))};
+	}
+
+	/**
+	 * Returns whether the given output has the sign extended immediate field of the instruction.
+	 * @param cpu The CPU.
+	 * @param out The output (can be <tt>null</tt>).
+	 * @return <tt>true</tt> if it has the immediate value.
+	 */
+	private static boolean isImmediate(CPU cpu, Output out) {
+		return out != null && out.getComponent() instanceof SignExtend
+			&& isField(cpu, ((SignExtend)out.getComponent()).getInput(), 15, 0);
+	}
+
+	/**
+	 * Returns whether the given output has the immediate value shifted 2 bits to the left.
+	 * @param cpu The CPU.
+	 * @param out The output (can be <tt>null</tt>).
+	 * @return <tt>true</tt> if it has the branch offset.
+	 */
+	private static boolean isBranchOffset(CPU cpu, Output out) {
+		if(out == null || !(out.getComponent() instanceof ShiftLeft))
+			return false;
+		ShiftLeft shift = (ShiftLeft)out.getComponent();
+		return shift.getAmount() == 2 && isImmediate(cpu, source(shift.getInput()));
+	}
+
+	/**
+	 * Returns whether the given output has the value of a constant.
+	 * @param out The output (can be <tt>null</tt>).
+	 * @param value The expected value.
+	 * @return <tt>true</tt> if it is a constant with that value.
+	 */
+	private static boolean isConstant(Output out, int value) {
+		return out != null && out.getComponent() instanceof Constant
+			&& ((Constant)out.getComponent()).getValue() == value;
+	}
+
+	/**
+	 * Returns whether the given output has the address of the next instruction (PC + 4).
+	 * @param cpu The CPU.
+	 * @param out The output (can be <tt>null</tt>).
+	 * @return <tt>true</tt> if it has PC + 4.
+	 */
+	private static boolean isPCPlus4(CPU cpu, Output out) {
+		if(out == null || !(out.getComponent() instanceof Add))
+			return false;
+		Add add = (Add)out.getComponent();
+		Output pc = cpu.getPC().getOutput();
+		Output in1 = source(add.getInput1()), in2 = source(add.getInput2());
+		return (in1 == pc && isConstant(in2, WORD_SIZE)) || (in2 == pc && isConstant(in1, WORD_SIZE));
+	}
+
+	/**
+	 * Returns the address used when a branch isn't taken, if the given output
+	 * is the branch multiplexer.
+	 * <p>The multiplexer must be selected by <tt>Branch AND Zero</tt> and
+	 * choose between that address and itself plus the branch offset.</p>
+	 * @param cpu The CPU.
+	 * @param out The output (can be <tt>null</tt>).
+	 * @return The output with the address, or <tt>null</tt> if the branch isn't wired as expected.
+	 */
+	private static Output branchNotTaken(CPU cpu, Output out) {
+		if(out == null || !(out.getComponent() instanceof Multiplexer))
+			return null;
+		Multiplexer mux = (Multiplexer)out.getComponent();
+		Output condition = source(mux.getSelector());
+		if(mux.getNumberOfInputs() != 2 || condition == null || !(condition.getComponent() instanceof And))
+			return null;
+		And and = (And)condition.getComponent();
+		Output zero = cpu.getALU().getZero();
+		if(!(isSignal(and.getInput1(), "Branch") && source(and.getInput2()) == zero)
+			&& !(isSignal(and.getInput2(), "Branch") && source(and.getInput1()) == zero))
+			return null;
+
+		Output next = source(mux.getInput(0)), target = source(mux.getInput(1));
+		if(next == null || target == null || !(target.getComponent() instanceof Add))
+			return null;
+		Add add = (Add)target.getComponent();
+		Output in1 = source(add.getInput1()), in2 = source(add.getInput2());
+		if((in1 == next && isBranchOffset(cpu, in2)) || (in2 == next && isBranchOffset(cpu, in1)))
+			return next;
+		else
+			return null;
+	}
+
+	/**
+	 * Returns whether the given concatenator calculates the jump address from
+	 * the 4 most significant bits of PC + 4 and the target field of the instruction.
+	 * @param cpu The CPU.
+	 * @param concat The concatenator.
+	 * @param pc4 The output with PC + 4.
+	 * @return <tt>true</tt> if it calculates the jump address.
+	 */
+	private static boolean isJumpTarget(CPU cpu, Concatenator concat, Output pc4) {
+		Output high = source(concat.getInput1()), low = source(concat.getInput2());
+		if(high == null || !(high.getComponent() instanceof Distributor)
+			|| low == null || !(low.getComponent() instanceof ShiftLeft))
+			return false;
+		Distributor distributor = (Distributor)high.getComponent();
+		ShiftLeft shift = (ShiftLeft)low.getComponent();
+		return source(distributor.getInput()) == pc4
+			&& distributor.getOutputMSB(high) == 31 && distributor.getOutputLSB(high) == 28
+			&& shift.getAmount() == 2 && concat.getInput2().getSize() == 28
+			&& isField(cpu, shift.getInput(), 25, 0);
+	}
+
+	/**
+	 * Executes the program loaded in the CPU, starting at the current PC.
+	 * <p>The run stops for the same reasons as {@link CPU#executeAll(RunOptions)}.
+	 * The PC, register bank and data memory are only updated at the end of the
+	 * run, so the progress listener doesn't see their new values. The rest of
+	 * the datapath must be updated by the caller.</p>
+	 * @param options The options and limits of the run.
+	 * @param breakpointAddr The address of the breakpoint (-1 if none).
+	 * @return Why the execution stopped.
+	 */
+	RunResult run(RunOptions options, int breakpointAddr) {
+		long start = System.nanoTime();
+		long maxCycles = options.getMaxCycles();
+		long deadline = options.getMaxTime() > 0 ? start + options.getMaxTime() * 1000000L : 0;
+		CancellationToken token = options.getCancellationToken();
+		RunOptions.ProgressListener listener = options.getProgressListener();
+		int interval = options.getProgressInterval();
+		RunResult.Reason reason = RunResult.Reason.FINISHED;
+		long cycles = 0;
+
+		// Decode the instructions
+		InstructionMemory instMem = cpu.getInstructionMemory();
+		int n = instMem.getNumberOfInstructions();
+		int[] words = new int[n];
+		int[] flags = new int[n];
+		ControlALU.Operation[] operations = new ControlALU.Operation[n];
+		for(int i = 0; i < n; i++) {
+			DecodedInstruction decoded = instMem.getDecodedInstruction(i); // decoded when the program was loaded
+			int word = decoded.getWord();
+			int opcode = decoded.getOpcode();
+			int f = 0;
+			if(control.getOutOfOpcode(opcode, "RegDst") == 1) f |= REG_DST;
+			if(control.getOutOfOpcode(opcode, "RegWrite") == 1) f |= REG_WRITE;
+			if(control.getOutOfOpcode(opcode, "ALUSrc") == 1) f |= ALU_SRC;
+			if(control.getOutOfOpcode(opcode, "MemToReg") == 1) f |= MEM_TO_REG;
+			if(control.getOutOfOpcode(opcode, "MemRead") == 1) f |= MEM_READ;
+			if(control.getOutOfOpcode(opcode, "MemWrite") == 1) f |= MEM_WRITE;
+			if(control.getOutOfOpcode(opcode, "Branch") == 1) f |= BRANCH;
+			if(control.getOutOfOpcode(opcode, "Jump") == 1) f |= JUMP;
+			int aluOp = control.getOutOfOpcode(opcode, "ALUOp");
+			words[i] = word;
+			flags[i] = f;
+			operations[i] = controlALU.getOperation(controlALU.getControlValue(aluOp, decoded.getFunct(), operationId));
+		}
+
+		// Copy the architectural state
+		RegBank regbank = cpu.getRegBank();
+		int numRegs = regbank.getNumberOfRegisters();
+		int[] regs = new int[numRegs];
+		boolean[] constant = new boolean[numRegs];
+		for(int i = 0; i < numRegs; i++) {
+			regs[i] = regbank.getRegister(i).getValue();
+			constant[i] = regbank.isRegisterConstant(i);
+		}
+		DataMemory dataMem = cpu.getDataMemory();
+		PagedMemory pages = dataMem.copyPagedMemory(); // sparse copy of a paged memory
+		int memSize = pages != null ? 0 : dataMem.getMemorySize();
+		int[] mem = new int[memSize];
+		for(int i = 0; i < memSize; i++)
+			mem[i] = dataMem.getDataInIndex(i);
+		ALU alu = cpu.getALU();
+		ExtendedALU extAlu = (alu instanceof ExtendedALU) ? (ExtendedALU)alu : null;
+		int pc = cpu.getPC().getAddress().getValue();
+
+		// Execute
+		int index;
+		while((index = pc / WORD_SIZE) >= 0 && index < n) {
+			if((cycles & 0x3ff) == 0) {
+				if(token != null && token.isCancelled()) {
+					reason = RunResult.Reason.CANCELLED;
+					break;
+				}
+				if(deadline != 0 && System.nanoTime() - deadline > 0) {
+					reason = RunResult.Reason.BUDGET;
+					break;
+				}
+			}
+			if(cycles >= maxCycles) {
+				reason = RunResult.Reason.BUDGET; // possible infinite loop
+				break;
+			}
+
+			int word = words[index];
+			int f = flags[index];
+			ControlALU.Operation op = operations[index];
+			int rt = (word >>> 16) & 0x1f;
+			int imm = (short)word;
+			int val1 = regs[(word >>> 21) & 0x1f];
+			int val2 = regs[rt];
+			int result = controlALU.doOperation(val1, (f & ALU_SRC) != 0 ? imm : val2, alu, op);
+
+			// Synchronous actions
+			if((f & REG_WRITE) != 0) {
+				int reg = (f & REG_DST) != 0 ? (word >>> 11) & 0x1f : rt;
+				if(!constant[reg]) {
+					int memIndex = dataMem.getIndexOfAddress(result);
+					regs[reg] = (f & MEM_TO_REG) == 0 ? result
+						: ((f & MEM_READ) != 0 && memIndex >= 0 ? (pages != null ? pages.get(memIndex) : mem[memIndex]) : 0);
+				}
+			}
+			if((f & MEM_WRITE) != 0) {
+				int memIndex = dataMem.getIndexOfAddress(result);
+				if(pages != null)
+					pages.set(memIndex, val2);
+				else if(memIndex >= 0)
+					mem[memIndex] = val2;
+			}
+			if(extAlu != null && (op == ControlALU.Operation.MULT || op == ControlALU.Operation.DIV))
+				controlALU.doSynchronousOperation(val1, (f & ALU_SRC) != 0 ? imm : val2, extAlu, op);
+			pc += WORD_SIZE;
+			if((f & JUMP) != 0)
+				pc = (pc & 0xf0000000) | ((word & 0x3ffffff) << 2);
+			else if((f & BRANCH) != 0 && result == 0)
+				pc += imm << 2;
+
+			cycles++;
+			if(listener != null && cycles % interval == 0)
+				listener.onProgress(cpu, cycles);
+
+			// check if we have hit the breakpoint
+			if(pc == breakpointAddr) {
+				index = pc / WORD_SIZE;
+				reason = (index >= 0 && index < n) ? RunResult.Reason.BREAKPOINT : RunResult.Reason.FINISHED;
+				break;
+			}
+		}
+
+		// Write back the architectural state
+		for(int i = 0; i < numRegs; i++)
+			regbank.setRegister(i, regs[i], false);
+		for(int i = 0; i < memSize; i++)
+			dataMem.setDataInIndex(i, mem[i], false);
+		if(pages != null) {
+			for(int page: pages.getPages()) {
+				for(int i = page * PagedMemory.PAGE_SIZE, end = i + PagedMemory.PAGE_SIZE; i < end; i++)
+					dataMem.setDataInIndex(i, pages.get(i), false);
+			}
+		}
+		cpu.setPCAddress(pc);
+
+		return new RunResult(reason, cycles, (System.nanoTime() - start) / 1000000L);
+	}
+}
@@ -47,6 +47,10 @@ public abstract class IOPort {
 	private boolean inControlPath = false;
 	/** Whether a balloon tip with the value of the input/output should be displayed. */
 	private boolean showTip = false;
+	/** The table with the value of the wire, if connected in a CPU. */
+	private SignalTable signals = null;
+	/** The slot of the wire in the table of signals. */
+	private int slot = -1;
 
 	/**
 	 * Creates an input/output with the given parameters.
@@ -94,23 +98,54 @@ public abstract class IOPort {
 	 * @return The data of this input/output
 	 */
 	public Data getData() {
+		if(signals != null) // refresh the value from the wire
+			data.setValue(signals.getValue(slot));
 		return data;
 	}
 
 	/**
-	 * Simply returns <tt>getData().getValue()</tt>.
+	 * Returns the value of the data (or of the wire, if connected in a CPU).
 	 * @return Value of the data.
 	 */
 	public int getValue() {
-		return data.getValue();
+		return signals != null ? signals.getValue(slot) : data.getValue();
 	}
 
 	/**
-	 * Simply calls <tt>getData().setValue(value)</tt>.
+	 * Updates the value of the data (or of the wire, if connected in a CPU).
 	 * @param value New value.
 	 */
 	public void setValue(int value) {
-		data.setValue(value);
+		if(signals != null)
+			signals.setValue(slot, value);
+		else
+			data.setValue(value);
+	}
+
+	/**
+	 * Returns whether the value is stored in a table of signals (shared with the connected input/output).
+	 * @return <tt>True</tt> if the value is in a slot of a table of signals.
+	 */
+	public final boolean hasSignalSlot() {
+		return signals != null;
+	}
+
+	/**
+	 * Returns the slot of the wire in the table of signals.
+	 * @return The index of the slot, or -1 if none.
+	 */
+	public final int getSignalSlot() {
+		return slot;
+	}
+
+	/**
+	 * Stores the value of the input/output in the given slot of a table of signals.
+	 * @param signals The table of signals.
+	 * @param slot The index of the slot of the wire.
+	 */
+	final void setSignalSlot(SignalTable signals, int slot) {
+		this.signals = signals;
+		this.slot = slot;
 	}
 
 	/**
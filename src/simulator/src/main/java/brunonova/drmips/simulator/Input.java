@@ -124,7 +124,7 @@ public final class Input extends IOPort {
 		int oldValue = getValue();
 		super.setValue(value);
 		if(getValue() != oldValue)
-			getComponent().execute(); // input changed, so execute the component's normal action
+			getComponent().inputChanged(); // input changed, so execute the component's normal action
 	}
 	
 	/**
@@ -132,6 +132,7 @@ public final class Input extends IOPort {
 	 * @return Input's accumulated latency.
 	 */
 	public int getAccumulatedLatency() {
+		getComponent().updatePerformance();
 		return accumulatedLatency;
 	}
 	
@@ -154,6 +155,14 @@ public final class Input extends IOPort {
 		setAccumulatedLatency(latency, true);
 	}
 	
+	/**
+	 * Sets the input's accumulated latency, without propagating it (restored from a cache).
+	 * @param latency The accumulated latency.
+	 */
+	final void restoreAccumulatedLatency(int latency) {
+		accumulatedLatency = latency;
+	}
+
 	/**
 	 * Returns whether this input changes the respective component's accumulated latency.
 	 * @return <tt>True</tt> if the input can change the component's accumulated latency.
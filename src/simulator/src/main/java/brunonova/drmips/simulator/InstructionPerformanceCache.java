@@ -0,0 +1,230 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the instruction dependent latencies and critical path of a CPU.
+ *
+ * <p>In the instruction dependent performance mode, the latencies and the
+ * critical path depend only on the inputs used in the latency calculations
+ * (like the selected input of the multiplexers) and on the synchronous
+ * components that are writing their state. Those are given by the values of
+ * a few control inputs (see {@link Component#getLatencySelectorInputs()}),
+ * and not by the data. The results are saved for each combination of those
+ * values, so that the instructions executed repeatedly (like in loops)
+ * don't need to be recalculated.</p>
+ *
+ * <p>The cache can't be created if a component doesn't indicate the inputs
+ * that select its latency inputs. It must be cleared when the latencies of
+ * the components change.</p>
+ *
+ * @author Bruno Nova
+ */
+public final class InstructionPerformanceCache {
+	/** The default maximum number of cached results. */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	/** A combination of the values of the selector inputs. */
+	private static final class Key {
+		/** The values of the selector inputs. */
+		private final int[] values;
+		/** The hash code of the values. */
+		private final int hash;
+
+		/**
+		 * Constructor.
+		 * @param values The values of the selector inputs.
+		 */
+		private Key(int[] values) {
+			this.values = values;
+			this.hash = Arrays.hashCode(values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && Arrays.equals(values, ((Key)obj).values);
+		}
+	}
+
+	/** The latencies and critical path calculated for a combination of the selector inputs. */
+	private static final class Result {
+		/** The accumulated latencies of the components, followed by those of their inputs. */
+		private final int[] latencies;
+		/** Whether each output is in the critical path. */
+		private final boolean[] critical;
+
+		/**
+		 * Constructor.
+		 * @param latencies The accumulated latencies.
+		 * @param critical Whether each output is in the critical path.
+		 */
+		private Result(int[] latencies, boolean[] critical) {
+			this.latencies = latencies;
+			this.critical = critical;
+		}
+	}
+
+	/** The components of the CPU. */
+	private final Component[] components;
+	/** The inputs of all the components. */
+	private final Input[] inputs;
+	/** The outputs of all the components. */
+	private final Output[] outputs;
+	/** The inputs whose values select the inputs used in the latency calculations. */
+	private final Input[] selectors;
+	/** The cached results, in least recently used order. */
+	private final Map<Key, Result> results;
+	/** The key of the last result not found in the cache (to be saved by <tt>store()</tt>). */
+	private Key missedKey = null;
+	/** The number of results found in the cache. */
+	private long hits = 0;
+	/** The number of results not found in the cache. */
+	private long misses = 0;
+
+	/**
+	 * Creates the cache.
+	 * @param components The components of the CPU.
+	 * @param selectors The inputs whose values select the inputs used in the latency calculations.
+	 * @param capacity The maximum number of cached results.
+	 */
+	private InstructionPerformanceCache(Component[] components, Input[] selectors, final int capacity) {
+		this.components = components;
+		this.selectors = selectors;
+		List<Input> ins = new ArrayList<>();
+		List<Output> outs = new ArrayList<>();
+		for(Component c: components) {
+			ins.addAll(c.getInputs());
+			outs.addAll(c.getOutputs());
+		}
+		inputs = ins.toArray(new Input[ins.size()]);
+		outputs = outs.toArray(new Output[outs.size()]);
+		results = new LinkedHashMap<Key, Result>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Creates the cache for the given components.
+	 * @param components The components of the CPU.
+	 * @return The cache, or <tt>null</tt> if a component doesn't indicate
+	 * the inputs that select its latency inputs.
+	 */
+	public static InstructionPerformanceCache create(Component[] components) {
+		List<Input> selectors = new ArrayList<>();
+		for(Component c: components) {
+			List<Input> sel = c.getLatencySelectorInputs();
+			if(sel == null) return null;
+			selectors.addAll(sel);
+		}
+		return new InstructionPerformanceCache(components, selectors.toArray(new Input[selectors.size()]), DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Restores the latencies and critical path of the current instruction, if cached.
+	 * <p>If not cached, they must be calculated and then saved with <tt>store()</tt>.</p>
+	 * @return <tt>True</tt> if the result was found and restored.
+	 */
+	boolean restore() {
+		int[] values = new int[selectors.length];
+		for(int i = 0; i < selectors.length; i++)
+			values[i] = selectors[i].getValue();
+		Key key = new Key(values);
+		Result result = results.get(key);
+		if(result == null) {
+			missedKey = key;
+			misses++;
+			return false;
+		}
+
+		missedKey = null;
+		hits++;
+		int[] latencies = result.latencies;
+		for(int i = 0; i < components.length; i++)
+			components[i].restoreAccumulatedLatency(latencies[i]);
+		for(int i = 0; i < inputs.length; i++)
+			inputs[i].restoreAccumulatedLatency(latencies[components.length + i]);
+		for(int i = 0; i < outputs.length; i++)
+			outputs[i].setInCriticalPath(result.critical[i]);
+		return true;
+	}
+
+	/**
+	 * Saves the latencies and critical path just calculated for the
+	 * instruction not found by the last call to <tt>restore()</tt>.
+	 */
+	void store() {
+		if(missedKey == null) return;
+		int[] latencies = new int[components.length + inputs.length];
+		for(int i = 0; i < components.length; i++)
+			latencies[i] = components[i].getAccumulatedLatency();
+		for(int i = 0; i < inputs.length; i++)
+			latencies[components.length + i] = inputs[i].getAccumulatedLatency();
+		boolean[] critical = new boolean[outputs.length];
+		for(int i = 0; i < outputs.length; i++)
+			critical[i] = outputs[i].isInCriticalPath();
+		results.put(missedKey, new Result(latencies, critical));
+		missedKey = null;
+	}
+
+	/**
+	 * Removes all the cached results (when the latencies of the components change).
+	 */
+	public void clear() {
+		results.clear();
+		missedKey = null;
+	}
+
+	/**
+	 * Returns the number of cached results.
+	 * @return The number of combinations of the selector inputs cached.
+	 */
+	public int getSize() {
+		return results.size();
+	}
+
+	/**
+	 * Returns the number of times the result was found in the cache.
+	 * @return Number of hits.
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of times the result had to be calculated.
+	 * @return Number of misses.
+	 */
+	public long getMisses() {
+		return misses;
+	}
+}
@@ -19,11 +19,13 @@
 package brunonova.drmips.simulator;
 
 import brunonova.drmips.simulator.exceptions.InvalidInstructionSetException;
-import java.io.BufferedReader;
+import brunonova.drmips.simulator.util.JSONStreamReader;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -47,6 +49,8 @@ public class InstructionSet {
 	private final Map<String, Instruction> instructions;
 	/** The available pseudo-instructions. */
 	private final Map<String, PseudoInstruction> pseudoInstructions;
+	/** Hash table of the instructions and pseudo-instructions, for fast lookups by the assembler. */
+	private final Map<String, AbstractInstruction> mnemonics = new HashMap<>();
 	/** How the control unit should work. */
 	private Control control = null;
 	/** How the ALU Control and ALU should work. */
@@ -69,6 +73,22 @@ public class InstructionSet {
 		parseFile(path);
 	}
 
+	/**
+	 * Creates an instruction set from the parsed contents of a JSON file.
+	 * @param json The parsed contents of the file.
+	 * @throws JSONException If the JSON file is malformed.
+	 * @throws InvalidInstructionSetException If the instruction set is invalid.
+	 * @throws ArrayIndexOutOfBoundsException If an array index is invalid somewhere.
+	 * @throws NumberFormatException If an opcode is not a number.
+	 */
+	InstructionSet(JSONObject json) throws JSONException, InvalidInstructionSetException, ArrayIndexOutOfBoundsException, NumberFormatException {
+		types = new ArrayList<>();
+		instructions = new TreeMap<>();
+		pseudoInstructions = new TreeMap<>();
+		control = new Control();
+		parse(json);
+	}
+
 	/**
 	 * Adds an instruction type.
 	 * <p>All the type's fields should be defined before adding it.</p>.
@@ -136,6 +156,7 @@ public class InstructionSet {
 		if(hasInstructionOrPseudoInstruction(mnemonic)) throw new InvalidInstructionSetException("Duplicated mnemonic " + mnemonic + "!");
 		Instruction i = new Instruction(mnemonic, getType(type));
 		instructions.put(mnemonic, i);
+		mnemonics.put(mnemonic, i);
 		return i;
 	}
 	
@@ -145,7 +166,8 @@ public class InstructionSet {
 	 * @return The desired instruction, or <tt>null</tt> if it doesn't exist.
 	 */
 	public Instruction getInstruction(String mnemonic) {
-		return instructions.get(mnemonic.toLowerCase());
+		AbstractInstruction i = lookup(mnemonic);
+		return i instanceof Instruction ? (Instruction)i : null;
 	}
 	
 	/**
@@ -154,7 +176,7 @@ public class InstructionSet {
 	 * @return <tt>True</tt> if the instruction exists.
 	 */
 	public boolean hasInstruction(String mnemonic) {
-		return instructions.containsKey(mnemonic.toLowerCase());
+		return lookup(mnemonic) instanceof Instruction;
 	}
 	
 	/**
@@ -163,7 +185,8 @@ public class InstructionSet {
 	 * @return The desired pseudo-instruction, or <tt>null</tt> if it doesn't exist.
 	 */
 	public PseudoInstruction getPseudoInstruction(String mnemonic) {
-		return pseudoInstructions.get(mnemonic.toLowerCase());
+		AbstractInstruction i = lookup(mnemonic);
+		return i instanceof PseudoInstruction ? (PseudoInstruction)i : null;
 	}
 	
 	/**
@@ -172,7 +195,7 @@ public class InstructionSet {
 	 * @return <tt>True</tt> if the pseudo-instruction exists.
 	 */
 	public boolean hasPseudoInstruction(String mnemonic) {
-		return pseudoInstructions.containsKey(mnemonic.toLowerCase());
+		return lookup(mnemonic) instanceof PseudoInstruction;
 	}
 	
 	/**
@@ -181,7 +204,19 @@ public class InstructionSet {
 	 * @return <tt>True</tt> if the instruction or pseudo-instruction exists.
 	 */
 	public boolean hasInstructionOrPseudoInstruction(String mnemonic) {
-		return hasInstruction(mnemonic) || hasPseudoInstruction(mnemonic);
+		return lookup(mnemonic) != null;
+	}
+
+	/**
+	 * Returns the instruction or pseudo-instruction with the specified mnemonic.
+	 * <p>The mnemonic is only converted to lower case if it isn't found as is,
+	 * which is usually the case.</p>
+	 * @param mnemonic Mnemonic of the instruction or pseudo-instruction.
+	 * @return The instruction or pseudo-instruction, or <tt>null</tt> if it doesn't exist.
+	 */
+	private AbstractInstruction lookup(String mnemonic) {
+		AbstractInstruction i = mnemonics.get(mnemonic);
+		return i != null ? i : mnemonics.get(mnemonic.toLowerCase());
 	}
 	
 	/**
@@ -227,24 +262,32 @@ public class InstructionSet {
 	 * @throws ArrayIndexOutOfBoundsException If an array index is invalid somewhere.
 	 */
 	private void parseFile(String path) throws IOException, JSONException, InvalidInstructionSetException, ArrayIndexOutOfBoundsException {
-		BufferedReader reader = null;
-		String file = "", line;
+		parse(readFile(new File(path)));
+	}
 
-		// Read file to String
-		try {
-			reader = new BufferedReader(new InputStreamReader(new FileInputStream(path), "UTF8"));
-			while((line = reader.readLine()) != null) 
-				file += line + "\n";
-			reader.close();
-		}
-		catch(IOException e) {
-			throw e;
-		}
-		finally {
-			if(reader != null) reader.close();
+	/**
+	 * Reads and parses the specified JSON file, in a single pass.
+	 * @param file The file to read.
+	 * @return The contents of the file.
+	 * @throws IOException If the file doesn't exist or an I/O error occurs.
+	 * @throws JSONException If the JSON file is malformed.
+	 */
+	static JSONObject readFile(File file) throws IOException, JSONException {
+		try(JSONStreamReader reader = new JSONStreamReader(new InputStreamReader(new FileInputStream(file), "UTF-8"))) {
+			JSONObject json = reader.nextObject();
+			reader.endDocument();
+			return json;
 		}
-		
-		JSONObject json = new JSONObject(file);
+	}
+
+	/**
+	 * Parses the contents of the JSON file.
+	 * @param json The parsed contents of the file.
+	 * @throws JSONException If the JSON file is malformed.
+	 * @throws InvalidInstructionSetException If the instruction set is invalid.
+	 * @throws ArrayIndexOutOfBoundsException If an array index is invalid somewhere.
+	 */
+	private void parse(JSONObject json) throws JSONException, InvalidInstructionSetException, ArrayIndexOutOfBoundsException {
 		parseTypes(json.getJSONObject("types"));
 		parseInstructions(json.getJSONObject("instructions"));
 		if(json.has("pseudo")) parsePseudo(json.getJSONObject("pseudo"));
@@ -364,6 +407,7 @@ public class InstructionSet {
 				throw new InvalidInstructionSetException("Pseudo-instruction " + p.getMnemonic() + " has no instructions!");
 			
 			pseudoInstructions.put(p.getMnemonic(), p);
+			mnemonics.put(p.getMnemonic(), p);
 		}
 	}
 	
@@ -445,5 +489,7 @@ public class InstructionSet {
 					controlALU.addALUOpControl(aluOp, id, out.getInt(id));
 			}
 		}
+
+		controlALU.finishCreation();
 	}
 }
@@ -0,0 +1,559 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import brunonova.drmips.simulator.exceptions.InvalidCPUException;
+import brunonova.drmips.simulator.exceptions.InvalidInstructionSetException;
+import brunonova.drmips.simulator.exceptions.SyntaxErrorException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.json.JSONException;
+
+/**
+ * Explores the performance of a CPU for many combinations of the latencies of
+ * some of its components (design-space exploration).
+ *
+ * <p>A range of latencies is given for each component to vary (see
+ * {@link #addRange(String, int, int, int)}). The configurations are either
+ * all the combinations of the values of the ranges (<tt>sweepGrid()</tt>) or
+ * a random sample of them (<tt>sweepRandom()</tt>). Each configuration
+ * reports the clock period, the number of cycles and the execution time of a
+ * workload program.</p>
+ *
+ * <p>The configurations are evaluated in parallel, in a fork-join pool. Each
+ * worker thread has its own CPU, created from a shared <tt>CPUTemplate</tt>,
+ * which simulates the workload only once: the number of cycles doesn't depend
+ * on the latencies, so each configuration only sets the latencies and updates
+ * the performance incrementally (see {@link CPU#calculatePerformance(java.util.Collection)}).
+ * The results are the same for any number of threads.</p>
+ *
+ * <p>The Pareto-optimal configurations are those that aren't dominated by
+ * another one in both the execution time (lower is better) and the total
+ * latency of the varied components (higher is better, as slower components
+ * are usually simpler or cheaper).</p>
+ *
+ * @author Bruno Nova
+ */
+public final class LatencySweep {
+	/** The default maximum number of cycles of the workload. */
+	public static final long DEFAULT_MAX_CYCLES = RunOptions.DEFAULT_MAX_CYCLES;
+	/** The maximum number of configurations of a sweep (all their points are kept in memory). */
+	public static final int MAX_CONFIGURATIONS = 1000000;
+
+	/** A range of latencies of a component. */
+	public static final class Range {
+		/** The identifier of the component. */
+		private final String componentId;
+		/** The lowest latency. */
+		private final int min;
+		/** The highest latency. */
+		private final int max;
+		/** The difference between consecutive latencies. */
+		private final int step;
+
+		/**
+		 * Creates the range of latencies.
+		 * @param componentId The identifier of the component.
+		 * @param min The lowest latency.
+		 * @param max The highest latency.
+		 * @param step The difference between consecutive latencies.
+		 * @throws IllegalArgumentException If the latencies are negative, <tt>max &lt; min</tt> or <tt>step &lt;= 0</tt>.
+		 */
+		public Range(String componentId, int min, int max, int step) throws IllegalArgumentException {
+			if(min < 0 || max < min || step <= 0)
+				throw new IllegalArgumentException("Invalid latency range " + min + "-" + max + ":" + step + " for " + componentId + "!");
+			this.componentId = componentId;
+			this.min = min;
+			this.max = max;
+			this.step = step;
+		}
+
+		/**
+		 * Returns the identifier of the component.
+		 * @return The component's identifier.
+		 */
+		public String getComponentId() {
+			return componentId;
+		}
+
+		/**
+		 * Returns the number of latencies in the range.
+		 * @return Number of latencies.
+		 */
+		public int getNumberOfValues() {
+			return (max - min) / step + 1;
+		}
+
+		/**
+		 * Returns the latency in the given position of the range.
+		 * @param index The position of the latency (from 0 to <tt>getNumberOfValues() - 1</tt>).
+		 * @return The latency.
+		 */
+		public int getValue(int index) {
+			return min + index * step;
+		}
+	}
+
+	/** The performance of a configuration of latencies. */
+	public static final class Result {
+		/** The latency of each varied component (in the order of the ranges). */
+		private final int[] latencies;
+		/** The clock period. */
+		private final int clockPeriod;
+		/** The number of cycles of the workload. */
+		private final long cycles;
+		/** The execution time of the workload. */
+		private final long executionTime;
+		/** Whether the configuration is Pareto-optimal. */
+		private boolean paretoOptimal = false;
+
+		/**
+		 * Constructor.
+		 * @param latencies The latency of each varied component.
+		 * @param clockPeriod The clock period.
+		 * @param cycles The number of cycles of the workload.
+		 * @param executionTime The execution time of the workload.
+		 */
+		private Result(int[] latencies, int clockPeriod, long cycles, long executionTime) {
+			this.latencies = latencies;
+			this.clockPeriod = clockPeriod;
+			this.cycles = cycles;
+			this.executionTime = executionTime;
+		}
+
+		/**
+		 * Returns the latency of a varied component.
+		 * @param range The position of the range of the component.
+		 * @return The latency of the component.
+		 */
+		public int getLatency(int range) {
+			return latencies[range];
+		}
+
+		/**
+		 * Returns the latencies of the varied components.
+		 * @return Copy of the latencies, in the order of the ranges.
+		 */
+		public int[] getLatencies() {
+			return latencies.clone();
+		}
+
+		/**
+		 * Returns the sum of the latencies of the varied components.
+		 * @return Total latency of the varied components.
+		 */
+		public long getTotalLatency() {
+			long total = 0;
+			for(int latency: latencies)
+				total += latency;
+			return total;
+		}
+
+		/**
+		 * Returns the clock period of the CPU.
+		 * @return Clock period (in LATENCY_UNIT unit).
+		 */
+		public int getClockPeriod() {
+			return clockPeriod;
+		}
+
+		/**
+		 * Returns the number of cycles of the workload.
+		 * @return Number of executed cycles.
+		 */
+		public long getNumberOfCycles() {
+			return cycles;
+		}
+
+		/**
+		 * Returns the execution time of the workload.
+		 * @return Execution time (in LATENCY_UNIT unit).
+		 */
+		public long getExecutionTime() {
+			return executionTime;
+		}
+
+		/**
+		 * Returns whether the configuration is Pareto-optimal.
+		 * @return <tt>True</tt> if no other configuration is better in both the
+		 * execution time and the total latency.
+		 */
+		public boolean isParetoOptimal() {
+			return paretoOptimal;
+		}
+
+		/**
+		 * Returns whether this configuration dominates the given one.
+		 * @param other The other configuration.
+		 * @return <tt>True</tt> if this one is at least as good in the execution
+		 * time and the total latency, and better in one of them.
+		 */
+		public boolean dominates(Result other) {
+			long t1 = getTotalLatency(), t2 = other.getTotalLatency();
+			return executionTime <= other.executionTime && t1 >= t2
+				&& (executionTime < other.executionTime || t1 > t2);
+		}
+	}
+
+	/** The CPU of a worker thread. */
+	private final class Worker {
+		/** The CPU, with the workload already simulated. */
+		private final CPU cpu;
+		/** The varied components (in the order of the ranges). */
+		private final Component[] components;
+		/** The components whose latencies changed in the current configuration. */
+		private final List<Component> changed = new ArrayList<>();
+
+		/**
+		 * Creates the CPU and simulates the workload.
+		 * @throws JSONException If the CPU file is malformed.
+		 * @throws InvalidCPUException If the CPU is invalid or incomplete.
+		 * @throws SyntaxErrorException If the workload has syntax errors.
+		 */
+		private Worker() throws JSONException, InvalidCPUException, SyntaxErrorException {
+			cpu = template.createCPU();
+			cpu.setCycleHistoryEnabled(false);
+			cpu.assembleCode(code);
+			workloadFinished = cpu.executeAll(options).isFinished();
+			components = new Component[ranges.size()];
+			for(int r = 0; r < components.length; r++)
+				components[r] = cpu.getComponent(ranges.get(r).getComponentId());
+		}
+
+		/**
+		 * Evaluates a configuration of latencies.
+		 * @param latencies The latency of each varied component.
+		 * @return The result.
+		 */
+		private Result evaluate(int[] latencies) {
+			changed.clear();
+			for(int r = 0; r < components.length; r++) {
+				if(components[r].getLatency() != latencies[r]) {
+					components[r].setLatency(latencies[r]);
+					changed.add(components[r]);
+				}
+			}
+			cpu.calculatePerformance(changed);
+			return new Result(latencies, cpu.getClockPeriod(), cpu.getNumberOfExecutedCycles(), cpu.getExecutionTime());
+		}
+	}
+
+	/** Evaluates a part of the configurations of a sweep. */
+	private final class SweepTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		/** The results of the sweep. */
+		private final Result[] results;
+		/** The worker of each thread. */
+		private final ThreadLocal<Worker> workers;
+		/** The seed of the random sample, or <tt>null</tt> for the grid. */
+		private final Long seed;
+		/** The index of the first configuration. */
+		private final int from;
+		/** The index after the last configuration. */
+		private final int to;
+		/** The maximum number of configurations evaluated without splitting the task. */
+		private final int threshold;
+
+		/**
+		 * Constructor.
+		 * @param results The results of the sweep.
+		 * @param workers The worker of each thread.
+		 * @param seed The seed of the random sample, or <tt>null</tt> for the grid.
+		 * @param from The index of the first configuration.
+		 * @param to The index after the last configuration.
+		 * @param threshold The maximum number of configurations evaluated without splitting the task.
+		 */
+		private SweepTask(Result[] results, ThreadLocal<Worker> workers, Long seed, int from, int to, int threshold) {
+			this.results = results;
+			this.workers = workers;
+			this.seed = seed;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from > threshold) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new SweepTask(results, workers, seed, from, middle, threshold),
+					new SweepTask(results, workers, seed, middle, to, threshold));
+			}
+			else {
+				Worker worker = workers.get();
+				if(worker == null) {
+					try {
+						worker = new Worker();
+					}
+					catch(JSONException | InvalidCPUException | SyntaxErrorException ex) { // already checked by the constructor
+						throw new IllegalStateException(ex);
+					}
+					workers.set(worker);
+				}
+				for(int i = from; i < to; i++)
+					results[i] = worker.evaluate(seed != null ? getRandomConfiguration(seed, i) : getGridConfiguration(i));
+			}
+		}
+	}
+
+	/** The parsed CPU file. */
+	private final CPUTemplate template;
+	/** The code of the workload. */
+	private final String code;
+	/** The ranges of latencies of the varied components. */
+	private final List<Range> ranges = new ArrayList<>();
+	/** The options of the simulation of the workload. */
+	private final RunOptions options = new RunOptions(DEFAULT_MAX_CYCLES, 0);
+	/** A CPU with the workload assembled (to validate the components of the ranges). */
+	private final CPU cpu;
+	/** The number of threads of the sweeps. */
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	/** Whether the workload finished within the maximum number of cycles in the last sweep. */
+	private volatile boolean workloadFinished = true;
+
+	/**
+	 * Creates the sweep of the given CPU and workload.
+	 * @param cpuPath Path to the CPU file.
+	 * @param code The code of the workload.
+	 * @throws IOException If the file doesn't exist or an I/O error occurs.
+	 * @throws JSONException If the JSON file is malformed.
+	 * @throws InvalidCPUException If the CPU is invalid or incomplete
+	 * @throws InvalidInstructionSetException If the instruction set is invalid.
+	 * @throws SyntaxErrorException If the workload has syntax errors.
+	 */
+	public LatencySweep(String cpuPath, String code) throws IOException, JSONException, InvalidCPUException, InvalidInstructionSetException, SyntaxErrorException {
+		this(CPUTemplate.createFromJSONFile(cpuPath), code);
+	}
+
+	/**
+	 * Creates the sweep of the given CPU and workload.
+	 * @param template The parsed CPU file.
+	 * @param code The code of the workload.
+	 * @throws JSONException If the JSON file is malformed.
+	 * @throws InvalidCPUException If the CPU is invalid or incomplete
+	 * @throws SyntaxErrorException If the workload has syntax errors.
+	 */
+	public LatencySweep(CPUTemplate template, String code) throws JSONException, InvalidCPUException, SyntaxErrorException {
+		this.template = template;
+		this.code = code;
+		cpu = template.createCPU();
+		cpu.assembleCode(code);
+	}
+
+	/**
+	 * Adds a range of latencies for a component.
+	 * @param componentId The identifier of the component.
+	 * @param min The lowest latency.
+	 * @param max The highest latency.
+	 * @param step The difference between consecutive latencies.
+	 * @throws IllegalArgumentException If the component doesn't exist, is
+	 * already varied or the range is invalid.
+	 */
+	public void addRange(String componentId, int min, int max, int step) throws IllegalArgumentException {
+		if(!cpu.hasComponent(componentId))
+			throw new IllegalArgumentException("Unknown component " + componentId + "!");
+		for(Range r: ranges) {
+			if(r.getComponentId().equals(componentId))
+				throw new IllegalArgumentException("Duplicated range for " + componentId + "!");
+		}
+		ranges.add(new Range(componentId, min, max, step));
+	}
+
+	/**
+	 * Returns the ranges of latencies of the varied components.
+	 * @return Read-only list of ranges.
+	 */
+	public List<Range> getRanges() {
+		return Collections.unmodifiableList(ranges);
+	}
+
+	/**
+	 * Returns the options of the simulation of the workload.
+	 * <p>The options can be changed to set the maximum number of cycles and
+	 * time, or the engine.</p>
+	 * @return The options.
+	 */
+	public RunOptions getRunOptions() {
+		return options;
+	}
+
+	/**
+	 * Returns the number of threads of the sweeps.
+	 * @return Number of threads.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the number of threads of the sweeps.
+	 * @param parallelism Number of threads (the number of processors by default).
+	 * @throws IllegalArgumentException If <tt>parallelism &lt; 1</tt>.
+	 */
+	public void setParallelism(int parallelism) throws IllegalArgumentException {
+		if(parallelism < 1)
+			throw new IllegalArgumentException("Invalid parallelism " + parallelism + "!");
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Returns the number of combinations of the values of the ranges.
+	 * @return Number of configurations of <tt>sweepGrid()</tt>.
+	 */
+	public long getNumberOfGridConfigurations() {
+		long count = 1;
+		for(Range r: ranges) {
+			count *= r.getNumberOfValues();
+			if(count > MAX_CONFIGURATIONS) return Long.MAX_VALUE;
+		}
+		return count;
+	}
+
+	/**
+	 * Evaluates all the combinations of the values of the ranges.
+	 * <p>The last range varies fastest in the order of the results.</p>
+	 * @return The results of the configurations.
+	 * @throws IllegalArgumentException If there are more than <tt>MAX_CONFIGURATIONS</tt> configurations.
+	 */
+	public List<Result> sweepGrid() throws IllegalArgumentException {
+		long count = getNumberOfGridConfigurations();
+		if(count > MAX_CONFIGURATIONS)
+			throw new IllegalArgumentException("Too many configurations!");
+		return sweep((int)count, null);
+	}
+
+	/**
+	 * Evaluates a random sample of the combinations of the values of the ranges.
+	 * <p>The same seed always gives the same configurations.</p>
+	 * @param samples The number of configurations.
+	 * @param seed The seed of the random numbers.
+	 * @return The results of the configurations.
+	 * @throws IllegalArgumentException If the number of samples is negative or higher than <tt>MAX_CONFIGURATIONS</tt>.
+	 */
+	public List<Result> sweepRandom(int samples, long seed) throws IllegalArgumentException {
+		if(samples < 0 || samples > MAX_CONFIGURATIONS)
+			throw new IllegalArgumentException("Invalid number of samples " + samples + "!");
+		return sweep(samples, seed);
+	}
+
+	/**
+	 * Evaluates the configurations in the fork-join pool.
+	 * @param count The number of configurations.
+	 * @param seed The seed of the random sample, or <tt>null</tt> for the grid.
+	 * @return The results of the configurations, with the Pareto-optimal ones marked.
+	 */
+	private List<Result> sweep(int count, Long seed) {
+		Result[] results = new Result[count];
+		if(count > 0) {
+			int threshold = Math.max(1, count / (parallelism * 16)); // enough tasks to balance the work
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				pool.invoke(new SweepTask(results, new ThreadLocal<Worker>(), seed, 0, count, threshold));
+			}
+			finally {
+				pool.shutdown();
+			}
+		}
+		List<Result> list = Arrays.asList(results);
+		for(Result r: getParetoFront(list))
+			r.paretoOptimal = true;
+		return list;
+	}
+
+	/**
+	 * Returns the configuration of the grid in the given position.
+	 * @param index The position of the configuration.
+	 * @return The latency of each varied component.
+	 */
+	private int[] getGridConfiguration(int index) {
+		int[] latencies = new int[ranges.size()];
+		for(int r = latencies.length - 1; r >= 0; r--) {
+			int n = ranges.get(r).getNumberOfValues();
+			latencies[r] = ranges.get(r).getValue(index % n);
+			index /= n;
+		}
+		return latencies;
+	}
+
+	/**
+	 * Returns the random configuration in the given position of the sample.
+	 * @param seed The seed of the sample.
+	 * @param index The position of the configuration.
+	 * @return The latency of each varied component.
+	 */
+	private int[] getRandomConfiguration(long seed, int index) {
+		Random random = new Random(seed + index * 0x9E3779B97F4A7C15L); // independent of the order of evaluation
+		int[] latencies = new int[ranges.size()];
+		for(int r = 0; r < latencies.length; r++)
+			latencies[r] = ranges.get(r).getValue(random.nextInt(ranges.get(r).getNumberOfValues()));
+		return latencies;
+	}
+
+	/**
+	 * Returns the Pareto-optimal configurations of the given results.
+	 * @param results The results of a sweep.
+	 * @return The configurations that aren't dominated by any other, by
+	 * ascending execution time.
+	 * @see Result#dominates(Result)
+	 */
+	public static List<Result> getParetoFront(List<Result> results) {
+		List<Result> sorted = new ArrayList<>(results);
+		Collections.sort(sorted, new Comparator<Result>() {
+			@Override
+			public int compare(Result a, Result b) {
+				return a.executionTime != b.executionTime ? Long.compare(a.executionTime, b.executionTime)
+					: Long.compare(b.getTotalLatency(), a.getTotalLatency());
+			}
+		});
+
+		// A configuration is optimal if its total latency is the highest of
+		// its execution time and higher than those of all lower execution times
+		List<Result> front = new ArrayList<>();
+		long best = Long.MIN_VALUE; // highest total latency of the lower execution times
+		for(int i = 0; i < sorted.size(); ) {
+			long time = sorted.get(i).executionTime;
+			long highest = sorted.get(i).getTotalLatency();
+			for(; i < sorted.size() && sorted.get(i).executionTime == time; i++) {
+				if(sorted.get(i).getTotalLatency() == highest && highest > best)
+					front.add(sorted.get(i));
+			}
+			if(highest > best) best = highest;
+		}
+		return front;
+	}
+
+	/**
+	 * Returns whether the workload finished within the maximum number of
+	 * cycles in the last sweep.
+	 * <p>If not, the number of cycles and execution times of the results are
+	 * those of the cycles executed.</p>
+	 * @return <tt>True</tt> if the workload finished (or if there was no sweep yet).
+	 */
+	public boolean isWorkloadFinished() {
+		return workloadFinished;
+	}
+}
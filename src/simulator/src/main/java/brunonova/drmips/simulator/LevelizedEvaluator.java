@@ -0,0 +1,351 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Evaluates the components of a CPU in a precomputed (levelized) order.
+ *
+ * <p>The components are sorted topologically once, when the CPU is loaded.
+ * Inputs that don't change the component's accumulated latency (the inputs of
+ * the PC and pipeline registers, and the write inputs of the register bank and
+ * data memory) are only used at the end of the clock cycle, so they break the
+ * cycles of the datapath.</p>
+ *
+ * <p>During an evaluation, changing an input doesn't execute the component
+ * recursively. Instead, each component is executed once, in order. The
+ * components that have "end of cycle" inputs are then executed again so that
+ * they see the final values of those inputs, and any component whose inputs
+ * changed after it was executed is executed again, until the values settle.</p>
+ *
+ * <p>After a clock transition, only the state of the synchronous components
+ * changed, so <tt>evaluateChanges()</tt> propagates the changes with a
+ * worklist instead: the first pass only executes the components whose inputs
+ * changed and those that must always be executed (see
+ * {@link Component#isAlwaysEvaluated()}), along with the components that
+ * have 1 bit outputs connected to them. The evaluator counts the
+ * executions and the input changes, to compare with the execution of all the
+ * components and with the recursive evaluation (which executes a component
+ * every time one of its inputs changes).</p>
+ *
+ * <p>An evaluator can't be created if a component opts out (see
+ * {@link Component#supportsLevelizedEvaluation()}) or if the datapath has a
+ * combinational loop. The CPU uses the old recursive evaluation in that case.</p>
+ *
+ * @author Bruno Nova
+ */
+public final class LevelizedEvaluator {
+	/** The components, in evaluation order. */
+	private final Component[] order;
+	/** The level of each component (length of the longest combinational path up to it). */
+	private final int[] levels;
+	/** The components that have "end of cycle" inputs connected, in the CPU's original order. */
+	private final Component[] late;
+	/** Whether each component must be executed in every evaluation. */
+	private final boolean[] always;
+	/** Whether each component must be executed (again) in the current evaluation. */
+	private final boolean[] pending;
+	/** Whether there are pending components. */
+	private boolean hasPending = false;
+	/** Whether an evaluation is in progress. */
+	private boolean evaluating = false;
+	/** Whether the first pass of the evaluation is over (only the pending components are executed after it). */
+	private boolean sweeping = false;
+	/** The position (in the order) of the component being executed. */
+	private int position = -1;
+	/** Whether the first pass of the evaluation only executes the components whose inputs changed. */
+	private boolean selective = false;
+	/** The number of evaluations. */
+	private long evaluations = 0;
+	/** The number of components executed. */
+	private long executions = 0;
+	/** The number of input changes during the evaluations. */
+	private long inputChanges = 0;
+
+	/**
+	 * Creates the evaluator for the given components, already sorted.
+	 * @param components The components, in the CPU's original order.
+	 * @param order The components, in evaluation order.
+	 * @param levels The level of each component.
+	 */
+	private LevelizedEvaluator(Component[] components, Component[] order, int[] levels) {
+		this.order = order;
+		this.levels = levels;
+		pending = new boolean[order.length];
+		always = new boolean[order.length];
+		for(int i = 0; i < order.length; i++) {
+			order[i].setEvaluator(this, i);
+			always[i] = order[i].isAlwaysEvaluated();
+			// 1 bit outputs set the relevance of their wires whenever they're
+			// set, so they must be set in the same order as the components
+			// that change the relevance of their inputs
+			for(Output o: order[i].getOutputs()) {
+				if(o.getSize() == 1 && o.isConnected() && o.getConnectedInput().getComponent().isAlwaysEvaluated())
+					always[i] = true;
+			}
+		}
+
+		List<Component> lateComponents = new ArrayList<>();
+		for(Component c: components) {
+			for(Input in: c.getInputs()) {
+				if(in.isConnected() && !in.canChangeComponentAccumulatedLatency()) {
+					lateComponents.add(c);
+					break;
+				}
+			}
+		}
+		late = lateComponents.toArray(new Component[lateComponents.size()]);
+	}
+
+	/**
+	 * Sorts the given components topologically and creates their evaluator.
+	 * @param components The components of the CPU (with the wires already connected).
+	 * @return The evaluator, or <tt>null</tt> if a component doesn't support
+	 * levelized evaluation or if there is a combinational loop.
+	 */
+	public static LevelizedEvaluator compile(Component[] components) {
+		int n = components.length;
+		Map<Component, Integer> indexes = new IdentityHashMap<>(n);
+		for(int i = 0; i < n; i++) {
+			if(!components[i].supportsLevelizedEvaluation())
+				return null;
+			indexes.put(components[i], i);
+		}
+
+		// Build the combinational graph
+		List<List<Integer>> successors = new ArrayList<>(n);
+		int[] inDegree = new int[n];
+		for(int i = 0; i < n; i++) {
+			List<Integer> succ = new ArrayList<>();
+			for(Output o: components[i].getOutputs()) {
+				if(o.isConnected() && o.getConnectedInput().canChangeComponentAccumulatedLatency()) {
+					Integer j = indexes.get(o.getConnectedInput().getComponent());
+					if(j != null) {
+						succ.add(j);
+						inDegree[j]++;
+					}
+				}
+			}
+			successors.add(succ);
+		}
+
+		// Sort it (Kahn's algorithm), calculating the level of each component
+		final int[] levels = new int[n];
+		Queue<Integer> queue = new LinkedList<>();
+		Integer[] sorted = new Integer[n];
+		int count = 0;
+		for(int i = 0; i < n; i++)
+			if(inDegree[i] == 0) queue.add(i);
+		while(!queue.isEmpty()) {
+			int i = queue.remove();
+			sorted[count++] = i;
+			for(int j: successors.get(i)) {
+				if(levels[i] + 1 > levels[j]) levels[j] = levels[i] + 1;
+				if(--inDegree[j] == 0) queue.add(j);
+			}
+		}
+		if(count < n) // combinational loop
+			return null;
+
+		// Order by level (stable, so components in the same level keep the original order)
+		Arrays.sort(sorted, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return levels[a] != levels[b] ? Integer.compare(levels[a], levels[b]) : Integer.compare(a, b);
+			}
+		});
+		Component[] order = new Component[n];
+		int[] orderLevels = new int[n];
+		for(int i = 0; i < n; i++) {
+			order[i] = components[sorted[i]];
+			orderLevels[i] = levels[sorted[i]];
+		}
+		return new LevelizedEvaluator(components, order, orderLevels);
+	}
+
+	/**
+	 * Executes all the components, in order, until their values settle.
+	 */
+	public void evaluate() {
+		evaluate(false);
+	}
+
+	/**
+	 * Propagates the changes of the states of the synchronous components
+	 * (after a clock transition), until the values settle.
+	 * <p>Only the components whose inputs change and those that must always
+	 * be executed are executed, which gives the same results as
+	 * <tt>evaluate()</tt> if the state of the other components didn't change.</p>
+	 */
+	public void evaluateChanges() {
+		evaluate(true);
+	}
+
+	/**
+	 * Executes the components, in order, until their values settle.
+	 * @param selective Whether the first pass only executes the components
+	 * whose inputs changed and those that must always be executed.
+	 */
+	private void evaluate(boolean selective) {
+		evaluating = true;
+		this.selective = selective;
+		evaluations++;
+		try {
+			for(position = 0; position < order.length; position++) {
+				if(!selective || pending[position] || always[position]) {
+					pending[position] = false;
+					order[position].execute();
+					executions++;
+				}
+			}
+
+			// Components with "end of cycle" inputs must see their final values
+			sweeping = true;
+			for(Component c: late) {
+				position = c.getEvaluationRank();
+				pending[position] = false;
+				c.execute();
+				executions++;
+			}
+			position = -1;
+
+			// Execute again the components whose inputs changed after being executed
+			for(int sweep = 0; hasPending && sweep <= order.length; sweep++) {
+				hasPending = false;
+				for(position = 0; position < order.length; position++) {
+					if(pending[position]) {
+						pending[position] = false;
+						order[position].execute();
+						executions++;
+					}
+				}
+			}
+		}
+		finally {
+			if(hasPending) {
+				Arrays.fill(pending, false);
+				hasPending = false;
+			}
+			position = -1;
+			sweeping = false;
+			selective = false;
+			evaluating = false;
+		}
+	}
+
+	/**
+	 * Schedules the given component to be executed, because one of its inputs changed.
+	 * @param rank The position of the component in the evaluation order.
+	 */
+	void schedule(int rank) {
+		inputChanges++;
+		if(sweeping || rank <= position) {
+			pending[rank] = true;
+			hasPending = true;
+		}
+		else if(selective) // executed later in the first pass
+			pending[rank] = true;
+		// otherwise, it will still be executed in the first pass
+	}
+
+	/**
+	 * Returns the number of evaluations performed.
+	 * @return Number of calls to <tt>evaluate()</tt> and <tt>evaluateChanges()</tt>.
+	 */
+	public long getNumberOfEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * Returns the number of times the components were executed by the evaluations.
+	 * @return Number of component executions.
+	 */
+	public long getNumberOfExecutions() {
+		return executions;
+	}
+
+	/**
+	 * Returns the number of input changes during the evaluations.
+	 * <p>The recursive evaluation would execute a component for each of them.</p>
+	 * @return Number of input changes.
+	 */
+	public long getNumberOfInputChanges() {
+		return inputChanges;
+	}
+
+	/**
+	 * Returns the number of executions saved compared with executing all the
+	 * components in the first pass of every evaluation.
+	 * @return Number of component executions saved.
+	 */
+	public long getNumberOfSavedExecutions() {
+		return evaluations * (order.length + late.length) - executions;
+	}
+
+	/**
+	 * Resets the counters of evaluations, executions and input changes.
+	 */
+	public void resetStatistics() {
+		evaluations = 0;
+		executions = 0;
+		inputChanges = 0;
+	}
+
+	/**
+	 * Returns whether an evaluation is in progress.
+	 * @return <tt>True</tt> if the components are being evaluated.
+	 */
+	public boolean isEvaluating() {
+		return evaluating;
+	}
+
+	/**
+	 * Returns the components, in evaluation order.
+	 * @return Copy of the evaluation order.
+	 */
+	public Component[] getOrder() {
+		return order.clone();
+	}
+
+	/**
+	 * Returns the level of the component in the given position of the evaluation order.
+	 * <p>The level is the number of components in the longest combinational path up to it.</p>
+	 * @param rank The position of the component in the evaluation order.
+	 * @return The level of the component.
+	 */
+	public int getLevel(int rank) {
+		return levels[rank];
+	}
+
+	/**
+	 * Detaches the components from this evaluator (they go back to being executed recursively).
+	 */
+	void detach() {
+		for(Component c: order)
+			c.setEvaluator(null, -1);
+	}
+}
@@ -0,0 +1,113 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import java.util.Locale;
+
+/**
+ * The time spent in each phase of the loading of a CPU.
+ *
+ * <p>The phases of the parsing of the files are measured when the
+ * <tt>CPUTemplate</tt> is created, and are included in the timings of each
+ * CPU created from it, along with the phases of the creation of the CPU.</p>
+ *
+ * @author Bruno Nova
+ */
+public final class LoadTimings {
+	/**
+	 * The phases of the loading of a CPU.
+	 */
+	public enum Phase {
+		/** Reading the CPU file (or the cached contents of both files). */
+		READ_CPU,
+		/** Reading the instruction set file. */
+		READ_INSTRUCTION_SET,
+		/** Creating the instruction set. */
+		INSTRUCTION_SET,
+		/** Loading the classes of the components. */
+		COMPONENT_CLASSES,
+		/** Creating the components. */
+		COMPONENTS,
+		/** Connecting the wires. */
+		WIRES,
+		/** Sorting the components and evaluating them for the first time. */
+		EVALUATION,
+		/** Calculating the performance (latencies and critical path). */
+		PERFORMANCE
+	}
+
+	/** The time spent in each phase, in nanoseconds. */
+	private final long[] times;
+
+	/**
+	 * Creates empty timings.
+	 */
+	public LoadTimings() {
+		times = new long[Phase.values().length];
+	}
+
+	/**
+	 * Creates a copy of the given timings.
+	 * @param other The timings to copy.
+	 */
+	public LoadTimings(LoadTimings other) {
+		times = other.times.clone();
+	}
+
+	/**
+	 * Adds the time elapsed since <tt>start</tt> to the given phase.
+	 * @param phase The phase.
+	 * @param start The value of <tt>System.nanoTime()</tt> at the start of the phase.
+	 * @return The current value of <tt>System.nanoTime()</tt>, to be the start of the next phase.
+	 */
+	long mark(Phase phase, long start) {
+		long now = System.nanoTime();
+		times[phase.ordinal()] += now - start;
+		return now;
+	}
+
+	/**
+	 * Returns the time spent in the given phase.
+	 * @param phase The phase.
+	 * @return The time, in nanoseconds.
+	 */
+	public long getTime(Phase phase) {
+		return times[phase.ordinal()];
+	}
+
+	/**
+	 * Returns the total time spent loading the CPU.
+	 * @return The time, in nanoseconds.
+	 */
+	public long getTotalTime() {
+		long total = 0;
+		for(long time: times)
+			total += time;
+		return total;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder();
+		for(Phase phase: Phase.values())
+			str.append(String.format(Locale.US, "%s: %.3f ms\n", phase.name().toLowerCase(Locale.US), times[phase.ordinal()] / 1e6));
+		str.append(String.format(Locale.US, "total: %.3f ms", getTotalTime() / 1e6));
+		return str.toString();
+	}
+}
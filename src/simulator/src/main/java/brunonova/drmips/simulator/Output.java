@@ -134,13 +134,30 @@ public final class Output extends IOPort {
 	 * so call this method instead of <tt>getData().setValue()</tt> directly!</p>
 	 * @param value New value.
 	 * @param propagate Whether to propagate the value to the connected input (only if the value changes!).
+	 * If the value is stored in a table of signals, the input always has the new value, but its component
+	 * is only notified if <tt>propagate == true</tt>.
 	 */
 	public void setValue(int value, boolean propagate) {
 		int oldValue = getValue();
 		super.setValue(value);
 		if(getSize() == 1) setRelevant(getValue() == 1); // set whether relevant or not automatically, if it is a single bit
-		if(isConnected() && propagate && getValue() != oldValue)
-			connectedTo.setValue(value); // update value of connected input
+		if(isConnected() && propagate && getValue() != oldValue) {
+			if(hasSignalSlot()) // the input shares the value, just notify its component
+				connectedTo.getComponent().inputChanged();
+			else
+				connectedTo.setValue(value); // update value of connected input
+		}
+	}
+
+	/**
+	 * Moves the value of this output and of the connected input to a new slot
+	 * of the given table of signals.
+	 * @param signals The table of signals of the CPU.
+	 */
+	void allocateSignalSlot(SignalTable signals) {
+		int slot = signals.allocate(getData().getMask(), getValue());
+		setSignalSlot(signals, slot);
+		if(isConnected()) connectedTo.setSignalSlot(signals, slot);
 	}
 	
 	/**
@@ -184,6 +201,7 @@ public final class Output extends IOPort {
 
 	@Override
 	public boolean isInCriticalPath() {
+		getComponent().updatePerformance();
 		return inCriticalPath;
 	}
 
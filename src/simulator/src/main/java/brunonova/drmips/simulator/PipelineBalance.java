@@ -0,0 +1,407 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import brunonova.drmips.simulator.TimingReport.Stage;
+import brunonova.drmips.simulator.components.PC;
+import brunonova.drmips.simulator.components.PipelineRegister;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Analysis of the balance of the stages of a pipelined CPU.
+ *
+ * <p>The clock period of a pipelined CPU is the critical delay of its slowest
+ * stage (the bottleneck). The critical delay of each stage is calculated from
+ * the accumulated latencies of the CPU (not dependent on the instruction), as
+ * in {@link TimingReport}: a path belongs to the stage whose register (or
+ * component) receives its endpoint.</p>
+ *
+ * <p>The analysis can also estimate the clock period and execution time of
+ * the loaded program if a component is moved to an adjacent stage. The
+ * component belongs to the stage of the longest path that goes through it.
+ * The estimate is conservative:</p>
+ * <ul>
+ * <li>the delay of the stage where the component was is recalculated
+ * without the component's latency;</li>
+ * <li>the latency of the component is added to the delay of the stage where
+ * it is moved to (as if it was in series with its critical path);</li>
+ * <li>the delays of the other stages and the number of executed cycles don't
+ * change (the hazards of the new pipeline aren't simulated).</li>
+ * </ul>
+ *
+ * @author Bruno Nova
+ */
+public final class PipelineBalance {
+	/** The CPU. */
+	private final CPU cpu;
+	/** The static timing analyzer of the CPU. */
+	private final StaticTimingAnalyzer analyzer;
+	/** The stages with paths, in order. */
+	private final List<Stage> stages = new ArrayList<>();
+	/** The position of the components connected to the endpoints of each stage. */
+	private final Map<Stage, List<Integer>> endpoints = new EnumMap<>(Stage.class);
+	/** The critical delay of each stage. */
+	private final Map<Stage, Integer> delays = new EnumMap<>(Stage.class);
+	/** The stage of each component (<tt>null</tt> if not in a path of a stage). */
+	private final Stage[] componentStages;
+
+	/**
+	 * Analyzes the stages of the CPU.
+	 * @param cpu The CPU.
+	 * @param analyzer The static timing analyzer of the CPU.
+	 */
+	private PipelineBalance(CPU cpu, StaticTimingAnalyzer analyzer) {
+		this.cpu = cpu;
+		this.analyzer = analyzer;
+		int n = analyzer.getNumberOfComponents();
+
+		// Find the endpoints of each stage
+		for(int r = 0; r < n; r++) {
+			Stage stage = TimingReport.getStage(cpu, analyzer.getComponent(r));
+			if(stage == null) continue;
+			for(Input in: analyzer.getComponent(r).getInputArray()) {
+				if(in.isConnected() && !in.canChangeComponentAccumulatedLatency()) {
+					int driver = analyzer.getRank(in.getConnectedOutput().getComponent());
+					if(driver >= 0 && analyzer.isReached(driver)) {
+						if(!endpoints.containsKey(stage))
+							endpoints.put(stage, new ArrayList<Integer>());
+						endpoints.get(stage).add(driver);
+					}
+				}
+			}
+		}
+		stages.addAll(endpoints.keySet());
+
+		// Critical delays, and the longest path through each component in each stage
+		int[] longest = new int[n];
+		componentStages = new Stage[n];
+		for(Stage stage: stages) {
+			int delay = 0;
+			int[] tail = new int[n]; // longest delay from the component's output to an endpoint of the stage
+			for(int r = 0; r < n; r++)
+				tail[r] = -1;
+			for(int d: endpoints.get(stage)) {
+				tail[d] = 0;
+				delay = Math.max(delay, analyzer.getAccumulatedLatency(d));
+			}
+			delays.put(stage, delay);
+
+			for(int r = n - 1; r >= 0; r--) { // the successors are reached first
+				if(!analyzer.isReached(r)) continue;
+				for(int s: analyzer.getSuccessors(r)) {
+					if(tail[s] >= 0 && tail[s] + analyzer.getComponent(s).getLatency() > tail[r])
+						tail[r] = tail[s] + analyzer.getComponent(s).getLatency();
+				}
+				if(tail[r] >= 0 && (componentStages[r] == null || analyzer.getAccumulatedLatency(r) + tail[r] > longest[r])) {
+					componentStages[r] = stage; // the earliest stage on ties
+					longest[r] = analyzer.getAccumulatedLatency(r) + tail[r];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Analyzes the balance of the stages of the given CPU.
+	 * <p>The analysis can only be done if the CPU is pipelined, uses the
+	 * static timing analysis (see {@link CPU#getStaticTimingAnalyzer()}) and its
+	 * accumulated latencies were already calculated.</p>
+	 * @param cpu The CPU.
+	 * @return The analysis, or <tt>null</tt> if it can't be done.
+	 */
+	public static PipelineBalance analyze(CPU cpu) {
+		StaticTimingAnalyzer analyzer = cpu.getStaticTimingAnalyzer();
+		if(!cpu.isPipeline() || analyzer == null || !analyzer.hasAccumulatedLatencies())
+			return null;
+		return new PipelineBalance(cpu, analyzer);
+	}
+
+	/**
+	 * Returns the stages with paths.
+	 * @return The stages, in order.
+	 */
+	public List<Stage> getStages() {
+		return Collections.unmodifiableList(stages);
+	}
+
+	/**
+	 * Returns the critical delay of the given stage.
+	 * @param stage The stage.
+	 * @return The delay of the longest path of the stage (0 if it has none).
+	 */
+	public int getCriticalDelay(Stage stage) {
+		Integer delay = delays.get(stage);
+		return delay != null ? delay : 0;
+	}
+
+	/**
+	 * Returns the slack of the given stage.
+	 * @param stage The stage.
+	 * @return The difference between the clock period and the critical delay of the stage.
+	 */
+	public int getSlack(Stage stage) {
+		return getClockPeriod() - getCriticalDelay(stage);
+	}
+
+	/**
+	 * Returns the clock period of the CPU, which is the critical delay of the bottleneck stage.
+	 * @return The clock period in the <tt>CPU.LATENCY_UNIT</tt> unit.
+	 */
+	public int getClockPeriod() {
+		int period = 0;
+		for(int delay: delays.values())
+			period = Math.max(period, delay);
+		return period;
+	}
+
+	/**
+	 * Returns the slowest stage, which determines the clock period.
+	 * @return The bottleneck stage (the earliest one on ties), or <tt>null</tt> if there are no stages.
+	 */
+	public Stage getBottleneck() {
+		Stage bottleneck = null;
+		for(Stage stage: stages) {
+			if(bottleneck == null || getCriticalDelay(stage) > getCriticalDelay(bottleneck))
+				bottleneck = stage;
+		}
+		return bottleneck;
+	}
+
+	/**
+	 * Returns the stage of the given component.
+	 * @param component The component.
+	 * @return The stage of the longest path that goes through the component,
+	 * or <tt>null</tt> if it isn't in a path of a stage.
+	 */
+	public Stage getStage(Component component) {
+		int r = analyzer.getRank(component);
+		return r >= 0 ? componentStages[r] : null;
+	}
+
+	/**
+	 * Estimates the clock period and execution time if the given component is
+	 * moved to an adjacent stage.
+	 * @param componentId The identifier of the component.
+	 * @param stage The stage where the component is moved to (before or after its stage).
+	 * @return The estimate.
+	 * @throws IllegalArgumentException If the component doesn't exist, can't
+	 * be moved (it is the PC or a pipeline register, or isn't in a stage), or
+	 * the stage isn't adjacent to the component's stage.
+	 */
+	public Move estimateMove(String componentId, Stage stage) throws IllegalArgumentException {
+		Component c = cpu.getComponent(componentId);
+		if(c == null)
+			throw new IllegalArgumentException("Unknown component " + componentId + "!");
+		if(c instanceof PC || c instanceof PipelineRegister)
+			throw new IllegalArgumentException("The component " + componentId + " separates the stages and can't be moved!");
+		Stage from = getStage(c);
+		if(from == null)
+			throw new IllegalArgumentException("The component " + componentId + " isn't in a stage!");
+		if(stage == null || Math.abs(stage.ordinal() - from.ordinal()) != 1)
+			throw new IllegalArgumentException("The stage " + stage + " isn't adjacent to the stage " + from + " of the component " + componentId + "!");
+		return new Move(c, from, stage, calculateDelayWithout(analyzer.getRank(c), from));
+	}
+
+	/**
+	 * Finds the move of a component to an adjacent stage that reduces the clock period the most.
+	 * @return The best move, or <tt>null</tt> if no move reduces the clock period.
+	 */
+	public Move findBestMove() {
+		Move best = null;
+		for(int r = 0; r < componentStages.length; r++) {
+			Component c = analyzer.getComponent(r);
+			Stage from = componentStages[r];
+			if(from == null || c.getLatency() == 0 || c instanceof PC || c instanceof PipelineRegister)
+				continue;
+			int delay = -1;
+			for(Stage to: new Stage[] {previous(from), next(from)}) {
+				if(to == null || !endpoints.containsKey(to)) continue;
+				if(delay < 0) delay = calculateDelayWithout(r, from);
+				Move move = new Move(c, from, to, delay);
+				if(move.getClockPeriod() < getClockPeriod() && (best == null || move.getClockPeriod() < best.getClockPeriod()))
+					best = move;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the stage before the given one.
+	 * @param stage The stage.
+	 * @return The previous stage, or <tt>null</tt> if it is the first one.
+	 */
+	private static Stage previous(Stage stage) {
+		return stage.ordinal() > 0 ? Stage.values()[stage.ordinal() - 1] : null;
+	}
+
+	/**
+	 * Returns the stage after the given one.
+	 * @param stage The stage.
+	 * @return The next stage, or <tt>null</tt> if it is the last one.
+	 */
+	private static Stage next(Stage stage) {
+		return stage.ordinal() < Stage.values().length - 1 ? Stage.values()[stage.ordinal() + 1] : null;
+	}
+
+	/**
+	 * Calculates the critical delay of a stage as if the latency of a component was 0.
+	 * @param removed The position of the component.
+	 * @param stage The stage.
+	 * @return The critical delay of the stage without the component's latency.
+	 */
+	private int calculateDelayWithout(int removed, Stage stage) {
+		int n = analyzer.getNumberOfComponents();
+		int[] arrival = new int[n];
+		for(int r = 0; r < n; r++) { // the components connected to the inputs are reached first
+			if(!analyzer.isReached(r)) continue;
+			Component c = analyzer.getComponent(r);
+			Input[] inputs = c.getInputArray();
+			int latency = 0;
+			for(int x = 0; x < inputs.length; x++) {
+				int driver = analyzer.getDriver(r, x);
+				if(driver >= 0 && analyzer.isReached(driver) && inputs[x].canChangeComponentAccumulatedLatency() && arrival[driver] > latency)
+					latency = arrival[driver];
+			}
+			arrival[r] = latency + (r != removed ? c.getLatency() : 0);
+		}
+
+		int delay = 0;
+		for(int d: endpoints.get(stage))
+			delay = Math.max(delay, arrival[d]);
+		return delay;
+	}
+
+	/**
+	 * Returns the analysis as text.
+	 * @return The critical delay and slack of each stage, the bottleneck
+	 * stage and the best move, if any.
+	 */
+	public String toText() {
+		StringBuilder sb = new StringBuilder(256);
+		sb.append("Clock period: ").append(getClockPeriod()).append(' ').append(CPU.LATENCY_UNIT).append('\n');
+		sb.append("\nStage delays:\n");
+		for(Stage stage: stages) {
+			sb.append("  ").append(stage).append(": ").append(getCriticalDelay(stage)).append(' ').append(CPU.LATENCY_UNIT)
+				.append(" (slack: ").append(getSlack(stage)).append(' ').append(CPU.LATENCY_UNIT).append(")\n");
+		}
+		sb.append("\nBottleneck stage: ").append(getBottleneck()).append('\n');
+		Move best = findBestMove();
+		sb.append("Best move: ").append(best != null ? best : "none").append('\n');
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return toText();
+	}
+
+	/**
+	 * The estimated effect of moving a component to an adjacent stage.
+	 */
+	public final class Move {
+		/** The moved component. */
+		private final Component component;
+		/** The stage where the component was. */
+		private final Stage from;
+		/** The stage where the component is moved to. */
+		private final Stage to;
+		/** The estimated critical delay of each stage after the move. */
+		private final Map<Stage, Integer> newDelays = new EnumMap<>(Stage.class);
+
+		/**
+		 * Estimates the move.
+		 * @param component The moved component.
+		 * @param from The stage where the component was.
+		 * @param to The stage where the component is moved to.
+		 * @param delayWithout The critical delay of the stage where the component was, without it.
+		 */
+		private Move(Component component, Stage from, Stage to, int delayWithout) {
+			this.component = component;
+			this.from = from;
+			this.to = to;
+			newDelays.putAll(delays);
+			newDelays.put(from, delayWithout);
+			newDelays.put(to, getCriticalDelay(to) + component.getLatency());
+		}
+
+		/**
+		 * Returns the moved component.
+		 * @return The component.
+		 */
+		public Component getComponent() {
+			return component;
+		}
+
+		/**
+		 * Returns the stage where the component was.
+		 * @return The original stage.
+		 */
+		public Stage getFrom() {
+			return from;
+		}
+
+		/**
+		 * Returns the stage where the component is moved to.
+		 * @return The new stage.
+		 */
+		public Stage getTo() {
+			return to;
+		}
+
+		/**
+		 * Returns the estimated critical delay of the given stage after the move.
+		 * @param stage The stage.
+		 * @return The estimated critical delay.
+		 */
+		public int getCriticalDelay(Stage stage) {
+			Integer delay = newDelays.get(stage);
+			return delay != null ? delay : 0;
+		}
+
+		/**
+		 * Returns the estimated clock period after the move.
+		 * @return The critical delay of the new bottleneck stage.
+		 */
+		public int getClockPeriod() {
+			int period = 0;
+			for(int delay: newDelays.values())
+				period = Math.max(period, delay);
+			return period;
+		}
+
+		/**
+		 * Returns the estimated execution time of the loaded program after the move.
+		 * @return The number of cycles executed so far multiplied by the estimated clock period.
+		 */
+		public long getExecutionTime() {
+			return (long)cpu.getNumberOfExecutedCycles() * (long)getClockPeriod();
+		}
+
+		@Override
+		public String toString() {
+			int difference = getClockPeriod() - PipelineBalance.this.getClockPeriod();
+			return component.getId() + " from " + from + " to " + to + " (clock period: " + getClockPeriod() + " "
+				+ CPU.LATENCY_UNIT + " (" + (difference >= 0 ? "+" : "") + difference + " " + CPU.LATENCY_UNIT
+				+ "), execution time: " + getExecutionTime() + " " + CPU.LATENCY_UNIT + ")";
+		}
+	}
+}
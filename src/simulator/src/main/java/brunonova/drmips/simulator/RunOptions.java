@@ -0,0 +1,184 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+/**
+ * The options and limits of a run of the simulation, used by {@link CPU#executeAll(RunOptions)}.
+ *
+ * <p>A run stops when the program finishes, when the breakpoint is hit, when
+ * the maximum number of cycles or the maximum time is reached (the budget),
+ * or when the cancellation token is cancelled.</p>
+ *
+ * @author Bruno Nova
+ */
+public class RunOptions {
+	/** The default maximum number of cycles executed in a run. */
+	public static final long DEFAULT_MAX_CYCLES = 1000000;
+	/** The default number of cycles between calls to the progress listener. */
+	public static final int DEFAULT_PROGRESS_INTERVAL = 10000;
+
+	/** The engines that can execute a run. */
+	public enum Engine {
+		/** Simulates the whole datapath, cycle by cycle. */
+		DATAPATH,
+		/** Executes the instructions directly (see {@link FunctionalEngine}). */
+		FUNCTIONAL
+	}
+
+	/**
+	 * Interface of the listeners that are notified of the progress of a run.
+	 * <p>The listener is called from the thread running the simulation.</p>
+	 */
+	public interface ProgressListener {
+		/**
+		 * Called periodically during the run.
+		 * @param cpu The CPU being simulated.
+		 * @param cycles The number of cycles executed so far in this run.
+		 */
+		public void onProgress(CPU cpu, long cycles);
+	}
+
+	/** The maximum number of cycles to execute. */
+	private long maxCycles = DEFAULT_MAX_CYCLES;
+	/** The maximum wall-clock time of the run, in milliseconds (0 for no limit). */
+	private long maxTime = 0;
+	/** The token used to cancel the run, if any. */
+	private CancellationToken cancellationToken = null;
+	/** The progress listener, if any. */
+	private ProgressListener progressListener = null;
+	/** The number of cycles between calls to the progress listener. */
+	private int progressInterval = DEFAULT_PROGRESS_INTERVAL;
+	/** The engine that executes the run. */
+	private Engine engine = Engine.DATAPATH;
+
+	/**
+	 * Creates the default options (<tt>DEFAULT_MAX_CYCLES</tt> and no time limit).
+	 */
+	public RunOptions() {
+
+	}
+
+	/**
+	 * Creates the options with the given limits.
+	 * @param maxCycles The maximum number of cycles to execute.
+	 * @param maxTime The maximum wall-clock time of the run, in milliseconds (0 for no limit).
+	 */
+	public RunOptions(long maxCycles, long maxTime) {
+		setMaxCycles(maxCycles);
+		setMaxTime(maxTime);
+	}
+
+	/**
+	 * Returns the maximum number of cycles to execute.
+	 * @return The maximum number of cycles.
+	 */
+	public long getMaxCycles() {
+		return maxCycles;
+	}
+
+	/**
+	 * Updates the maximum number of cycles to execute.
+	 * @param maxCycles The maximum number of cycles (<tt>Long.MAX_VALUE</tt> for no limit).
+	 * @throws IllegalArgumentException If the number is not positive.
+	 */
+	public final void setMaxCycles(long maxCycles) throws IllegalArgumentException {
+		if(maxCycles <= 0) throw new IllegalArgumentException("The maximum number of cycles must be positive!");
+		this.maxCycles = maxCycles;
+	}
+
+	/**
+	 * Returns the maximum wall-clock time of the run.
+	 * @return The maximum time, in milliseconds (0 for no limit).
+	 */
+	public long getMaxTime() {
+		return maxTime;
+	}
+
+	/**
+	 * Updates the maximum wall-clock time of the run.
+	 * @param maxTime The maximum time, in milliseconds (0 for no limit).
+	 * @throws IllegalArgumentException If the time is negative.
+	 */
+	public final void setMaxTime(long maxTime) throws IllegalArgumentException {
+		if(maxTime < 0) throw new IllegalArgumentException("The maximum time can't be negative!");
+		this.maxTime = maxTime;
+	}
+
+	/**
+	 * Returns the token used to cancel the run.
+	 * @return The cancellation token, or <tt>null</tt> if none.
+	 */
+	public CancellationToken getCancellationToken() {
+		return cancellationToken;
+	}
+
+	/**
+	 * Updates the token used to cancel the run.
+	 * @param cancellationToken The cancellation token, or <tt>null</tt> for none.
+	 */
+	public void setCancellationToken(CancellationToken cancellationToken) {
+		this.cancellationToken = cancellationToken;
+	}
+
+	/**
+	 * Returns the progress listener.
+	 * @return The progress listener, or <tt>null</tt> if none.
+	 */
+	public ProgressListener getProgressListener() {
+		return progressListener;
+	}
+
+	/**
+	 * Returns the number of cycles between calls to the progress listener.
+	 * @return The number of cycles.
+	 */
+	public int getProgressInterval() {
+		return progressInterval;
+	}
+
+	/**
+	 * Updates the progress listener.
+	 * @param progressListener The listener, or <tt>null</tt> for none.
+	 * @param interval The number of cycles between calls to the listener.
+	 * @throws IllegalArgumentException If the interval is not positive.
+	 */
+	public void setProgressListener(ProgressListener progressListener, int interval) throws IllegalArgumentException {
+		if(interval <= 0) throw new IllegalArgumentException("The progress interval must be positive!");
+		this.progressListener = progressListener;
+		this.progressInterval = interval;
+	}
+
+	/**
+	 * Returns the engine that executes the run.
+	 * @return The engine.
+	 */
+	public Engine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Updates the engine that executes the run.
+	 * <p>If the CPU doesn't support the functional engine, the datapath is
+	 * simulated instead (see {@link CPU#supportsFunctionalEngine()}).</p>
+	 * @param engine The engine.
+	 */
+	public void setEngine(Engine engine) {
+		this.engine = engine;
+	}
+}
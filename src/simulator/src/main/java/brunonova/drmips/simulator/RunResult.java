@@ -0,0 +1,94 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+/**
+ * The result of a run of the simulation, returned by {@link CPU#executeAll(RunOptions)}.
+ *
+ * @author Bruno Nova
+ */
+public class RunResult {
+	/** The reasons why a run stops. */
+	public enum Reason {
+		/** The program finished. */
+		FINISHED,
+		/** The breakpoint was hit. */
+		BREAKPOINT,
+		/** The maximum number of cycles or the maximum time was reached (possible infinite loop). */
+		BUDGET,
+		/** The run was cancelled. */
+		CANCELLED
+	}
+
+	/** Why the run stopped. */
+	private final Reason reason;
+	/** The number of cycles executed in the run. */
+	private final long cycles;
+	/** The duration of the run, in milliseconds. */
+	private final long time;
+
+	/**
+	 * Creates the result.
+	 * @param reason Why the run stopped.
+	 * @param cycles The number of cycles executed in the run.
+	 * @param time The duration of the run, in milliseconds.
+	 */
+	public RunResult(Reason reason, long cycles, long time) {
+		this.reason = reason;
+		this.cycles = cycles;
+		this.time = time;
+	}
+
+	/**
+	 * Returns why the run stopped.
+	 * @return The reason.
+	 */
+	public Reason getReason() {
+		return reason;
+	}
+
+	/**
+	 * Returns whether the program finished.
+	 * @return <tt>True</tt> if the reason is <tt>FINISHED</tt>.
+	 */
+	public boolean isFinished() {
+		return reason == Reason.FINISHED;
+	}
+
+	/**
+	 * Returns the number of cycles executed in the run.
+	 * @return The number of cycles.
+	 */
+	public long getCycles() {
+		return cycles;
+	}
+
+	/**
+	 * Returns the duration of the run.
+	 * @return The duration, in milliseconds.
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	@Override
+	public String toString() {
+		return reason + " (" + cycles + " cycles, " + time + " ms)";
+	}
+}
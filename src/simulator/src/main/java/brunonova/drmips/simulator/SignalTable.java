@@ -0,0 +1,124 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import java.util.Arrays;
+
+/**
+ * The values of all the wires of a CPU, stored in a single array.
+ *
+ * <p>Each wire (a connected output/input pair) is assigned a slot when it is
+ * connected, and both ports read and write their value in that slot instead
+ * of keeping two copies synchronized. The mask of each value (given by the
+ * size of the wire) is kept in a parallel array.<br>
+ * Since all the values are in one array, the state of all the wires can be
+ * copied at once with <tt>saveValues()</tt> and <tt>restoreValues()</tt>.</p>
+ *
+ * @author Bruno Nova
+ */
+public final class SignalTable {
+	/** The initial capacity of the arrays. */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** The value of each wire. */
+	private int[] values = new int[INITIAL_CAPACITY];
+	/** The mask of the value of each wire. */
+	private int[] masks = new int[INITIAL_CAPACITY];
+	/** The number of allocated slots. */
+	private int size = 0;
+
+	/**
+	 * Creates an empty signal table.
+	 */
+	SignalTable() { }
+
+	/**
+	 * Allocates a slot for a new wire.
+	 * @param mask The mask of the value of the wire.
+	 * @param value The initial value of the wire.
+	 * @return The index of the slot.
+	 */
+	int allocate(int mask, int value) {
+		if(size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+			masks = Arrays.copyOf(masks, size * 2);
+		}
+		masks[size] = mask;
+		values[size] = value & mask;
+		return size++;
+	}
+
+	/**
+	 * Returns the number of wires in the table.
+	 * @return The number of allocated slots.
+	 */
+	public int getNumberOfSignals() {
+		return size;
+	}
+
+	/**
+	 * Returns the value of a wire.
+	 * @param slot The index of the slot of the wire.
+	 * @return The value of the wire.
+	 */
+	public int getValue(int slot) {
+		return values[slot];
+	}
+
+	/**
+	 * Updates the value of a wire, cut to the wire's size.
+	 * <p>The components connected to the wire are not notified, so use
+	 * <tt>Output.setValue()</tt> instead.</p>
+	 * @param slot The index of the slot of the wire.
+	 * @param value The new value.
+	 */
+	void setValue(int slot, int value) {
+		values[slot] = value & masks[slot];
+	}
+
+	/**
+	 * Returns the mask of the value of a wire.
+	 * @param slot The index of the slot of the wire.
+	 * @return The mask for the size of the wire.
+	 */
+	public int getMask(int slot) {
+		return masks[slot];
+	}
+
+	/**
+	 * Returns a copy of the values of all the wires.
+	 * @return The values, indexed by slot.
+	 */
+	public int[] saveValues() {
+		return Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * Restores the values of all the wires saved with <tt>saveValues()</tt>.
+	 * <p>The components are not executed, so the CPU must execute them
+	 * afterwards if the values differ from the ones they compute.</p>
+	 * @param saved The saved values.
+	 * @throws IllegalArgumentException If the number of values is different.
+	 */
+	public void restoreValues(int[] saved) throws IllegalArgumentException {
+		if(saved.length != size)
+			throw new IllegalArgumentException("The number of values is different from the number of wires!");
+		System.arraycopy(saved, 0, values, 0, size);
+	}
+}
@@ -0,0 +1,194 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import java.util.Arrays;
+
+/**
+ * Journal of the changes made to the internal state of a synchronous component.
+ *
+ * <p>Instead of saving a copy of the whole state in each clock cycle, the
+ * component records the old value of each position that it changes (the
+ * register, memory position, etc.). A mark is added at the start of each
+ * cycle, and the state of the previous cycle is restored by replaying the
+ * changes made after the last mark backwards.</p>
+ *
+ * <p>The changes are stored in primitive arrays that grow as needed, so
+ * recording a change doesn't allocate memory most of the time. Changes are
+ * only recorded after the first mark.</p>
+ *
+ * @author Bruno Nova
+ */
+public final class StateJournal {
+	/**
+	 * Interface of the objects whose state is restored by the journal.
+	 */
+	public interface Target {
+		/**
+		 * Restores the old value of a position of the state.
+		 * <p>The value must be set without recording the change in the journal.</p>
+		 * @param location The position that was changed (as recorded).
+		 * @param value The old value of the position.
+		 */
+		public void restoreState(int location, int value);
+	}
+
+	/** The initial capacity of the arrays. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** The object whose state is restored. */
+	private final Target target;
+	/** The positions changed. */
+	private int[] locations = new int[INITIAL_CAPACITY];
+	/** The old values of the positions changed. */
+	private int[] values = new int[INITIAL_CAPACITY];
+	/** The number of recorded changes. */
+	private int size = 0;
+	/** The number of recorded changes when each mark was added. */
+	private int[] marks = new int[INITIAL_CAPACITY];
+	/** The number of marks. */
+	private int markCount = 0;
+
+	/**
+	 * Creates an empty journal.
+	 * @param target The object whose state is restored.
+	 */
+	public StateJournal(Target target) {
+		this.target = target;
+	}
+
+	/**
+	 * Adds a mark, which starts recording the changes of a new clock cycle.
+	 */
+	public void mark() {
+		if(markCount == marks.length)
+			marks = Arrays.copyOf(marks, markCount * 2);
+		marks[markCount++] = size;
+	}
+
+	/**
+	 * Records a change to the state.
+	 * <p>Nothing is recorded if there are no marks.</p>
+	 * @param location The position being changed.
+	 * @param oldValue The value of the position before the change.
+	 */
+	public void record(int location, int oldValue) {
+		if(markCount == 0) return;
+		if(size == locations.length) {
+			locations = Arrays.copyOf(locations, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		locations[size] = location;
+		values[size] = oldValue;
+		size++;
+	}
+
+	/**
+	 * Returns whether the journal has marks (if a "back step" is possible).
+	 * @return <tt>True</tt> if there are marks.
+	 */
+	public boolean hasMarks() {
+		return markCount > 0;
+	}
+
+	/**
+	 * Returns the number of marks (saved cycles).
+	 * @return The number of marks.
+	 */
+	public int getNumberOfMarks() {
+		return markCount;
+	}
+
+	/**
+	 * Restores the state at the last mark, and removes that mark.
+	 */
+	public void undo() {
+		if(markCount > 0)
+			undoTo(marks[--markCount]);
+	}
+
+	/**
+	 * Restores the state at the first mark, and removes all marks.
+	 */
+	public void undoAll() {
+		if(markCount > 0) {
+			markCount = 0;
+			undoTo(0);
+		}
+	}
+
+	/**
+	 * Removes all marks and recorded changes, without changing the state.
+	 */
+	public void clear() {
+		size = markCount = 0;
+		if(locations.length > INITIAL_CAPACITY) { // release the memory
+			locations = new int[INITIAL_CAPACITY];
+			values = new int[INITIAL_CAPACITY];
+		}
+		if(marks.length > INITIAL_CAPACITY)
+			marks = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Removes the oldest marks and the changes recorded after them, without
+	 * changing the state.
+	 * <p>The state before those cycles can't be restored afterwards.</p>
+	 * @param count The number of marks to remove.
+	 */
+	public void dropOldest(int count) {
+		if(count <= 0) return;
+		if(count >= markCount) {
+			clear();
+			return;
+		}
+		int cut = marks[count];
+		size -= cut;
+		System.arraycopy(locations, cut, locations, 0, size);
+		System.arraycopy(values, cut, values, 0, size);
+		markCount -= count;
+		for(int i = 0; i < markCount; i++)
+			marks[i] = marks[i + count] - cut;
+		if(size > INITIAL_CAPACITY && size < locations.length / 4) { // release the unused memory
+			locations = Arrays.copyOf(locations, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		if(markCount > INITIAL_CAPACITY && markCount < marks.length / 4)
+			marks = Arrays.copyOf(marks, markCount * 2);
+	}
+
+	/**
+	 * Returns the approximate memory used by the recorded changes and marks.
+	 * @return The used memory, in bytes.
+	 */
+	public long getMemoryUsage() {
+		return 4L * (2 * size + markCount);
+	}
+
+	/**
+	 * Replays the recorded changes backwards, until the given number of changes remains.
+	 * @param newSize The number of changes that remain.
+	 */
+	private void undoTo(int newSize) {
+		while(size > newSize) {
+			size--;
+			target.restoreState(locations[size], values[size]);
+		}
+	}
+}
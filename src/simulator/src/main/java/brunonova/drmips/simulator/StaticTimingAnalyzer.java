@@ -0,0 +1,477 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Calculates the accumulated latencies and the critical path of a CPU in a
+ * single sweep over a precomputed topological order.
+ *
+ * <p>The components are sorted topologically once, when the CPU is loaded,
+ * using only the inputs that change the component's accumulated latency (the
+ * others are only used at the end of the clock cycle). The accumulated latency
+ * of each component is then calculated once, after those of all the components
+ * connected to its inputs, instead of being recalculated recursively every time
+ * one of its inputs is updated (which can happen once for each path that
+ * reaches it).</p>
+ *
+ * <p>The results are the same as those of the recursive propagation: only
+ * the components reached from the synchronous components get an accumulated
+ * latency, and each input gets the accumulated latency of the component
+ * connected to it. The critical path is marked with a reverse sweep over the
+ * same order.</p>
+ *
+ * <p>When the latencies of only a few components change, the accumulated
+ * latencies can be updated incrementally (see
+ * {@link #updateAccumulatedLatencies(Collection, boolean)}): only the
+ * components in their fan-out cone are recalculated, and the propagation
+ * stops at the components whose accumulated latencies don't change.</p>
+ *
+ * <p>An analyzer can't be created if the datapath has a combinational loop or
+ * if a (custom) component overrides
+ * {@link Component#updateAccumulatedLatency(boolean)}. The CPU uses the
+ * recursive propagation in that case.</p>
+ *
+ * @author Bruno Nova
+ */
+public final class StaticTimingAnalyzer {
+	/** The components, in topological order. */
+	private final Component[] order;
+	/** The position of each component in the order. */
+	private final Map<Component, Integer> ranks;
+	/** The position of the component connected to each input of each component (-1 if not connected). */
+	private final int[][] drivers;
+	/** Whether each component is reached by the propagation of the latencies from the synchronous components. */
+	private final boolean[] reached;
+	/** The position of the components connected to the outputs of each component, through inputs that change their accumulated latencies. */
+	private final int[][] successors;
+	/** The accumulated latencies of the components, for the CPU (0) and for the instruction (1). */
+	private final int[][] latencies;
+	/** Whether the accumulated latencies of the CPU were calculated. */
+	private boolean calculated = false;
+	/** Whether the components have the accumulated latencies that depend on the instruction (instead of those of the CPU). */
+	private boolean instructionLatencies = false;
+	/** The number of components recalculated by the last incremental update. */
+	private int recalculated = 0;
+
+	/**
+	 * Creates the analyzer for the given components, already sorted.
+	 * @param order The components, in topological order.
+	 * @param ranks The position of each component in the order.
+	 * @param drivers The position of the component connected to each input of each component.
+	 * @param reached Whether each component is reached by the propagation of the latencies.
+	 * @param successors The position of the components connected to the outputs of each component.
+	 */
+	private StaticTimingAnalyzer(Component[] order, Map<Component, Integer> ranks, int[][] drivers, boolean[] reached, int[][] successors) {
+		this.order = order;
+		this.ranks = ranks;
+		this.drivers = drivers;
+		this.reached = reached;
+		this.successors = successors;
+		latencies = new int[2][order.length];
+	}
+
+	/**
+	 * Sorts the given components topologically and creates their analyzer.
+	 * @param components The components of the CPU (with the wires already connected).
+	 * @param synchronous The synchronous components of the CPU.
+	 * @return The analyzer, or <tt>null</tt> if a component overrides the
+	 * calculation of its accumulated latency or if there is a combinational loop.
+	 */
+	public static StaticTimingAnalyzer compile(Component[] components, List<Component> synchronous) {
+		int n = components.length;
+		Map<Component, Integer> indexes = new IdentityHashMap<>(n);
+		for(int i = 0; i < n; i++) {
+			if(overridesLatencyCalculation(components[i].getClass()))
+				return null;
+			indexes.put(components[i], i);
+		}
+
+		// Build the combinational graph
+		List<List<Integer>> successors = new ArrayList<>(n);
+		int[] inDegree = new int[n];
+		for(int i = 0; i < n; i++) {
+			List<Integer> succ = new ArrayList<>();
+			for(Output o: components[i].getOutputArray()) {
+				if(o.isConnected() && o.getConnectedInput().canChangeComponentAccumulatedLatency()) {
+					Integer j = indexes.get(o.getConnectedInput().getComponent());
+					if(j != null) {
+						succ.add(j);
+						inDegree[j]++;
+					}
+				}
+			}
+			successors.add(succ);
+		}
+
+		// Sort it (Kahn's algorithm)
+		Queue<Integer> queue = new LinkedList<>();
+		int[] sorted = new int[n];
+		int count = 0;
+		for(int i = 0; i < n; i++)
+			if(inDegree[i] == 0) queue.add(i);
+		while(!queue.isEmpty()) {
+			int i = queue.remove();
+			sorted[count++] = i;
+			for(int j: successors.get(i))
+				if(--inDegree[j] == 0) queue.add(j);
+		}
+		if(count < n) // combinational loop
+			return null;
+
+		Component[] order = new Component[n];
+		Map<Component, Integer> ranks = new IdentityHashMap<>(n);
+		for(int r = 0; r < n; r++) {
+			order[r] = components[sorted[r]];
+			ranks.put(order[r], r);
+		}
+
+		// Find the components reached from the synchronous components
+		boolean[] reached = new boolean[n];
+		for(Component c: synchronous) {
+			Integer r = ranks.get(c);
+			if(r != null) reached[r] = true;
+		}
+		for(int r = 0; r < n; r++) {
+			if(reached[r]) {
+				for(int j: successors.get(sorted[r]))
+					reached[ranks.get(components[j])] = true;
+			}
+		}
+
+		// Find the component connected to each input, and those connected to each output
+		int[][] drivers = new int[n][];
+		int[][] succ = new int[n][];
+		for(int r = 0; r < n; r++) {
+			List<Integer> s = successors.get(sorted[r]);
+			succ[r] = new int[s.size()];
+			for(int j = 0; j < s.size(); j++)
+				succ[r][j] = ranks.get(components[s.get(j)]);
+
+			Input[] inputs = order[r].getInputArray();
+			drivers[r] = new int[inputs.length];
+			for(int i = 0; i < inputs.length; i++) {
+				Integer d = inputs[i].isConnected() ? ranks.get(inputs[i].getConnectedOutput().getComponent()) : null;
+				drivers[r][i] = d != null ? d : -1;
+			}
+		}
+
+		return new StaticTimingAnalyzer(order, ranks, drivers, reached, succ);
+	}
+
+	/**
+	 * Returns whether the given class of a component overrides the calculation
+	 * of the accumulated latency.
+	 * @param type The class of the component.
+	 * @return <tt>True</tt> if it (or a superclass) overrides <tt>updateAccumulatedLatency(boolean)</tt>.
+	 */
+	private static boolean overridesLatencyCalculation(Class<?> type) {
+		for(Class<?> c = type; c != null && c != Component.class; c = c.getSuperclass()) {
+			for(Method m: c.getDeclaredMethods()) {
+				if(m.getName().equals("updateAccumulatedLatency") && m.getParameterTypes().length == 1
+					&& m.getParameterTypes()[0] == boolean.class)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Calculates the accumulated latencies of the components and their inputs.
+	 * <p>The performance information of the components must have been reset
+	 * (see {@link Component#resetPerformance()}).</p>
+	 * @param instructionDependent Whether the latencies should depend on the current instruction.
+	 */
+	public void calculateAccumulatedLatencies(boolean instructionDependent) {
+		int[] values = latencies[instructionDependent ? 1 : 0];
+		for(int r = 0; r < order.length; r++)
+			values[r] = reached[r] ? updateAccumulatedLatency(order[r], instructionDependent) : 0;
+		if(!instructionDependent) calculated = true;
+		instructionLatencies = instructionDependent;
+	}
+
+	/**
+	 * Updates the accumulated latencies after the latencies of the given
+	 * components changed, recalculating only the components in their fan-out cone.
+	 * <p>The accumulated latencies must have been calculated before with
+	 * <tt>calculateAccumulatedLatencies()</tt> (see <tt>hasAccumulatedLatencies()</tt>),
+	 * and only the latencies of the given components may have changed since then.</p>
+	 * <p>The accumulated latencies of the CPU are always updated (see
+	 * <tt>getHighestAccumulatedLatency()</tt>), but are only set in the
+	 * components if they were the last ones calculated. Those of the
+	 * instruction are updated from the ones in the components, which must be
+	 * those of the current instruction. The critical path isn't updated.</p>
+	 * @param changed The components whose latencies changed.
+	 * @param instructionDependent Whether to update the accumulated latencies of the instruction (the ones in the components).
+	 */
+	public void updateAccumulatedLatencies(Collection<Component> changed, boolean instructionDependent) {
+		int[] values = latencies[instructionDependent ? 1 : 0];
+		boolean apply = instructionDependent == instructionLatencies;
+		if(instructionDependent) { // the latencies in the components may have been restored from the cache
+			for(int r = 0; r < order.length; r++)
+				values[r] = order[r].getAccumulatedLatency();
+		}
+
+		BitSet pending = new BitSet(order.length);
+		for(Component c: changed) {
+			Integer r = ranks.get(c);
+			if(r != null && reached[r]) pending.set(r); // the others always have 0
+		}
+		recalculated = 0;
+		for(int r = pending.nextSetBit(0); r >= 0; r = pending.nextSetBit(r + 1)) {
+			int latency = calculateAccumulatedLatency(r, values, instructionDependent);
+			recalculated++;
+			if(latency != values[r]) {
+				values[r] = latency;
+				if(apply) setAccumulatedLatency(order[r], latency);
+				for(int s: successors[r])
+					pending.set(s);
+			}
+		}
+	}
+
+	/**
+	 * Calculates the accumulated latency of a component from the accumulated
+	 * latencies of the components connected to its inputs.
+	 * @param r The position of the component in the order.
+	 * @param values The accumulated latencies of the components.
+	 * @param instructionDependent Whether the latency should depend on the current instruction.
+	 * @return The accumulated latency of the component.
+	 */
+	private int calculateAccumulatedLatency(int r, int[] values, boolean instructionDependent) {
+		Component c = order[r];
+		int latency = 0, driver;
+		if(instructionDependent) {
+			List<Input> inputs = c.getLatencyInputs();
+			Input i;
+			for(int x = 0; x < inputs.size(); x++) {
+				i = inputs.get(x);
+				if(i.canChangeComponentAccumulatedLatency() && i.isConnected()) {
+					Integer d = ranks.get(i.getConnectedOutput().getComponent());
+					driver = d != null ? d : -1;
+					if(driver >= 0 && reached[driver] && values[driver] > latency)
+						latency = values[driver];
+				}
+			}
+		}
+		else {
+			Input[] inputs = c.getInputArray();
+			for(int x = 0; x < inputs.length; x++) {
+				driver = drivers[r][x];
+				if(driver >= 0 && reached[driver] && inputs[x].canChangeComponentAccumulatedLatency() && values[driver] > latency)
+					latency = values[driver];
+			}
+		}
+		return latency + c.getLatency();
+	}
+
+	/**
+	 * Updates the accumulated latency of the given component, based on its
+	 * inputs' accumulated latencies, and sets it in the connected inputs.
+	 * <p>This is the same as {@link Component#updateAccumulatedLatency(boolean)},
+	 * without the recursion.</p>
+	 * @param c The component.
+	 * @param instructionDependent Whether the latencies should depend on the current instruction.
+	 */
+	private int updateAccumulatedLatency(Component c, boolean instructionDependent) {
+		int latency = 0;
+		List<Input> inputs = instructionDependent ? c.getLatencyInputs() : c.getInputs();
+		Input i;
+		for(int x = 0; x < inputs.size(); x++) { // get highest accumulated latency from inputs
+			i = inputs.get(x);
+			if(i.canChangeComponentAccumulatedLatency() && i.getAccumulatedLatency() > latency)
+				latency = i.getAccumulatedLatency();
+		}
+		latency += c.getLatency(); // add the component's own latency
+		setAccumulatedLatency(c, latency);
+		return latency;
+	}
+
+	/**
+	 * Sets the accumulated latency of the given component and of the inputs connected to it.
+	 * @param c The component.
+	 * @param latency The accumulated latency.
+	 */
+	private void setAccumulatedLatency(Component c, int latency) {
+		c.restoreAccumulatedLatency(latency);
+		for(Output o: c.getOutputArray()) {
+			if(o.isConnected())
+				o.getConnectedInput().restoreAccumulatedLatency(latency >= 0 ? latency : 0);
+		}
+	}
+
+	/**
+	 * Marks the critical path that ends in the given inputs.
+	 * <p>The outputs connected to the inputs are marked, along with the
+	 * outputs connected to the inputs of their components that have the
+	 * highest accumulated latency, and so on.</p>
+	 * @param endpoints The inputs with the highest accumulated latency.
+	 */
+	public void markCriticalPath(List<Input> endpoints) {
+		boolean[] critical = new boolean[order.length];
+		for(Input in: endpoints) {
+			in.getConnectedOutput().setInCriticalPath(true);
+			Integer r = ranks.get(in.getConnectedOutput().getComponent());
+			if(r != null) critical[r] = true;
+		}
+
+		for(int r = order.length - 1; r >= 0; r--) { // the components are reached backwards
+			if(!critical[r]) continue;
+			Component c = order[r];
+			int latency = c.getAccumulatedLatency() - c.getLatency();
+			Input[] inputs = c.getInputArray();
+			for(int x = 0; x < inputs.length; x++) {
+				Input i = inputs[x];
+				if(i.canChangeComponentAccumulatedLatency() && i.getAccumulatedLatency() == latency && drivers[r][x] >= 0) {
+					i.getConnectedOutput().setInCriticalPath(true);
+					critical[drivers[r][x]] = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the accumulated latencies of the CPU were already calculated
+	 * (and can be updated incrementally).
+	 * @return <tt>True</tt> if <tt>calculateAccumulatedLatencies(false)</tt> was called.
+	 */
+	public boolean hasAccumulatedLatencies() {
+		return calculated;
+	}
+
+	/**
+	 * Returns the highest accumulated latency of the CPU (not dependent on the
+	 * instruction), which is its clock period.
+	 * @return The highest accumulated latency of the CPU.
+	 */
+	public int getHighestAccumulatedLatency() {
+		int max = 0;
+		for(int r = 0; r < order.length; r++) {
+			if(reached[r] && latencies[0][r] > max)
+				max = latencies[0][r];
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the number of components recalculated by the last incremental update.
+	 * @return Number of components in the part of the fan-out cone that was recalculated.
+	 */
+	public int getNumberOfRecalculatedComponents() {
+		return recalculated;
+	}
+
+	/**
+	 * Returns the components, in topological order.
+	 * @return Copy of the order.
+	 */
+	public Component[] getOrder() {
+		return order.clone();
+	}
+
+	/**
+	 * Returns whether the given component is reached by the propagation of
+	 * the latencies from the synchronous components.
+	 * <p>The components that aren't reached (like constants) always have an
+	 * accumulated latency of 0.</p>
+	 * @param component The component.
+	 * @return <tt>True</tt> if the component is reached.
+	 */
+	public boolean isReached(Component component) {
+		Integer r = ranks.get(component);
+		return r != null && reached[r];
+	}
+
+	/**
+	 * Returns the number of components in the order.
+	 * @return Number of components.
+	 */
+	int getNumberOfComponents() {
+		return order.length;
+	}
+
+	/**
+	 * Returns the component in the given position of the order.
+	 * @param r The position of the component.
+	 * @return The component.
+	 */
+	Component getComponent(int r) {
+		return order[r];
+	}
+
+	/**
+	 * Returns the position of the given component in the order.
+	 * @param component The component.
+	 * @return The position, or -1 if the component isn't in the order.
+	 */
+	int getRank(Component component) {
+		Integer r = ranks.get(component);
+		return r != null ? r : -1;
+	}
+
+	/**
+	 * Returns the position of the component connected to the given input of a component.
+	 * @param r The position of the component.
+	 * @param input The index of the input in the component's input array.
+	 * @return The position of the connected component, or -1 if not connected.
+	 */
+	int getDriver(int r, int input) {
+		return drivers[r][input];
+	}
+
+	/**
+	 * Returns whether the component in the given position is reached by the
+	 * propagation of the latencies from the synchronous components.
+	 * @param r The position of the component.
+	 * @return <tt>True</tt> if the component is reached.
+	 */
+	boolean isReached(int r) {
+		return reached[r];
+	}
+
+	/**
+	 * Returns the positions of the components connected to the outputs of
+	 * the component in the given position, through inputs that change their
+	 * accumulated latencies.
+	 * @param r The position of the component.
+	 * @return The positions of the successors (not a copy).
+	 */
+	int[] getSuccessors(int r) {
+		return successors[r];
+	}
+
+	/**
+	 * Returns the accumulated latency of the CPU (not dependent on the
+	 * instruction) of the component in the given position.
+	 * @param r The position of the component.
+	 * @return The accumulated latency.
+	 */
+	int getAccumulatedLatency(int r) {
+		return latencies[0][r];
+	}
+}
@@ -27,7 +27,9 @@ package brunonova.drmips.simulator;
  * <tt>pushState()</tt>, <tt>popState()</tt>, <tt>hasSavedStates()</tt>,
  * <tt>clearSavedStates()</tt> and <tt>resetFirstState()</tt>.<br>
  * These methods are called automatically to save the internal state of the component
- * (to a stack, for example) or to restore the previous state.</p>
+ * or to restore the previous state. Instead of saving copies of the whole state,
+ * the components can record only the changes made in each cycle in a
+ * {@link StateJournal}.</p>
  *
  * @author Bruno Nova
  */
@@ -0,0 +1,578 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import brunonova.drmips.simulator.components.DataMemory;
+import brunonova.drmips.simulator.components.PC;
+import brunonova.drmips.simulator.components.RegBank;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import org.json.JSONObject;
+
+/**
+ * Report with the longest register-to-register paths of a CPU and the slack
+ * of its components.
+ *
+ * <p>The report is generated from the accumulated latencies of the CPU (not
+ * dependent on the instruction) calculated by its static timing analyzer. A
+ * path starts in a synchronous component (a register) and ends in an input
+ * that is only used at the end of the clock cycle (like the inputs of the PC
+ * and of the pipeline registers, or the write inputs of the register bank and
+ * the data memory). Its delay is the sum of the latencies of its components,
+ * and its slack is the difference between the clock period and the delay.</p>
+ *
+ * <p>The <tt>K</tt> longest paths are enumerated with a best-first search
+ * backwards from the endpoints: the accumulated latency of a component is the
+ * delay of its longest path, so the partial paths are expanded in the order of
+ * the delay of their longest completion, and only the <tt>K</tt> best need to
+ * be kept in the queue. The paths are listed for the whole CPU and, in a
+ * pipelined CPU, for each stage (the stage whose register/component receives
+ * the endpoint).</p>
+ *
+ * <p>The slack of a component is the slack of the longest path that goes
+ * through it.</p>
+ *
+ * @author Bruno Nova
+ */
+public final class TimingReport {
+	/** The default number of paths listed. */
+	public static final int DEFAULT_NUMBER_OF_PATHS = 10;
+
+	/** The stages of a pipelined CPU. */
+	public enum Stage {
+		/** Instruction fetch (ends in the PC and the IF/ID register). */
+		IF,
+		/** Instruction decode (ends in the ID/EX register). */
+		ID,
+		/** Execution (ends in the EX/MEM register). */
+		EX,
+		/** Memory access (ends in the MEM/WB register and in the data memory). */
+		MEM,
+		/** Write back (ends in the register bank). */
+		WB
+	}
+
+	/** The clock period of the CPU. */
+	private final int clockPeriod;
+	/** The maximum number of paths listed (for the CPU and for each stage). */
+	private final int maxPaths;
+	/** The longest paths of the CPU, from the longest one. */
+	private final List<Path> paths;
+	/** The longest paths of each stage (empty if the CPU isn't pipelined). */
+	private final Map<Stage, List<Path>> stagePaths = new EnumMap<>(Stage.class);
+	/** The slack of each component reached by the propagation of the latencies, in topological order. */
+	private final Map<Component, Integer> slacks = new LinkedHashMap<>();
+
+	/**
+	 * Generates the report.
+	 * @param cpu The CPU.
+	 * @param analyzer The static timing analyzer of the CPU.
+	 * @param maxPaths The maximum number of paths to list.
+	 */
+	private TimingReport(CPU cpu, StaticTimingAnalyzer analyzer, int maxPaths) {
+		this.clockPeriod = cpu.getClockPeriod();
+		this.maxPaths = maxPaths;
+
+		// Find the endpoints
+		List<Input> endpoints = new ArrayList<>();
+		Map<Stage, List<Input>> stageEndpoints = new EnumMap<>(Stage.class);
+		for(int r = 0; r < analyzer.getNumberOfComponents(); r++) {
+			Component c = analyzer.getComponent(r);
+			Stage stage = cpu.isPipeline() ? getStage(cpu, c) : null;
+			for(Input in: c.getInputArray()) {
+				if(in.isConnected() && !in.canChangeComponentAccumulatedLatency()) {
+					int driver = analyzer.getRank(in.getConnectedOutput().getComponent());
+					if(driver >= 0 && analyzer.isReached(driver)) {
+						endpoints.add(in);
+						if(stage != null) {
+							if(!stageEndpoints.containsKey(stage))
+								stageEndpoints.put(stage, new ArrayList<Input>());
+							stageEndpoints.get(stage).add(in);
+						}
+					}
+				}
+			}
+		}
+
+		paths = findLongestPaths(analyzer, endpoints, null);
+		for(Map.Entry<Stage, List<Input>> e: stageEndpoints.entrySet())
+			stagePaths.put(e.getKey(), findLongestPaths(analyzer, e.getValue(), e.getKey()));
+		calculateSlacks(analyzer, endpoints);
+	}
+
+	/**
+	 * Generates the timing report of the given CPU.
+	 * <p>The report can only be generated if the CPU uses the static timing
+	 * analysis (see {@link CPU#getStaticTimingAnalyzer()}) and its accumulated
+	 * latencies were already calculated.</p>
+	 * @param cpu The CPU.
+	 * @param maxPaths The maximum number of paths to list, for the CPU and for each stage.
+	 * @return The report, or <tt>null</tt> if it can't be generated.
+	 * @throws IllegalArgumentException If the number of paths isn't positive.
+	 */
+	public static TimingReport generate(CPU cpu, int maxPaths) throws IllegalArgumentException {
+		if(maxPaths <= 0) throw new IllegalArgumentException("The number of paths must be positive!");
+		StaticTimingAnalyzer analyzer = cpu.getStaticTimingAnalyzer();
+		if(analyzer == null || !analyzer.hasAccumulatedLatencies())
+			return null;
+		return new TimingReport(cpu, analyzer, maxPaths);
+	}
+
+	/**
+	 * Returns the stage of the endpoints in the inputs of the given component.
+	 * @param cpu The (pipelined) CPU.
+	 * @param c The component.
+	 * @return The stage, or <tt>null</tt> if the component doesn't end a stage.
+	 */
+	static Stage getStage(CPU cpu, Component c) {
+		if(c instanceof PC || c == cpu.getIfIdReg())
+			return Stage.IF;
+		else if(c == cpu.getIdExReg())
+			return Stage.ID;
+		else if(c == cpu.getExMemReg())
+			return Stage.EX;
+		else if(c == cpu.getMemWbReg() || c instanceof DataMemory)
+			return Stage.MEM;
+		else if(c instanceof RegBank)
+			return Stage.WB;
+		else
+			return null;
+	}
+
+	/**
+	 * Finds the longest paths that end in the given inputs.
+	 * @param analyzer The static timing analyzer of the CPU.
+	 * @param endpoints The inputs where the paths end.
+	 * @param stage The stage of the paths (<tt>null</tt> for the whole CPU).
+	 * @return The longest paths, from the longest one (at most <tt>maxPaths</tt>).
+	 */
+	private List<Path> findLongestPaths(StaticTimingAnalyzer analyzer, List<Input> endpoints, Stage stage) {
+		TreeSet<Step> queue = new TreeSet<>(Step.COMPARATOR);
+		long sequence = 0;
+		for(Input in: endpoints) {
+			int r = analyzer.getRank(in.getConnectedOutput().getComponent());
+			queue.add(new Step(r, in, 0, analyzer.getAccumulatedLatency(r), null, sequence++));
+			if(queue.size() > maxPaths) queue.pollLast();
+		}
+
+		List<Path> found = new ArrayList<>(maxPaths);
+		while(!queue.isEmpty() && found.size() < maxPaths) {
+			Step step = queue.pollFirst();
+			Component c = analyzer.getComponent(step.rank);
+			int suffix = step.suffix + c.getLatency();
+			boolean start = true;
+			Input[] inputs = c.getInputArray();
+			for(int x = 0; x < inputs.length; x++) {
+				int driver = analyzer.getDriver(step.rank, x);
+				if(driver >= 0 && analyzer.isReached(driver) && inputs[x].canChangeComponentAccumulatedLatency()) {
+					start = false;
+					queue.add(new Step(driver, inputs[x], suffix, analyzer.getAccumulatedLatency(driver) + suffix, step, sequence++));
+				}
+			}
+			if(start) // the path starts in this (synchronous) component
+				found.add(new Path(analyzer, step, stage, clockPeriod));
+			while(queue.size() > maxPaths - found.size()) // bound the queue
+				queue.pollLast();
+		}
+		return Collections.unmodifiableList(found);
+	}
+
+	/**
+	 * Calculates the slack of the components, from the required times of
+	 * their outputs (the latest times their values can arrive at the endpoints).
+	 * @param analyzer The static timing analyzer of the CPU.
+	 * @param endpoints The inputs where the paths end.
+	 */
+	private void calculateSlacks(StaticTimingAnalyzer analyzer, List<Input> endpoints) {
+		int n = analyzer.getNumberOfComponents();
+		int[] required = new int[n];
+		for(int r = 0; r < n; r++)
+			required[r] = Integer.MAX_VALUE;
+		for(Input in: endpoints)
+			required[analyzer.getRank(in.getConnectedOutput().getComponent())] = clockPeriod;
+
+		for(int r = n - 1; r >= 0; r--) { // the successors are reached first
+			if(!analyzer.isReached(r)) continue;
+			for(int s: analyzer.getSuccessors(r)) {
+				int time = required[s] - analyzer.getComponent(s).getLatency();
+				if(time < required[r]) required[r] = time;
+			}
+			if(required[r] == Integer.MAX_VALUE) // not connected to an endpoint
+				required[r] = clockPeriod;
+		}
+
+		for(int r = 0; r < n; r++) {
+			if(analyzer.isReached(r))
+				slacks.put(analyzer.getComponent(r), required[r] - analyzer.getAccumulatedLatency(r));
+		}
+	}
+
+	/**
+	 * Returns the clock period of the CPU when the report was generated.
+	 * @return The clock period in the <tt>CPU.LATENCY_UNIT</tt> unit.
+	 */
+	public int getClockPeriod() {
+		return clockPeriod;
+	}
+
+	/**
+	 * Returns the maximum number of paths listed, for the CPU and for each stage.
+	 * @return The maximum number of paths.
+	 */
+	public int getMaxPaths() {
+		return maxPaths;
+	}
+
+	/**
+	 * Returns the longest paths of the CPU.
+	 * @return The paths, from the longest one.
+	 */
+	public List<Path> getPaths() {
+		return paths;
+	}
+
+	/**
+	 * Returns the stages whose paths are listed.
+	 * @return The stages, in order (empty if the CPU isn't pipelined).
+	 */
+	public List<Stage> getStages() {
+		return new ArrayList<>(stagePaths.keySet());
+	}
+
+	/**
+	 * Returns the longest paths of the given stage.
+	 * @param stage The stage.
+	 * @return The paths, from the longest one (empty if there are none).
+	 */
+	public List<Path> getPaths(Stage stage) {
+		List<Path> list = stagePaths.get(stage);
+		return list != null ? list : Collections.<Path>emptyList();
+	}
+
+	/**
+	 * Returns the delay of the longest path of the given stage.
+	 * @param stage The stage.
+	 * @return The delay, or 0 if the stage has no paths.
+	 */
+	public int getCriticalDelay(Stage stage) {
+		List<Path> list = getPaths(stage);
+		return list.isEmpty() ? 0 : list.get(0).getDelay();
+	}
+
+	/**
+	 * Returns the slack of the given stage (of its longest path).
+	 * @param stage The stage.
+	 * @return The difference between the clock period and the critical delay of the stage.
+	 */
+	public int getSlack(Stage stage) {
+		return clockPeriod - getCriticalDelay(stage);
+	}
+
+	/**
+	 * Returns the slack of the given component (of the longest path that goes through it).
+	 * @param component The component.
+	 * @return The slack, or the clock period if the component isn't reached
+	 * by the propagation of the latencies (like constants).
+	 */
+	public int getSlack(Component component) {
+		Integer slack = slacks.get(component);
+		return slack != null ? slack : clockPeriod;
+	}
+
+	/**
+	 * Returns the slack of the components reached by the propagation of the latencies.
+	 * @return The slack of each component, in topological order.
+	 */
+	public Map<Component, Integer> getSlacks() {
+		return Collections.unmodifiableMap(slacks);
+	}
+
+	/**
+	 * Returns the report as text.
+	 * @return The report, with the paths of the CPU, of each stage and the
+	 * slack of the components (from the lowest one).
+	 */
+	public String toText() {
+		StringBuilder sb = new StringBuilder(1024);
+		sb.append("Clock period: ").append(clockPeriod).append(' ').append(CPU.LATENCY_UNIT).append('\n');
+		sb.append("\nLongest paths:\n");
+		appendPaths(sb, paths);
+		for(Stage stage: getStages()) {
+			sb.append("\nStage ").append(stage).append(" (critical delay: ").append(getCriticalDelay(stage))
+				.append(' ').append(CPU.LATENCY_UNIT).append(", slack: ").append(getSlack(stage))
+				.append(' ').append(CPU.LATENCY_UNIT).append("):\n");
+			appendPaths(sb, getPaths(stage));
+		}
+
+		sb.append("\nSlack of the components:\n");
+		List<Map.Entry<Component, Integer>> entries = new ArrayList<>(slacks.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<Component, Integer>>() {
+			@Override
+			public int compare(Map.Entry<Component, Integer> e1, Map.Entry<Component, Integer> e2) {
+				return Integer.compare(e1.getValue(), e2.getValue()); // stable: topological order on ties
+			}
+		});
+		for(Map.Entry<Component, Integer> e: entries) {
+			sb.append("  ").append(e.getKey().getId()).append(": ").append(e.getValue())
+				.append(' ').append(CPU.LATENCY_UNIT).append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Appends the given paths to the text report.
+	 * @param sb The text report.
+	 * @param list The paths.
+	 */
+	private void appendPaths(StringBuilder sb, List<Path> list) {
+		for(int i = 0; i < list.size(); i++) {
+			Path p = list.get(i);
+			sb.append("  ").append(i + 1).append(") ").append(p.getDelay()).append(' ').append(CPU.LATENCY_UNIT)
+				.append(" (slack: ").append(p.getSlack()).append(' ').append(CPU.LATENCY_UNIT).append("): ")
+				.append(p).append('\n');
+		}
+	}
+
+	/**
+	 * Returns the report as a JSON object.
+	 * <p>The fields are written in a fixed order, so that the reports can be
+	 * compared.</p>
+	 * @return The report in JSON.
+	 */
+	public String toJSON() {
+		StringBuilder sb = new StringBuilder(1024);
+		sb.append("{\"clock_period\":").append(clockPeriod);
+		sb.append(",\"unit\":").append(JSONObject.quote(CPU.LATENCY_UNIT));
+		sb.append(",\"paths\":");
+		appendJSONPaths(sb.append('['), paths).append(']');
+		sb.append(",\"stages\":{");
+		boolean first = true;
+		for(Stage stage: getStages()) {
+			if(!first) sb.append(',');
+			first = false;
+			sb.append('"').append(stage).append("\":{\"critical_delay\":").append(getCriticalDelay(stage));
+			sb.append(",\"slack\":").append(getSlack(stage)).append(",\"paths\":[");
+			appendJSONPaths(sb, getPaths(stage)).append("]}");
+		}
+		sb.append("},\"slacks\":{");
+		first = true;
+		for(Map.Entry<Component, Integer> e: slacks.entrySet()) {
+			if(!first) sb.append(',');
+			first = false;
+			sb.append(JSONObject.quote(e.getKey().getId())).append(':').append(e.getValue());
+		}
+		sb.append("}}");
+		return sb.toString();
+	}
+
+	/**
+	 * Appends the given paths to the JSON report, separated by commas.
+	 * @param sb The JSON report.
+	 * @param list The paths.
+	 * @return The JSON report.
+	 */
+	private StringBuilder appendJSONPaths(StringBuilder sb, List<Path> list) {
+		for(int i = 0; i < list.size(); i++) {
+			if(i > 0) sb.append(',');
+			list.get(i).appendJSON(sb);
+		}
+		return sb;
+	}
+
+	@Override
+	public String toString() {
+		return toText();
+	}
+
+	/**
+	 * A partial path in the search, from a component to an endpoint.
+	 */
+	private static final class Step {
+		/** Orders the steps by the delay of their longest completion (highest first), then by creation. */
+		static final Comparator<Step> COMPARATOR = new Comparator<Step>() {
+			@Override
+			public int compare(Step s1, Step s2) {
+				if(s1.priority != s2.priority)
+					return Integer.compare(s2.priority, s1.priority);
+				else
+					return Long.compare(s1.sequence, s2.sequence);
+			}
+		};
+
+		/** The position of the component in the topological order. */
+		final int rank;
+		/** The input where the output of the component is used (of the next component or the endpoint). */
+		final Input input;
+		/** The sum of the latencies of the components after this one. */
+		final int suffix;
+		/** The delay of the longest path that includes this partial path. */
+		final int priority;
+		/** The next step (<tt>null</tt> for the endpoint). */
+		final Step next;
+		/** The order of creation (to break ties). */
+		final long sequence;
+
+		Step(int rank, Input input, int suffix, int priority, Step next, long sequence) {
+			this.rank = rank;
+			this.input = input;
+			this.suffix = suffix;
+			this.priority = priority;
+			this.next = next;
+			this.sequence = sequence;
+		}
+	}
+
+	/**
+	 * A register-to-register path.
+	 */
+	public static final class Path {
+		/** The components of the path, from the start. */
+		private final Component[] components;
+		/** The input where the output of each component is used (the last one is the endpoint). */
+		private final Input[] inputs;
+		/** The time when the output of each component is ready, since the start of the cycle. */
+		private final int[] arrivals;
+		/** The stage of the path (<tt>null</tt> if not listed by stage). */
+		private final Stage stage;
+		/** The slack of the path. */
+		private final int slack;
+
+		/**
+		 * Creates the path from the steps of the search.
+		 * @param analyzer The static timing analyzer of the CPU.
+		 * @param start The first step of the path.
+		 * @param stage The stage of the path.
+		 * @param clockPeriod The clock period of the CPU.
+		 */
+		private Path(StaticTimingAnalyzer analyzer, Step start, Stage stage, int clockPeriod) {
+			int n = 0;
+			for(Step s = start; s != null; s = s.next)
+				n++;
+			components = new Component[n];
+			inputs = new Input[n];
+			arrivals = new int[n];
+			int time = 0, i = 0;
+			for(Step s = start; s != null; s = s.next, i++) {
+				components[i] = analyzer.getComponent(s.rank);
+				inputs[i] = s.input;
+				time += components[i].getLatency();
+				arrivals[i] = time;
+			}
+			this.stage = stage;
+			this.slack = clockPeriod - time;
+		}
+
+		/**
+		 * Returns the components of the path.
+		 * @return The components, from the start (a synchronous component).
+		 */
+		public List<Component> getComponents() {
+			List<Component> list = new ArrayList<>(components.length);
+			Collections.addAll(list, components);
+			return list;
+		}
+
+		/**
+		 * Returns the input where the output of the component in the given position is used.
+		 * @param index The position of the component in the path.
+		 * @return The input of the next component, or the endpoint for the last one.
+		 */
+		public Input getInput(int index) {
+			return inputs[index];
+		}
+
+		/**
+		 * Returns the time when the output of the component in the given
+		 * position is ready, since the start of the clock cycle.
+		 * @param index The position of the component in the path.
+		 * @return The sum of the latencies of the components up to that one.
+		 */
+		public int getArrivalTime(int index) {
+			return arrivals[index];
+		}
+
+		/**
+		 * Returns the input where the path ends.
+		 * @return The endpoint (used only at the end of the clock cycle).
+		 */
+		public Input getEndpoint() {
+			return inputs[inputs.length - 1];
+		}
+
+		/**
+		 * Returns the delay of the path.
+		 * @return The sum of the latencies of its components.
+		 */
+		public int getDelay() {
+			return arrivals[arrivals.length - 1];
+		}
+
+		/**
+		 * Returns the slack of the path.
+		 * @return The difference between the clock period and the delay.
+		 */
+		public int getSlack() {
+			return slack;
+		}
+
+		/**
+		 * Returns the stage of the path.
+		 * @return The stage, or <tt>null</tt> if the path was listed for the whole CPU.
+		 */
+		public Stage getStage() {
+			return stage;
+		}
+
+		/**
+		 * Appends the path to a JSON report.
+		 * @param sb The JSON report.
+		 */
+		private void appendJSON(StringBuilder sb) {
+			sb.append("{\"delay\":").append(getDelay()).append(",\"slack\":").append(slack);
+			sb.append(",\"components\":[");
+			for(int i = 0; i < components.length; i++) {
+				if(i > 0) sb.append(',');
+				sb.append("{\"id\":").append(JSONObject.quote(components[i].getId()));
+				if(i > 0) sb.append(",\"input\":").append(JSONObject.quote(inputs[i - 1].getId()));
+				sb.append(",\"latency\":").append(components[i].getLatency());
+				sb.append(",\"arrival\":").append(arrivals[i]).append('}');
+			}
+			Input end = getEndpoint();
+			sb.append("],\"endpoint\":").append(JSONObject.quote(end.getComponent().getId() + "." + end.getId())).append('}');
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for(int i = 0; i < components.length; i++) {
+				sb.append(components[i].getId());
+				if(i > 0) sb.append('.').append(inputs[i - 1].getId()); // the input used, as a component can be reached by several
+				sb.append(" [").append(arrivals[i]).append("] -> ");
+			}
+			Input end = getEndpoint();
+			return sb.append(end.getComponent().getId()).append('.').append(end.getId()).toString();
+		}
+	}
+}
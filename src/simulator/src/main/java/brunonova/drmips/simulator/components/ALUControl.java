@@ -33,6 +33,7 @@ public class ALUControl extends Component {
 	private Input aluOp, func;
 	private String aluOpId, funcId; // temporary
 	private ControlALU controlALU = null;
+	private Output[] outputs = null; // outputs in the order of the control's outputs
 
 	/**
 	 * Component constructor.
@@ -49,8 +50,9 @@ public class ALUControl extends Component {
 
 	@Override
 	public void execute() {
-		for(String id: controlALU.getOutputsIds())
-			getOutput(id).setValue(controlALU.getControlValue(getALUOp().getValue(), getFunc().getValue(), id));
+		int[] values = controlALU.getControlValues(getALUOp().getValue(), getFunc().getValue());
+		for(int x = 0; x < outputs.length; x++)
+			outputs[x].setValue(values[x]);
 	}
 
 	/**
@@ -66,8 +68,10 @@ public class ALUControl extends Component {
 		aluOp = addInput(aluOpId, new Data(controlALU.getAluOpSize()), IOPort.Direction.NORTH);
 		func = addInput(funcId, new Data(controlALU.getFuncSize()));
 		aluOpId = funcId = null;
+		outputs = new Output[controlALU.getOutputsIds().size()];
+		int x = 0;
 		for(String id: controlALU.getOutputsIds())
-			addOutput(id, new Data(controlALU.getOutSize(id)));
+			outputs[x++] = addOutput(id, new Data(controlALU.getOutSize(id)));
 	}
 
 	/**
@@ -53,6 +53,14 @@ public class Constant extends Component {
 		getOutput().setValue(value);
 	}
 
+	/**
+	 * Returns the constant's value.
+	 * @return The value;
+	 */
+	public final int getValue() {
+		return value;
+	}
+
 	/**
 	 * Returns the output.
 	 * @return The output;
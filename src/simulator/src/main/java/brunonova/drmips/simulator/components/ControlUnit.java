@@ -33,6 +33,7 @@ public class ControlUnit extends Component {
 	private Input input;
 	private String inId; // temporary
 	private Control control = null;
+	private Output[] outputs = null; // outputs in the order of the control's outputs
 
 	/**
 	 * Component constructor.
@@ -48,10 +49,9 @@ public class ControlUnit extends Component {
 
 	@Override
 	public void execute() {
-		int opcode = getInput().getValue();
-
-		for(String o: control.getOutputsIds())
-			getOutput(o).setValue(control.getOutOfOpcode(opcode, o));
+		int[] values = control.getOutsOfOpcode(getInput().getValue());
+		for(int x = 0; x < outputs.length; x++)
+			outputs[x].setValue(values[x]);
 	}
 
 	/**
@@ -69,8 +69,10 @@ public class ControlUnit extends Component {
 		inId = null;
 
 		// Add outputs
+		outputs = new Output[control.getOutputsIds().size()];
+		int x = 0;
 		for(String o: control.getOutputsIds())
-			addOutput(o, new Data(control.getOutSize(o)));
+			outputs[x++] = addOutput(o, new Data(control.getOutSize(o)));
 	}
 
 	/**
@@ -21,25 +21,41 @@ package brunonova.drmips.simulator.components;
 import brunonova.drmips.simulator.*;
 import brunonova.drmips.simulator.exceptions.InvalidCPUException;
 import brunonova.drmips.simulator.util.Dimension;
-import java.util.Stack;
+import brunonova.drmips.simulator.util.PagedMemory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 /**
  * Class that represents the data memory.
  *
+ * <p>The memory is either a flat array with the number of positions given by
+ * <tt>"size"</tt>, starting at address 0, or, if <tt>"paged": true</tt>, a
+ * sparse memory that covers the whole 32 bits address space and whose pages
+ * are only allocated when written (see {@link PagedMemory}).</p>
+ *
  * @author Bruno Nova
  */
-public class DataMemory extends Component implements Synchronous {
+public class DataMemory extends Component implements Synchronous, Checkpointable {
 	/** The minimum size of the memory (in ints). */
 	public static final int MINIMUM_SIZE = 20;
 	/** The maximum size of the memory (in ints). */
 	public static final int MAXIMUM_SIZE = 500;
+	/** The number of bytes of each position (word) of the memory. */
+	private static final int WORD_BYTES = Data.DATA_SIZE / 8;
 
 	private final Input address, writeData, memRead, memWrite;
 	private final Output output;
-	private int[] memory;
-	private final Stack<int[]> states = new Stack<>(); // previous values
+	private final int[] memory; // flat memory (null if paged)
+	private final PagedMemory pages; // paged memory (null if flat)
+	private final StateJournal journal; // changes to the memory positions
 
 	/**
 	 * Component constructor.
@@ -51,11 +67,27 @@ public class DataMemory extends Component implements Synchronous {
 	public DataMemory(String id, JSONObject json) throws InvalidCPUException, JSONException {
 		super(id, json, "Data\nmemory", "data_memory", "data_memory_description", new Dimension(80, 100));
 
-		int size = json.getInt("size");
-		if(size < MINIMUM_SIZE || size > MAXIMUM_SIZE)
-			throw new InvalidCPUException("Invalid data memory size! Must be between " + MINIMUM_SIZE + " and " + MAXIMUM_SIZE + " positions (each position has 32 bits).");
+		if(json.optBoolean("paged", false)) {
+			memory = null;
+			pages = new PagedMemory();
+		}
+		else {
+			int size = json.getInt("size");
+			if(size < MINIMUM_SIZE || size > MAXIMUM_SIZE)
+				throw new InvalidCPUException("Invalid data memory size! Must be between " + MINIMUM_SIZE + " and " + MAXIMUM_SIZE + " positions (each position has 32 bits).");
+			memory = new int[size];
+			pages = null;
+		}
 
-		memory = new int[size];
+		journal = new StateJournal(new StateJournal.Target() {
+			@Override
+			public void restoreState(int location, int value) {
+				if(pages != null)
+					pages.set(location, value);
+				else
+					memory[location] = value;
+			}
+		});
 		address = addInput(json.getString("address"), new Data(), IOPort.Direction.WEST, true, true);
 		writeData = addInput(json.getString("write_data"), new Data(), IOPort.Direction.WEST, false, true);
 		memRead = addInput(json.getString("mem_read"), new Data(1), IOPort.Direction.NORTH);
@@ -87,28 +119,59 @@ public class DataMemory extends Component implements Synchronous {
 
 	@Override
 	public void pushState() {
-		states.push(memory.clone());
+		journal.mark();
 	}
 
 	@Override
 	public void popState() {
-		memory = states.pop();
+		journal.undo();
 	}
 
 	@Override
 	public boolean hasSavedStates() {
-		return !states.empty();
+		return journal.hasMarks();
 	}
 
 	@Override
 	public void clearSavedStates() {
-		states.clear();
+		journal.clear();
 	}
 
 	@Override
 	public void resetFirstState() {
-		while(hasSavedStates())
-			popState();
+		journal.undoAll();
+	}
+
+	@Override
+	public StateJournal getStateJournal() {
+		return journal;
+	}
+
+	@Override
+	public int[] saveCheckpoint() {
+		if(pages == null)
+			return memory.clone();
+
+		// Only the allocated pages are saved (number of the page followed by its words)
+		int[] numbers = pages.getPages();
+		int[] state = new int[numbers.length * (PagedMemory.PAGE_SIZE + 1)];
+		for(int i = 0, x = 0; i < numbers.length; i++, x += PagedMemory.PAGE_SIZE + 1) {
+			state[x] = numbers[i];
+			pages.readPage(numbers[i], state, x + 1);
+		}
+		return state;
+	}
+
+	@Override
+	public void restoreCheckpoint(int[] state) {
+		if(pages == null) {
+			System.arraycopy(state, 0, memory, 0, memory.length);
+			return;
+		}
+
+		pages.clear();
+		for(int x = 0; x < state.length; x += PagedMemory.PAGE_SIZE + 1)
+			pages.writePage(state[x], state, x + 1);
 	}
 
 	@Override
@@ -116,12 +179,27 @@ public class DataMemory extends Component implements Synchronous {
 		return getMemWrite().getValue() == 1;
 	}
 
+	@Override
+	public List<Input> getLatencySelectorInputs() {
+		List<Input> inList = new ArrayList<>();
+		inList.add(getMemWrite());
+		return inList;
+	}
+
 	/**
 	 * Resets the memory to zeros.
 	 */
 	public final void reset() {
-		for(int i = 0; i < memory.length; i++)
-			memory[i] = 0;
+		if(pages != null) {
+			for(int page: pages.getPages()) {
+				for(int i = page * PagedMemory.PAGE_SIZE, end = i + PagedMemory.PAGE_SIZE; i < end; i++)
+					setDataInIndex(i, 0, false);
+			}
+		}
+		else {
+			for(int i = 0; i < memory.length; i++)
+				setDataInIndex(i, 0, false);
+		}
 		execute();
 	}
 
@@ -140,7 +218,9 @@ public class DataMemory extends Component implements Synchronous {
 	 * @return The desired value, or 0 if the index is out of bounds.
 	 */
 	public final int getDataInIndex(int index) {
-		return (index >= 0 && index < getMemorySize()) ? memory[index] : 0;
+		if(index < 0 || index >= getMemorySize())
+			return 0;
+		return pages != null ? pages.get(index) : memory[index];
 	}
 
 	/**
@@ -181,27 +261,212 @@ public class DataMemory extends Component implements Synchronous {
 	 */
 	public final void setDataInIndex(int index, int value, boolean propagate) {
 		if(index >= 0 && index < getMemorySize()) {
-			memory[index] = value;
+			if(pages != null) {
+				int old = pages.get(index);
+				if(old != value) {
+					journal.record(index, old);
+					pages.set(index, value);
+				}
+			}
+			else {
+				if(memory[index] != value)
+					journal.record(index, memory[index]);
+				memory[index] = value;
+			}
 			if(propagate) execute();
 		}
 	}
 
 	/**
 	 * Returns the index of the memory position in the specified address.
+	 * <p>In a paged memory, all the addresses are valid (including the ones
+	 * with the most significant bit set).</p>
 	 * @param address The address of the memory position.
 	 * @return The index of the position, or -1 if out of bounds.
 	 */
 	public final int getIndexOfAddress(int address) {
+		if(pages != null)
+			return address >>> 2;
 		int index = address / (Data.DATA_SIZE / 8); // A lw on an address like 3 would give an error in a CPU with exceptions
 		return (index >= 0 && index < getMemorySize()) ? index : -1;
 	}
 
 	/**
 	 * Returns the size of the memory.
+	 * <p>A paged memory has 2<sup>30</sup> positions, so use
+	 * <tt>getIndexesInUse()</tt> to enumerate its positions instead.</p>
 	 * @return The size of the memory (number of 32 bits positions).
 	 */
 	public final int getMemorySize() {
-		return memory.length;
+		return pages != null ? PagedMemory.SIZE : memory.length;
+	}
+
+	/**
+	 * Returns whether the memory is paged (sparse, covering the whole address space).
+	 * @return <tt>True</tt> if the memory is paged.
+	 */
+	public final boolean isPaged() {
+		return pages != null;
+	}
+
+	/**
+	 * Returns the numbers of the pages that were written, in a paged memory.
+	 * <p>Page <tt>n</tt> has the positions with indexes from
+	 * <tt>n * PagedMemory.PAGE_SIZE</tt> to <tt>(n + 1) * PagedMemory.PAGE_SIZE - 1</tt>.</p>
+	 * @return The numbers of the pages, in ascending order (empty if the memory isn't paged).
+	 */
+	public final int[] getTouchedPages() {
+		return pages != null ? pages.getPages() : new int[0];
+	}
+
+	/**
+	 * Returns the number of positions that are in use.
+	 * @return The size of a flat memory, or the number of positions of the touched pages of a paged memory.
+	 */
+	public final int getNumberOfIndexesInUse() {
+		return pages != null ? pages.getNumberOfPages() * PagedMemory.PAGE_SIZE : memory.length;
+	}
+
+	/**
+	 * Returns the indexes of the positions that are in use, to be displayed or saved.
+	 * @return All the indexes of a flat memory, or the indexes of the positions
+	 * of the touched pages of a paged memory, in ascending order.
+	 */
+	public final int[] getIndexesInUse() {
+		int[] indexes = new int[getNumberOfIndexesInUse()];
+		if(pages != null) {
+			int x = 0;
+			for(int page: pages.getPages()) {
+				for(int i = page * PagedMemory.PAGE_SIZE, end = i + PagedMemory.PAGE_SIZE; i < end; i++)
+					indexes[x++] = i;
+			}
+		}
+		else {
+			for(int i = 0; i < indexes.length; i++)
+				indexes[i] = i;
+		}
+		return indexes;
+	}
+
+	/**
+	 * Returns a copy of the contents of a paged memory.
+	 * @return The copy, or <tt>null</tt> if the memory isn't paged.
+	 */
+	public final PagedMemory copyPagedMemory() {
+		return pages != null ? new PagedMemory(pages) : null;
+	}
+
+	/**
+	 * Loads a memory image from the given file.
+	 * <p>The file has raw 32 bits words, in little-endian order, that are
+	 * written to consecutive positions starting at the given address. The file
+	 * is memory-mapped, and the new values are only propagated to the rest of
+	 * the circuit once, after all the words are written.</p>
+	 * @param file The image file.
+	 * @param address The address of the first word (must be a multiple of 4).
+	 * @return The number of words loaded.
+	 * @throws IOException If the file can't be read, its size isn't a multiple
+	 * of 4 bytes or it doesn't fit in the memory.
+	 * @throws IllegalArgumentException If the address isn't a multiple of 4.
+	 */
+	public final int loadImage(File file, int address) throws IOException {
+		checkImageAddress(address);
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if(size % WORD_BYTES != 0)
+				throw new IOException("The size of the memory image isn't a multiple of " + WORD_BYTES + " bytes!");
+			long words = size / WORD_BYTES;
+			if(words == 0) return 0;
+			int first = getIndexOfAddress(address);
+			if(first < 0 || first + words > getMemorySize() || size > Integer.MAX_VALUE)
+				throw new IOException("The memory image doesn't fit in the data memory!");
+
+			IntBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			for(int i = first; buffer.hasRemaining(); i++)
+				setDataInIndex(i, buffer.get(), false);
+			execute(); // propagate the new values only once
+			return (int)words;
+		}
+	}
+
+	/**
+	 * Saves the whole memory to an image file.
+	 * <p>A flat memory is saved from address 0. A paged memory is saved from the
+	 * first to the last touched page (an empty file is saved if there are none).</p>
+	 * @param file The image file (created or replaced).
+	 * @return The address of the first word saved.
+	 * @throws IOException If the file can't be written.
+	 * @throws IllegalArgumentException If the touched pages span more than 2 GiB.
+	 * @see #saveImage(File, int, int)
+	 */
+	public final int saveImage(File file) throws IOException {
+		if(pages == null) {
+			saveImage(file, 0, memory.length);
+			return 0;
+		}
+		int[] touched = pages.getPages();
+		if(touched.length == 0) {
+			saveImage(file, 0, 0);
+			return 0;
+		}
+		long first = (long)touched[0] * PagedMemory.PAGE_SIZE;
+		long words = ((long)touched[touched.length - 1] + 1) * PagedMemory.PAGE_SIZE - first;
+		if(words > Integer.MAX_VALUE / WORD_BYTES)
+			throw new IllegalArgumentException("The touched pages of the data memory are too far apart to be saved to a single image!");
+		int address = (int)(first * WORD_BYTES);
+		saveImage(file, address, (int)words);
+		return address;
+	}
+
+	/**
+	 * Saves a range of the memory to an image file.
+	 * <p>The words are saved in raw little-endian order, through a
+	 * memory-mapped file. The untouched pages of a paged memory are saved as zeros.</p>
+	 * @param file The image file (created or replaced).
+	 * @param address The address of the first word (must be a multiple of 4).
+	 * @param words The number of words to save.
+	 * @throws IOException If the file can't be written.
+	 * @throws IllegalArgumentException If the address isn't a multiple of 4 or
+	 * the range isn't inside the memory.
+	 */
+	public final void saveImage(File file, int address, int words) throws IOException {
+		checkImageAddress(address);
+		int first = getIndexOfAddress(address);
+		if(words < 0 || words > Integer.MAX_VALUE / WORD_BYTES || (words > 0 && (first < 0 || (long)first + words > getMemorySize())))
+			throw new IllegalArgumentException("The range to save isn't inside the data memory!");
+
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+			StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			if(words == 0) return;
+			IntBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long)words * WORD_BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			if(pages == null)
+				buffer.put(memory, first, words);
+			else {
+				int[] page = new int[PagedMemory.PAGE_SIZE];
+				int i = first, end = first + words;
+				while(i < end) { // copy page by page, leaving the untouched pages as zeros
+					int p = i >>> PagedMemory.PAGE_BITS;
+					int offset = i & (PagedMemory.PAGE_SIZE - 1);
+					int count = Math.min(PagedMemory.PAGE_SIZE - offset, end - i);
+					if(pages.hasPage(p)) {
+						pages.readPage(p, page, 0);
+						buffer.position(i - first);
+						buffer.put(page, offset, count);
+					}
+					i += count;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Throws an exception if the given address of an image isn't aligned to a word.
+	 * @param address The address of the image.
+	 * @throws IllegalArgumentException If the address isn't a multiple of 4.
+	 */
+	private void checkImageAddress(int address) {
+		if(address % WORD_BYTES != 0)
+			throw new IllegalArgumentException("The address of a memory image must be a multiple of " + WORD_BYTES + "!");
 	}
 
 	/**
@@ -21,9 +21,10 @@ package brunonova.drmips.simulator.components;
 import brunonova.drmips.simulator.Component;
 import brunonova.drmips.simulator.Data;
 import brunonova.drmips.simulator.Input;
+import brunonova.drmips.simulator.Output;
 import brunonova.drmips.simulator.exceptions.InvalidCPUException;
 import brunonova.drmips.simulator.util.Dimension;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -54,7 +55,7 @@ public class Distributor extends Component {
 		// Add the outputs
 		JSONObject o;
 		JSONArray outs = json.getJSONArray("out");
-		outParameters = new LinkedList<>();
+		outParameters = new ArrayList<>(outs.length());
 		int msb, lsb;
 		for(int x = 0; x < outs.length(); x++) {
 			o = outs.getJSONObject(x);
@@ -74,14 +75,16 @@ public class Distributor extends Component {
 	private void addOutput(String id, int msb, int lsb) throws InvalidCPUException {
 		OutputParameters param = new OutputParameters(id, msb, lsb, getInput().getSize());
 		outParameters.add(param);
-		addOutput(id, new Data(param.msb - param.lsb + 1));
+		param.output = addOutput(id, new Data(param.msb - param.lsb + 1));
 	}
 
 	@Override
 	public void execute() {
 		int value = getInput().getValue();
-		for(OutputParameters o: outParameters) {
-			getOutput(o.id).setValue(o.getValueForOutput(value));
+		OutputParameters o;
+		for(int x = 0; x < outParameters.size(); x++) {
+			o = outParameters.get(x);
+			o.output.setValue(o.getValueForOutput(value));
 		}
 	}
 
@@ -93,12 +96,37 @@ public class Distributor extends Component {
 		return input;
 	}
 
+	/**
+	 * Returns the most significant bit of the input that is put in the given output.
+	 * @param output One of the distributor's outputs.
+	 * @return The most significant bit, or -1 if the output isn't from this distributor.
+	 */
+	public final int getOutputMSB(Output output) {
+		for(OutputParameters o: outParameters) {
+			if(o.output == output) return o.msb;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the less significant bit of the input that is put in the given output.
+	 * @param output One of the distributor's outputs.
+	 * @return The less significant bit, or -1 if the output isn't from this distributor.
+	 */
+	public final int getOutputLSB(Output output) {
+		for(OutputParameters o: outParameters) {
+			if(o.output == output) return o.lsb;
+		}
+		return -1;
+	}
+
 	/**
 	 * Contains the parameters (MSB, LSB, id) for an output of a distributor.
 	 */
 	private class OutputParameters {
 		private String id; // output identifier
 		private int msb, lsb, mask; // most/less significant bits for the value and corresponding mask
+		private Output output; // the output itself
 
 		/**
 		 * Creates the parameters for an output.
@@ -18,9 +18,13 @@
 
 package brunonova.drmips.simulator.components;
 
+import brunonova.drmips.simulator.Checkpointable;
 import brunonova.drmips.simulator.Data;
+import brunonova.drmips.simulator.Input;
+import brunonova.drmips.simulator.StateJournal;
 import brunonova.drmips.simulator.exceptions.InvalidCPUException;
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.List;
 import org.json.JSONException;
 import org.json.JSONObject;
 import brunonova.drmips.simulator.Synchronous;
@@ -30,9 +34,10 @@ import brunonova.drmips.simulator.Synchronous;
  *
  * @author Bruno Nova
  */
-public class ExtendedALU extends ALU implements Synchronous {
+public class ExtendedALU extends ALU implements Synchronous, Checkpointable {
 	private final Data hi, lo;
-	private final Stack<int[]> states = new Stack<>(); // previous values
+	private final StateJournal journal; // changes to HI and LO
+	private static final int HI = 0, LO = 1; // positions in the journal
 
 	/**
 	 * Component constructor.
@@ -48,6 +53,12 @@ public class ExtendedALU extends ALU implements Synchronous {
 
 		hi = new Data();
 		lo = new Data();
+		journal = new StateJournal(new StateJournal.Target() {
+			@Override
+			public void restoreState(int location, int value) {
+				(location == HI ? hi : lo).setValue(value);
+			}
+		});
 	}
 
 	@Override
@@ -57,32 +68,43 @@ public class ExtendedALU extends ALU implements Synchronous {
 
 	@Override
 	public void pushState() {
-		states.push(new int[] {hi.getValue(), lo.getValue()});
+		journal.mark();
 	}
 
 	@Override
 	public void popState() {
-		if(hasSavedStates()) {
-			int[] val = states.pop();
-			hi.setValue(val[0]);
-			lo.setValue(val[1]);
-		}
+		journal.undo();
 	}
 
 	@Override
 	public boolean hasSavedStates() {
-		return !states.empty();
+		return journal.hasMarks();
 	}
 
 	@Override
 	public void clearSavedStates() {
-		states.clear();
+		journal.clear();
 	}
 
 	@Override
 	public void resetFirstState() {
-		while(hasSavedStates())
-			popState();
+		journal.undoAll();
+	}
+
+	@Override
+	public StateJournal getStateJournal() {
+		return journal;
+	}
+
+	@Override
+	public int[] saveCheckpoint() {
+		return new int[] {hi.getValue(), lo.getValue()};
+	}
+
+	@Override
+	public void restoreCheckpoint(int[] state) {
+		hi.setValue(state[HI]);
+		lo.setValue(state[LO]);
 	}
 
 	@Override
@@ -90,27 +112,54 @@ public class ExtendedALU extends ALU implements Synchronous {
 		return controlALU.isWritingState(getControl().getValue());
 	}
 
+	@Override
+	public List<Input> getLatencySelectorInputs() {
+		List<Input> inList = new ArrayList<>();
+		inList.add(getControl());
+		return inList;
+	}
+
 	/**
-	 * Returns the <tt>HI</tt> "register".
-	 * @return The <tt>HI</tt> "register".
+	 * Returns a copy of the <tt>HI</tt> "register".
+	 * @return Copy of the <tt>HI</tt> "register".
 	 */
 	public final Data getHI() {
-		return hi;
+		return hi.clone();
 	}
 
 	/**
-	 * Returns the <tt>HI</tt> "register".
-	 * @return The <tt>HI</tt> "register".
+	 * Returns a copy of the <tt>LO</tt> "register".
+	 * @return Copy of the <tt>LO</tt> "register".
 	 */
 	public final Data getLO() {
-		return lo;
+		return lo.clone();
+	}
+
+	/**
+	 * Updates the value of the <tt>HI</tt> "register".
+	 * @param value New value.
+	 */
+	public final void setHI(int value) {
+		if(hi.getValue() != value)
+			journal.record(HI, hi.getValue());
+		hi.setValue(value);
+	}
+
+	/**
+	 * Updates the value of the <tt>LO</tt> "register".
+	 * @param value New value.
+	 */
+	public final void setLO(int value) {
+		if(lo.getValue() != value)
+			journal.record(LO, lo.getValue());
+		lo.setValue(value);
 	}
 
 	/**
 	 * Resets the <tt>HI</tt> and <tt>LO</tt> registers to 0.
 	 */
 	public final void reset() {
-		hi.setValue(0);
-		lo.setValue(0);
+		setHI(0);
+		setLO(0);
 	}
 }
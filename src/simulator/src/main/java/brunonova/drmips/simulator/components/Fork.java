@@ -22,6 +22,7 @@ import brunonova.drmips.simulator.*;
 import brunonova.drmips.simulator.exceptions.InvalidCPUException;
 import brunonova.drmips.simulator.util.Dimension;
 import brunonova.drmips.simulator.util.Point;
+import java.util.List;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -62,8 +63,9 @@ public class Fork extends Component {
 
 	@Override
 	public void execute() {
-		for(Output o: getOutputs())
-			o.setValue(getInput().getValue());
+		List<Output> outs = getOutputs();
+		for(int x = 0; x < outs.size(); x++)
+			outs.get(x).setValue(getInput().getValue());
 	}
 
 	/**
@@ -29,12 +29,18 @@ import org.json.JSONObject;
 /**
  * Class that represents the instruction memory.
  *
+ * <p>Besides the list of assembled instructions, the memory keeps an array
+ * with their machine code and their decoded fields, built once when the
+ * program is loaded, which are used in every fetch.</p>
+ *
  * @author Bruno Nova
  */
 public class InstructionMemory extends Component {
 	private final Input input;
 	private final Output output;
 	private List<AssembledInstruction> instructions;
+	private int[] words = new int[0]; // machine code of the instructions
+	private DecodedInstruction[] decoded = new DecodedInstruction[0]; // decoded fields of the instructions
 
 	/**
 	 * Component constructor.
@@ -52,11 +58,39 @@ public class InstructionMemory extends Component {
 
 	@Override
 	public void execute() {
-		int index = getInput().getValue() / (Data.DATA_SIZE / 8);
-		if(index >= 0 && index < instructions.size())
-			getOutput().setValue(getInstruction(index).getData().getValue());
+		int index = getIndexOfAddress(input.getValue());
+		output.setValue(index >= 0 ? words[index] : 0);
+	}
+
+	/**
+	 * Returns the index of the instruction in the specified address.
+	 * @param address The address of the instruction.
+	 * @return The index of the instruction, or -1 if there is no instruction in that address.
+	 */
+	public final int getIndexOfAddress(int address) {
+		int index = address / (Data.DATA_SIZE / 8);
+		return (index >= 0 && index < words.length) ? index : -1;
+	}
+
+	/**
+	 * Returns the machine code of the instruction with the specified index.
+	 * @param index Index of the instruction.
+	 * @return The instruction in machine code (the index must be valid).
+	 */
+	public final int getWord(int index) {
+		return words[index];
+	}
+
+	/**
+	 * Returns the decoded fields of the instruction with the specified index.
+	 * @param index Index of the instruction.
+	 * @return The decoded instruction, or <tt>null</tt> if it doesn't exist.
+	 */
+	public final DecodedInstruction getDecodedInstruction(int index) {
+		if(index >= 0 && index < decoded.length)
+			return decoded[index];
 		else
-			getOutput().setValue(0);
+			return null;
 	}
 
 	/**
@@ -84,7 +118,18 @@ public class InstructionMemory extends Component {
 	 * @param instructions Instructions to load.
 	 */
 	public final void setInstructions(List<AssembledInstruction> instructions) {
+		int n = instructions.size();
+		int[] newWords = new int[n];
+		DecodedInstruction[] newDecoded = new DecodedInstruction[n];
+		int i = 0;
+		for(AssembledInstruction instruction: instructions) { // decode them only once
+			newDecoded[i] = new DecodedInstruction(instruction);
+			newWords[i] = newDecoded[i].getWord();
+			i++;
+		}
 		this.instructions = instructions;
+		words = newWords;
+		decoded = newDecoded;
 		execute();
 	}
 
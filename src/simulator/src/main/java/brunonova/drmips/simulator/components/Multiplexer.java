@@ -22,6 +22,8 @@ import brunonova.drmips.simulator.*;
 import brunonova.drmips.simulator.exceptions.InvalidCPUException;
 import brunonova.drmips.simulator.util.Dimension;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -36,6 +38,8 @@ public class Multiplexer extends Component {
 	private final Input selector;
 	private final Output output;
 	private final List<Input> inputs; // inputs (excluding the selector)
+	private final List<List<Input>> latencyInputs; // inputs for latency calculations for each selector value
+	private final List<Input> selectorOnly; // inputs for latency calculations if the selector is invalid
 
 	/**
 	 * Component constructor.
@@ -57,6 +61,12 @@ public class Multiplexer extends Component {
 
 		selector = addInput(json.getString("sel"), new Data((ins.length() > 0) ? Data.requiredNumberOfBits(ins.length() - 1) : 1), IOPort.Direction.NORTH);
 		output = addOutput(json.getString("out"), new Data(size));
+
+		// Create the lists of inputs for latency calculations beforehand
+		latencyInputs = new ArrayList<>(inputs.size());
+		for(Input input: inputs)
+			latencyInputs.add(Collections.unmodifiableList(Arrays.asList(selector, input)));
+		selectorOnly = Collections.singletonList(selector);
 	}
 
 	@Override
@@ -70,16 +80,25 @@ public class Multiplexer extends Component {
 		}
 	}
 
+	@Override
+	public boolean isAlwaysEvaluated() {
+		return true; // sets the relevance of the inputs
+	}
+
 	@Override
 	protected List<Input> getLatencyInputs() {
-		ArrayList<Input> inList = new ArrayList<>();
-		// always add control input
+		// the control input and the selected input influence the latency
+		int sel = getSelector().getValue();
+		if (sel < latencyInputs.size())
+			return latencyInputs.get(sel);
+		else
+			return selectorOnly;
+	}
+
+	@Override
+	public List<Input> getLatencySelectorInputs() {
+		List<Input> inList = new ArrayList<>();
 		inList.add(getSelector());
-		// add the selected input to the list of inputs that
-		// influence latency
-		Input selInput = getInput(getSelector().getValue());
-		if (selInput != null)
-			inList.add(selInput);
 		return inList;
 	}
 
@@ -110,4 +129,12 @@ public class Multiplexer extends Component {
 		else
 			return null;
 	}
+
+	/**
+	 * Returns the number of inputs (excluding the selector).
+	 * @return The number of inputs.
+	 */
+	public final int getNumberOfInputs() {
+		return inputs.size();
+	}
 }
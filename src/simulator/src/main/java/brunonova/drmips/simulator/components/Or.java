@@ -23,6 +23,8 @@ import brunonova.drmips.simulator.Input;
 import brunonova.drmips.simulator.exceptions.InvalidCPUException;
 import brunonova.drmips.simulator.util.Dimension;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -33,6 +35,8 @@ import org.json.JSONObject;
  * @author Bruno Nova
  */
 public class Or extends SimpleBinaryOperationComponent {
+	private final List<Input> bothInputs, onlyInput1, onlyInput2; // inputs for latency calculations
+
 	/**
 	 * Component constructor.
 	 * @param id The component's identifier.
@@ -42,6 +46,9 @@ public class Or extends SimpleBinaryOperationComponent {
 	 */
 	public Or(String id, JSONObject json) throws InvalidCPUException, JSONException {
 		super(id, json, "OR", "or", "or_description", new Dimension(30, 30), 1);
+		bothInputs = Collections.unmodifiableList(Arrays.asList(getInput1(), getInput2()));
+		onlyInput1 = Collections.singletonList(getInput1());
+		onlyInput2 = Collections.singletonList(getInput2());
 	}
 
 	@Override
@@ -51,27 +58,32 @@ public class Or extends SimpleBinaryOperationComponent {
 
 	@Override
 	protected List<Input> getLatencyInputs() {
-		ArrayList<Input> inList = new ArrayList<>();
 		int val1 = getInput1().getValue();
 		int val2 = getInput2().getValue();
 		if (val1 == val2) {  // inputs have identical logic values
 			if (val1 == 0) {  // both 0; use both
-				inList.add(getInput1());
-				inList.add(getInput2());
+				return bothInputs;
 			} else { // both 1; use just the earliest input
 				int lat1 = getInput1().getAccumulatedLatency();
 				int lat2 = getInput2().getAccumulatedLatency();
 				if (lat1 <= lat2) {
-					inList.add(getInput1());
+					return onlyInput1;
 				} else {
-					inList.add(getInput2());
+					return onlyInput2;
 				}
 			}
 		} else if (val1 == 0) { // val2 == 1 and val1 == 0
-			inList.add(getInput2());
+			return onlyInput2;
 		} else { // val1 == 1 and val2 == 0
-			inList.add(getInput1());
+			return onlyInput1;
 		}
+	}
+
+	@Override
+	public List<Input> getLatencySelectorInputs() {
+		List<Input> inList = new ArrayList<>();
+		inList.add(getInput1());
+		inList.add(getInput2());
 		return inList;
 	}
 }
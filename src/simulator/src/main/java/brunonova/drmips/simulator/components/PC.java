@@ -21,7 +21,8 @@ package brunonova.drmips.simulator.components;
 import brunonova.drmips.simulator.*;
 import brunonova.drmips.simulator.exceptions.InvalidCPUException;
 import brunonova.drmips.simulator.util.Dimension;
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.List;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -30,13 +31,13 @@ import org.json.JSONObject;
  *
  * @author Bruno Nova
  */
-public class PC extends Component implements Synchronous {
+public class PC extends Component implements Synchronous, Checkpointable {
 	private final Input input, write;
 	private final Output output;
 	private final Data address;
-	private final Stack<Integer> states = new Stack<>(); // previous adresses
 	private int currentInstructionIndex = -1;
-	private final Stack<Integer> instructions = new Stack<>(); // previous instructions
+	private final StateJournal journal; // changes to the address and instruction index
+	private static final int ADDRESS = 0, INSTRUCTION_INDEX = 1; // positions in the journal
 
 	/**
 	 * Component constructor.
@@ -51,6 +52,15 @@ public class PC extends Component implements Synchronous {
 		input = addInput(json.getString("in"), new Data(), IOPort.Direction.WEST, false, true);
 		output = addOutput(json.getString("out"), new Data(), IOPort.Direction.EAST, true);
 		write = addInput(json.optString("write", "Write"), new Data(1, 1), IOPort.Direction.NORTH, false);
+		journal = new StateJournal(new StateJournal.Target() {
+			@Override
+			public void restoreState(int location, int value) {
+				if(location == ADDRESS)
+					address.setValue(value);
+				else
+					currentInstructionIndex = value;
+			}
+		});
 	}
 
 	@Override
@@ -67,33 +77,43 @@ public class PC extends Component implements Synchronous {
 
 	@Override
 	public void pushState() {
-		states.push(getAddress().getValue());
-		instructions.push(getCurrentInstructionIndex());
+		journal.mark();
 	}
 
 	@Override
 	public void popState() {
-		if(hasSavedStates()) {
-			setAddress(states.pop(), false);
-			setCurrentInstructionIndex(instructions.pop());
-		}
+		journal.undo();
 	}
 
 	@Override
 	public boolean hasSavedStates() {
-		return !states.empty();
+		return journal.hasMarks();
 	}
 
 	@Override
 	public void clearSavedStates() {
-		states.clear();
-		instructions.clear();
+		journal.clear();
 	}
 
 	@Override
 	public void resetFirstState() {
-		while(hasSavedStates())
-			popState();
+		journal.undoAll();
+	}
+
+	@Override
+	public StateJournal getStateJournal() {
+		return journal;
+	}
+
+	@Override
+	public int[] saveCheckpoint() {
+		return new int[] {address.getValue(), currentInstructionIndex};
+	}
+
+	@Override
+	public void restoreCheckpoint(int[] state) {
+		address.setValue(state[ADDRESS]);
+		currentInstructionIndex = state[INSTRUCTION_INDEX];
 	}
 
 	@Override
@@ -101,6 +121,13 @@ public class PC extends Component implements Synchronous {
 		return getWrite().getValue() == 1;
 	}
 
+	@Override
+	public List<Input> getLatencySelectorInputs() {
+		List<Input> inList = new ArrayList<>();
+		inList.add(getWrite());
+		return inList;
+	}
+
 	/**
 	 * Returns the current address of the Program Counter (the <tt>$pc</tt> register).
 	 * @return Current address.
@@ -124,6 +151,8 @@ public class PC extends Component implements Synchronous {
 	 * @param propagate Whether the new address is propagated to the rest of the circuit.
 	 */
 	public final void setAddress(int address, boolean propagate) {
+		if(this.address.getValue() != address)
+			journal.record(ADDRESS, this.address.getValue());
 		this.address.setValue(address);
 		if(propagate) execute();
 	}
@@ -141,6 +170,8 @@ public class PC extends Component implements Synchronous {
 	 * @param currentInstructionIndex The index of the instruction (-1 if none).
 	 */
 	public final void setCurrentInstructionIndex(int currentInstructionIndex) {
+		if(this.currentInstructionIndex != currentInstructionIndex)
+			journal.record(INSTRUCTION_INDEX, this.currentInstructionIndex);
 		this.currentInstructionIndex = currentInstructionIndex;
 	}
 
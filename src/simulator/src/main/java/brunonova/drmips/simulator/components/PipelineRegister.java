@@ -21,10 +21,11 @@ package brunonova.drmips.simulator.components;
 import brunonova.drmips.simulator.*;
 import brunonova.drmips.simulator.exceptions.InvalidCPUException;
 import brunonova.drmips.simulator.util.Dimension;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Stack;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -33,12 +34,14 @@ import org.json.JSONObject;
  *
  * @author Bruno Nova
  */
-public class PipelineRegister extends Component implements Synchronous {
+public class PipelineRegister extends Component implements Synchronous, Checkpointable {
 	private final Input write, flush;
-	private Map<String, Data> registers; // stored values
-	private final Stack<Map<String, Data>> states = new Stack<>(); // previous values
+	private final Data[] registers; // stored values
+	private final Input[] inputs; // input of each register
+	private final Output[] outputs; // output of each register
 	private int currentInstructionIndex = -1;
-	private final Stack<Integer> instructions = new Stack<>(); // previous instructions
+	private final StateJournal journal; // changes to the registers and instruction index
+	private final int instructionIndexLocation; // position of the instruction index in the journal
 
 	/**
 	 * Component constructor.
@@ -57,14 +60,35 @@ public class PipelineRegister extends Component implements Synchronous {
 		// Add the pipeline "registers", plus their inputs and outputs
 		String name;
 		JSONObject regs = json.getJSONObject("regs");
-		registers = new HashMap<>(32);
+		Map<String, Data> map = new HashMap<>(32);
 		Iterator<String> i = regs.keys();
 		while(i.hasNext()) {
 			name = i.next();
 			addInput(name, new Data(regs.getInt(name)), IOPort.Direction.WEST, false);
 			addOutput(name, new Data(regs.getInt(name)));
-			this.registers.put(name, new Data(regs.getInt(name)));
+			map.put(name, new Data(regs.getInt(name)));
 		}
+		registers = new Data[map.size()];
+		inputs = new Input[map.size()];
+		outputs = new Output[map.size()];
+		int r = 0;
+		for(Map.Entry<String, Data> e: map.entrySet()) {
+			registers[r] = e.getValue();
+			inputs[r] = getInput(e.getKey());
+			outputs[r] = getOutput(e.getKey());
+			r++;
+		}
+
+		instructionIndexLocation = registers.length;
+		journal = new StateJournal(new StateJournal.Target() {
+			@Override
+			public void restoreState(int location, int value) {
+				if(location == instructionIndexLocation)
+					currentInstructionIndex = value;
+				else
+					registers[location].setValue(value);
+			}
+		});
 	}
 
 	@Override
@@ -73,10 +97,10 @@ public class PipelineRegister extends Component implements Synchronous {
 		Input input;
 		Output output;
 
-		for(Map.Entry<String, Data> e: registers.entrySet()) {
-			input = getInput(e.getKey());
-			output = getOutput(e.getKey());
-			output.setValue(e.getValue().getValue());
+		for(int r = 0; r < registers.length; r++) {
+			input = inputs[r];
+			output = outputs[r];
+			output.setValue(registers[r].getValue());
 
 			if(stall) // mark input as irrelevant if stalled
 				input.setRelevant(false);
@@ -96,43 +120,62 @@ public class PipelineRegister extends Component implements Synchronous {
 	public void executeSynchronous() {
 		boolean f = getFlush().getValue() == 1; // flush?
 		if(getWrite().getValue() == 1 || f) {
-			for(Map.Entry<String, Data> e: registers.entrySet())
-				e.getValue().setValue(f ? 0 : getInput(e.getKey()).getValue());
+			for(int r = 0; r < registers.length; r++) {
+				int value = f ? 0 : inputs[r].getValue();
+				if(registers[r].getValue() != value)
+					journal.record(r, registers[r].getValue());
+				registers[r].setValue(value);
+			}
 		}
 	}
 
 	@Override
 	public void pushState() {
-		states.push(cloneRegisters());
-		instructions.push(getCurrentInstructionIndex());
+		journal.mark();
 	}
 
 	@Override
 	public void popState() {
-		if(hasSavedStates()) {
-			registers = states.pop();
-			setCurrentInstructionIndex(instructions.pop());
-		}
+		journal.undo();
 	}
 
 	@Override
 	public boolean hasSavedStates() {
-		return !states.isEmpty();
+		return journal.hasMarks();
 	}
 
 	@Override
 	public void clearSavedStates() {
-		states.clear();
-		instructions.clear();
-		for(Map.Entry<String, Data> e: registers.entrySet()) // also clear registers
-			e.getValue().setValue(0);
+		journal.clear();
+		for(Data register: registers) // also clear registers
+			register.setValue(0);
 		execute();
 	}
 
 	@Override
 	public void resetFirstState() {
-		while(hasSavedStates())
-			popState();
+		journal.undoAll();
+	}
+
+	@Override
+	public StateJournal getStateJournal() {
+		return journal;
+	}
+
+	@Override
+	public int[] saveCheckpoint() {
+		int[] values = new int[registers.length + 1];
+		for(int r = 0; r < registers.length; r++)
+			values[r] = registers[r].getValue();
+		values[instructionIndexLocation] = currentInstructionIndex;
+		return values;
+	}
+
+	@Override
+	public void restoreCheckpoint(int[] state) {
+		for(int r = 0; r < registers.length; r++)
+			registers[r].setValue(state[r]);
+		currentInstructionIndex = state[instructionIndexLocation];
 	}
 
 	@Override
@@ -140,6 +183,14 @@ public class PipelineRegister extends Component implements Synchronous {
 		return getWrite().getValue() == 1 && getFlush().getValue() == 0;
 	}
 
+	@Override
+	public List<Input> getLatencySelectorInputs() {
+		List<Input> inList = new ArrayList<>();
+		inList.add(getWrite());
+		inList.add(getFlush());
+		return inList;
+	}
+
 	/**
 	 * Sets the pipeline register's display name.
 	 * <p>The name corresponds to the component's identifier, 1 letter per line.</p>
@@ -153,17 +204,6 @@ public class PipelineRegister extends Component implements Synchronous {
 		setDisplayName(name);
 	}
 
-	/**
-	 * Returns a copy of the stored registers.
-	 * @return Copy of the registers.
-	 */
-	private Map<String, Data> cloneRegisters() {
-		Map<String, Data> map = new HashMap<>();
-		for(Map.Entry<String, Data> e: registers.entrySet())
-			map.put(e.getKey(), e.getValue().clone());
-		return map;
-	}
-
 	/**
 	 * Returns the index of the current instruction being executed.
 	 * @return Index of the current instruction being executed (-1 if none).
@@ -177,6 +217,8 @@ public class PipelineRegister extends Component implements Synchronous {
 	 * @param currentInstructionIndex The index of the instruction (-1 if none).
 	 */
 	public final void setCurrentInstructionIndex(int currentInstructionIndex) {
+		if(this.currentInstructionIndex != currentInstructionIndex)
+			journal.record(instructionIndexLocation, this.currentInstructionIndex);
 		this.currentInstructionIndex = currentInstructionIndex;
 	}
 
@@ -21,9 +21,10 @@ package brunonova.drmips.simulator.components;
 import brunonova.drmips.simulator.*;
 import brunonova.drmips.simulator.exceptions.InvalidCPUException;
 import brunonova.drmips.simulator.util.Dimension;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.Stack;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -33,13 +34,13 @@ import org.json.JSONObject;
  *
  * @author Bruno Nova
  */
-public class RegBank extends Component implements Synchronous {
+public class RegBank extends Component implements Synchronous, Checkpointable {
 	private final Input readReg1, readReg2, writeReg, writeData, regWrite;
 	private final Output readData1, readData2;
 	private final Data[] registers;
 	private final Set<Integer> constantRegisters; // indexes of the constant registers
 	private final boolean forwarding; // use internal forwarding?
-	private final Stack<int[]> states = new Stack<>(); // previous values
+	private final StateJournal journal; // changes to the registers
 
 	/**
 	 * Component constructor.
@@ -50,6 +51,12 @@ public class RegBank extends Component implements Synchronous {
 	 */
 	public RegBank(String id, JSONObject json) throws InvalidCPUException, JSONException {
 		super(id, json, "Registers", "regbank", "regbank_description", new Dimension(80, 100));
+		journal = new StateJournal(new StateJournal.Target() {
+			@Override
+			public void restoreState(int location, int value) {
+				registers[location].setValue(value);
+			}
+		});
 
 		int numRegisters = json.getInt("num_regs");
 		if(numRegisters <= 1 || !Data.isPowerOf2(numRegisters))
@@ -95,12 +102,12 @@ public class RegBank extends Component implements Synchronous {
 		if(isForwarding() && write && getWriteReg().getValue() == index1 && !isRegisterConstant(index1))
 			getReadData1().setValue(getWriteData().getValue());
 		else
-			getReadData1().setValue(getRegister(index1).getValue());
+			getReadData1().setValue(registers[index1].getValue());
 
 		if(isForwarding() && write && getWriteReg().getValue() == index2 && !isRegisterConstant(index2))
 			getReadData2().setValue(getWriteData().getValue());
 		else
-			getReadData2().setValue(getRegister(index2).getValue());
+			getReadData2().setValue(registers[index2].getValue());
 
 		getWriteReg().setRelevant(write);
 		getWriteData().setRelevant(write);
@@ -109,45 +116,51 @@ public class RegBank extends Component implements Synchronous {
 	@Override
 	public void executeSynchronous() {
 		if(getRegWrite().getValue() == 1 && !isRegisterConstant(getWriteReg().getValue()))
-			registers[getWriteReg().getValue()].setValue(getWriteData().getValue());
+			writeRegister(getWriteReg().getValue(), getWriteData().getValue());
 	}
 
 	@Override
 	public void pushState() {
-		int[] values = new int[getNumberOfRegisters()];
-		for(int i = 0; i < getNumberOfRegisters(); i++)
-			values[i] = registers[i].getValue();
-		states.push(values);
+		journal.mark();
 	}
 
 	@Override
 	public void popState() {
-		if(hasSavedStates()) {
-			int[] values = states.pop();
-			for(int i = 0; i < getNumberOfRegisters(); i++)
-				registers[i].setValue(values[i]);
-		}
+		journal.undo();
 	}
 
 	@Override
 	public boolean hasSavedStates() {
-		return !states.empty();
+		return journal.hasMarks();
 	}
 
 	@Override
 	public void clearSavedStates() {
-		states.clear();
+		journal.clear();
 	}
 
 	@Override
 	public void resetFirstState() {
-		if(hasSavedStates()) {
-			int[] values = states.peek();
-			while(hasSavedStates())
-				values = states.pop();
-			for(int i = 0; i < getNumberOfRegisters(); i++)
-				registers[i].setValue(values[i]);
-		}
+		journal.undoAll();
+	}
+
+	@Override
+	public StateJournal getStateJournal() {
+		return journal;
+	}
+
+	@Override
+	public int[] saveCheckpoint() {
+		int[] values = new int[registers.length];
+		for(int i = 0; i < registers.length; i++)
+			values[i] = registers[i].getValue();
+		return values;
+	}
+
+	@Override
+	public void restoreCheckpoint(int[] state) {
+		for(int i = 0; i < registers.length; i++)
+			registers[i].setValue(state[i]);
 	}
 
 	@Override
@@ -155,6 +168,13 @@ public class RegBank extends Component implements Synchronous {
 		return getRegWrite().getValue() == 1;
 	}
 
+	@Override
+	public List<Input> getLatencySelectorInputs() {
+		List<Input> inList = new ArrayList<>();
+		inList.add(getRegWrite());
+		return inList;
+	}
+
 	/**
 	 * Returns whether the data in the WriteData input should be forwarded to and output if reading and writing to the same register.
 	 * @return <tt>True</tt> if internal forwarding is enabled.
@@ -167,8 +187,8 @@ public class RegBank extends Component implements Synchronous {
 	 * Resets the register bank to zeros.
 	 */
 	public final void reset() {
-		for (Data register: registers)
-			register.setValue(0);
+		for(int i = 0; i < registers.length; i++)
+			writeRegister(i, 0);
 		execute();
 	}
 
@@ -218,11 +238,23 @@ public class RegBank extends Component implements Synchronous {
 	 */
 	public final void setRegister(int index, int newValue, boolean propagate) throws ArrayIndexOutOfBoundsException {
 		if(!isRegisterConstant(index)) { // don't update constant registers
-			registers[index].setValue(newValue);
+			writeRegister(index, newValue);
 			if(propagate) execute();
 		}
 	}
 
+	/**
+	 * Updates the value of the indicated register, recording the change in the journal.
+	 * @param index Index/address of the register.
+	 * @param newValue New value.
+	 */
+	private void writeRegister(int index, int newValue) {
+		Data register = registers[index];
+		if(register.getValue() != newValue)
+			journal.record(index, register.getValue());
+		register.setValue(newValue);
+	}
+
 	/**
 	 * Specifies that the indicated register is constant with the indicated value.
 	 * @param index Index/address of the register.
@@ -56,6 +56,14 @@ public class ShiftLeft extends Component {
 		getOutput().setValue(getInput().getValue() << amount);
 	}
 
+	/**
+	 * Returns the number of bits the input is shifted.
+	 * @return The shift amount.
+	 */
+	public final int getAmount() {
+		return amount;
+	}
+
 	/**
 	 * Returns the input.
 	 * @return The input;
@@ -59,7 +59,8 @@ public class SignExtend extends Component {
 
 	@Override
 	public void execute() {
-		getOutput().setValue(getInput().getData().signExtend(getOutput().getSize()).getValue());
+		int sa = Data.DATA_SIZE - getInput().getSize(); // same as Data.signExtend(), without creating a Data object
+		getOutput().setValue((getInput().getValue() << sa) >> sa);
 	}
 
 	/**
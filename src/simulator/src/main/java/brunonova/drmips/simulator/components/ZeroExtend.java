@@ -59,7 +59,7 @@ public class ZeroExtend extends Component {
 
 	@Override
 	public void execute() {
-		getOutput().setValue(getInput().getData().zeroExtend(getOutput().getSize()).getValue());
+		getOutput().setValue(getInput().getValue()); // the value is already zero extended
 	}
 
 	/**
@@ -0,0 +1,453 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Reads a JSON document from a stream, one token at a time.
+ *
+ * <p>The document is read only once, through a buffer, so the members of an
+ * object can be processed as they are read instead of building the whole
+ * tree first. Values that are needed as a whole can still be read as
+ * <tt>JSONObject</tt>s and <tt>JSONArray</tt>s with <tt>nextValue()</tt>.</p>
+ *
+ * <p>The syntax accepted is the same of <tt>org.json</tt> (strings can use
+ * single quotes or be unquoted, and trailing commas are allowed), and the
+ * values have the same types, so the results are the same of parsing the
+ * document with <tt>new JSONObject(string)</tt>.</p>
+ *
+ * <p>Example of usage:</p>
+ * <pre>
+ * reader.beginObject();
+ * while(reader.hasNext()) {
+ *     String name = reader.nextName();
+ *     Object value = reader.nextValue();
+ * }
+ * reader.endObject();
+ * </pre>
+ *
+ * @author Bruno Nova
+ */
+public final class JSONStreamReader implements Closeable {
+	/** The characters that end an unquoted string. */
+	private static final String DELIMITERS = ",:]}/\\\"[{;=#";
+	/** The maximum depth of nested objects and arrays. */
+	private static final int MAX_DEPTH = 512;
+
+	/** The stream being read. */
+	private final Reader reader;
+	/** The buffer of the stream. */
+	private final char[] buffer = new char[8192];
+	/** The position of the next character in the buffer. */
+	private int pos = 0;
+	/** The number of characters in the buffer. */
+	private int limit = 0;
+	/** The number of characters read before the start of the buffer. */
+	private long offset = 0;
+	/** Buffer used to build strings that span more than one read or have escapes. */
+	private final StringBuilder string = new StringBuilder();
+	/** Whether the next member of each open object/array is the first. */
+	private final boolean[] first = new boolean[MAX_DEPTH];
+	/** Whether each open object/array is an object. */
+	private final boolean[] object = new boolean[MAX_DEPTH];
+	/** The number of open objects and arrays. */
+	private int depth = 0;
+
+	/**
+	 * Creates a reader of the given stream.
+	 * <p>The stream is already buffered, so it doesn't need to be wrapped in
+	 * a <tt>BufferedReader</tt>.</p>
+	 * @param reader The stream to read.
+	 */
+	public JSONStreamReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Consumes the start of an object.
+	 * @throws IOException If an I/O error occurs.
+	 * @throws JSONException If the next value isn't an object.
+	 */
+	public void beginObject() throws IOException, JSONException {
+		expect('{');
+		push(true);
+	}
+
+	/**
+	 * Consumes the end of the current object.
+	 * @throws IOException If an I/O error occurs.
+	 * @throws JSONException If the object has more members.
+	 */
+	public void endObject() throws IOException, JSONException {
+		expect('}');
+		depth--;
+	}
+
+	/**
+	 * Consumes the start of an array.
+	 * @throws IOException If an I/O error occurs.
+	 * @throws JSONException If the next value isn't an array.
+	 */
+	public void beginArray() throws IOException, JSONException {
+		expect('[');
+		push(false);
+	}
+
+	/**
+	 * Consumes the end of the current array.
+	 * @throws IOException If an I/O error occurs.
+	 * @throws JSONException If the array has more elements.
+	 */
+	public void endArray() throws IOException, JSONException {
+		expect(']');
+		depth--;
+	}
+
+	/**
+	 * Returns whether the current object or array has more members/elements.
+	 * <p>The comma before the next member/element is consumed.</p>
+	 * @return <tt>True</tt> if there are more members/elements.
+	 * @throws IOException If an I/O error occurs.
+	 * @throws JSONException If the object/array is malformed.
+	 */
+	public boolean hasNext() throws IOException, JSONException {
+		int c = peekClean();
+		if(c == '}' || c == ']')
+			return false;
+		if(first[depth - 1])
+			first[depth - 1] = false;
+		else {
+			if(c != ',' && c != ';')
+				throw syntaxError("Expected a ',' or '" + (object[depth - 1] ? '}' : ']') + "'");
+			pos++;
+			c = peekClean();
+			if(c == '}' || c == ']') // trailing comma
+				return false;
+		}
+		if(c == -1)
+			throw syntaxError("Unexpected end of the document");
+		return true;
+	}
+
+	/**
+	 * Reads the name of the next member of the current object, and the separator after it.
+	 * @return The name.
+	 * @throws IOException If an I/O error occurs.
+	 * @throws JSONException If the member is malformed.
+	 */
+	public String nextName() throws IOException, JSONException {
+		int c = peekClean();
+		if(c == '{' || c == '[')
+			throw syntaxError("A JSONObject text must begin with '{'");
+		Object name = nextValue();
+		if(!(name instanceof String))
+			name = name.toString();
+		c = peekClean();
+		if(c == '=') {
+			pos++;
+			if(peek() == '>') pos++;
+		}
+		else if(c == ':')
+			pos++;
+		else
+			throw syntaxError("Expected a ':' after a key");
+		return (String)name;
+	}
+
+	/**
+	 * Reads the next value, which must be a string.
+	 * @return The string.
+	 * @throws IOException If an I/O error occurs.
+	 * @throws JSONException If the value isn't a string.
+	 */
+	public String nextString() throws IOException, JSONException {
+		Object value = nextValue();
+		if(!(value instanceof String))
+			throw syntaxError("Expected a string");
+		return (String)value;
+	}
+
+	/**
+	 * Reads the next value, which must be a number.
+	 * @return The number, converted to <tt>int</tt>.
+	 * @throws IOException If an I/O error occurs.
+	 * @throws JSONException If the value isn't a number.
+	 */
+	public int nextInt() throws IOException, JSONException {
+		Object value = nextValue();
+		if(value instanceof Number)
+			return ((Number)value).intValue();
+		if(value instanceof String) {
+			try {
+				return (int)Double.parseDouble((String)value);
+			} catch(NumberFormatException ex) {
+				// not a number
+			}
+		}
+		throw syntaxError("Expected a number");
+	}
+
+	/**
+	 * Reads the next value, which must be an object.
+	 * @return The object.
+	 * @throws IOException If an I/O error occurs.
+	 * @throws JSONException If the value isn't an object.
+	 */
+	public JSONObject nextObject() throws IOException, JSONException {
+		if(peekClean() != '{')
+			throw syntaxError("A JSONObject text must begin with '{'");
+		return (JSONObject)nextValue();
+	}
+
+	/**
+	 * Reads the next value.
+	 * @return The value: a <tt>JSONObject</tt>, <tt>JSONArray</tt>,
+	 * <tt>String</tt>, <tt>Boolean</tt>, <tt>Integer</tt>, <tt>Long</tt>,
+	 * <tt>Double</tt> or <tt>JSONObject.NULL</tt>.
+	 * @throws IOException If an I/O error occurs.
+	 * @throws JSONException If the value is malformed.
+	 */
+	public Object nextValue() throws IOException, JSONException {
+		int c = peekClean();
+		switch(c) {
+			case '"': case '\'':
+				pos++;
+				return readQuoted((char)c);
+			case '{':
+				JSONObject obj = new JSONObject();
+				beginObject();
+				while(hasNext()) {
+					String key = nextName();
+					if(obj.has(key))
+						throw syntaxError("Duplicate key \"" + key + "\"");
+					obj.put(key, nextValue());
+				}
+				endObject();
+				return obj;
+			case '[':
+				JSONArray array = new JSONArray();
+				beginArray();
+				while(hasNext())
+					array.put(nextValue());
+				endArray();
+				return array;
+			default:
+				String token = readUnquoted();
+				if(token.isEmpty())
+					throw syntaxError("Missing value");
+				return JSONObject.stringToValue(token);
+		}
+	}
+
+	/**
+	 * Skips the next value.
+	 * @throws IOException If an I/O error occurs.
+	 * @throws JSONException If the value is malformed.
+	 */
+	public void skipValue() throws IOException, JSONException {
+		nextValue();
+	}
+
+	/**
+	 * Checks that the document has no more values.
+	 * @throws IOException If an I/O error occurs.
+	 * @throws JSONException If there's something after the end of the document.
+	 */
+	public void endDocument() throws IOException, JSONException {
+		if(peekClean() != -1)
+			throw syntaxError("Unexpected text after the end of the document");
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * Returns an exception for a syntax error in the current position.
+	 * @param message The description of the error.
+	 * @return The exception, to be thrown.
+	 */
+	public JSONException syntaxError(String message) {
+		return new JSONException(message + " at character " + (offset + pos));
+	}
+
+	/**
+	 * Marks the start of an object or array.
+	 * @param isObject Whether it's an object.
+	 * @throws JSONException If there are too many nested objects/arrays.
+	 */
+	private void push(boolean isObject) throws JSONException {
+		if(depth == MAX_DEPTH)
+			throw syntaxError("Too many nested objects and arrays");
+		object[depth] = isObject;
+		first[depth++] = true;
+	}
+
+	/**
+	 * Consumes the given character (after the whitespace).
+	 * @param expected The expected character.
+	 * @throws IOException If an I/O error occurs.
+	 * @throws JSONException If the next character is different.
+	 */
+	private void expect(char expected) throws IOException, JSONException {
+		if(peekClean() != expected)
+			throw syntaxError("Expected '" + expected + "'");
+		pos++;
+	}
+
+	/**
+	 * Returns the next character without consuming it.
+	 * @return The next character, or <tt>-1</tt> at the end of the stream.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private int peek() throws IOException {
+		if(pos == limit && !fill())
+			return -1;
+		return buffer[pos];
+	}
+
+	/**
+	 * Skips the whitespace and returns the next character without consuming it.
+	 * @return The next character, or <tt>-1</tt> at the end of the stream.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private int peekClean() throws IOException {
+		while(true) {
+			while(pos < limit) {
+				char c = buffer[pos];
+				if(c > ' ') return c;
+				pos++;
+			}
+			if(!fill()) return -1;
+		}
+	}
+
+	/**
+	 * Reads more characters to the buffer, if all of it was consumed.
+	 * @return <tt>False</tt> if the end of the stream was reached.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private boolean fill() throws IOException {
+		offset += limit;
+		pos = limit = 0;
+		int n;
+		while((n = reader.read(buffer, 0, buffer.length)) == 0);
+		if(n < 0) return false;
+		limit = n;
+		return true;
+	}
+
+	/**
+	 * Reads a string, after the opening quote.
+	 * @param quote The quote character.
+	 * @return The string.
+	 * @throws IOException If an I/O error occurs.
+	 * @throws JSONException If the string is unterminated or has an invalid escape.
+	 */
+	private String readQuoted(char quote) throws IOException, JSONException {
+		// Fast path: the string has no escapes and is all in the buffer
+		for(int i = pos; i < limit; i++) {
+			char c = buffer[i];
+			if(c == quote) {
+				String str = new String(buffer, pos, i - pos);
+				pos = i + 1;
+				return str;
+			}
+			if(c == '\\' || c == '\n' || c == '\r')
+				break;
+		}
+
+		string.setLength(0);
+		while(true) {
+			if(pos == limit && !fill())
+				throw syntaxError("Unterminated string");
+			char c = buffer[pos++];
+			if(c == quote)
+				return string.toString();
+			else if(c == '\n' || c == '\r')
+				throw syntaxError("Unterminated string");
+			else if(c == '\\')
+				string.append(readEscape());
+			else
+				string.append(c);
+		}
+	}
+
+	/**
+	 * Reads an escape sequence of a string, after the backslash.
+	 * @return The escaped character.
+	 * @throws IOException If an I/O error occurs.
+	 * @throws JSONException If the escape sequence is invalid.
+	 */
+	private char readEscape() throws IOException, JSONException {
+		if(pos == limit && !fill())
+			throw syntaxError("Unterminated string");
+		char c = buffer[pos++];
+		switch(c) {
+			case 'b': return '\b';
+			case 't': return '\t';
+			case 'n': return '\n';
+			case 'f': return '\f';
+			case 'r': return '\r';
+			case 'u':
+				int value = 0;
+				for(int i = 0; i < 4; i++) {
+					if(pos == limit && !fill())
+						throw syntaxError("Unterminated string");
+					int digit = Character.digit(buffer[pos++], 16);
+					if(digit < 0)
+						throw syntaxError("Illegal escape");
+					value = (value << 4) | digit;
+				}
+				return (char)value;
+			case '"': case '\'': case '\\': case '/':
+				return c;
+			default:
+				throw syntaxError("Illegal escape");
+		}
+	}
+
+	/**
+	 * Reads an unquoted string (like a number, <tt>true</tt> or <tt>null</tt>).
+	 * @return The string, trimmed.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private String readUnquoted() throws IOException {
+		string.setLength(0);
+		while(true) {
+			int start = pos;
+			while(pos < limit) {
+				char c = buffer[pos];
+				if(c < ' ' || DELIMITERS.indexOf(c) >= 0)
+					return string.append(buffer, start, pos - start).toString().trim();
+				pos++;
+			}
+			string.append(buffer, start, pos - start);
+			if(!fill())
+				return string.toString().trim();
+		}
+	}
+}
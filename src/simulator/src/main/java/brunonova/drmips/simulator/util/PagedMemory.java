@@ -0,0 +1,182 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator.util;
+
+import java.util.Arrays;
+
+/**
+ * Sparse memory of 32 bits words, divided in pages that are allocated when first written.
+ *
+ * <p>The memory has 2<sup>30</sup> words (the whole 32 bits address space),
+ * indexed from 0. The pages are found through a two-level table: the 10 most
+ * significant bits of the index select a table of pages, the next 10 bits
+ * select the page in that table and the last 10 bits select the word in the
+ * page (each page has 1024 words, or 4 KiB). Reading and writing a word is
+ * always done in constant time, and the words of unallocated pages read 0.</p>
+ *
+ * @author Bruno Nova
+ */
+public final class PagedMemory {
+	/** The number of bits of the index of a word inside a page. */
+	public static final int PAGE_BITS = 10;
+	/** The number of words in each page. */
+	public static final int PAGE_SIZE = 1 << PAGE_BITS;
+	/** The number of words in the memory. */
+	public static final int SIZE = 1 << 30;
+	/** The number of bits of the index of a page inside a table. */
+	private static final int TABLE_BITS = 10;
+	/** The number of pages in each table. */
+	private static final int TABLE_SIZE = 1 << TABLE_BITS;
+
+	/** The tables of pages (<tt>null</tt> entries have no allocated pages). */
+	private final int[][][] tables = new int[SIZE >>> (PAGE_BITS + TABLE_BITS)][][];
+	/** The number of allocated pages. */
+	private int numberOfPages = 0;
+
+	/**
+	 * Creates an empty memory.
+	 */
+	public PagedMemory() {
+	}
+
+	/**
+	 * Creates a copy of the given memory.
+	 * @param other The memory to copy.
+	 */
+	public PagedMemory(PagedMemory other) {
+		for(int t = 0; t < tables.length; t++) {
+			if(other.tables[t] != null) {
+				tables[t] = new int[TABLE_SIZE][];
+				for(int p = 0; p < TABLE_SIZE; p++)
+					if(other.tables[t][p] != null) tables[t][p] = other.tables[t][p].clone();
+			}
+		}
+		numberOfPages = other.numberOfPages;
+	}
+
+	/**
+	 * Returns the word with the given index.
+	 * @param index The index of the word (<tt>0</tt> to <tt>SIZE - 1</tt>).
+	 * @return The value of the word (0 if its page isn't allocated).
+	 */
+	public int get(int index) {
+		int[][] table = tables[index >>> (PAGE_BITS + TABLE_BITS)];
+		if(table == null) return 0;
+		int[] page = table[(index >>> PAGE_BITS) & (TABLE_SIZE - 1)];
+		return page != null ? page[index & (PAGE_SIZE - 1)] : 0;
+	}
+
+	/**
+	 * Updates the word with the given index, allocating its page if needed.
+	 * <p>Writing 0 to an unallocated page doesn't allocate it.</p>
+	 * @param index The index of the word (<tt>0</tt> to <tt>SIZE - 1</tt>).
+	 * @param value The new value.
+	 */
+	public void set(int index, int value) {
+		int[][] table = tables[index >>> (PAGE_BITS + TABLE_BITS)];
+		if(table == null) {
+			if(value == 0) return;
+			table = tables[index >>> (PAGE_BITS + TABLE_BITS)] = new int[TABLE_SIZE][];
+		}
+		int p = (index >>> PAGE_BITS) & (TABLE_SIZE - 1);
+		int[] page = table[p];
+		if(page == null) {
+			if(value == 0) return;
+			page = table[p] = new int[PAGE_SIZE];
+			numberOfPages++;
+		}
+		page[index & (PAGE_SIZE - 1)] = value;
+	}
+
+	/**
+	 * Returns the number of allocated pages.
+	 * @return Number of pages with words that were written.
+	 */
+	public int getNumberOfPages() {
+		return numberOfPages;
+	}
+
+	/**
+	 * Returns the numbers of the allocated pages.
+	 * <p>The first word of page <tt>n</tt> has the index <tt>n * PAGE_SIZE</tt>.</p>
+	 * @return The numbers of the pages, in ascending order.
+	 */
+	public int[] getPages() {
+		int[] pages = new int[numberOfPages];
+		int n = 0;
+		for(int t = 0; t < tables.length; t++) {
+			if(tables[t] != null) {
+				for(int p = 0; p < TABLE_SIZE; p++)
+					if(tables[t][p] != null) pages[n++] = (t << TABLE_BITS) | p;
+			}
+		}
+		return pages;
+	}
+
+	/**
+	 * Returns whether the given page is allocated.
+	 * @param page The number of the page.
+	 * @return <tt>True</tt> if the page is allocated.
+	 */
+	public boolean hasPage(int page) {
+		int[][] table = tables[page >>> TABLE_BITS];
+		return table != null && table[page & (TABLE_SIZE - 1)] != null;
+	}
+
+	/**
+	 * Copies the words of the given page to an array.
+	 * @param page The number of the page.
+	 * @param dest The array (with at least <tt>offset + PAGE_SIZE</tt> positions).
+	 * @param offset The position of the first word in the array.
+	 */
+	public void readPage(int page, int[] dest, int offset) {
+		int[][] table = tables[page >>> TABLE_BITS];
+		int[] words = table != null ? table[page & (TABLE_SIZE - 1)] : null;
+		if(words != null)
+			System.arraycopy(words, 0, dest, offset, PAGE_SIZE);
+		else
+			Arrays.fill(dest, offset, offset + PAGE_SIZE, 0);
+	}
+
+	/**
+	 * Copies the words of an array to the given page, allocating it if needed.
+	 * @param page The number of the page.
+	 * @param src The array (with at least <tt>offset + PAGE_SIZE</tt> positions).
+	 * @param offset The position of the first word in the array.
+	 */
+	public void writePage(int page, int[] src, int offset) {
+		int[][] table = tables[page >>> TABLE_BITS];
+		if(table == null)
+			table = tables[page >>> TABLE_BITS] = new int[TABLE_SIZE][];
+		int[] words = table[page & (TABLE_SIZE - 1)];
+		if(words == null) {
+			words = table[page & (TABLE_SIZE - 1)] = new int[PAGE_SIZE];
+			numberOfPages++;
+		}
+		System.arraycopy(src, offset, words, 0, PAGE_SIZE);
+	}
+
+	/**
+	 * Frees all the pages (all words become 0).
+	 */
+	public void clear() {
+		Arrays.fill(tables, null);
+		numberOfPages = 0;
+	}
+}
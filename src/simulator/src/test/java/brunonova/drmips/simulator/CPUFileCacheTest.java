@@ -0,0 +1,71 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class CPUFileCacheTest {
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private static final String CODE = ".data\n"
+		+ "v: .word 5, -3\n"
+		+ ".text\n"
+		+ "lw $t1, 0($0)\n"
+		+ "lw $t2, 4($0)\n"
+		+ "add $t3, $t1, $t2\n"
+		+ "sw $t3, 8($0)\n";
+
+	@Test
+	public void testLoad() throws Exception {
+		File dir = tmp.newFolder("cpu");
+		File cpuFile = new File(dir, "unicycle.cpu"), setFile = new File(dir, "default.set");
+		Files.copy(new File("cpu/unicycle.cpu").toPath(), cpuFile.toPath());
+		Files.copy(new File("cpu/default.set").toPath(), setFile.toPath());
+		CPUFileCache cache = new CPUFileCache(tmp.newFolder("cache"));
+		byte[] contents = Files.readAllBytes(cpuFile.toPath());
+		assertNull(cache.load(contents, dir));
+
+		CPU reference = CPU.createFromJSONFile(cpuFile.getPath());
+		CPU parsed = CPU.createFromJSONFile(cpuFile.getPath(), cache); // saved in the cache
+		assertNotNull(cache.load(contents, dir));
+		CPU cached = CPU.createFromJSONFile(cpuFile.getPath(), cache);
+		assertEquals(TestUtils.performanceOf(reference), TestUtils.performanceOf(parsed));
+		assertEquals(TestUtils.performanceOf(reference), TestUtils.performanceOf(cached));
+		reference.assembleCode(CODE);
+		cached.assembleCode(CODE);
+		reference.executeAll();
+		cached.executeAll();
+		TestUtils.assertSameState("cache", reference, cached);
+
+		// changing the instruction set invalidates the cached file
+		Files.write(setFile.toPath(), "\n".getBytes("UTF-8"), StandardOpenOption.APPEND);
+		assertNull(cache.load(contents, dir));
+		CPU.createFromJSONFile(cpuFile.getPath(), cache);
+		assertNotNull(cache.load(contents, dir));
+		cache.clear();
+		assertNull(cache.load(contents, dir));
+	}
+}
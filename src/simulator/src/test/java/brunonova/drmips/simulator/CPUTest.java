@@ -0,0 +1,461 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import brunonova.drmips.simulator.components.InstructionMemory;
+import brunonova.drmips.simulator.exceptions.SyntaxErrorException;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class CPUTest {
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private static final String LOOP = "addi $t0, $0, 10\n"
+		+ "loop: addi $t0, $t0, -1\n"
+		+ "addi $t1, $t1, 2\n"
+		+ "beq $t0, $0, end\n"
+		+ "beq $0, $0, loop\n"
+		+ "end: sw $t1, 0($0)\n";
+	private static final String BASIC = ".data\n"
+		+ "v: .word 5, -3, 7, 0\n"
+		+ ".text\n"
+		+ "addi $t0, $0, 3\n"
+		+ "loop: lw $t1, 0($0)\n"
+		+ "lw $t2, 4($0)\n"
+		+ "add $t3, $t1, $t2\n"
+		+ "sub $t4, $t1, $t2\n"
+		+ "and $t5, $t3, $t4\n"
+		+ "or $t6, $t3, $t4\n"
+		+ "nor $t7, $t3, $t4\n"
+		+ "slt $s0, $t2, $t1\n"
+		+ "add $s1, $s1, $t6\n"
+		+ "sw $s1, 12($0)\n"
+		+ "sw $t7, 8($0)\n"
+		+ "addi $t0, $t0, -1\n"
+		+ "beq $t0, $0, end\n"
+		+ "beq $0, $0, loop\n"
+		+ "end: sw $t0, 200($0)\n";
+	private static final String EXTENDED = "addi $t0, $0, -7\n"
+		+ "addi $t1, $0, 3\n"
+		+ "mult $t0, $t1\n"
+		+ "mfhi $t2\n"
+		+ "mflo $t3\n"
+		+ "div $t0, $t1\n"
+		+ "mfhi $t4\n"
+		+ "mflo $t5\n"
+		+ "xor $t6, $t4, $t5\n"
+		+ "j skip\n"
+		+ "addi $t7, $0, 1\n"
+		+ "skip: div $t0, $0\n";
+	private static final String INFINITE_LOOP = "loop: addi $t0, $t0, 1\n"
+		+ "beq $0, $0, loop\n";
+
+	@Test
+	public void testExecuteAllFinished() throws Exception {
+		CPU cpu = CPU.createFromJSONFile("cpu/unicycle.cpu");
+		cpu.assembleCode(LOOP);
+		RunResult result = cpu.executeAll();
+		assertEquals(RunResult.Reason.FINISHED, result.getReason());
+		assertTrue(result.isFinished());
+		assertEquals(41, result.getCycles());
+		assertEquals(cpu.getNumberOfExecutedCycles(), result.getCycles());
+		assertEquals(20, cpu.getDataMemory().getData(0));
+	}
+
+	@Test
+	public void testExecuteAllBreakpoint() throws Exception {
+		CPU cpu = CPU.createFromJSONFile("cpu/unicycle.cpu");
+		cpu.assembleCode(LOOP);
+		cpu.setBreakpointAddr(20);
+		RunResult result = cpu.executeAll();
+		assertEquals(RunResult.Reason.BREAKPOINT, result.getReason());
+		assertEquals(20, cpu.getPC().getAddress().getValue());
+		assertEquals(0, cpu.getRegBank().getRegister(cpu.getRegisterIndex("$t0")).getValue());
+	}
+
+	@Test
+	public void testExecuteAllBudget() throws Exception {
+		CPU cpu = CPU.createFromJSONFile("cpu/unicycle.cpu");
+		cpu.assembleCode(INFINITE_LOOP);
+		RunResult result = cpu.executeAll(new RunOptions(5000, 0));
+		assertEquals(RunResult.Reason.BUDGET, result.getReason());
+		assertEquals(5000, result.getCycles());
+		assertEquals(2500, cpu.getRegBank().getRegister(cpu.getRegisterIndex("$t0")).getValue());
+
+		result = cpu.executeAll(new RunOptions(Long.MAX_VALUE, 50));
+		assertEquals(RunResult.Reason.BUDGET, result.getReason());
+		assertTrue(result.getCycles() > 0);
+	}
+
+	@Test
+	public void testExecuteAllCancelledAndProgress() throws Exception {
+		CPU cpu = CPU.createFromJSONFile("cpu/unicycle.cpu");
+		cpu.setCycleHistoryEnabled(false);
+		cpu.assembleCode(INFINITE_LOOP);
+		final CancellationToken token = new CancellationToken();
+		final long[] calls = {0, 0};
+		RunOptions options = new RunOptions(Long.MAX_VALUE, 0);
+		options.setCancellationToken(token);
+		options.setProgressListener(new RunOptions.ProgressListener() {
+			@Override
+			public void onProgress(CPU cpu, long cycles) {
+				calls[0]++;
+				calls[1] = cycles;
+				if(cycles >= 3000) token.cancel();
+			}
+		}, 100);
+		RunResult result = cpu.executeAll(options);
+		assertEquals(RunResult.Reason.CANCELLED, result.getReason());
+		assertEquals(3000, result.getCycles());
+		assertEquals(30, calls[0]);
+		assertEquals(3000, calls[1]);
+		assertFalse(cpu.hasPreviousCycle());
+	}
+
+	@Test
+	public void testStepBack() throws Exception {
+		String[] files = {"cpu/unicycle-extended.cpu", "cpu/pipeline-extended.cpu"};
+		for(String file: files) {
+			CPU cpu = CPU.createFromJSONFile(file);
+			String code = cpu.isPipeline() ? BASIC : BASIC + EXTENDED; // no jumps in the pipeline
+			CPU reference = CPU.createFromJSONFile(file);
+			cpu.assembleCode(code);
+			reference.assembleCode(code);
+			for(int i = 0; i < 30; i++)
+				cpu.executeCycle();
+			for(int i = 0; i < 20; i++)
+				reference.executeCycle();
+			for(int i = 0; i < 10; i++)
+				cpu.restorePreviousCycle();
+			TestUtils.assertSameState(file, reference, cpu);
+			assertEquals(file, reference.getPC().getCurrentInstructionIndex(), cpu.getPC().getCurrentInstructionIndex());
+			assertEquals(file, reference.getIfIdReg() == null ? 0 : reference.getIfIdReg().getCurrentInstructionIndex(),
+				cpu.getIfIdReg() == null ? 0 : cpu.getIfIdReg().getCurrentInstructionIndex());
+
+			cpu.resetToFirstCycle();
+			assertEquals(file, 0, cpu.getPC().getAddress().getValue());
+			assertEquals(file, 5, cpu.getDataMemory().getData(0));
+			assertEquals(file, 0, cpu.getDataMemory().getData(12));
+			assertFalse(file, cpu.hasPreviousCycle());
+		}
+	}
+
+	@Test
+	public void testFunctionalEngineSameState() throws Exception {
+		String[] files = {"cpu/unicycle.cpu", "cpu/unicycle-no-jump.cpu", "cpu/unicycle-extended.cpu"};
+		for(String file: files) {
+			String code = file.contains("extended") ? BASIC + EXTENDED : BASIC;
+			CPU datapath = CPU.createFromJSONFile(file);
+			CPU functional = CPU.createFromJSONFile(file);
+			assertTrue(file, functional.supportsFunctionalEngine());
+			datapath.assembleCode(code);
+			functional.assembleCode(code);
+			RunOptions options = new RunOptions();
+			options.setEngine(RunOptions.Engine.FUNCTIONAL);
+			RunResult expected = datapath.executeAll();
+			RunResult result = functional.executeAll(options);
+			assertEquals(file, RunResult.Reason.FINISHED, result.getReason());
+			assertEquals(file, expected.getCycles(), result.getCycles());
+			TestUtils.assertSameState(file, datapath, functional);
+		}
+	}
+
+	@Test
+	public void testFunctionalEngineBreakpointAndBudget() throws Exception {
+		CPU cpu = CPU.createFromJSONFile("cpu/unicycle.cpu");
+		RunOptions options = new RunOptions();
+		options.setEngine(RunOptions.Engine.FUNCTIONAL);
+		cpu.assembleCode(LOOP);
+		cpu.setBreakpointAddr(20);
+		RunResult result = cpu.executeAll(options);
+		assertEquals(RunResult.Reason.BREAKPOINT, result.getReason());
+		assertEquals(20, cpu.getPC().getAddress().getValue());
+		assertEquals(0, cpu.getRegBank().getRegister(cpu.getRegisterIndex("$t0")).getValue());
+		assertEquals(result.getCycles(), cpu.getNumberOfExecutedCycles());
+
+		cpu.setBreakpointAddr(-1);
+		cpu.assembleCode(INFINITE_LOOP);
+		options.setMaxCycles(5000);
+		result = cpu.executeAll(options);
+		assertEquals(RunResult.Reason.BUDGET, result.getReason());
+		assertEquals(5000, result.getCycles());
+		assertEquals(2500, cpu.getRegBank().getRegister(cpu.getRegisterIndex("$t0")).getValue());
+	}
+
+	@Test
+	public void testFunctionalEngineUnsupported() throws Exception {
+		CPU cpu = CPU.createFromJSONFile("cpu/pipeline.cpu");
+		assertFalse(cpu.supportsFunctionalEngine());
+		cpu.assembleCode(LOOP);
+		RunOptions options = new RunOptions();
+		options.setEngine(RunOptions.Engine.FUNCTIONAL);
+		assertEquals(RunResult.Reason.FINISHED, cpu.executeAll(options).getReason());
+		assertEquals(20, cpu.getDataMemory().getData(0));
+	}
+
+	@Test
+	public void testFunctionalEngineStructure() throws Exception {
+		assertTrue(CPU.createFromJSONFile("cpu/unicycle-no-jump-branch.cpu").supportsFunctionalEngine());
+
+		File dir = tmp.newFolder("cpu");
+		Files.copy(new File("cpu/default.set").toPath(), new File(dir, "default.set").toPath());
+		String contents = new String(Files.readAllBytes(new File("cpu/unicycle.cpu").toPath()), "UTF-8");
+		JSONObject json = new JSONObject(contents);
+		File file = new File(dir, "unicycle.cpu");
+		Files.write(file.toPath(), json.toString().getBytes("UTF-8"));
+		assertTrue(CPU.createFromJSONFile(file.getPath()).supportsFunctionalEngine());
+
+		// jump target shifted by 3 bits instead of 2
+		json.getJSONObject("components").getJSONObject("ShiftJump").put("amount", 3);
+		Files.write(file.toPath(), json.toString().getBytes("UTF-8"));
+		assertFalse(CPU.createFromJSONFile(file.getPath()).supportsFunctionalEngine());
+
+		// inputs of the branch multiplexer swapped
+		json = new JSONObject(contents);
+		for(int i = 0; i < json.getJSONArray("wires").length(); i++) {
+			JSONObject wire = json.getJSONArray("wires").getJSONObject(i);
+			if(wire.getString("to").equals("MuxBranch") && !wire.getString("in").equals("Branch"))
+				wire.put("in", wire.getString("in").equals("0") ? "1" : "0");
+		}
+		Files.write(file.toPath(), json.toString().getBytes("UTF-8"));
+		assertFalse(CPU.createFromJSONFile(file.getPath()).supportsFunctionalEngine());
+	}
+
+	@Test
+	public void testLazyInstructionPerformance() throws Exception {
+		for(String file: new String[] {"cpu/unicycle.cpu", "cpu/pipeline.cpu"}) {
+			CPU lazy = CPU.createFromJSONFile(file);
+			CPU eager = CPU.createFromJSONFile(file);
+			lazy.setPerformanceInstructionDependent(true);
+			eager.setPerformanceInstructionDependent(true);
+			lazy.assembleCode(BASIC);
+			eager.assembleCode(BASIC);
+			for(int i = 1; i <= 60 && !eager.isProgramFinished(); i++) {
+				lazy.executeCycle();
+				eager.executeCycle();
+				eager.calculatePerformance();
+				if(i % 7 == 0) {
+					assertEquals(file + " @" + i, TestUtils.performanceOf(eager), TestUtils.performanceOf(lazy));
+					lazy.restorePreviousCycle();
+					lazy.executeCycle();
+				}
+			}
+			assertEquals(file, TestUtils.performanceOf(eager), TestUtils.performanceOf(lazy));
+		}
+	}
+
+	@Test
+	public void testInstructionPerformanceCache() throws Exception {
+		String[] files = {"cpu/unicycle.cpu", "cpu/unicycle-extended.cpu", "cpu/pipeline.cpu",
+			"cpu/pipeline-extended.cpu", "cpu/pipeline-only-forwarding.cpu"};
+		for(String file: files) {
+			CPU cached = CPU.createFromJSONFile(file);
+			CPU reference = CPU.createFromJSONFile(file);
+			cached.setPerformanceInstructionDependent(true);
+			reference.setPerformanceInstructionDependent(true);
+			cached.assembleCode(BASIC);
+			reference.assembleCode(BASIC);
+			InstructionPerformanceCache cache = cached.getInstructionPerformanceCache();
+			assertNotNull(file, cache);
+			for(int i = 0; i < 200 && !reference.isProgramFinished(); i++) { // no hazard detection: may not finish
+				cached.executeCycle();
+				reference.executeCycle();
+				reference.getInstructionPerformanceCache().clear(); // recalculated when read
+				assertEquals(file, TestUtils.performanceOf(reference), TestUtils.performanceOf(cached));
+			}
+			assertTrue(file, cache.getHits() > cache.getMisses());
+			assertEquals(file, cache.getMisses(), cache.getSize());
+		}
+	}
+
+	@Test
+	public void testSignalTable() throws Exception {
+		CPU cpu = CPU.createFromJSONFile("cpu/pipeline.cpu");
+		SignalTable signals = cpu.getSignalTable();
+		int wires = 0;
+		for(Component c: cpu.getComponents()) {
+			for(Output out: c.getOutputs()) {
+				if(out.isConnected()) {
+					wires++;
+					assertTrue(out.hasSignalSlot());
+					assertEquals(out.getSignalSlot(), out.getConnectedInput().getSignalSlot());
+					assertEquals(out.getValue(), signals.getValue(out.getSignalSlot()));
+					assertEquals(out.getData().getMask(), signals.getMask(out.getSignalSlot()));
+				}
+				else
+					assertFalse(out.hasSignalSlot());
+			}
+		}
+		assertEquals(wires, signals.getNumberOfSignals());
+
+		cpu.assembleCode(LOOP);
+		int[] first = signals.saveValues();
+		for(int i = 0; i < 5; i++)
+			cpu.executeCycle();
+		int[] fifth = signals.saveValues();
+		cpu.resetToFirstCycle();
+		assertArrayEquals(first, signals.saveValues());
+		signals.restoreValues(fifth);
+		for(Component c: cpu.getComponents())
+			for(Output out: c.getOutputs())
+				if(out.isConnected())
+					assertEquals(out.getValue(), out.getConnectedInput().getValue());
+	}
+
+	@Test
+	public void testExecuteCycleAllocations() throws Exception {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)bean;
+		assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+		long thread = Thread.currentThread().getId();
+
+		String[] files = {"cpu/unicycle.cpu", "cpu/unicycle-extended.cpu", "cpu/pipeline.cpu",
+			"cpu/pipeline-extended.cpu", "cpu/pipeline-only-forwarding.cpu"};
+		for(String file: files) {
+			CPU cpu = CPU.createFromJSONFile(file);
+			cpu.setCycleHistoryEnabled(false); // the history stores data every cycle
+			cpu.assembleCode(INFINITE_LOOP);
+			for(int i = 0; i < 20000; i++) // warm up
+				cpu.executeCycle();
+			long before = threadBean.getThreadAllocatedBytes(thread);
+			for(int i = 0; i < 10000; i++)
+				cpu.executeCycle();
+			long bytesPerCycle = (threadBean.getThreadAllocatedBytes(thread) - before) / 10000;
+			assertTrue(file + ": " + bytesPerCycle + " bytes per cycle", bytesPerCycle < 16);
+		}
+	}
+
+	@Test
+	public void testControlTables() throws Exception {
+		String[] files = {"cpu/unicycle.cpu", "cpu/unicycle-extended.cpu"};
+		for(String file: files) {
+			InstructionSet set = CPU.createFromJSONFile(file).getInstructionSet();
+			Control control = set.getControl();
+			for(int opcode = 0; opcode < (1 << set.getOpCodeSize()); opcode++) {
+				int[] values = control.getOutsOfOpcode(opcode);
+				int x = 0;
+				for(String id: control.getOutputsIds())
+					assertEquals(file + ": " + opcode + " " + id, control.getOutOfOpcode(opcode, id), values[x++]);
+			}
+
+			ControlALU controlALU = set.getControlALU();
+			for(int aluOp = 0; aluOp < (1 << controlALU.getAluOpSize()); aluOp++) {
+				for(int func = 0; func < (1 << controlALU.getFuncSize()); func++) {
+					int[] values = controlALU.getControlValues(aluOp, func);
+					int x = 0;
+					for(String id: controlALU.getOutputsIds())
+						assertEquals(file + ": " + aluOp + " " + func + " " + id, controlALU.getControlValue(aluOp, func, id), values[x++]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTemplate() throws Exception {
+		CPUTemplate template = CPUTemplate.createFromJSONFile("cpu/pipeline.cpu");
+		CPU cpu1 = template.createCPU();
+		CPU cpu2 = template.createCPU();
+		CPU reference = CPU.createFromJSONFile("cpu/pipeline.cpu");
+		assertSame(template.getInstructionSet(), cpu1.getInstructionSet());
+		assertSame(cpu1.getInstructionSet(), cpu2.getInstructionSet());
+		assertNotSame(cpu1.getRegBank(), cpu2.getRegBank());
+		assertEquals(reference.getComponents().length, cpu1.getComponents().length);
+		assertEquals(TestUtils.performanceOf(reference), TestUtils.performanceOf(cpu1));
+
+		cpu1.assembleCode(BASIC);
+		reference.assembleCode(BASIC);
+		cpu1.executeAll();
+		reference.executeAll();
+		TestUtils.assertSameState("template", reference, cpu1);
+		assertEquals(0, cpu2.getNumberOfExecutedCycles());
+		assertEquals(0, cpu2.getInstructionMemory().getNumberOfInstructions());
+		for(int i = 0; i < cpu2.getRegBank().getNumberOfRegisters(); i++)
+			assertEquals(0, cpu2.getRegBank().getRegister(i).getValue());
+	}
+
+	@Test
+	public void testLoadTimings() throws Exception {
+		CPUTemplate template = CPUTemplate.createFromJSONFile("cpu/pipeline.cpu");
+		CPU cpu = template.createCPU();
+		LoadTimings timings = cpu.getLoadTimings();
+		for(LoadTimings.Phase phase: LoadTimings.Phase.values())
+			assertTrue(phase.name(), timings.getTime(phase) > 0);
+		assertEquals(template.getLoadTimings().getTime(LoadTimings.Phase.READ_CPU), timings.getTime(LoadTimings.Phase.READ_CPU));
+		assertEquals(0, template.getLoadTimings().getTime(LoadTimings.Phase.WIRES));
+		assertTrue(timings.getTotalTime() > template.getLoadTimings().getTotalTime());
+	}
+
+	@Test
+	public void testFunctionalEnginePagedMemory() throws Exception {
+		File cpuFile = TestUtils.createPagedCPUFile(tmp);
+		CPU datapath = CPU.createFromJSONFile(cpuFile.getPath());
+		CPU functional = CPU.createFromJSONFile(cpuFile.getPath());
+		datapath.assembleCode(TestUtils.PAGED_CODE);
+		functional.assembleCode(TestUtils.PAGED_CODE);
+		RunOptions options = new RunOptions();
+		options.setEngine(RunOptions.Engine.FUNCTIONAL);
+		datapath.executeAll();
+		assertEquals(RunResult.Reason.FINISHED, functional.executeAll(options).getReason());
+		TestUtils.assertSameState("paged", datapath, functional);
+		assertEquals(42, functional.getDataMemory().getData(0x10000004));
+		assertEquals(2, functional.getDataMemory().getTouchedPages().length);
+	}
+
+	@Test
+	public void testAssembler() throws Exception {
+		CPU cpu = CPU.createFromJSONFile("cpu/unicycle.cpu");
+		cpu.assembleCode(".data\nd1: .word 0x10, -1, 012 # data\n.text\nL1:\tADDI $T1 , $8,0X1f\n lw $t2, d1($zero)\n beq $t1, $9, L1 # loop\n");
+		InstructionMemory memory = cpu.getInstructionMemory();
+		assertEquals(3, memory.getNumberOfInstructions());
+		assertEquals(0x2109001f, memory.getWord(0));
+		assertEquals(4, memory.getInstruction(0).getLineNumber());
+		assertTrue(memory.getInstruction(0).getLabels().contains("L1"));
+		assertEquals(0x8c0a0000, memory.getWord(1));
+		assertEquals(0x1129fffd, memory.getWord(2));
+		assertEquals(0x10, cpu.getDataMemory().getDataInIndex(0));
+		assertEquals(-1, cpu.getDataMemory().getDataInIndex(1));
+		assertEquals(10, cpu.getDataMemory().getDataInIndex(2));
+
+		try {
+			cpu.assembleCode("add $t0, $t1\nxyz $t0\nL1: nop\nL1: lw $t0, 99999999999($0)\n");
+			fail("Expected a syntax error");
+		}
+		catch(SyntaxErrorException ex) {
+			assertEquals(SyntaxErrorException.Type.DUPLICATED_LABEL, ex.getType());
+			assertEquals(4, ex.getLine());
+			assertEquals(3, ex.getOtherErrors().size());
+			assertEquals(SyntaxErrorException.Type.UNKNOWN_INSTRUCTION, ex.getOtherErrors().get(2).getType());
+		}
+
+		assertEquals(8, cpu.getRegisterIndex(" $T0 "));
+		assertEquals(8, cpu.getRegisterIndex("$+8"));
+		assertEquals(-1, cpu.getRegisterIndex("$32"));
+		assertEquals(-1, cpu.getRegisterIndex("$99999999999"));
+		assertTrue(cpu.getAssembler().interpretPseudoInstruction("label:").isEmpty());
+	}
+}
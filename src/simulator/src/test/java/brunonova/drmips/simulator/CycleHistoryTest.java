@@ -0,0 +1,162 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CycleHistoryTest {
+	private static final String CODE = ".data\n"
+		+ "v: .word 0, 0, 0, 0\n"
+		+ ".text\n"
+		+ "loop: addi $t0, $t0, 1\n"
+		+ "sw $t0, 0($0)\n"
+		+ "lw $t1, 0($0)\n"
+		+ "add $t2, $t2, $t1\n"
+		+ "beq $0, $0, loop\n";
+
+	@Test
+	public void testBudget() throws Exception {
+		for(String file: new String[] {"cpu/unicycle.cpu", "cpu/pipeline.cpu"}) {
+			CPU cpu = CPU.createFromJSONFile(file);
+			CycleHistory history = cpu.getCycleHistory();
+			assertTrue(file, history.isBounded());
+			history.setCheckpointInterval(500);
+			history.setMemoryBudget(16 * 1024);
+			cpu.assembleCode(CODE);
+			for(int i = 0; i < 20000; i++) {
+				cpu.executeCycle();
+				assertTrue(file, history.getMemoryUsage() <= history.getMemoryBudget() + 1024); // checked at the start of each cycle
+			}
+			assertTrue(file, history.isTruncated());
+			assertTrue(file, history.getNumberOfRetainedCycles() < 20000);
+			assertTrue(file, history.getNumberOfRetainedCycles() >= 16);
+			assertEquals(file, 0, history.getFirstCheckpoint().getCycle());
+			assertTrue(file, history.getNumberOfCheckpoints() >= 1);
+		}
+	}
+
+	@Test
+	public void testStepBackInWindowAndRestart() throws Exception {
+		CPU cpu = CPU.createFromJSONFile("cpu/unicycle.cpu");
+		CPU reference = CPU.createFromJSONFile("cpu/unicycle.cpu");
+		cpu.getCycleHistory().setCheckpointInterval(100);
+		cpu.getCycleHistory().setMemoryBudget(8 * 1024);
+		cpu.assembleCode(CODE);
+		reference.assembleCode(CODE);
+		for(int i = 0; i < 5000; i++)
+			cpu.executeCycle();
+		for(int i = 0; i < 4990; i++)
+			reference.executeCycle();
+
+		for(int i = 0; i < 10; i++) {
+			assertTrue(cpu.hasPreviousCycle());
+			cpu.restorePreviousCycle();
+		}
+		assertEquals(4990, cpu.getNumberOfExecutedCycles());
+		assertEquals(reference.getPC().getAddress().getValue(), cpu.getPC().getAddress().getValue());
+		for(int i = 0; i < 32; i++)
+			assertEquals(reference.getRegBank().getRegister(i).getValue(), cpu.getRegBank().getRegister(i).getValue());
+		assertEquals(reference.getDataMemory().getData(0), cpu.getDataMemory().getData(0));
+
+		// the window is limited
+		int retained = cpu.getCycleHistory().getNumberOfRetainedCycles();
+		for(int i = 0; i < retained; i++)
+			cpu.restorePreviousCycle();
+		assertFalse(cpu.hasPreviousCycle());
+		assertTrue(cpu.getNumberOfExecutedCycles() > 0);
+
+		// but restarting is still possible
+		for(int i = 0; i < 10; i++)
+			cpu.executeCycle();
+		cpu.resetToFirstCycle();
+		assertEquals(0, cpu.getNumberOfExecutedCycles());
+		assertEquals(0, cpu.getPC().getAddress().getValue());
+		assertEquals(0, cpu.getRegBank().getRegister(cpu.getRegisterIndex("$t0")).getValue());
+		assertEquals(0, cpu.getDataMemory().getData(0));
+		assertFalse(cpu.hasPreviousCycle());
+		assertTrue(cpu.getCycleHistory().getNumberOfCheckpoints() > 1); // kept to go forward
+		cpu.discardNewerCycles();
+		assertEquals(1, cpu.getCycleHistory().getNumberOfCheckpoints());
+	}
+
+	@Test
+	public void testSeekToCycle() throws Exception {
+		for(String file: new String[] {"cpu/unicycle.cpu", "cpu/pipeline.cpu"}) {
+			CPU cpu = CPU.createFromJSONFile(file);
+			cpu.getCycleHistory().setCheckpointInterval(100);
+			cpu.getCycleHistory().setMemoryBudget(8 * 1024);
+			cpu.assembleCode(CODE);
+			for(int i = 0; i < 5000; i++)
+				cpu.executeCycle();
+
+			for(int cycle: new int[] {1234, 4000, 3995, 0, 4567, 4560, 99, 4999}) {
+				assertEquals(file, cycle, cpu.seekToCycle(cycle));
+				CPU reference = CPU.createFromJSONFile(file);
+				reference.assembleCode(CODE);
+				for(int i = 0; i < cycle; i++)
+					reference.executeCycle();
+				assertSameState(file + " @" + cycle, reference, cpu);
+			}
+		}
+	}
+
+	@Test
+	public void testEditAtCheckpoint() throws Exception {
+		for(String file: new String[] {"cpu/unicycle.cpu", "cpu/pipeline.cpu"}) {
+			CPU cpu = CPU.createFromJSONFile(file);
+			cpu.getCycleHistory().setCheckpointInterval(100);
+			cpu.assembleCode(CODE);
+			int s0 = cpu.getRegisterIndex("$s0");
+
+			// edit at cycle 0 and restart
+			for(int i = 0; i < 5; i++)
+				cpu.executeCycle();
+			cpu.resetToFirstCycle();
+			cpu.getRegBank().setRegister(s0, 100);
+			cpu.getDataMemory().setDataInIndex(3, 7);
+			cpu.discardNewerCycles();
+			for(int i = 0; i < 5; i++)
+				cpu.executeCycle();
+			cpu.resetToFirstCycle();
+			assertEquals(file, 100, cpu.getRegBank().getRegister(s0).getValue());
+			assertEquals(file, 7, cpu.getDataMemory().getDataInIndex(3));
+
+			// edit at another checkpoint and seek
+			cpu.seekToCycle(200);
+			cpu.seekToCycle(100);
+			cpu.getRegBank().setRegister(s0, 50);
+			cpu.discardNewerCycles();
+			cpu.seekToCycle(300);
+			assertEquals(file, 150, cpu.seekToCycle(150));
+			assertEquals(file, 50, cpu.getRegBank().getRegister(s0).getValue());
+		}
+	}
+
+	private static void assertSameState(String message, CPU expected, CPU actual) {
+		assertEquals(message, expected.getNumberOfExecutedCycles(), actual.getNumberOfExecutedCycles());
+		assertEquals(message, expected.getNumberOfExecutedInstructions(), actual.getNumberOfExecutedInstructions());
+		assertEquals(message, expected.getNumberOfForwards(), actual.getNumberOfForwards());
+		assertEquals(message, expected.getNumberOfStalls(), actual.getNumberOfStalls());
+		assertEquals(message, expected.getPC().getAddress().getValue(), actual.getPC().getAddress().getValue());
+		for(int i = 0; i < 32; i++)
+			assertEquals(message, expected.getRegBank().getRegister(i).getValue(), actual.getRegBank().getRegister(i).getValue());
+		assertEquals(message, expected.getDataMemory().getData(0), actual.getDataMemory().getData(0));
+	}
+}
@@ -0,0 +1,58 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import brunonova.drmips.simulator.components.InstructionMemory;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DecodedInstructionTest {
+	@Test
+	public void testDecode() throws Exception {
+		CPU cpu = CPU.createFromJSONFile("cpu/unicycle.cpu");
+		cpu.assembleCode("addi $t1, $0, -5\nadd $t2, $t1, $t0\nlw $t3, 8($t2)\n");
+		InstructionMemory memory = cpu.getInstructionMemory();
+		for(int i = 0; i < memory.getNumberOfInstructions(); i++) {
+			assertEquals(memory.getInstruction(i).getData().getValue(), memory.getWord(i));
+			assertSame(memory.getInstruction(i).getInstruction(), memory.getDecodedInstruction(i).getInstruction());
+		}
+		DecodedInstruction addi = memory.getDecodedInstruction(0);
+		assertEquals(8, addi.getOpcode());
+		assertEquals(0, addi.getRs());
+		assertEquals(9, addi.getRt());
+		assertEquals(-5, addi.getImmediate());
+		DecodedInstruction add = memory.getDecodedInstruction(1);
+		assertEquals(0, add.getOpcode());
+		assertEquals(9, add.getRs());
+		assertEquals(8, add.getRt());
+		assertEquals(10, add.getRd());
+		assertEquals(0, add.getShamt());
+		assertEquals(32, add.getFunct());
+		assertEquals(8, memory.getDecodedInstruction(2).getImmediate());
+		assertNull(memory.getDecodedInstruction(3));
+
+		assertEquals(2, memory.getIndexOfAddress(8));
+		assertEquals(-1, memory.getIndexOfAddress(12));
+		assertEquals(-1, memory.getIndexOfAddress(-4));
+		assertEquals(memory.getWord(0), memory.getOutput().getValue());
+		cpu.executeCycle();
+		assertEquals(1, cpu.getPC().getCurrentInstructionIndex());
+		assertEquals(memory.getWord(1), memory.getOutput().getValue());
+	}
+}
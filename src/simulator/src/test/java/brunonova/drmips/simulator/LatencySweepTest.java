@@ -0,0 +1,114 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LatencySweepTest {
+	private static final String CODE = ".data\n"
+		+ "v: .word 5, -3, 7, 0\n"
+		+ ".text\n"
+		+ "addi $t0, $0, 3\n"
+		+ "loop: lw $t1, 0($0)\n"
+		+ "lw $t2, 4($0)\n"
+		+ "add $t3, $t1, $t2\n"
+		+ "sw $t3, 12($0)\n"
+		+ "addi $t0, $t0, -1\n"
+		+ "beq $t0, $0, end\n"
+		+ "beq $0, $0, loop\n"
+		+ "end: sw $t0, 8($0)\n";
+
+	@Test
+	public void testGrid() throws Exception {
+		LatencySweep sweep = new LatencySweep("cpu/unicycle.cpu", CODE);
+		sweep.addRange("ALU", 50, 200, 50);
+		sweep.addRange("DataMem", 100, 400, 100);
+		sweep.addRange("RegBank", 50, 100, 50);
+		assertEquals(32, sweep.getNumberOfGridConfigurations());
+		sweep.setParallelism(3);
+		List<LatencySweep.Result> results = sweep.sweepGrid();
+		assertEquals(32, results.size());
+		assertTrue(sweep.isWorkloadFinished());
+
+		// Compare with a full simulation of each configuration
+		for(int i = 0; i < results.size(); i++) {
+			LatencySweep.Result result = results.get(i);
+			CPU cpu = CPU.createFromJSONFile("cpu/unicycle.cpu");
+			for(int r = 0; r < sweep.getRanges().size(); r++)
+				cpu.getComponent(sweep.getRanges().get(r).getComponentId()).setLatency(result.getLatency(r));
+			cpu.calculatePerformance();
+			cpu.assembleCode(CODE);
+			cpu.executeAll();
+			assertEquals(cpu.getClockPeriod(), result.getClockPeriod());
+			assertEquals(cpu.getNumberOfExecutedCycles(), result.getNumberOfCycles());
+			assertEquals(cpu.getExecutionTime(), result.getExecutionTime());
+		}
+		assertEquals(50, results.get(0).getLatency(0));
+		assertEquals(100, results.get(1).getLatency(2)); // the last range varies fastest
+		assertEquals(200, results.get(31).getLatency(0));
+	}
+
+	@Test
+	public void testRandomAndPareto() throws Exception {
+		LatencySweep sweep = new LatencySweep("cpu/pipeline.cpu", CODE);
+		sweep.addRange("ALU", 0, 300, 25);
+		sweep.addRange("InstMem", 100, 400, 50);
+		sweep.addRange("DataMem", 100, 400, 50);
+		sweep.setParallelism(1);
+		List<LatencySweep.Result> sequential = sweep.sweepRandom(200, 42);
+		sweep.setParallelism(4);
+		List<LatencySweep.Result> parallel = sweep.sweepRandom(200, 42);
+		for(int i = 0; i < sequential.size(); i++) {
+			assertArrayEquals(sequential.get(i).getLatencies(), parallel.get(i).getLatencies());
+			assertEquals(sequential.get(i).getExecutionTime(), parallel.get(i).getExecutionTime());
+			assertEquals(sequential.get(i).isParetoOptimal(), parallel.get(i).isParetoOptimal());
+		}
+
+		List<LatencySweep.Result> front = LatencySweep.getParetoFront(parallel);
+		assertFalse(front.isEmpty());
+		for(LatencySweep.Result a: parallel) {
+			boolean dominated = false;
+			for(LatencySweep.Result b: parallel)
+				if(b.dominates(a)) dominated = true;
+			assertEquals(!dominated, a.isParetoOptimal());
+			assertEquals(!dominated, front.contains(a));
+		}
+	}
+
+	@Test
+	public void testTooManyConfigurations() throws Exception {
+		LatencySweep sweep = new LatencySweep("cpu/unicycle.cpu", CODE);
+		sweep.addRange("ALU", 1, 1000, 1);
+		sweep.addRange("RegBank", 1, 1001, 1);
+		assertTrue(sweep.getNumberOfGridConfigurations() > LatencySweep.MAX_CONFIGURATIONS);
+		try {
+			sweep.sweepGrid();
+			fail();
+		} catch(IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownComponent() throws Exception {
+		new LatencySweep("cpu/unicycle.cpu", CODE).addRange("Nothing", 0, 100, 10);
+	}
+}
@@ -0,0 +1,123 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import java.io.File;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LevelizedEvaluatorTest {
+	private static final String CODE = ".data\n"
+		+ "a: .word 5, 10, 15, 20\n"
+		+ ".text\n"
+		+ "lw $t0, 0($0)\n"
+		+ "lw $t1, 4($0)\n"
+		+ "add $t2, $t0, $t1\n"
+		+ "sub $t3, $t2, $t0\n"
+		+ "sw $t2, 16($0)\n"
+		+ "lw $t4, 16($0)\n"
+		+ "add $t5, $t4, $t4\n"
+		+ "and $t6, $t5, $t1\n"
+		+ "or $t7, $t6, $t0\n"
+		+ "slt $s0, $t0, $t1\n"
+		+ "addi $s1, $s0, 100\n"
+		+ "sw $s1, 20($0)\n";
+
+	@Test
+	public void testOrder() throws Exception {
+		for(File file: TestUtils.getCPUFiles()) {
+			CPU cpu = CPU.createFromJSONFile(file.getPath());
+			assertTrue(file.getName(), cpu.isLevelizedEvaluation());
+
+			// Every combinational connection must go "forward" in the order
+			Component[] order = cpu.getLevelizedEvaluator().getOrder();
+			assertEquals(cpu.getComponents().length, order.length);
+			for(int i = 0; i < order.length; i++) {
+				for(Output o: order[i].getOutputs()) {
+					if(o.isConnected() && o.getConnectedInput().canChangeComponentAccumulatedLatency())
+						assertTrue(file.getName() + ": " + o.getId(), Arrays.asList(order).indexOf(o.getConnectedInput().getComponent()) > i);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSameAsRecursive() throws Exception {
+		for(File file: TestUtils.getCPUFiles()) {
+			CPU lev = CPU.createFromJSONFile(file.getPath());
+			CPU rec = CPU.createFromJSONFile(file.getPath());
+			assertFalse(rec.setLevelizedEvaluation(false));
+			lev.assembleCode(CODE);
+			rec.assembleCode(CODE);
+
+			while(!rec.isProgramFinished()) {
+				lev.executeCycle();
+				rec.executeCycle();
+				tSameValues(file.getName(), lev, rec);
+			}
+			assertTrue(lev.isProgramFinished());
+			assertEquals(rec.getNumberOfExecutedCycles(), lev.getNumberOfExecutedCycles());
+
+			for(int i = 0; i < 3; i++) {
+				lev.restorePreviousCycle();
+				rec.restorePreviousCycle();
+				tSameValues(file.getName(), lev, rec);
+			}
+			lev.resetToFirstCycle();
+			rec.resetToFirstCycle();
+			tSameValues(file.getName(), lev, rec);
+		}
+	}
+
+	@Test
+	public void testEvaluateChanges() throws Exception {
+		for(File file: TestUtils.getCPUFiles()) {
+			CPU cpu = CPU.createFromJSONFile(file.getPath());
+			CPU full = CPU.createFromJSONFile(file.getPath());
+			cpu.assembleCode(CODE);
+			full.assembleCode(CODE);
+			LevelizedEvaluator evaluator = cpu.getLevelizedEvaluator();
+			evaluator.resetStatistics();
+			for(int i = 0; i < 10; i++) {
+				cpu.executeCycle();
+				full.executeCycle();
+				full.getLevelizedEvaluator().evaluate(); // executes everything again
+				tSameValues(file.getName(), full, cpu);
+			}
+			assertEquals(file.getName(), 10, evaluator.getNumberOfEvaluations());
+			assertTrue(file.getName(), evaluator.getNumberOfSavedExecutions() > 0);
+			assertTrue(file.getName(), evaluator.getNumberOfExecutions() < evaluator.getNumberOfInputChanges());
+		}
+	}
+
+	private void tSameValues(String name, CPU expected, CPU actual) {
+		for(Component c: expected.getComponents()) {
+			Component d = actual.getComponent(c.getId());
+			for(Input i: c.getInputs()) {
+				assertEquals(name + ": " + c.getId() + "." + i.getId(), i.getValue(), d.getInput(i.getId()).getValue());
+				assertEquals(name + ": " + c.getId() + "." + i.getId(), i.isRelevant(), d.getInput(i.getId()).isRelevant());
+			}
+			for(Output o: c.getOutputs())
+				assertEquals(name + ": " + c.getId() + "." + o.getId(), o.getValue(), d.getOutput(o.getId()).getValue());
+		}
+		for(int i = 0; i < expected.getRegBank().getNumberOfRegisters(); i++)
+			assertEquals(name, expected.getRegBank().getRegister(i).getValue(), actual.getRegBank().getRegister(i).getValue());
+	}
+}
@@ -0,0 +1,119 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import brunonova.drmips.simulator.TimingReport.Stage;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PipelineBalanceTest {
+	private static final String CODE = ".text\n"
+		+ "addi $t0, $0, 5\n"
+		+ "add $t1, $t0, $t0\n"
+		+ "sw $t1, 0($0)\n"
+		+ "lw $t2, 0($0)\n"
+		+ "sub $t3, $t2, $t1\n";
+
+	@Test
+	public void testStageDelays() throws Exception {
+		Random random = new Random(25);
+		for(File file: TestUtils.getCPUFiles()) {
+			CPU cpu = CPU.createFromJSONFile(file.getPath());
+			if(!cpu.isPipeline()) {
+				assertNull(file.getName(), PipelineBalance.analyze(cpu));
+				continue;
+			}
+			for(int round = 0; round < 3; round++) {
+				if(round > 0) { // random latencies
+					for(Component c: cpu.getComponents())
+						c.setLatency(random.nextInt(8) * 25);
+					cpu.calculatePerformance();
+				}
+				String name = file.getName() + " (" + round + ")";
+				PipelineBalance balance = PipelineBalance.analyze(cpu);
+				TimingReport report = TimingReport.generate(cpu, 1);
+				assertEquals(name, Arrays.asList(Stage.values()), balance.getStages());
+				assertEquals(name, cpu.getClockPeriod(), balance.getClockPeriod());
+				for(Stage stage: balance.getStages()) {
+					assertEquals(name + ": " + stage, report.getCriticalDelay(stage), balance.getCriticalDelay(stage));
+					assertEquals(name + ": " + stage, report.getSlack(stage), balance.getSlack(stage));
+				}
+				assertEquals(name, cpu.getClockPeriod(), balance.getCriticalDelay(balance.getBottleneck()));
+				assertEquals(name, Stage.IF, balance.getStage(cpu.getPC()));
+
+				PipelineBalance.Move best = balance.findBestMove();
+				if(best != null) {
+					assertTrue(name, best.getClockPeriod() < balance.getClockPeriod());
+					assertEquals(name, 1, Math.abs(best.getTo().ordinal() - best.getFrom().ordinal()));
+					assertEquals(name, best.getClockPeriod(), balance.estimateMove(best.getComponent().getId(), best.getTo()).getClockPeriod());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testMove() throws Exception {
+		CPU cpu = CPU.createFromJSONFile(CPU.FILENAME_PATH + File.separator + "pipeline.cpu");
+		cpu.getComponent("ALU").setLatency(600);
+		cpu.calculatePerformance();
+		cpu.assembleCode(CODE);
+		while(!cpu.isProgramFinished())
+			cpu.executeCycle();
+
+		PipelineBalance balance = PipelineBalance.analyze(cpu);
+		assertEquals(Stage.EX, balance.getBottleneck());
+		assertEquals(Stage.EX, balance.getStage(cpu.getComponent("ALU")));
+		assertEquals(Stage.MEM, balance.getStage(cpu.getComponent("DataMem")));
+		int exDelay = balance.getCriticalDelay(Stage.EX);
+
+		PipelineBalance.Move move = balance.estimateMove("ALU", Stage.MEM);
+		assertEquals(Stage.EX, move.getFrom());
+		assertEquals(Stage.MEM, move.getTo());
+		assertEquals(balance.getCriticalDelay(Stage.MEM) + 600, move.getCriticalDelay(Stage.MEM));
+		assertEquals(balance.getCriticalDelay(Stage.IF), move.getCriticalDelay(Stage.IF));
+		assertEquals(move.getCriticalDelay(Stage.MEM), move.getClockPeriod());
+		assertEquals(cpu.getNumberOfExecutedCycles() * move.getClockPeriod(), move.getExecutionTime());
+
+		// The delay of the stage without the component
+		cpu.getComponent("ALU").setLatency(0);
+		cpu.calculatePerformance(cpu.getComponent("ALU"));
+		int withoutALU = TimingReport.generate(cpu, 1).getCriticalDelay(Stage.EX);
+		assertEquals(withoutALU, move.getCriticalDelay(Stage.EX));
+		assertTrue(withoutALU < exDelay);
+	}
+
+	@Test
+	public void testInvalidMoves() throws Exception {
+		CPU cpu = CPU.createFromJSONFile(CPU.FILENAME_PATH + File.separator + "pipeline.cpu");
+		PipelineBalance balance = PipelineBalance.analyze(cpu);
+		String[][] moves = {{"Unknown", "MEM"}, {"PC", "ID"}, {"ID/EX", "MEM"}, {"ALU", "WB"}, {"ALU", "EX"}};
+		for(String[] m: moves) {
+			try {
+				balance.estimateMove(m[0], Stage.valueOf(m[1]));
+				fail(m[0] + " to " + m[1]);
+			} catch(IllegalArgumentException ex) {
+				// expected
+			}
+		}
+		assertNotNull(balance.estimateMove("ALU", Stage.ID));
+	}
+}
@@ -0,0 +1,75 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class StateJournalTest {
+	private final int[] state = new int[4];
+	private final StateJournal journal = new StateJournal(new StateJournal.Target() {
+		@Override
+		public void restoreState(int location, int value) {
+			state[location] = value;
+		}
+	});
+
+	private void write(int location, int value) {
+		journal.record(location, state[location]);
+		state[location] = value;
+	}
+
+	@Test
+	public void testUndo() {
+		write(0, 5); // not recorded (no marks)
+		assertFalse(journal.hasMarks());
+		journal.mark();
+		write(1, 10);
+		write(1, 11);
+		journal.mark();
+		write(2, 20);
+		write(1, 12);
+		assertEquals(2, journal.getNumberOfMarks());
+
+		journal.undo();
+		assertArrayEquals(new int[] {5, 11, 0, 0}, state);
+		journal.undo();
+		assertArrayEquals(new int[] {5, 0, 0, 0}, state);
+		assertFalse(journal.hasMarks());
+		journal.undo();
+		assertArrayEquals(new int[] {5, 0, 0, 0}, state);
+	}
+
+	@Test
+	public void testUndoAllAndClear() {
+		for(int i = 0; i < 1000; i++) {
+			journal.mark();
+			write(i % 4, i);
+		}
+		journal.undoAll();
+		assertArrayEquals(new int[] {0, 0, 0, 0}, state);
+		assertFalse(journal.hasMarks());
+
+		journal.mark();
+		write(3, 7);
+		journal.clear();
+		journal.undo();
+		assertArrayEquals(new int[] {0, 0, 0, 7}, state);
+	}
+}
@@ -0,0 +1,157 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import brunonova.drmips.simulator.components.Constant;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class StaticTimingAnalyzerTest {
+	private static final String CODE = ".data\n"
+		+ "a: .word 5, 10, 15, 20\n"
+		+ ".text\n"
+		+ "lw $t0, 0($0)\n"
+		+ "lw $t1, 4($0)\n"
+		+ "add $t2, $t0, $t1\n"
+		+ "sub $t3, $t2, $t0\n"
+		+ "sw $t2, 16($0)\n"
+		+ "lw $t4, 16($0)\n"
+		+ "add $t5, $t4, $t4\n"
+		+ "slt $s0, $t0, $t1\n"
+		+ "addi $s1, $s0, 100\n"
+		+ "sw $s1, 20($0)\n";
+
+	@Test
+	public void testOrder() throws Exception {
+		for(File file: TestUtils.getCPUFiles()) {
+			CPU cpu = CPU.createFromJSONFile(file.getPath());
+			StaticTimingAnalyzer analyzer = cpu.getStaticTimingAnalyzer();
+			assertNotNull(file.getName(), analyzer);
+
+			// Every combinational connection must go "forward" in the order
+			Component[] order = analyzer.getOrder();
+			assertEquals(cpu.getComponents().length, order.length);
+			for(int i = 0; i < order.length; i++) {
+				for(Output o: order[i].getOutputs()) {
+					if(o.isConnected() && o.getConnectedInput().canChangeComponentAccumulatedLatency())
+						assertTrue(file.getName() + ": " + o.getId(), Arrays.asList(order).indexOf(o.getConnectedInput().getComponent()) > i);
+				}
+				if(order[i] instanceof Constant) // not reached from the synchronous components
+					assertFalse(file.getName() + ": " + order[i].getId(), analyzer.isReached(order[i]));
+			}
+			assertTrue(file.getName(), analyzer.isReached(cpu.getPC()));
+		}
+	}
+
+	@Test
+	public void testSameAsRecursive() throws Exception {
+		Random random = new Random(20);
+		for(File file: TestUtils.getCPUFiles()) {
+			CPU sta = CPU.createFromJSONFile(file.getPath());
+			CPU rec = CPU.createFromJSONFile(file.getPath());
+			assertFalse(rec.setStaticTimingAnalysis(false));
+			rec.calculatePerformance();
+			tSamePerformance(file.getName(), rec, sta);
+
+			// Random latencies (some ties, to have more than one critical path)
+			for(Component c: rec.getComponents()) {
+				int latency = random.nextInt(4) * 50;
+				c.setLatency(latency);
+				sta.getComponent(c.getId()).setLatency(latency);
+			}
+			rec.calculatePerformance();
+			sta.calculatePerformance();
+			tSamePerformance(file.getName(), rec, sta);
+
+			// Instruction dependent latencies
+			rec.setPerformanceInstructionDependent(true);
+			sta.setPerformanceInstructionDependent(true);
+			rec.assembleCode(CODE);
+			sta.assembleCode(CODE);
+			tSamePerformance(file.getName(), rec, sta);
+			while(!rec.isProgramFinished()) {
+				rec.executeCycle();
+				sta.executeCycle();
+				tSamePerformance(file.getName(), rec, sta);
+			}
+			rec.removeLatencies();
+			sta.removeLatencies();
+			tSamePerformance(file.getName(), rec, sta);
+			rec.resetLatencies();
+			sta.resetLatencies();
+			tSamePerformance(file.getName(), rec, sta);
+		}
+	}
+
+	@Test
+	public void testIncrementalUpdate() throws Exception {
+		Random random = new Random(22);
+		for(File file: TestUtils.getCPUFiles()) {
+			CPU inc = CPU.createFromJSONFile(file.getPath());
+			CPU full = CPU.createFromJSONFile(file.getPath());
+			int n = inc.getComponents().length, partial = 0;
+			for(int round = 0; round < 2; round++) {
+				if(round == 1) { // instruction dependent latencies, while a program runs
+					inc.setPerformanceInstructionDependent(true);
+					full.setPerformanceInstructionDependent(true);
+					inc.assembleCode(CODE);
+					full.assembleCode(CODE);
+				}
+				for(Component c: full.getComponents()) {
+					int latency = random.nextInt(5) * 50;
+					c.setLatency(latency);
+					inc.getComponent(c.getId()).setLatency(latency);
+					full.calculatePerformance();
+					inc.calculatePerformance(inc.getComponent(c.getId()));
+					tSamePerformance(file.getName() + ": " + c.getId(), full, inc);
+					if(inc.getStaticTimingAnalyzer().getNumberOfRecalculatedComponents() < n) partial++;
+					if(round == 1 && !full.isProgramFinished()) {
+						full.executeCycle();
+						inc.executeCycle();
+					}
+				}
+			}
+			assertTrue(file.getName(), partial > 0);
+
+			full.resetLatencies();
+			full.calculatePerformance();
+			inc.resetLatencies();
+			tSamePerformance(file.getName(), full, inc);
+			full.removeLatencies();
+			full.calculatePerformance();
+			inc.removeLatencies();
+			tSamePerformance(file.getName(), full, inc);
+		}
+	}
+
+	private void tSamePerformance(String name, CPU expected, CPU actual) {
+		assertEquals(name, expected.getClockPeriod(), actual.getClockPeriod());
+		for(Component c: expected.getComponents()) {
+			Component d = actual.getComponent(c.getId());
+			assertEquals(name + ": " + c.getId(), c.getAccumulatedLatency(), d.getAccumulatedLatency());
+			for(Input i: c.getInputs())
+				assertEquals(name + ": " + c.getId() + "." + i.getId(), i.getAccumulatedLatency(), d.getInput(i.getId()).getAccumulatedLatency());
+			for(Output o: c.getOutputs())
+				assertEquals(name + ": " + c.getId() + "." + o.getId(), o.isInCriticalPath(), d.getOutput(o.getId()).isInCriticalPath());
+		}
+	}
+}
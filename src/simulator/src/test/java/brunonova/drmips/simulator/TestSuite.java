@@ -25,7 +25,18 @@ import org.junit.runners.Suite;
  * This test suite runs all of the tests of the simulator.
  */
 @RunWith(Suite.class)
-@Suite.SuiteClasses({brunonova.drmips.simulator.components.TestSuite.class})
+@Suite.SuiteClasses({brunonova.drmips.simulator.components.TestSuite.class,
+                     brunonova.drmips.simulator.util.TestSuite.class,
+                     CPUFileCacheTest.class,
+                     CPUTest.class,
+                     CycleHistoryTest.class,
+                     DecodedInstructionTest.class,
+                     LatencySweepTest.class,
+                     LevelizedEvaluatorTest.class,
+                     PipelineBalanceTest.class,
+                     StateJournalTest.class,
+                     StaticTimingAnalyzerTest.class,
+                     TimingReportTest.class})
 public class TestSuite {
 
 }
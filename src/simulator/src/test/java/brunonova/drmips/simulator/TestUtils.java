@@ -0,0 +1,122 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import brunonova.drmips.simulator.components.ExtendedALU;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.json.JSONObject;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Helper methods shared by the tests of the simulator.
+ */
+public final class TestUtils {
+	/**
+	 * A program that writes 42 to the addresses -4 and 0x10000004 and reads
+	 * them back to <tt>$t3</tt> and <tt>$t4</tt> (for paged data memories).
+	 */
+	public static final String PAGED_CODE = createPagedCode();
+
+	private static String createPagedCode() {
+		String code = "addi $t1, $0, 42\naddi $t0, $0, -4\nsw $t1, 0($t0)\naddi $t2, $0, 16384\n";
+		for(int i = 0; i < 14; i++) // $t2 = 0x10000000
+			code += "add $t2, $t2, $t2\n";
+		return code + "sw $t1, 4($t2)\nlw $t3, 0($t0)\nlw $t4, 4($t2)\n";
+	}
+
+	/**
+	 * Returns the CPU files bundled with the simulator, sorted by name.
+	 * @return The CPU files.
+	 */
+	public static File[] getCPUFiles() {
+		File[] files = new File(CPU.FILENAME_PATH).listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith("." + CPU.FILENAME_EXTENSION);
+			}
+		});
+		assertNotNull(files);
+		assertTrue(files.length > 0);
+		Arrays.sort(files);
+		return files;
+	}
+
+	/**
+	 * Creates a copy of the unicycle CPU with a paged data memory.
+	 * @param tmp The temporary folder of the test.
+	 * @return The CPU file.
+	 * @throws Exception If the file can't be created.
+	 */
+	public static File createPagedCPUFile(TemporaryFolder tmp) throws Exception {
+		File dir = tmp.newFolder();
+		Files.copy(new File("cpu/default.set").toPath(), new File(dir, "default.set").toPath());
+		JSONObject json = new JSONObject(new String(Files.readAllBytes(new File("cpu/unicycle.cpu").toPath()), "UTF-8"));
+		JSONObject mem = json.getJSONObject("components").getJSONObject("DataMem");
+		mem.remove("size");
+		mem.put("paged", true);
+		File cpuFile = new File(dir, "paged.cpu");
+		Files.write(cpuFile.toPath(), json.toString().getBytes("UTF-8"));
+		return cpuFile;
+	}
+
+	/**
+	 * Returns a textual representation of the performance of the CPU
+	 * (latencies and critical path), to compare CPUs.
+	 * @param cpu The CPU.
+	 * @return The performance of the CPU.
+	 */
+	public static String performanceOf(CPU cpu) {
+		StringBuilder str = new StringBuilder();
+		for(Component c: cpu.getComponents()) {
+			str.append(c.getId()).append(':').append(c.getAccumulatedLatency());
+			for(Input in: c.getInputs())
+				str.append(' ').append(in.getAccumulatedLatency());
+			for(Output out: c.getOutputs())
+				str.append(out.isInCriticalPath() ? " *" : " -");
+			str.append('\n');
+		}
+		return str.toString();
+	}
+
+	/**
+	 * Asserts that the architectural state of two CPUs is the same.
+	 * @param message The message of the assertions.
+	 * @param expected The expected CPU.
+	 * @param actual The actual CPU.
+	 */
+	public static void assertSameState(String message, CPU expected, CPU actual) {
+		assertEquals(message, expected.getPC().getAddress().getValue(), actual.getPC().getAddress().getValue());
+		assertEquals(message, expected.isProgramFinished(), actual.isProgramFinished());
+		for(int i = 0; i < expected.getRegBank().getNumberOfRegisters(); i++)
+			assertEquals(message, expected.getRegBank().getRegister(i).getValue(), actual.getRegBank().getRegister(i).getValue());
+		for(int i: expected.getDataMemory().getIndexesInUse())
+			assertEquals(message, expected.getDataMemory().getDataInIndex(i), actual.getDataMemory().getDataInIndex(i));
+		for(int i: actual.getDataMemory().getIndexesInUse())
+			assertEquals(message, expected.getDataMemory().getDataInIndex(i), actual.getDataMemory().getDataInIndex(i));
+		if(expected.getALU() instanceof ExtendedALU) {
+			assertEquals(message, ((ExtendedALU)expected.getALU()).getHI().getValue(), ((ExtendedALU)actual.getALU()).getHI().getValue());
+			assertEquals(message, ((ExtendedALU)expected.getALU()).getLO().getValue(), ((ExtendedALU)actual.getALU()).getLO().getValue());
+		}
+		assertEquals(message, expected.getNumberOfExecutedCycles(), actual.getNumberOfExecutedCycles());
+	}
+}
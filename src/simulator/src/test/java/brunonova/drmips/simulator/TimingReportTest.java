@@ -0,0 +1,171 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.json.JSONObject;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TimingReportTest {
+	private static final int PATHS = 8;
+
+	@Test
+	public void testLongestPaths() throws Exception {
+		Random random = new Random(24);
+		for(File file: TestUtils.getCPUFiles()) {
+			CPU cpu = CPU.createFromJSONFile(file.getPath());
+			for(int round = 0; round < 3; round++) {
+				if(round > 0) { // random latencies (with ties)
+					for(Component c: cpu.getComponents())
+						c.setLatency(random.nextInt(4) * 50);
+					cpu.calculatePerformance();
+				}
+				String name = file.getName() + " (" + round + ")";
+				TimingReport report = TimingReport.generate(cpu, PATHS);
+				assertNotNull(name, report);
+				assertEquals(name, cpu.getClockPeriod(), report.getClockPeriod());
+
+				List<TimingReport.Path> paths = report.getPaths();
+				assertEquals(name, findLongestDelays(cpu, PATHS), getDelays(paths));
+				assertEquals(name, cpu.getClockPeriod(), paths.get(0).getDelay());
+				tPaths(name, cpu, paths);
+
+				// Stages
+				assertEquals(name, cpu.isPipeline(), !report.getStages().isEmpty());
+				int highest = 0;
+				for(TimingReport.Stage stage: report.getStages()) {
+					List<TimingReport.Path> stagePaths = report.getPaths(stage);
+					tPaths(name + ": " + stage, cpu, stagePaths);
+					for(TimingReport.Path p: stagePaths)
+						assertEquals(name, stage, p.getStage());
+					assertEquals(name, report.getCriticalDelay(stage), stagePaths.get(0).getDelay());
+					assertEquals(name, cpu.getClockPeriod() - report.getCriticalDelay(stage), report.getSlack(stage));
+					highest = Math.max(highest, report.getCriticalDelay(stage));
+				}
+				if(cpu.isPipeline())
+					assertEquals(name, cpu.getClockPeriod(), highest);
+
+				// Slack of the components
+				for(Map.Entry<Component, Integer> e: report.getSlacks().entrySet())
+					assertTrue(name + ": " + e.getKey().getId(), e.getValue() >= 0);
+				for(Component c: paths.get(0).getComponents())
+					assertEquals(name + ": " + c.getId(), 0, report.getSlack(c));
+				for(TimingReport.Path p: paths) {
+					for(Component c: p.getComponents())
+						assertTrue(name + ": " + c.getId(), report.getSlack(c) <= p.getSlack());
+				}
+
+				JSONObject json = new JSONObject(report.toJSON());
+				assertEquals(name, cpu.getClockPeriod(), json.getInt("clock_period"));
+				assertEquals(name, paths.size(), json.getJSONArray("paths").length());
+				assertEquals(name, report.getStages().size(), json.getJSONObject("stages").length());
+				assertTrue(name, report.toText().contains(paths.get(0).toString()));
+			}
+		}
+	}
+
+	@Test
+	public void testNoAnalyzer() throws Exception {
+		CPU cpu = CPU.createFromJSONFile(CPU.FILENAME_PATH + File.separator + "unicycle.cpu");
+		assertNotNull(TimingReport.generate(cpu, 1));
+		cpu.setStaticTimingAnalysis(false);
+		assertNull(TimingReport.generate(cpu, 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidNumberOfPaths() throws Exception {
+		TimingReport.generate(CPU.createFromJSONFile(CPU.FILENAME_PATH + File.separator + "unicycle.cpu"), 0);
+	}
+
+	private void tPaths(String name, CPU cpu, List<TimingReport.Path> paths) {
+		assertFalse(name, paths.isEmpty());
+		assertTrue(name, paths.size() <= PATHS);
+		Set<String> distinct = new HashSet<>();
+		int previous = Integer.MAX_VALUE;
+		for(TimingReport.Path p: paths) {
+			assertTrue(name + ": " + p, distinct.add(p.toString()));
+			assertTrue(name + ": " + p, p.getDelay() <= previous);
+			previous = p.getDelay();
+			assertEquals(name + ": " + p, cpu.getClockPeriod() - p.getDelay(), p.getSlack());
+
+			List<Component> components = p.getComponents();
+			assertTrue(name + ": " + p, components.get(0) instanceof Synchronous);
+			assertFalse(name + ": " + p, p.getEndpoint().canChangeComponentAccumulatedLatency());
+			int delay = 0;
+			for(int i = 0; i < components.size(); i++) {
+				delay += components.get(i).getLatency();
+				assertEquals(name + ": " + p, delay, p.getArrivalTime(i));
+				assertSame(name + ": " + p, components.get(i), p.getInput(i).getConnectedOutput().getComponent());
+				if(i < components.size() - 1)
+					assertSame(name + ": " + p, components.get(i + 1), p.getInput(i).getComponent());
+			}
+			assertEquals(name + ": " + p, delay, p.getDelay());
+		}
+	}
+
+	/**
+	 * Finds the delays of the longest paths by keeping the longest delays
+	 * that reach each component (instead of searching the paths).
+	 */
+	private List<Integer> findLongestDelays(CPU cpu, int k) {
+		StaticTimingAnalyzer analyzer = cpu.getStaticTimingAnalyzer();
+		Map<Component, List<Integer>> delays = new IdentityHashMap<>();
+		List<Integer> result = new ArrayList<>();
+		for(Component c: analyzer.getOrder()) {
+			if(!analyzer.isReached(c)) continue;
+			List<Integer> list = new ArrayList<>();
+			for(Input in: c.getInputs()) {
+				if(in.isConnected() && in.canChangeComponentAccumulatedLatency() && delays.containsKey(in.getConnectedOutput().getComponent())) {
+					for(int d: delays.get(in.getConnectedOutput().getComponent()))
+						list.add(d + c.getLatency());
+				}
+			}
+			if(list.isEmpty()) list.add(c.getLatency());
+			delays.put(c, trim(list, k));
+		}
+		for(Component c: cpu.getComponents()) {
+			for(Input in: c.getInputs()) {
+				if(in.isConnected() && !in.canChangeComponentAccumulatedLatency() && delays.containsKey(in.getConnectedOutput().getComponent()))
+					result.addAll(delays.get(in.getConnectedOutput().getComponent()));
+			}
+		}
+		return trim(result, k);
+	}
+
+	private List<Integer> trim(List<Integer> list, int k) {
+		Collections.sort(list, Collections.reverseOrder());
+		return new ArrayList<>(list.subList(0, Math.min(k, list.size())));
+	}
+
+	private List<Integer> getDelays(List<TimingReport.Path> paths) {
+		List<Integer> delays = new ArrayList<>();
+		for(TimingReport.Path p: paths)
+			delays.add(p.getDelay());
+		return delays;
+	}
+}
@@ -0,0 +1,98 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator.components;
+
+import brunonova.drmips.simulator.CPU;
+import brunonova.drmips.simulator.TestUtils;
+import brunonova.drmips.simulator.util.PagedMemory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class DataMemoryTest {
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testPagedMemory() throws Exception {
+		CPU cpu = CPU.createFromJSONFile(TestUtils.createPagedCPUFile(tmp).getPath());
+		DataMemory memory = cpu.getDataMemory();
+		assertTrue(memory.isPaged());
+		assertEquals(0, memory.getTouchedPages().length);
+		cpu.assembleCode(TestUtils.PAGED_CODE);
+		cpu.executeAll();
+
+		assertEquals(42, memory.getData(-4));
+		assertEquals(42, memory.getData(0x10000004));
+		assertEquals(2, memory.getTouchedPages().length);
+		assertEquals(2 * PagedMemory.PAGE_SIZE, memory.getIndexesInUse().length);
+		assertEquals(42, cpu.getRegBank().getRegister(cpu.getRegisterIndex("$t3")).getValue());
+		assertEquals(42, cpu.getRegBank().getRegister(cpu.getRegisterIndex("$t4")).getValue());
+
+		cpu.resetToFirstCycle();
+		assertEquals(0, memory.getData(-4));
+		assertEquals(0, memory.getData(0x10000004));
+	}
+
+	@Test
+	public void testMemoryImage() throws Exception {
+		File image = tmp.newFile("image.mem");
+		byte[] bytes = new byte[12];
+		ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(1).putInt(-2).putInt(0x12345678);
+		Files.write(image.toPath(), bytes);
+
+		CPU cpu = CPU.createFromJSONFile("cpu/unicycle.cpu");
+		cpu.assembleCode(".data\n.word 7, 7, 7, 7, 7\n.text\nlw $t0, 8($0)\n");
+		DataMemory memory = cpu.getDataMemory();
+		assertEquals(3, memory.loadImage(image, 4));
+		assertEquals(7, memory.getData(0));
+		assertEquals(1, memory.getData(4));
+		assertEquals(-2, memory.getData(8));
+		assertEquals(0x12345678, memory.getData(12));
+		assertEquals(7, memory.getData(16));
+		assertEquals(-2, memory.getOutput().getValue()); // the value read was propagated
+
+		File saved = tmp.newFile("saved.mem");
+		memory.saveImage(saved, 4, 3);
+		assertArrayEquals(bytes, Files.readAllBytes(saved.toPath()));
+		assertEquals(0, memory.saveImage(saved));
+		assertEquals(memory.getMemorySize() * 4, saved.length());
+		try {
+			memory.loadImage(image, (memory.getMemorySize() - 2) * 4);
+			fail("image loaded past the end of the memory");
+		} catch(IOException ex) {
+			// expected
+		}
+
+		// paged memory: saved from the first touched page
+		CPU paged = CPU.createFromJSONFile(TestUtils.createPagedCPUFile(tmp).getPath());
+		paged.getDataMemory().loadImage(image, 0x10000000);
+		assertEquals(0x12345678, paged.getDataMemory().getData(0x10000008));
+		assertEquals(0x10000000, paged.getDataMemory().saveImage(saved));
+		assertEquals(PagedMemory.PAGE_SIZE * 4, saved.length());
+		assertArrayEquals(bytes, Arrays.copyOf(Files.readAllBytes(saved.toPath()), 12));
+	}
+}
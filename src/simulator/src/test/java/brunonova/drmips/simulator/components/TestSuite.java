@@ -29,6 +29,7 @@ import org.junit.runners.Suite;
                      AndTest.class,
                      ConcatenatorTest.class,
                      ConstantTest.class,
+                     DataMemoryTest.class,
                      ForkTest.class,
                      MultiplexerTest.class,
                      NotTest.class,
@@ -0,0 +1,63 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator.util;
+
+import brunonova.drmips.simulator.TestUtils;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class JSONStreamReaderTest {
+	@Test
+	public void testFiles() throws Exception {
+		Set<File> files = new LinkedHashSet<>(); // the CPUs and their instruction sets
+		for(File file: TestUtils.getCPUFiles()) {
+			files.add(file);
+			String set = new JSONObject(new String(Files.readAllBytes(file.toPath()), "UTF-8")).getString("instructions");
+			files.add(new File(file.getParentFile(), set));
+		}
+		for(File file: files) {
+			String contents = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+			try(JSONStreamReader reader = new JSONStreamReader(new StringReader(contents))) {
+				assertTrue(file.getName(), new JSONObject(contents).similar(reader.nextObject()));
+				reader.endDocument();
+			}
+		}
+	}
+
+	@Test
+	public void testInvalid() throws Exception {
+		String[] invalid = {"{\"a\": 1,, \"b\": 2}", "{\"a\": 1, \"a\": 2}", "{\"a\": \"b}", "[1, 2", "{\"a\": 1} 2"};
+		for(String json: invalid) {
+			try(JSONStreamReader reader = new JSONStreamReader(new StringReader(json))) {
+				reader.nextValue();
+				reader.endDocument();
+				fail(json);
+			} catch(JSONException ex) {
+				// expected
+			}
+		}
+	}
+}
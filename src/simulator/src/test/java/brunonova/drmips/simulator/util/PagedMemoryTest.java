@@ -0,0 +1,90 @@
+/*
+    DrMIPS - Educational MIPS simulator
+    Copyright (C) 2013-2015 Bruno Nova <brunomb.nova@gmail.com>
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package brunonova.drmips.simulator.util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PagedMemoryTest {
+	@Test
+	public void testGetSet() {
+		PagedMemory memory = new PagedMemory();
+		assertEquals(0, memory.get(0));
+		assertEquals(0, memory.get(PagedMemory.SIZE - 1));
+		memory.set(5, 0); // doesn't allocate the page
+		assertEquals(0, memory.getNumberOfPages());
+
+		memory.set(PagedMemory.SIZE - 1, -1);
+		memory.set(5, 42);
+		memory.set(PagedMemory.PAGE_SIZE + 1, 7);
+		memory.set(6, 0);
+		assertEquals(-1, memory.get(PagedMemory.SIZE - 1));
+		assertEquals(42, memory.get(5));
+		assertEquals(7, memory.get(PagedMemory.PAGE_SIZE + 1));
+		assertEquals(0, memory.get(6));
+		assertEquals(0, memory.get(PagedMemory.PAGE_SIZE * 2));
+		assertEquals(3, memory.getNumberOfPages());
+		assertArrayEquals(new int[] {0, 1, PagedMemory.SIZE / PagedMemory.PAGE_SIZE - 1}, memory.getPages());
+		assertTrue(memory.hasPage(1));
+		assertFalse(memory.hasPage(2));
+
+		memory.clear();
+		assertEquals(0, memory.getNumberOfPages());
+		assertEquals(0, memory.get(5));
+		assertFalse(memory.hasPage(0));
+	}
+
+	@Test
+	public void testCopy() {
+		PagedMemory memory = new PagedMemory();
+		memory.set(3, 10);
+		memory.set(0x10000000, 20);
+		PagedMemory copy = new PagedMemory(memory);
+		memory.set(3, 11);
+		copy.set(4, 12);
+		assertEquals(10, copy.get(3));
+		assertEquals(20, copy.get(0x10000000));
+		assertEquals(0, memory.get(4));
+		assertArrayEquals(memory.getPages(), copy.getPages());
+	}
+
+	@Test
+	public void testPages() {
+		PagedMemory memory = new PagedMemory();
+		int[] words = new int[PagedMemory.PAGE_SIZE + 2];
+		for(int i = 0; i < words.length; i++)
+			words[i] = i;
+		memory.writePage(3, words, 2);
+		assertEquals(1, memory.getNumberOfPages());
+		assertEquals(2, memory.get(3 * PagedMemory.PAGE_SIZE));
+		assertEquals(PagedMemory.PAGE_SIZE + 1, memory.get(4 * PagedMemory.PAGE_SIZE - 1));
+
+		int[] dest = new int[PagedMemory.PAGE_SIZE + 1];
+		dest[0] = -1;
+		memory.readPage(3, dest, 1);
+		assertEquals(-1, dest[0]);
+		assertEquals(2, dest[1]);
+		assertEquals(PagedMemory.PAGE_SIZE + 1, dest[PagedMemory.PAGE_SIZE]);
+		memory.readPage(4, dest, 1); // not allocated
+		assertEquals(-1, dest[0]);
+		assertEquals(0, dest[1]);
+		assertEquals(0, dest[PagedMemory.PAGE_SIZE]);
+		assertEquals(1, memory.getNumberOfPages());
+	}
+}